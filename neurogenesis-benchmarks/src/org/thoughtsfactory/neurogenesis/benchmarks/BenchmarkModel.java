@@ -0,0 +1,107 @@
+package org.thoughtsfactory.neurogenesis.benchmarks;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.thoughtsfactory.neurogenesis.headless.HeadlessRunner;
+
+import repast.simphony.context.Context;
+import repast.simphony.engine.schedule.Schedule;
+
+
+/**
+ * A model built headless for benchmarking, with the scenario parameters
+ * except for those given by the benchmark. The random seed is fixed so that
+ * every fork of a benchmark measures the same model.
+ *
+ * The scenario parameters file is looked up in the model project next to
+ * this one, unless the {@code neurogenesis.parameters.file} system property
+ * says otherwise.
+ *
+ * @author Robert Langlois
+ */
+public final class BenchmarkModel {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The seed of the random generator of benchmark models.
+     */
+    public static final int RANDOM_SEED = 20150901;
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The runner that built the model.
+    private final HeadlessRunner runner;
+    
+    
+    // The context of the model.
+    private final Context<Object> context;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Builds a new benchmark model.
+     *
+     * @param parameters The model parameters that differ from the scenario.
+     * @throws IOException If the scenario parameters file cannot be read.
+     */
+    public BenchmarkModel(final Properties parameters) throws IOException {
+        
+        Properties configuration = new Properties();
+        configuration.setProperty("headless.parameters.file",
+                System.getProperty("neurogenesis.parameters.file",
+                        "../neurogenesis/neurogenesis.rs/parameters.xml"));
+        configuration.setProperty("randomSeed", String.valueOf(RANDOM_SEED));
+        configuration.putAll(parameters);
+        
+        this.runner = new HeadlessRunner(configuration, "benchmark");
+        this.context = this.runner.build();
+        
+    } // End of BenchmarkModel()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the context of the model.
+     *
+     * @return The context.
+     */
+    public Context<Object> getContext() {
+        return this.context;
+    }
+    
+    
+    /**
+     * Returns the schedule stepping the model.
+     *
+     * @return The schedule.
+     */
+    public Schedule getSchedule() {
+        return this.runner.getSchedule();
+    }
+    
+    
+    /**
+     * Runs the model for a number of ticks.
+     *
+     * @param ticks The number of ticks to run.
+     */
+    public void run(final int ticks) {
+        
+        for (int i = 0; i < ticks; i++) {
+            this.runner.getSchedule().execute();
+        }
+        
+    } // End of run()
+    
+    
+} // End of BenchmarkModel class
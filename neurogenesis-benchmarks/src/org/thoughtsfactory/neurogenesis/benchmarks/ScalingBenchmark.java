@@ -0,0 +1,304 @@
+package org.thoughtsfactory.neurogenesis.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.SimulationContextHolder;
+import org.thoughtsfactory.neurogenesis.brain.NeuriteStore;
+import org.thoughtsfactory.neurogenesis.brain.Neuron;
+import org.thoughtsfactory.neurogenesis.brain.UndifferentiatedCell;
+
+import repast.simphony.context.Context;
+import repast.simphony.engine.schedule.Schedule;
+
+
+/**
+ * Runs the whole model headless for a number of ticks, for every
+ * combination of grid size, genome size and cell adhesion, and reports for
+ * each run the speed of the simulation and the peak size of the model. The
+ * report is a comma separated values file, one line per run, from which
+ * scaling curves can be charted against the grid volume and the population.
+ *
+ * The benchmark is configured by a properties file:
+ * <ul>
+ * <li>{@code scaling.ticks}: the number of ticks of each run, 1000 by
+ *     default;</li>
+ * <li>{@code scaling.quadrant.sizes}: comma separated values of
+ *     {@code quadrant.size}, 5,10,15 by default;</li>
+ * <li>{@code scaling.genome.sizes}: comma separated values of
+ *     {@code genome.size}, 5,10 by default;</li>
+ * <li>{@code scaling.cell.adhesion}: comma separated values of
+ *     {@code cell.adhesion.enabled}, true,false by default;</li>
+ * <li>{@code scaling.report}: the report file,
+ *     {@code scaling-report.csv} by default.</li>
+ * </ul>
+ * Any other property is a model parameter applied to every run (see
+ * {@link BenchmarkModel}).
+ *
+ * The speed only accounts for the execution of the schedule, not for the
+ * counting of agents after each tick. The peak heap is the sum of the peak
+ * usage of the heap memory pools during the run, model building included,
+ * and is therefore an upper bound of the actual high-water mark.
+ *
+ * @author Robert Langlois
+ */
+public final class ScalingBenchmark {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The prefix of the properties that configure the benchmark.
+    private static final String BENCHMARK_PREFIX = "scaling.";
+    
+    
+    // The property giving the number of ticks of each run.
+    private static final String TICKS = "scaling.ticks";
+    
+    
+    // The property giving the values of the quadrant size.
+    private static final String QUADRANT_SIZES = "scaling.quadrant.sizes";
+    
+    
+    // The property giving the values of the genome size.
+    private static final String GENOME_SIZES = "scaling.genome.sizes";
+    
+    
+    // The property giving the values of the cell adhesion flag.
+    private static final String CELL_ADHESION = "scaling.cell.adhesion";
+    
+    
+    // The property giving the report file.
+    private static final String REPORT = "scaling.report";
+    
+    
+    // The header line of the report.
+    private static final String HEADER = "quadrantSize,genomeSize,"
+            + "cellAdhesion,gridVolume,ticks,seconds,ticksPerSecond,"
+            + "peakCells,peakNeuriteJunctions,peakHeapBytes";
+    
+    
+    // CLASS VARIABLES =========================================================
+    
+    
+    // Class logger for messages.
+    private final static Logger logger =
+            Logger.getLogger(ScalingBenchmark.class);
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The configuration of the benchmark.
+    private final Properties configuration;
+    
+    
+    // The number of ticks of each run.
+    private final int ticks;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new scaling benchmark.
+     *
+     * @param newConfiguration The configuration of the benchmark.
+     */
+    public ScalingBenchmark(final Properties newConfiguration) {
+        
+        this.configuration = newConfiguration;
+        this.ticks = Integer.parseInt(
+                newConfiguration.getProperty(TICKS, "1000").trim());
+        
+    } // End of ScalingBenchmark()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Runs the benchmark configured by the properties file given as
+     * argument, or with the default configuration if there is none.
+     *
+     * @param args The path of the properties file, if any.
+     * @throws IOException If the configuration cannot be read, a model built
+     *                     or the report written.
+     */
+    public static void main(final String[] args) throws IOException {
+        
+        Properties configuration = new Properties();
+        
+        if (args.length > 0) {
+            InputStream in = new FileInputStream(args[0]);
+            try {
+                configuration.load(in);
+            } finally {
+                in.close();
+            }
+        }
+        
+        try {
+            new ScalingBenchmark(configuration).run();
+        } finally {
+            // Release the worker threads.
+            SimulationContextHolder.getInstance().setWorkerPool(null);
+        }
+        
+    } // End of main()
+    
+    
+    /**
+     * Runs the model once for every combination of the configured values,
+     * writing one line of the report after each run.
+     *
+     * @throws IOException If a model cannot be built or the report written.
+     */
+    public void run() throws IOException {
+        
+        final String[] quadrantSizes = getValues(QUADRANT_SIZES, "5,10,15");
+        final String[] genomeSizes = getValues(GENOME_SIZES, "5,10");
+        final String[] cellAdhesions = getValues(CELL_ADHESION, "true,false");
+        
+        File report = new File(
+                this.configuration.getProperty(REPORT, "scaling-report.csv"));
+        PrintWriter writer = new PrintWriter(
+                new BufferedWriter(new FileWriter(report)));
+        
+        try {
+            
+            writer.println(HEADER);
+            
+            for (String quadrantSize : quadrantSizes) {
+                for (String genomeSize : genomeSizes) {
+                    for (String cellAdhesion : cellAdhesions) {
+                        
+                        writer.println(runOnce(quadrantSize, genomeSize,
+                                cellAdhesion));
+                        writer.flush();
+                        
+                    } // End for(cellAdhesion)
+                } // End for(genomeSize)
+            } // End for(quadrantSize)
+            
+        } finally {
+            writer.close();
+        }
+        
+        logger.info("Scaling report written to " + report);
+        
+    } // End of run()
+    
+    
+    /**
+     * Builds and runs the model with one combination of values.
+     *
+     * @param quadrantSize The value of {@code quadrant.size}.
+     * @param genomeSize The value of {@code genome.size}.
+     * @param cellAdhesion The value of {@code cell.adhesion.enabled}.
+     * @return The line of the report for the run.
+     * @throws IOException If the model cannot be built.
+     */
+    private String runOnce(final String quadrantSize, final String genomeSize,
+            final String cellAdhesion) throws IOException {
+        
+        Properties parameters = new Properties();
+        for (String key : this.configuration.stringPropertyNames()) {
+            if (!key.startsWith(BENCHMARK_PREFIX)) {
+                parameters.setProperty(key,
+                        this.configuration.getProperty(key));
+            }
+        }
+        parameters.setProperty("quadrant.size", quadrantSize);
+        parameters.setProperty("genome.size", genomeSize);
+        parameters.setProperty("cell.adhesion.enabled", cellAdhesion);
+        
+        // Leave the previous run out of the high-water mark.
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        
+        BenchmarkModel model = new BenchmarkModel(parameters);
+        Context<Object> context = model.getContext();
+        Schedule schedule = model.getSchedule();
+        
+        NeuriteStore neurites =
+                SimulationContextHolder.getInstance().getNeuriteStore();
+        
+        int peakCells = 0;
+        int peakNeuriteJunctions = 0;
+        long elapsedTime = 0;
+        
+        for (int i = 0; i < this.ticks; i++) {
+            
+            final long startTime = System.nanoTime();
+            schedule.execute();
+            elapsedTime += System.nanoTime() - startTime;
+            
+            peakCells = Math.max(peakCells,
+                    context.getObjects(UndifferentiatedCell.class).size()
+                    + context.getObjects(Neuron.class).size());
+            peakNeuriteJunctions = Math.max(peakNeuriteJunctions,
+                    neurites.getJunctionCount());
+            
+        } // End for(i)
+        
+        schedule.executeEndActions();
+        
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        
+        final long side = 2 * Long.parseLong(quadrantSize.trim()) + 1;
+        final double seconds = elapsedTime / 1e9;
+        
+        logger.info("quadrant.size=" + quadrantSize + ", genome.size="
+                + genomeSize + ", cell.adhesion.enabled=" + cellAdhesion
+                + ": " + (this.ticks / seconds) + " ticks/s.");
+        
+        StringBuilder line = new StringBuilder();
+        line.append(quadrantSize.trim())
+                .append(',').append(genomeSize.trim())
+                .append(',').append(cellAdhesion.trim())
+                .append(',').append(side * side * side)
+                .append(',').append(this.ticks)
+                .append(',').append(seconds)
+                .append(',').append(this.ticks / seconds)
+                .append(',').append(peakCells)
+                .append(',').append(peakNeuriteJunctions)
+                .append(',').append(peakHeap);
+        
+        return line.toString();
+        
+    } // End of runOnce()
+    
+    
+    /**
+     * Returns the comma separated values of a property.
+     *
+     * @param key The property.
+     * @param defaultValues The values if the property is not set.
+     * @return The values.
+     */
+    private String[] getValues(final String key, final String defaultValues) {
+        return this.configuration.getProperty(key, defaultValues).split(",");
+    }
+    
+    
+} // End of ScalingBenchmark class
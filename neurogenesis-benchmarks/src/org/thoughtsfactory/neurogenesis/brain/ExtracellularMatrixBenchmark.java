@@ -0,0 +1,202 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thoughtsfactory.neurogenesis.SimulationContextHolder;
+import org.thoughtsfactory.neurogenesis.benchmarks.BenchmarkModel;
+
+
+/**
+ * Measures the update of the whole extracellular matrix for one tick, for
+ * the grid sizes of the batch runs and every implementation of the matrix.
+ * The distributed matrix is updated one sample at a time, as the scheduler
+ * of the simulation does it. The active matrix is the stencil matrix only
+ * diffusing the rows where concentrations differ, here those of food and
+ * SAM.
+ *
+ * @author Robert Langlois
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExtracellularMatrixBenchmark {
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    /**
+     * The size of the grid from the origin to its faces.
+     */
+    @Param({ "5", "10", "15" })
+    public int quadrantSize;
+    
+    
+    /**
+     * The implementation of the matrix: {@code array}, {@code stencil},
+     * {@code active} or {@code distributed}.
+     */
+    @Param({ "array", "stencil", "active", "distributed" })
+    public String matrixType;
+    
+    
+    // The matrix updated.
+    private ExtracellularMatrix matrix;
+    
+    
+    // The array matrix, if that is the one updated.
+    private ArrayExtracellularMatrix arrayMatrix;
+    
+    
+    // The stencil matrix, active or not, if that is the one updated.
+    private StencilExtracellularMatrix stencilMatrix;
+    
+    
+    // The samples of the distributed matrix, if that is the one updated.
+    private DistributedExtracellularMatrixSample[] samples;
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Creates the matrix.
+     *
+     * @throws IOException If the model cannot be built.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        
+        Map<CellProductType, Double> initialConcentrations =
+                new HashMap<CellProductType, Double>();
+        
+        switch (this.matrixType) {
+        
+        case "array":
+            
+            this.arrayMatrix = new ArrayExtracellularMatrix(
+                    this.quadrantSize, initialConcentrations);
+            this.matrix = this.arrayMatrix;
+            break;
+        
+        case "stencil":
+            
+            this.stencilMatrix = new StencilExtracellularMatrix(
+                    this.quadrantSize, initialConcentrations);
+            this.matrix = this.stencilMatrix;
+            break;
+        
+        case "active":
+            
+            this.stencilMatrix = new StencilExtracellularMatrix(
+                    this.quadrantSize, initialConcentrations, null, 0);
+            this.matrix = this.stencilMatrix;
+            break;
+        
+        case "distributed":
+            
+            // Samples are agents: they need a model to live in.
+            Properties parameters = new Properties();
+            parameters.setProperty("quadrant.size",
+                    String.valueOf(this.quadrantSize));
+            parameters.setProperty("matrix.type", "distributed");
+            parameters.setProperty("population.extent.percent", "0");
+            
+            BenchmarkModel model = new BenchmarkModel(parameters);
+            
+            // Samples find their neighbours on the first tick.
+            model.run(1);
+            
+            List<DistributedExtracellularMatrixSample> modelSamples =
+                    new ArrayList<DistributedExtracellularMatrixSample>();
+            for (Object sample : model.getContext()
+                    .getObjects(DistributedExtracellularMatrixSample.class)) {
+                modelSamples.add((DistributedExtracellularMatrixSample) sample);
+            }
+            
+            this.samples = modelSamples.toArray(
+                    new DistributedExtracellularMatrixSample[
+                            modelSamples.size()]);
+            this.matrix = SimulationContextHolder.getInstance()
+                    .getExtracellularMatrix();
+            break;
+        
+        default:
+            
+            throw new IllegalArgumentException(
+                    "Unknown matrix type: " + this.matrixType);
+            
+        } // End switch()
+        
+    } // End of setUp()
+    
+    
+    /**
+     * Fills the matrix with gradients of food and SAM, so that every
+     * iteration diffuses the same values whatever the number of updates run
+     * before.
+     */
+    @Setup(Level.Iteration)
+    public void fill() {
+        
+        final int limit = this.quadrantSize;
+        
+        for (int x = -limit; x <= limit; x++) {
+            for (int y = -limit; y <= limit; y++) {
+                for (int z = -limit; z <= limit; z++) {
+                    
+                    ExtracellularMatrixSample sample =
+                            this.matrix.getSample(x, y, z);
+                    sample.setConcentration(CellProductType.FOOD,
+                            (double) (x + limit + 1) / (2 * limit + 1));
+                    sample.setConcentration(CellProductType.SAM,
+                            (double) (z + limit + 1) / (2 * limit + 1));
+                    
+                } // End for(z)
+            } // End for(y)
+        } // End for(x)
+        
+    } // End of fill()
+    
+    
+    /**
+     * Updates the whole matrix once.
+     */
+    @Benchmark
+    public void update() {
+        
+        if (this.arrayMatrix != null) {
+            
+            this.arrayMatrix.update();
+            
+        } else if (this.stencilMatrix != null) {
+            
+            this.stencilMatrix.update();
+            
+        } else {
+            
+            for (DistributedExtracellularMatrixSample sample : this.samples) {
+                sample.update();
+            }
+            
+        } // End if()
+        
+    } // End of update()
+    
+    
+} // End of ExtracellularMatrixBenchmark class
@@ -0,0 +1,197 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thoughtsfactory.neurogenesis.SimulationContextHolder;
+import org.thoughtsfactory.neurogenesis.benchmarks.BenchmarkModel;
+
+import repast.simphony.context.Context;
+import repast.simphony.random.RandomHelper;
+
+
+/**
+ * Measures the neuron methods run at every tick: the calculation of the
+ * activation, neuron by neuron or in a single sweep of the synapse store,
+ * and the growth of neurites. Neurons are scattered at random
+ * in the grid of a model of the sizes of the batch runs, each with its
+ * initial neurites and connected to a few other neurons.
+ *
+ * @author Robert Langlois
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NeuronBenchmark {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The number of neurons in the grid.
+    private static final int NEURON_COUNT = 64;
+    
+    
+    // The number of synapses on each neuron.
+    private static final int INPUTS_PER_NEURON = 8;
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    /**
+     * The size of the grid from the origin to its faces.
+     */
+    @Param({ "5", "10", "15" })
+    public int quadrantSize;
+    
+    
+    // The neurons of the model.
+    private Neuron[] neurons;
+    
+    
+    // The store of the synapses of the neurons.
+    private SynapseStore synapses;
+    
+    
+    // The index of the next neuron to grow a neurite.
+    private int nextNeuron = 0;
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Builds the model and its neurons.
+     *
+     * @throws IOException If the model cannot be built.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        
+        Properties parameters = new Properties();
+        parameters.setProperty("quadrant.size",
+                String.valueOf(this.quadrantSize));
+        parameters.setProperty("matrix.type", "stencil");
+        parameters.setProperty("population.extent.percent", "0");
+        
+        BenchmarkModel model = new BenchmarkModel(parameters);
+        Context<Object> context = model.getContext();
+        
+        SimulationContextHolder simulationContext =
+                SimulationContextHolder.getInstance();
+        OccupancyIndex occupancy = simulationContext.getOccupancyIndex();
+        this.synapses = simulationContext.getSynapseStore();
+        
+        List<Neuron> newNeurons = new ArrayList<Neuron>();
+        
+        while (newNeurons.size() < NEURON_COUNT) {
+            
+            final int x = RandomHelper.nextIntFromTo(
+                    -this.quadrantSize, this.quadrantSize);
+            final int y = RandomHelper.nextIntFromTo(
+                    -this.quadrantSize, this.quadrantSize);
+            final int z = RandomHelper.nextIntFromTo(
+                    -this.quadrantSize, this.quadrantSize);
+            
+            if (occupancy.isFree(x, y, z)) {
+                
+                Neuron neuron = CellFactory.getNewNeuron(
+                        "B" + newNeurons.size());
+                context.add(neuron);
+                neuron.moveTo(x, y, z);
+                
+                if (neuron.initialiseNeurites(true, true)) {
+                    newNeurons.add(neuron);
+                } else {
+                    neuron.die();
+                }
+                
+            } // End if()
+            
+        } // End while()
+        
+        this.neurons = newNeurons.toArray(new Neuron[newNeurons.size()]);
+        
+        for (Neuron neuron : this.neurons) {
+            for (int i = 0; i < INPUTS_PER_NEURON; i++) {
+                Neuron source = this.neurons[
+                        RandomHelper.nextIntFromTo(0, NEURON_COUNT - 1)];
+                this.synapses.addSynapse(source, neuron,
+                        RandomHelper.nextDoubleFromTo(-1, 1));
+            }
+        }
+        
+        // Move the synapses from the pending list to the rows.
+        this.synapses.update();
+        
+        // Give every neuron an activation to propagate.
+        calculateActivation();
+        
+    } // End of setUp()
+    
+    
+    /**
+     * Calculates the activation of every neuron, which also adjusts the
+     * weights of their synapses.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NEURON_COUNT)
+    public void calculateActivation() {
+        
+        for (Neuron neuron : this.neurons) {
+            neuron.calculateActivation();
+        }
+        
+    } // End of calculateActivation()
+    
+    
+    /**
+     * Calculates the activation of every neuron in a single sweep of the
+     * synapse store, as the phased cell update does.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NEURON_COUNT)
+    public void calculateActivations() {
+        this.synapses.calculateActivations(null);
+    }
+    
+    
+    /**
+     * Grows a dendrite from the root of a neuron, then discards it to the
+     * neurite store, where the next growth will reuse its index from.
+     *
+     * @return The new dendrite, {@link NeuriteStore#NONE} if none could grow.
+     */
+    @Benchmark
+    public int extendNeurite() {
+        
+        final Neuron neuron = this.neurons[this.nextNeuron];
+        this.nextNeuron = (this.nextNeuron + 1) % this.neurons.length;
+        
+        int dendrite = neuron.extendNeurite(
+                NeuriteJunction.Type.DENDRITE, neuron.neuritesRoot, false);
+        
+        if (dendrite != NeuriteStore.NONE) {
+            neuron.totalDendrites++;
+            neuron.discardDendriteLeaf(dendrite);
+        }
+        
+        return dendrite;
+        
+    } // End of extendNeurite()
+    
+    
+} // End of NeuronBenchmark class
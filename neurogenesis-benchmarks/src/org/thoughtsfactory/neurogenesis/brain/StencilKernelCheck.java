@@ -0,0 +1,506 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ * Checks that the stencil matrix diffuses exactly as its reference kernel,
+ * the straightforward kernel testing the borders of the grid for every grid
+ * cell that the stencil matrix ran before its inner loops were made
+ * branch-free. Both kernels are run side by side from the same seeded random
+ * concentrations, for a few grid sizes, from the calling thread and from a
+ * worker pool; the concentrations must stay identical, bit for bit, after
+ * every tick.
+ *
+ * One product starts nil everywhere and another one is only set in a few
+ * grid cells, so that the nil and sparse areas of the grid are checked as
+ * well as the dense ones. Matrices running the kernel over all rows and
+ * matrices with an activity threshold of 0, which only run it over the rows
+ * around which the concentrations vary, are both checked.
+ *
+ * The implicit steps are then checked against the explicit ticks they stand
+ * for: a cell in the middle of the grid expels the same amount of product at
+ * every tick into a matrix with implicit steps of 10 and 100 ticks and into
+ * one with explicit ticks. The relative difference of the concentrations,
+ * over the whole grid, must be at most 2% while the product is still
+ * spreading, after 2000 ticks, and at most 1e-4 at steady state, after 20000
+ * ticks.
+ *
+ * The check takes as optional arguments the comma separated quadrant sizes
+ * of the grids, 0,1,5,12 by default, the number of ticks of each run, 50 by
+ * default, and the seed of the concentrations, 1 by default. It throws an
+ * {@link IllegalStateException}, and the virtual machine exits with a non-zero
+ * status, at the first concentration that differs or is out of tolerance.
+ *
+ * @author Robert Langlois
+ */
+public final class StencilKernelCheck {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The number of neighbours of a grid cell in the middle of the grid.
+    private static final int NEIGHBOURHOOD_SIZE = 26;
+    
+    
+    // The fraction of grid cells set for the sparse product, low enough for
+    // most rows to stay inactive around the few grid cells set.
+    private static final double SPARSE_FRACTION = 0.001;
+    
+    
+    // The number of threads of the worker pool.
+    private static final int THREAD_COUNT = 4;
+    
+    
+    // The quadrant size of the grid of the implicit step check.
+    private static final int IMPLICIT_QUADRANT_SIZE = 8;
+    
+    
+    // The numbers of ticks of the implicit steps checked.
+    private static final int[] IMPLICIT_STEPS = { 10, 100 };
+    
+    
+    // The amount of product the cell of the implicit step check expels at
+    // every tick.
+    private static final double EXPELLED_AMOUNT = 0.01;
+    
+    
+    // The tick at which the implicit steps are compared while the product
+    // is still spreading, and the largest relative difference allowed then:
+    // the error of the implicit step grows with its length.
+    private static final int TRANSIENT_TICKS = 2000;
+    private static final double TRANSIENT_TOLERANCE = 0.02;
+    
+    
+    // The tick at which the implicit steps are compared at steady state, and
+    // the largest relative difference allowed then: the implicit step has
+    // the same steady state as the explicit ticks, up to its solver
+    // tolerance.
+    private static final int STEADY_TICKS = 20000;
+    private static final double STEADY_TOLERANCE = 1e-4;
+    
+    
+    // CLASS VARIABLES =========================================================
+    
+    
+    // Class logger for messages.
+    private final static Logger logger =
+            Logger.getLogger(StencilKernelCheck.class);
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The size of the grid along each axis.
+    private final int gridSize;
+    
+    
+    // The number of grid cells in a plane.
+    private final int gridArea;
+    
+    
+    // The number of grid cells in the window of each coordinate on one axis.
+    private final int[] windowSizes;
+    
+    
+    // The reference concentrations, one array per product.
+    private double[][] concentrations;
+    
+    
+    // The reference concentrations of the next tick, one array per product.
+    private double[][] newConcentrations;
+    
+    
+    // The row window sums of the reference kernel.
+    private final double[] rowSums;
+    
+    
+    // The plane window sums of the reference kernel.
+    private final double[] planeSums;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new reference kernel.
+     *
+     * @param gridQuadrantSize The size of the grid from the origin to its
+     *                         faces.
+     */
+    private StencilKernelCheck(final int gridQuadrantSize) {
+        
+        this.gridSize = gridQuadrantSize * 2 + 1;
+        this.gridArea = this.gridSize * this.gridSize;
+        
+        final int gridVolume = this.gridArea * this.gridSize;
+        final int productCount = CellProductType.values().length;
+        
+        this.concentrations = new double[productCount][gridVolume];
+        this.newConcentrations = new double[productCount][gridVolume];
+        this.rowSums = new double[gridVolume];
+        this.planeSums = new double[gridVolume];
+        
+        this.windowSizes = new int[this.gridSize];
+        for (int i = 0; i < this.gridSize; i++) {
+            this.windowSizes[i] = 1 + ((i > 0) ? 1 : 0)
+                    + ((i < this.gridSize - 1) ? 1 : 0);
+        }
+        
+    } // End of StencilKernelCheck()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Runs the check.
+     *
+     * @param args The comma separated quadrant sizes, the number of ticks and
+     *             the seed, all optional.
+     */
+    public static void main(final String[] args) {
+        
+        final String[] quadrantSizes =
+                ((args.length > 0) ? args[0] : "0,1,5,12").split(",");
+        final int ticks = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+        final long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+        
+        final ForkJoinPool workerPool = new ForkJoinPool(THREAD_COUNT);
+        
+        try {
+            for (String quadrantSize : quadrantSizes) {
+                
+                final int size = Integer.parseInt(quadrantSize.trim());
+                
+                check(new StencilExtracellularMatrix(size,
+                        new HashMap<CellProductType, Double>()),
+                        size, ticks, seed);
+                check(new StencilExtracellularMatrix(size,
+                        new HashMap<CellProductType, Double>(), workerPool),
+                        size, ticks, seed);
+                
+                // Only the rows around which the concentrations vary.
+                check(new StencilExtracellularMatrix(size,
+                        new HashMap<CellProductType, Double>(), null, 0),
+                        size, ticks, seed);
+                check(new StencilExtracellularMatrix(size,
+                        new HashMap<CellProductType, Double>(), workerPool, 0),
+                        size, ticks, seed);
+                
+                logger.info("quadrant.size=" + size + ": " + ticks
+                        + " ticks identical.");
+                
+            } // End for(quadrantSize)
+            
+            for (int implicitStep : IMPLICIT_STEPS) {
+                
+                checkImplicitStep(implicitStep);
+                
+                logger.info("implicit.step=" + implicitStep
+                        + ": within tolerance.");
+                
+            } // End for(implicitStep)
+        } finally {
+            workerPool.shutdown();
+        }
+        
+    } // End of main()
+    
+    
+    /**
+     * Runs a stencil matrix and the reference kernel side by side.
+     *
+     * @param matrix The stencil matrix, as yet empty.
+     * @param gridQuadrantSize The size of the grid from the origin to its
+     *                         faces.
+     * @param ticks The number of ticks to run.
+     * @param seed The seed of the concentrations.
+     */
+    private static void check(final StencilExtracellularMatrix matrix,
+            final int gridQuadrantSize, final int ticks, final long seed) {
+        
+        final StencilKernelCheck reference =
+                new StencilKernelCheck(gridQuadrantSize);
+        final CellProductType[] productTypes = CellProductType.values();
+        final int gridVolume = reference.gridArea * reference.gridSize;
+        final Random random = new Random(seed);
+        
+        // The first product stays nil, the second one is sparse.
+        for (int p = 1; p < productTypes.length; p++) {
+            for (int i = 0; i < gridVolume; i++) {
+                
+                if (p == 1 && random.nextDouble() >= SPARSE_FRACTION) {
+                    continue;
+                }
+                
+                final double concentration = random.nextDouble();
+                reference.concentrations[p][i] = concentration;
+                matrix.setConcentration(i, productTypes[p], concentration);
+                
+            } // End for(i)
+        } // End for(p)
+        
+        for (int tick = 1; tick <= ticks; tick++) {
+            
+            matrix.update();
+            reference.update();
+            
+            for (int p = 0; p < productTypes.length; p++) {
+                for (int i = 0; i < gridVolume; i++) {
+                    
+                    final double expected = reference.concentrations[p][i];
+                    final double actual =
+                            matrix.getConcentration(i, productTypes[p]);
+                    
+                    if (Double.doubleToLongBits(expected)
+                            != Double.doubleToLongBits(actual)) {
+                        throw new IllegalStateException("quadrant.size="
+                                + gridQuadrantSize + ", tick " + tick + ", "
+                                + productTypes[p] + " at grid cell " + i
+                                + ": " + actual + " instead of " + expected);
+                    }
+                    
+                } // End for(i)
+            } // End for(p)
+            
+        } // End for(tick)
+        
+    } // End of check()
+    
+    
+    /**
+     * Runs a stencil matrix with implicit steps and one with explicit ticks
+     * side by side, a cell in the middle of the grid expelling the same
+     * amount of product into both at every tick, and compares them at the end
+     * of an implicit step, once while the product is still spreading and once
+     * at steady state.
+     *
+     * @param implicitStep The number of ticks of an implicit step.
+     */
+    private static void checkImplicitStep(final int implicitStep) {
+        
+        final int gridSize = IMPLICIT_QUADRANT_SIZE * 2 + 1;
+        final int gridVolume = gridSize * gridSize * gridSize;
+        final int middle = gridVolume / 2;
+        final CellProductType productType = CellProductType.values()[0];
+        
+        final StencilExtracellularMatrix explicitMatrix =
+                new StencilExtracellularMatrix(IMPLICIT_QUADRANT_SIZE,
+                        new HashMap<CellProductType, Double>());
+        final StencilExtracellularMatrix implicitMatrix =
+                new StencilExtracellularMatrix(IMPLICIT_QUADRANT_SIZE,
+                        new HashMap<CellProductType, Double>());
+        implicitMatrix.setImplicitStep(implicitStep);
+        
+        for (int tick = 1; tick <= STEADY_TICKS; tick++) {
+            
+            explicitMatrix.update();
+            explicitMatrix.setConcentration(middle, productType,
+                    explicitMatrix.getConcentration(middle, productType)
+                    + EXPELLED_AMOUNT);
+            
+            implicitMatrix.update();
+            
+            // The implicit step spreads what was expelled during the step
+            // over the step, the amount of this tick included: it is
+            // compared with the explicit ticks once the cell has expelled.
+            if (tick == TRANSIENT_TICKS || tick == STEADY_TICKS) {
+                
+                double differenceNorm = 0;
+                double norm = 0;
+                
+                for (int i = 0; i < gridVolume; i++) {
+                    
+                    final double expected =
+                            explicitMatrix.getConcentration(i, productType);
+                    final double difference = expected
+                            - implicitMatrix.getConcentration(i, productType);
+                    
+                    differenceNorm += difference * difference;
+                    norm += expected * expected;
+                    
+                } // End for(i)
+                
+                final double relativeDifference =
+                        Math.sqrt(differenceNorm / norm);
+                final double tolerance = (tick == STEADY_TICKS)
+                        ? STEADY_TOLERANCE : TRANSIENT_TOLERANCE;
+                
+                if (relativeDifference > tolerance) {
+                    throw new IllegalStateException("implicit.step="
+                            + implicitStep + ", tick " + tick
+                            + ": relative difference " + relativeDifference
+                            + " above " + tolerance);
+                }
+                
+            } // End if()
+            
+            implicitMatrix.setConcentration(middle, productType,
+                    implicitMatrix.getConcentration(middle, productType)
+                    + EXPELLED_AMOUNT);
+            
+        } // End for(tick)
+        
+    } // End of checkImplicitStep()
+    
+    
+    /**
+     * Diffuses all products for one tick with the reference kernel.
+     */
+    private void update() {
+        
+        final int rowCount = this.gridArea;
+        
+        for (int p = 0; p < this.concentrations.length; p++) {
+            sumRows(this.concentrations[p], 0, rowCount);
+            sumColumns(0, rowCount);
+            diffuse(this.concentrations[p], this.newConcentrations[p],
+                    0, rowCount);
+        }
+        
+        double[][] swap = this.concentrations;
+        this.concentrations = this.newConcentrations;
+        this.newConcentrations = swap;
+        
+    } // End of update()
+    
+    
+    /**
+     * First pass of the reference kernel: sums the concentrations of each
+     * grid cell and of its neighbours on the x-axis.
+     *
+     * @param current The current concentrations of a product.
+     * @param fromRow The first row to process.
+     * @param toRow The row after the last one to process.
+     */
+    private void sumRows(final double[] current,
+            final int fromRow, final int toRow) {
+        
+        final int last = this.gridSize - 1;
+        
+        for (int r = fromRow; r < toRow; r++) {
+            
+            final int row = r * this.gridSize;
+            
+            for (int x = 0; x < this.gridSize; x++) {
+                
+                final int i = row + x;
+                
+                double sum = current[i];
+                
+                if (x > 0) {
+                    sum += current[i - 1];
+                }
+                
+                if (x < last) {
+                    sum += current[i + 1];
+                }
+                
+                this.rowSums[i] = sum;
+                
+            } // End for(x)
+            
+        } // End for(r)
+        
+    } // End of sumRows()
+    
+    
+    /**
+     * Second pass of the reference kernel: sums the row sums of each grid
+     * cell and of its neighbours on the y-axis.
+     *
+     * @param fromRow The first row to process.
+     * @param toRow The row after the last one to process.
+     */
+    private void sumColumns(final int fromRow, final int toRow) {
+        
+        final int last = this.gridSize - 1;
+        
+        for (int r = fromRow; r < toRow; r++) {
+            
+            final int y = r % this.gridSize;
+            final int row = r * this.gridSize;
+            
+            for (int i = row; i < row + this.gridSize; i++) {
+                
+                double sum = this.rowSums[i];
+                
+                if (y > 0) {
+                    sum += this.rowSums[i - this.gridSize];
+                }
+                
+                if (y < last) {
+                    sum += this.rowSums[i + this.gridSize];
+                }
+                
+                this.planeSums[i] = sum;
+                
+            } // End for(i)
+            
+        } // End for(r)
+        
+    } // End of sumColumns()
+    
+    
+    /**
+     * Last pass of the reference kernel: sums the plane sums of each grid
+     * cell and of its neighbours on the z-axis, then applies diffusion and
+     * decay.
+     *
+     * @param current The current concentrations of a product.
+     * @param next Receives the new concentrations of the product.
+     * @param fromRow The first row to process.
+     * @param toRow The row after the last one to process.
+     */
+    private void diffuse(final double[] current, final double[] next,
+            final int fromRow, final int toRow) {
+        
+        final int last = this.gridSize - 1;
+        final double exchangeRate = StencilExtracellularMatrix.DIFFUSION_RATE
+                / NEIGHBOURHOOD_SIZE;
+        final double decayRate = StencilExtracellularMatrix.DECAY_RATE;
+        
+        for (int r = fromRow; r < toRow; r++) {
+            
+            final int z = r / this.gridSize;
+            final int y = r % this.gridSize;
+            final int row = r * this.gridSize;
+            final int windowSizeYZ =
+                    this.windowSizes[y] * this.windowSizes[z];
+            
+            for (int x = 0; x < this.gridSize; x++) {
+                
+                final int i = row + x;
+                
+                double windowSum = this.planeSums[i];
+                
+                if (z > 0) {
+                    windowSum += this.planeSums[i - this.gridArea];
+                }
+                
+                if (z < last) {
+                    windowSum += this.planeSums[i + this.gridArea];
+                }
+                
+                // The window includes the grid cell itself.
+                final double localConcentration = current[i];
+                final double exchanged = windowSum - localConcentration
+                        * (this.windowSizes[x] * windowSizeYZ);
+                
+                next[i] = (localConcentration + exchanged * exchangeRate)
+                        * (1 - decayRate);
+                
+            } // End for(x)
+            
+        } // End for(r)
+        
+    } // End of diffuse()
+    
+    
+} // End of StencilKernelCheck class
@@ -0,0 +1,102 @@
+package org.thoughtsfactory.neurogenesis.genetics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thoughtsfactory.neurogenesis.RandomStream;
+import org.thoughtsfactory.neurogenesis.benchmarks.BenchmarkModel;
+
+
+/**
+ * Measures the affinity calculation between genetic elements. An operation
+ * is the affinity of every trans-element (including the input elements) of
+ * a genome for every cis-element, as when a genome is evaluated without
+ * being compiled.
+ *
+ * @author Robert Langlois
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GeneticElementBenchmark {
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    /**
+     * The number of regulatory units of the genome.
+     */
+    @Param({ "5", "10" })
+    public int genomeSize;
+    
+    
+    // The trans-elements and input elements of the genome.
+    private GeneticElement[] transElements;
+    
+    
+    // The cis-elements of the genome.
+    private GeneticElement[] cisElements;
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Creates a random genome and collects its elements.
+     */
+    @Setup
+    public void setUp() {
+        
+        Genome genome = new GenomeFactory(
+                new RandomStream(BenchmarkModel.RANDOM_SEED))
+                .getNewGenome(this.genomeSize).getGenome();
+        
+        List<GeneticElement> trans = new ArrayList<GeneticElement>(
+                Arrays.asList(genome.getInputElements()));
+        List<GeneticElement> cis = new ArrayList<GeneticElement>();
+        
+        for (int u = 0; u < genome.getUnitCount(); u++) {
+            RegulatoryUnit unit = genome.getRegulatoryUnit(u);
+            trans.addAll(Arrays.asList(unit.getTransElements()));
+            cis.addAll(Arrays.asList(unit.getCisElements()));
+        }
+        
+        this.transElements = trans.toArray(new GeneticElement[trans.size()]);
+        this.cisElements = cis.toArray(new GeneticElement[cis.size()]);
+        
+    } // End of setUp()
+    
+    
+    /**
+     * Calculates the affinity of every trans-element for every cis-element.
+     *
+     * @return The sum of the affinities.
+     */
+    @Benchmark
+    public double getAffinityForCisElement() {
+        
+        double sum = 0;
+        
+        for (GeneticElement transElement : this.transElements) {
+            for (GeneticElement cisElement : this.cisElements) {
+                sum += transElement.getAffinityForCisElement(cisElement);
+            }
+        }
+        
+        return sum;
+        
+    } // End of getAffinityForCisElement()
+    
+    
+} // End of GeneticElementBenchmark class
@@ -0,0 +1,130 @@
+package org.thoughtsfactory.neurogenesis.genetics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thoughtsfactory.neurogenesis.Configuration;
+import org.thoughtsfactory.neurogenesis.RandomStream;
+import org.thoughtsfactory.neurogenesis.benchmarks.BenchmarkModel;
+
+
+/**
+ * Measures the update of the regulatory networks of a population made of a
+ * few clonal groups, network by network and in batches grouped by genome,
+ * both on a single thread. An operation updates every network once.
+ *
+ * @author Robert Langlois
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RegulatoryNetworkBatchBenchmark {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The number of distinct genomes of the population.
+    private static final int GENOME_COUNT = 4;
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    /**
+     * The number of regulatory units of each genome.
+     */
+    @Param({ "5", "10" })
+    public int genomeSize;
+    
+    
+    /**
+     * The number of networks of the population.
+     */
+    @Param({ "1000", "10000" })
+    public int networkCount;
+    
+    
+    // The networks updated, the clones of each genome spread over the array
+    // as cells of different lineages are in the updater.
+    private RegulatoryNetwork[] networks;
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Creates the clonal groups and brings their networks to a steady
+     * regime.
+     */
+    @Setup
+    public void setUp() {
+        
+        Configuration.getInstance().setCompiledRegulatoryNetworks(true);
+        
+        GenomeFactory genomeFactory = new GenomeFactory(
+                new RandomStream(BenchmarkModel.RANDOM_SEED));
+        RegulatoryNetwork[] founders = new RegulatoryNetwork[GENOME_COUNT];
+        
+        for (int g = 0; g < GENOME_COUNT; g++) {
+            
+            founders[g] = genomeFactory.getNewGenome(this.genomeSize);
+            
+            for (int i = 0; i < founders[g].getInputCount(); i++) {
+                founders[g].setInputConcentration(i, 0.5);
+            }
+            
+        } // End for(g)
+        
+        this.networks = new RegulatoryNetwork[this.networkCount];
+        
+        for (int n = 0; n < this.networkCount; n++) {
+            
+            this.networks[n] = founders[n % GENOME_COUNT].clone();
+            
+            for (int i = 0; i < this.networks[n].getInputCount(); i++) {
+                this.networks[n].setInputConcentration(
+                        i, (double) n / this.networkCount);
+            }
+            
+        } // End for(n)
+        
+        // Past the expression of the networks on the first updates.
+        for (int i = 0; i < 100; i++) {
+            updateEachNetwork();
+        }
+        
+    } // End of setUp()
+    
+    
+    /**
+     * Updates the networks one by one.
+     */
+    @Benchmark
+    public void updateEachNetwork() {
+        
+        for (RegulatoryNetwork network : this.networks) {
+            network.updateNetwork();
+        }
+        
+    } // End of updateEachNetwork()
+    
+    
+    /**
+     * Updates the networks in batches grouped by genome.
+     */
+    @Benchmark
+    public void updateNetworksInBatches() {
+        RegulatoryNetworkBatch.updateNetworks(
+                this.networks, this.networkCount, null);
+    }
+    
+    
+} // End of RegulatoryNetworkBatchBenchmark class
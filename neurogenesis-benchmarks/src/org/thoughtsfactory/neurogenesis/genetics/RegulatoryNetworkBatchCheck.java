@@ -0,0 +1,213 @@
+package org.thoughtsfactory.neurogenesis.genetics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.Configuration;
+import org.thoughtsfactory.neurogenesis.RandomStream;
+
+
+/**
+ * Checks that updating regulatory networks in batches grouped by genome
+ * leaves them exactly as updating them one by one. Two copies of a
+ * population made of a few clonal groups, and of a few mutants with a genome
+ * of their own, are fed the same seeded random input concentrations at every
+ * tick; one is updated network by network, the other in batches, from the
+ * calling thread and from a worker pool. The state of every network, as
+ * written to a checkpoint, must stay identical, bit for bit, after every
+ * tick.
+ *
+ * The check takes as optional arguments the comma separated genome sizes,
+ * 5,10 by default, the number of ticks of each run, 50 by default, and the
+ * seed of the genomes and concentrations, 1 by default. It throws an
+ * {@link IllegalStateException}, and the virtual machine exits with a non-zero
+ * status, at the first network whose state differs.
+ *
+ * @author Robert Langlois
+ */
+public final class RegulatoryNetworkBatchCheck {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The number of distinct genomes of the clonal groups.
+    private static final int GENOME_COUNT = 4;
+    
+    
+    // The number of networks of the population, so that the clonal groups
+    // span several blocks and end with a partial one.
+    private static final int NETWORK_COUNT = 1000;
+    
+    
+    // One network in so many is a mutant with a genome of its own.
+    private static final int MUTANT_INTERVAL = 97;
+    
+    
+    // The number of threads of the worker pool.
+    private static final int THREAD_COUNT = 4;
+    
+    
+    // CLASS VARIABLES =========================================================
+    
+    
+    // Class logger for messages.
+    private final static Logger logger =
+            Logger.getLogger(RegulatoryNetworkBatchCheck.class);
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Prevents instantiation.
+     */
+    private RegulatoryNetworkBatchCheck() {
+    }
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Runs the check.
+     *
+     * @param args The comma separated genome sizes, the number of ticks and
+     *             the seed, all optional.
+     * @throws IOException Never, the states are written to memory.
+     */
+    public static void main(final String[] args) throws IOException {
+        
+        final String[] genomeSizes =
+                ((args.length > 0) ? args[0] : "5,10").split(",");
+        final int ticks = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+        final long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+        
+        Configuration.getInstance().setCompiledRegulatoryNetworks(true);
+        
+        final ForkJoinPool workerPool = new ForkJoinPool(THREAD_COUNT);
+        
+        try {
+            for (String genomeSize : genomeSizes) {
+                
+                final int size = Integer.parseInt(genomeSize.trim());
+                
+                check(size, ticks, seed, null);
+                check(size, ticks, seed, workerPool);
+                
+                logger.info("genome.size=" + size + ": " + ticks
+                        + " ticks identical.");
+                
+            } // End for(genomeSize)
+        } finally {
+            workerPool.shutdown();
+        }
+        
+    } // End of main()
+    
+    
+    /**
+     * Runs a population updated network by network and its copy updated in
+     * batches side by side.
+     *
+     * @param genomeSize The number of regulatory units of each genome.
+     * @param ticks The number of ticks to run.
+     * @param seed The seed of the genomes and concentrations.
+     * @param workerPool The pool updating the batches, or {@code null} to
+     *                   update them from the calling thread.
+     * @throws IOException Never, the states are written to memory.
+     */
+    private static void check(final int genomeSize, final int ticks,
+            final long seed, final ForkJoinPool workerPool)
+            throws IOException {
+        
+        final RandomStream randomStream = new RandomStream(seed);
+        final GenomeFactory genomeFactory = new GenomeFactory(randomStream);
+        final RegulatoryNetwork[] founders =
+                new RegulatoryNetwork[GENOME_COUNT];
+        
+        for (int g = 0; g < GENOME_COUNT; g++) {
+            founders[g] = genomeFactory.getNewGenome(genomeSize);
+        }
+        
+        // The clones of each genome are spread over the array, as cells of
+        // different lineages are in the updater.
+        final RegulatoryNetwork[] networks =
+                new RegulatoryNetwork[NETWORK_COUNT];
+        final RegulatoryNetwork[] batchedNetworks =
+                new RegulatoryNetwork[NETWORK_COUNT];
+        
+        for (int n = 0; n < NETWORK_COUNT; n++) {
+            
+            networks[n] = founders[n % GENOME_COUNT].clone();
+            
+            if (n % MUTANT_INTERVAL == MUTANT_INTERVAL - 1) {
+                networks[n].mutate(randomStream);
+            }
+            
+            batchedNetworks[n] = networks[n].clone();
+            
+        } // End for(n)
+        
+        final Random random = new Random(seed);
+        
+        for (int tick = 1; tick <= ticks; tick++) {
+            
+            for (int n = 0; n < NETWORK_COUNT; n++) {
+                for (int i = 0; i < networks[n].getInputCount(); i++) {
+                    
+                    final double concentration = random.nextDouble();
+                    networks[n].setInputConcentration(i, concentration);
+                    batchedNetworks[n].setInputConcentration(i, concentration);
+                    
+                } // End for(i)
+            } // End for(n)
+            
+            for (RegulatoryNetwork network : networks) {
+                network.updateNetwork();
+            }
+            
+            RegulatoryNetworkBatch.updateNetworks(
+                    batchedNetworks, NETWORK_COUNT, workerPool);
+            
+            for (int n = 0; n < NETWORK_COUNT; n++) {
+                
+                if (!Arrays.equals(getState(networks[n]),
+                        getState(batchedNetworks[n]))) {
+                    throw new IllegalStateException("genome.size="
+                            + genomeSize + ", tick " + tick + ": network "
+                            + n + " differs"
+                            + ((workerPool == null) ? "" : " in parallel"));
+                }
+                
+            } // End for(n)
+            
+        } // End for(tick)
+        
+    } // End of check()
+    
+    
+    /**
+     * Returns the state of a network as written to a checkpoint.
+     *
+     * @param network The network.
+     * @return The bytes of its state.
+     * @throws IOException Never, the state is written to memory.
+     */
+    private static byte[] getState(final RegulatoryNetwork network)
+            throws IOException {
+        
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        network.writeState(new DataOutputStream(bytes));
+        
+        return bytes.toByteArray();
+        
+    } // End of getState()
+    
+    
+} // End of RegulatoryNetworkBatchCheck class
@@ -0,0 +1,121 @@
+package org.thoughtsfactory.neurogenesis.genetics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thoughtsfactory.neurogenesis.Configuration;
+import org.thoughtsfactory.neurogenesis.RandomStream;
+import org.thoughtsfactory.neurogenesis.benchmarks.BenchmarkModel;
+
+
+/**
+ * Measures the evaluation of gene regulatory networks, i.e. what every cell
+ * does at every tick in {@code updateRegulatoryNetwork()} and
+ * {@code updateCellConcentrations()}, for the genome sizes of the batch
+ * runs and both evaluation engines.
+ *
+ * @author Robert Langlois
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RegulatoryNetworkBenchmark {
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    /**
+     * The number of regulatory units of the genome.
+     */
+    @Param({ "5", "10" })
+    public int genomeSize;
+    
+    
+    /**
+     * Evaluates the compiled form of the genome if {@code true}, the genome
+     * itself otherwise.
+     */
+    @Param({ "true", "false" })
+    public boolean compiled;
+    
+    
+    // The network evaluated.
+    private RegulatoryNetwork network;
+    
+    
+    // The current concentration of each output, as held by a cell.
+    private double[] outputConcentrations;
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Creates a random genome and brings its network to a steady regime.
+     */
+    @Setup
+    public void setUp() {
+        
+        Configuration.getInstance().setCompiledRegulatoryNetworks(
+                this.compiled);
+        
+        this.network = new GenomeFactory(
+                new RandomStream(BenchmarkModel.RANDOM_SEED))
+                .getNewGenome(this.genomeSize);
+        
+        for (int i = 0; i < this.network.getInputCount(); i++) {
+            this.network.setInputConcentration(i, 0.5);
+        }
+        
+        this.outputConcentrations =
+                new double[this.network.getOutputCount()];
+        for (int i = 0; i < this.outputConcentrations.length; i++) {
+            this.outputConcentrations[i] = 0.5;
+        }
+        
+        // Past the expression of the network on the first updates.
+        for (int i = 0; i < 100; i++) {
+            this.network.updateNetwork();
+        }
+        
+    } // End of setUp()
+    
+    
+    /**
+     * Updates the concentrations of the regulatory units.
+     */
+    @Benchmark
+    public void updateNetwork() {
+        this.network.updateNetwork();
+    }
+    
+    
+    /**
+     * Calculates the concentration delta of every output element.
+     *
+     * @return The sum of the deltas.
+     */
+    @Benchmark
+    public double calculateOutputConcentrationDeltas() {
+        
+        double sum = 0;
+        
+        for (int i = 0; i < this.outputConcentrations.length; i++) {
+            sum += this.network.calculateOutputConcentrationDelta(
+                    i, this.outputConcentrations[i]);
+        }
+        
+        return sum;
+        
+    } // End of calculateOutputConcentrationDeltas()
+    
+    
+} // End of RegulatoryNetworkBenchmark class
@@ -1,6 +1,11 @@
 package org.thoughtsfactory.neurogenesis;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.TickProfiler.Probe;
 
 import repast.simphony.engine.schedule.ScheduleParameters;
 import repast.simphony.engine.schedule.ScheduledMethod;
@@ -138,6 +143,8 @@ public class ArenaSupervisor {
             priority = ScheduleParameters.FIRST_PRIORITY)
     public void update() {
 
+        final long startTime = TickProfiler.start();
+        
         logger.info("Updating arena...");
         
         // Constant velocity.
@@ -146,8 +153,10 @@ public class ArenaSupervisor {
         
         for (LightSensor sensor : this.robot.getLightSensors()) {
             
-            logger.debug("Sensor angular position: " 
-                    + this.robot.getAngularPosition(sensor) / Math.PI);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Sensor angular position: "
+                        + this.robot.getAngularPosition(sensor) / Math.PI);
+            }
             
             double distanceSquared = 
                     Math.pow(this.lightSource.getRadiusOfTrajectory(), 2) 
@@ -157,8 +166,10 @@ public class ArenaSupervisor {
                             - this.robot.getAngularPosition(sensor)))
                     + Math.pow(this.robot.getRadius(), 2);
             
-            logger.debug("Distance: " + Math.sqrt(distanceSquared) 
-                    + ", Max: " + this.maxIlluminationDistance);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Distance: " + Math.sqrt(distanceSquared)
+                        + ", Max: " + this.maxIlluminationDistance);
+            }
             
             double lightIntensity = 0;
             if (Math.sqrt(distanceSquared) <= this.maxIlluminationDistance) {
@@ -173,6 +184,8 @@ public class ArenaSupervisor {
         this.sumAverageAngleDelta += getAngleDeltaLightAndRobot();
         this.tickCount++;
         
+        TickProfiler.stop(Probe.ARENA, startTime);
+        
     } // End of update()
     
     
@@ -272,4 +285,39 @@ public class ArenaSupervisor {
     }
     
 
+    /**
+     * Writes the state of the arena to a checkpoint: the state of the robot,
+     * of the light source and the running average of the angle between them.
+     *
+     * @param out The checkpoint output.
+     * @throws IOException If the state cannot be written.
+     */
+    public void writeState(final DataOutput out) throws IOException {
+        
+        this.robot.writeState(out);
+        this.lightSource.writeState(out);
+        
+        out.writeDouble(this.sumAverageAngleDelta);
+        out.writeLong(this.tickCount);
+        
+    } // End of writeState()
+    
+    
+    /**
+     * Reads the state written by {@link #writeState} into the arena.
+     *
+     * @param in The checkpoint input.
+     * @throws IOException If the state cannot be read.
+     */
+    public void readState(final DataInput in) throws IOException {
+        
+        this.robot.readState(in);
+        this.lightSource.readState(in);
+        
+        this.sumAverageAngleDelta = in.readDouble();
+        this.tickCount = in.readLong();
+        
+    } // End of readState()
+    
+    
 } // End of ArenaSupervisor class
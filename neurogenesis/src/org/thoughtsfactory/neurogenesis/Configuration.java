@@ -30,6 +30,32 @@ public final class Configuration {
 
     // Indicates if the cell adhesion feature is enabled.
     private boolean cellAdhesionEnabled;
+    
+    
+    // The number of worker threads for parallel computations, or 0 to use
+    // one thread per available processor.
+    private int threadCount;
+    
+    
+    // Indicates if the life cycle of gene regulated cells is run in phases
+    // across all cells rather than cell by cell.
+    private boolean phasedCellUpdate;
+    
+    
+    // Indicates if neurons calculate their activation from the activations
+    // of the previous tick rather than from the latest ones.
+    private boolean synchronousActivation;
+    
+    
+    // Indicates if the regulatory networks of all cells are updated together,
+    // grouped by genome, when the life cycle is run in phases.
+    private boolean batchedRegulatoryNetworks;
+    
+    
+    // Indicates if regulatory networks are updated through their compiled,
+    // array-based form rather than through maps of genetic element
+    // concentrations.
+    private boolean compiledRegulatoryNetworks = true;
 
     
     // CONSTRUCTORS ============================================================
@@ -117,4 +143,125 @@ public final class Configuration {
     }
     
 
+    /**
+     * Returns the number of worker threads for parallel computations.
+     *
+     * @return The number of threads, or 0 for one thread per available
+     *         processor.
+     */
+    public int getThreadCount() {
+        return this.threadCount;
+    }
+    
+    
+    /**
+     * Sets the number of worker threads for parallel computations.
+     *
+     * @param newThreadCount The number of threads, or 0 for one thread per
+     *                       available processor.
+     */
+    public void setThreadCount(final int newThreadCount) {
+        this.threadCount = newThreadCount;
+    }
+
+
+    /**
+     * Indicates if the life cycle of gene regulated cells is run in phases
+     * across all cells rather than cell by cell.
+     *
+     * @return {@code true} if the phased cell update is enabled,
+     *         {@code false} otherwise.
+     */
+    public boolean isPhasedCellUpdate() {
+        return this.phasedCellUpdate;
+    }
+    
+    
+    /**
+     * Specify if the life cycle of gene regulated cells is run in phases
+     * across all cells rather than cell by cell.
+     *
+     * @param newValue {@code true} if the phased cell update is enabled,
+     *                 {@code false} otherwise.
+     */
+    public void setPhasedCellUpdate(final boolean newValue) {
+        this.phasedCellUpdate = newValue;
+    }
+    
+    
+    /**
+     * Indicates if neurons calculate their activation from the activations
+     * of the previous tick rather than from the latest ones.
+     *
+     * @return {@code true} if the synchronous activation is enabled,
+     *         {@code false} otherwise.
+     */
+    public boolean isSynchronousActivation() {
+        return this.synchronousActivation;
+    }
+    
+    
+    /**
+     * Specify if neurons calculate their activation from the activations of
+     * the previous tick rather than from the latest ones.
+     *
+     * @param newValue {@code true} if the synchronous activation is enabled,
+     *                 {@code false} otherwise.
+     */
+    public void setSynchronousActivation(final boolean newValue) {
+        this.synchronousActivation = newValue;
+    }
+    
+    
+    /**
+     * Indicates if the regulatory networks of all cells are updated
+     * together, grouped by genome, when the life cycle of the cells is run in
+     * phases.
+     *
+     * @return {@code true} if the regulatory networks are updated in
+     *         batches, {@code false} otherwise.
+     */
+    public boolean isBatchedRegulatoryNetworks() {
+        return this.batchedRegulatoryNetworks;
+    }
+    
+    
+    /**
+     * Specify if the regulatory networks of all cells are updated together,
+     * grouped by genome, when the life cycle of the cells is run in phases.
+     *
+     * @param newValue {@code true} if the regulatory networks are updated in
+     *                 batches, {@code false} otherwise.
+     */
+    public void setBatchedRegulatoryNetworks(final boolean newValue) {
+        this.batchedRegulatoryNetworks = newValue;
+    }
+    
+    
+    /**
+     * Indicates if regulatory networks are updated through their compiled,
+     * array-based form rather than through maps of genetic element
+     * concentrations.
+     *
+     * @return {@code true} if the compiled evaluation is enabled, which is
+     *         the default, {@code false} otherwise.
+     */
+    public boolean isCompiledRegulatoryNetworks() {
+        return this.compiledRegulatoryNetworks;
+    }
+    
+    
+    /**
+     * Specify if regulatory networks are updated through their compiled,
+     * array-based form rather than through maps of genetic element
+     * concentrations.
+     *
+     * @param newValue {@code true} if the compiled evaluation is enabled,
+     *                 {@code false} otherwise.
+     */
+    public void setCompiledRegulatoryNetworks(final boolean newValue) {
+        this.compiledRegulatoryNetworks = newValue;
+    }
+    
+    
 } // End of Configuration class
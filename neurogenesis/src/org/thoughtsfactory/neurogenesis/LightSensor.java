@@ -106,8 +106,10 @@ public class LightSensor implements Sensor {
                 robot.getRadius() * Math.cos(robot.getAngularPosition(this)), 
                 robot.getRadius() * Math.sin(robot.getAngularPosition(this)));
         
-        logger.debug("Updating sensor (" + getLabel() 
-                + ") with intensity " + newLightIntensity);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Updating sensor (" + getLabel()
+                    + ") with intensity " + newLightIntensity);
+        }
         this.lightIntensity = newLightIntensity;
         
     } // End of update()
@@ -1,5 +1,9 @@
 package org.thoughtsfactory.neurogenesis;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.log4j.Logger;
 
 import repast.simphony.space.continuous.ContinuousSpace;
@@ -120,8 +124,10 @@ public class LightSource {
         this.angularPosition = 
                 (this.angularPosition + this.angularVelocity) % (2 * Math.PI);
         
-        logger.debug("Light source angular position: "
-                + this.angularPosition / Math.PI);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Light source angular position: "
+                    + this.angularPosition / Math.PI);
+        }
         
         this.space.moveTo(this, 
                 this.radiusOfTrajectory * Math.cos(this.angularPosition), 
@@ -130,4 +136,36 @@ public class LightSource {
     } // End update()
     
 
+    /**
+     * Writes the state of the light source to a checkpoint.
+     *
+     * @param out The checkpoint output.
+     * @throws IOException If the state cannot be written.
+     */
+    void writeState(final DataOutput out) throws IOException {
+        
+        out.writeDouble(this.angularPosition);
+        out.writeDouble(this.angularVelocity);
+        
+    } // End of writeState()
+    
+    
+    /**
+     * Reads the state written by {@link #writeState} into the light source.
+     *
+     * @param in The checkpoint input.
+     * @throws IOException If the state cannot be read.
+     */
+    void readState(final DataInput in) throws IOException {
+        
+        this.angularPosition = in.readDouble();
+        this.angularVelocity = in.readDouble();
+        
+        this.space.moveTo(this,
+                this.radiusOfTrajectory * Math.cos(this.angularPosition),
+                this.radiusOfTrajectory * Math.sin(this.angularPosition));
+        
+    } // End of readState()
+    
+    
 } // End of LightSource class
@@ -2,6 +2,7 @@ package org.thoughtsfactory.neurogenesis;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.log4j.Logger;
 import org.thoughtsfactory.neurogenesis.brain.CellFactory;
@@ -11,8 +12,13 @@ import org.thoughtsfactory.neurogenesis.brain.ExtracellularMatrix;
 import org.thoughtsfactory.neurogenesis.brain.FoodInputNeuron;
 import org.thoughtsfactory.neurogenesis.brain.InputNeuron;
 import org.thoughtsfactory.neurogenesis.brain.MotionInputNeuron;
+import org.thoughtsfactory.neurogenesis.brain.NeuriteStore;
 import org.thoughtsfactory.neurogenesis.brain.Neuron;
+import org.thoughtsfactory.neurogenesis.brain.OccupancyIndex;
 import org.thoughtsfactory.neurogenesis.brain.OutputNeuron;
+import org.thoughtsfactory.neurogenesis.brain.PhasedCellUpdater;
+import org.thoughtsfactory.neurogenesis.brain.StencilExtracellularMatrix;
+import org.thoughtsfactory.neurogenesis.brain.SynapseStore;
 import org.thoughtsfactory.neurogenesis.brain.TestInputNeuron;
 import org.thoughtsfactory.neurogenesis.brain.TestOutputNeuron;
 import org.thoughtsfactory.neurogenesis.brain.UndifferentiatedCell;
@@ -26,6 +32,7 @@ import repast.simphony.context.space.grid.GridFactoryFinder;
 import repast.simphony.dataLoader.ContextBuilder;
 import repast.simphony.engine.environment.RunEnvironment;
 import repast.simphony.parameter.Parameters;
+import repast.simphony.random.RandomHelper;
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.continuous.RandomCartesianAdder;
 import repast.simphony.space.graph.Network;
@@ -127,6 +134,24 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
     private double initialMatrixFoodConcentration;
     
 
+    // The type of extracellular matrix: "distributed" or "stencil".
+    private String extracellularMatrixType;
+    
+    
+    // The largest concentration difference around a row of the stencil
+    // matrix for which the row is not diffused, negative to diffuse all rows.
+    private double matrixActivityThreshold;
+    
+    
+    // The number of ticks advanced by each implicit update of the stencil
+    // matrix, 1 to update it with the explicit kernel.
+    private int matrixImplicitStep;
+    
+    
+    // The number of ticks after which the simulation ends.
+    private int simulationTicks;
+    
+    
     // METHODS =================================================================
     
     
@@ -144,6 +169,16 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
         SimulationContextHolder simulationContext = 
                 SimulationContextHolder.getInstance();
         
+        int threadCount = Configuration.getInstance().getThreadCount();
+        if (threadCount <= 0) {
+            threadCount = Runtime.getRuntime().availableProcessors();
+        }
+        
+        simulationContext.setWorkerPool(new ForkJoinPool(threadCount));
+        
+        // Each agent draws from its own stream, derived from the run seed.
+        simulationContext.setRandomSeed(RandomHelper.getSeed());
+        
         ContinuousSpaceFactory spaceFactory =
                 ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null);
         
@@ -175,6 +210,8 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
                             this.brainGridOrigin }));
         
         simulationContext.setBrainGrid(this.brainGrid);
+        simulationContext.setOccupancyIndex(
+                new OccupancyIndex(this.brainGridQuadrantSize));
 
         NetworkBuilder<Object> netBuilder = 
                 new NetworkBuilder<Object>("neural network", context, true);
@@ -186,6 +223,37 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
         this.neuritesNetwork = netBuilder.buildNetwork();
         simulationContext.setNeuritesNetwork(this.neuritesNetwork);
 
+        // Must listen to the context before any neuron is added.
+        SynapseStore synapseStore = new SynapseStore(this.neuralNetwork,
+                Configuration.getInstance().isSynchronousActivation());
+        simulationContext.setSynapseStore(synapseStore);
+        context.addContextListener(synapseStore);
+        context.add(synapseStore);
+        
+        // Neurite junctions only need to be agents when they are displayed.
+        NeuriteStore neuriteStore = new NeuriteStore(context, this.brainSpace,
+                this.neuritesNetwork, simulationContext.getOccupancyIndex(),
+                !RunEnvironment.getInstance().isBatch());
+        simulationContext.setNeuriteStore(neuriteStore);
+        context.add(neuriteStore);
+        
+        // The profiler can also be enabled later, through JMX.
+        TickProfiler profiler = TickProfiler.getInstance();
+        profiler.reset();
+        profiler.register();
+        context.add(profiler);
+        
+        if (Configuration.getInstance().isPhasedCellUpdate()) {
+            
+            // Must listen to the context before any cell is added.
+            PhasedCellUpdater cellUpdater = new PhasedCellUpdater(
+                    simulationContext.getWorkerPool(), synapseStore,
+                    Configuration.getInstance().isBatchedRegulatoryNetworks());
+            context.addContextListener(cellUpdater);
+            context.add(cellUpdater);
+            
+        } // End if()
+        
         setupArena(context);
         
         if (this.controlTestSetup) {
@@ -206,7 +274,7 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
         
         setupInitialEnvironment(context);
         
-        RunEnvironment.getInstance().endAt(20000);
+        RunEnvironment.getInstance().endAt(this.simulationTicks);
         
         return context;
         
@@ -223,6 +291,7 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
         Configuration config = Configuration.getInstance();
         
         this.controlTestSetup = params.getBoolean("simulation.test");
+        this.simulationTicks = params.getInteger("simulation.ticks");
         
         config.setGenomeSize(params.getInteger("genome.size"));
         
@@ -237,6 +306,10 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
         //this.initialPopulationExtent = params.getInteger("population.extent");
         this.initialMatrixFoodConcentration = 
                 params.getDouble("matrix.food.concentration");
+        this.extracellularMatrixType = params.getString("matrix.type");
+        this.matrixActivityThreshold =
+                params.getDouble("matrix.activity.threshold");
+        this.matrixImplicitStep = params.getInteger("matrix.implicit.step");
         
         Neuron.MAX_DENDRITE_ROOTS = params.getInteger("dendrites.roots.max");
         Neuron.MAX_DENDRITE_LEAVES = params.getInteger("dendrites.leaves.max");
@@ -245,6 +318,18 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
         config.setCellAdhesionEnabled(
                 params.getBoolean("cell.adhesion.enabled"));
         
+        config.setThreadCount(params.getInteger("simulation.threads"));
+        config.setPhasedCellUpdate(params.getBoolean("cell.update.phased"));
+        config.setSynchronousActivation(
+                params.getBoolean("neuron.activation.synchronous"));
+        config.setBatchedRegulatoryNetworks(
+                params.getBoolean("genome.batched"));
+        config.setCompiledRegulatoryNetworks(
+                params.getBoolean("genome.compiled"));
+        
+        TickProfiler.getInstance().setEnabled(
+                params.getBoolean("profiler.enabled"));
+        
     } // End of initialiseParameters()
 
     
@@ -378,9 +463,31 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
         initialConcentrations.put(CellProductType.FOOD, 
                 this.initialMatrixFoodConcentration);
 
-        ExtracellularMatrix matrix = new DistributedExtracellularMatrix(
-                context, this.brainSpace, this.brainGrid, 
-                this.brainGridQuadrantSize,    initialConcentrations);
+        ExtracellularMatrix matrix;
+        
+        if ("stencil".equals(this.extracellularMatrixType)) {
+            
+            StencilExtracellularMatrix stencilMatrix =
+                    new StencilExtracellularMatrix(
+                            this.brainGridQuadrantSize, initialConcentrations,
+                            SimulationContextHolder.getInstance()
+                                    .getWorkerPool(),
+                            this.matrixActivityThreshold);
+            stencilMatrix.setImplicitStep(this.matrixImplicitStep);
+            stencilMatrix.deploySamples(
+                    context, this.brainSpace, this.brainGrid);
+            
+            // The matrix agent schedules the diffusion of the whole grid.
+            context.add(stencilMatrix);
+            matrix = stencilMatrix;
+        
+        } else {
+            
+            matrix = new DistributedExtracellularMatrix(
+                    context, this.brainSpace, this.brainGrid,
+                    this.brainGridQuadrantSize,    initialConcentrations);
+        
+        } // End if()
 
         SimulationContextHolder simulationContext = 
                 SimulationContextHolder.getInstance();        
@@ -399,6 +506,9 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
         logger.info("Creating initial cell population: extent = " 
                 + this.initialPopulationExtent);
         
+        OccupancyIndex occupancyIndex =
+                SimulationContextHolder.getInstance().getOccupancyIndex();
+        
         for (int x = -this.initialPopulationExtent; 
                 x <= this.initialPopulationExtent; x++) {
             
@@ -408,8 +518,7 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
                 for (int z = -this.initialPopulationExtent; 
                         z <= this.initialPopulationExtent; z++) {
                     
-                    if (!this.brainGrid.getObjectsAt(x, y, z)
-                            .iterator().hasNext()) {
+                    if (occupancyIndex.isFree(x, y, z)) {
                     
                         UndifferentiatedCell motherCell = 
                                 CellFactory.getNewUndifferentiatedCell(
@@ -440,8 +549,7 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
         Neuron neuron = CellFactory.getNewNeuron("");
         
         context.add(neuron);
-        this.brainSpace.moveTo(neuron, 0.5, 0.5, 0.5);
-        this.brainGrid.moveTo(neuron, 0, 0, 0);
+        neuron.moveTo(0, 0, 0);
 
     } // End of setupTestNeuron()
     
@@ -459,10 +567,7 @@ public class NeurogenesisBuilder implements ContextBuilder<Object> {
         Neuron neuron1 = CellFactory.getNewNeuron("");
         
         context.add(neuron1);
-        this.brainSpace.moveTo(neuron1, 
-                this.brainGridQuadrantSize - offsetNeuronPos + 0.5, 0.5, 0.5);
-        this.brainGrid.moveTo(neuron1, 
-                this.brainGridQuadrantSize - offsetNeuronPos, 0, 0);
+        neuron1.moveTo(this.brainGridQuadrantSize - offsetNeuronPos, 0, 0);
 
         Neuron neuron2 = CellFactory.getNewNeuron("");
         
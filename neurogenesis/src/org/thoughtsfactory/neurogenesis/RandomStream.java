@@ -0,0 +1,204 @@
+package org.thoughtsfactory.neurogenesis;
+
+
+/**
+ * A stream of pseudo-random numbers owned by a single agent, so that the
+ * numbers an agent draws do not depend on how many numbers the other agents
+ * drew before it, nor on the thread it is updated on. The stream of an agent
+ * is derived from the seed of the run and the ID of the agent alone: a run
+ * replayed with the same seed draws the same numbers for each agent,
+ * whatever the order in which the agents are updated.
+ *
+ * The generator is SplitMix64: a 64-bit counter incremented by the golden
+ * ratio, whose value is scrambled by a mixing function. Its whole state is a
+ * single {@code long}, which makes it cheap to create one per agent and to
+ * checkpoint. A stream can be split into a child stream statistically
+ * independent from it.
+ *
+ * Instances are not thread-safe: each agent owns its own.
+ *
+ * @author Robert Langlois
+ */
+public final class RandomStream {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The increment of the counter: the odd integer closest to 2^64 divided
+    // by the golden ratio.
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    
+    
+    // The offset basis of the 64-bit FNV-1a hash of agent IDs.
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    
+    
+    // The prime of the 64-bit FNV-1a hash of agent IDs.
+    private static final long FNV_PRIME = 0x100000001B3L;
+    
+    
+    // The weight of the lowest bit of a double drawn from 53 random bits.
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The counter of the generator.
+    private long state;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new stream from a seed.
+     *
+     * @param seed The seed of the stream.
+     */
+    public RandomStream(final long seed) {
+        
+        this.state = mix(seed);
+        
+    } // End of RandomStream(long)
+    
+    
+    /**
+     * Creates the stream of an agent.
+     *
+     * @param runSeed The random seed of the run.
+     * @param agentId The ID of the agent, unique within the run.
+     */
+    public RandomStream(final long runSeed, final String agentId) {
+        
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < agentId.length(); i++) {
+            hash = (hash ^ agentId.charAt(i)) * FNV_PRIME;
+        }
+        
+        this.state = mix(runSeed ^ mix(hash));
+        
+    } // End of RandomStream(long, String)
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the next random number.
+     *
+     * @return A random {@code long}, all values being equally likely.
+     */
+    public long nextLong() {
+        
+        this.state += GOLDEN_GAMMA;
+        return mix(this.state);
+        
+    } // End of nextLong()
+    
+    
+    /**
+     * Returns the next random number as a double.
+     *
+     * @return A random double, between 0 (inclusive) and 1 (exclusive).
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+    
+    
+    /**
+     * Returns the next random number as a double within a range.
+     *
+     * @param from The lower bound, inclusive.
+     * @param to The upper bound, exclusive.
+     * @return A random double in the range.
+     */
+    public double nextDoubleFromTo(final double from, final double to) {
+        return from + (to - from) * nextDouble();
+    }
+    
+    
+    /**
+     * Returns the next random number as an integer within a range, all the
+     * integers of the range being equally likely.
+     *
+     * @param from The lower bound, inclusive.
+     * @param to The upper bound, inclusive.
+     * @return A random integer in the range.
+     */
+    public int nextIntFromTo(final int from, final int to) {
+        
+        if (from > to) {
+            throw new IllegalArgumentException(
+                    "Empty range: " + from + " to " + to);
+        }
+        
+        final long bound = (long) to - from + 1;
+        
+        // Draw again the values of the last, incomplete, multiple of the
+        // bound, so that no integer is more likely than the others.
+        
+        long value = nextLong() >>> 1;
+        long remainder = value % bound;
+        
+        while (value - remainder + (bound - 1) < 0) {
+            value = nextLong() >>> 1;
+            remainder = value % bound;
+        }
+        
+        return (int) (from + remainder);
+        
+    } // End of nextIntFromTo()
+    
+    
+    /**
+     * Creates a child stream, statistically independent from this one. This
+     * stream advances by one number.
+     *
+     * @return The new stream.
+     */
+    public RandomStream split() {
+        return new RandomStream(nextLong());
+    }
+    
+    
+    /**
+     * Returns the state of the stream, to be checkpointed.
+     *
+     * @return The counter of the generator.
+     */
+    public long getState() {
+        return this.state;
+    }
+    
+    
+    /**
+     * Restores a state of the stream returned by {@link #getState}.
+     *
+     * @param newState The counter of the generator.
+     */
+    public void setState(final long newState) {
+        this.state = newState;
+    }
+    
+    
+    /**
+     * Scrambles the bits of a value (variant 13 of the MurmurHash3
+     * finaliser), so that nearby values give unrelated results.
+     *
+     * @param value The value to scramble.
+     * @return The scrambled value.
+     */
+    private static long mix(final long value) {
+        
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+        
+    } // End of mix()
+    
+    
+} // End of RandomStream class
@@ -1,5 +1,9 @@
 package org.thoughtsfactory.neurogenesis;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.log4j.Logger;
 
 import repast.simphony.context.Context;
@@ -240,10 +244,14 @@ public class Robot {
     public void update() {
         
         double leftAcceleration = this.leftMotor.getAcceleration();
-        logger.debug("Left motor accelration: " + leftAcceleration);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Left motor accelration: " + leftAcceleration);
+        }
         
         double rightAcceleration = this.rightMotor.getAcceleration();
-        logger.debug("Right motor accelration: " + rightAcceleration);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Right motor accelration: " + rightAcceleration);
+        }
         
         // Calculates new velocity.
         double newAngularVelocity = this.angularVelocity 
@@ -260,9 +268,11 @@ public class Robot {
         this.angularPosition = normaliseAngularPosition(this.angularPosition 
                 + this.angularVelocity);
         
-        logger.debug("Robot's angular position: "
-                + this.angularPosition / Math.PI);
-        logger.debug("Robot's angular velocity: " + this.angularVelocity);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Robot's angular position: "
+                    + this.angularPosition / Math.PI);
+            logger.debug("Robot's angular velocity: " + this.angularVelocity);
+        }
         
         if (this.angularVelocity < 0) {
             this.leftMotionSensor.update(0);
@@ -325,4 +335,48 @@ public class Robot {
     } // End of setUp()
     
 
+    /**
+     * Writes the state of the robot to a checkpoint: its motion and the state
+     * of its sensors and motors.
+     *
+     * @param out The checkpoint output.
+     * @throws IOException If the state cannot be written.
+     */
+    void writeState(final DataOutput out) throws IOException {
+        
+        out.writeDouble(this.angularPosition);
+        out.writeDouble(this.angularVelocity);
+        
+        out.writeDouble(this.leftLightSensor.getLightIntensity());
+        out.writeDouble(this.rightLightSensor.getLightIntensity());
+        out.writeDouble(this.leftMotionSensor.getSpeedRatio());
+        out.writeDouble(this.rightMotionSensor.getSpeedRatio());
+        out.writeDouble(this.leftMotor.getAcceleration());
+        out.writeDouble(this.rightMotor.getAcceleration());
+        
+    } // End of writeState()
+    
+    
+    /**
+     * Reads the state written by {@link #writeState} into the robot.
+     *
+     * @param in The checkpoint input.
+     * @throws IOException If the state cannot be read.
+     */
+    void readState(final DataInput in) throws IOException {
+        
+        this.angularPosition = in.readDouble();
+        this.angularVelocity = in.readDouble();
+        
+        // Also moves the light sensors along with the robot.
+        this.leftLightSensor.update(this, in.readDouble());
+        this.rightLightSensor.update(this, in.readDouble());
+        this.leftMotionSensor.update(in.readDouble());
+        this.rightMotionSensor.update(in.readDouble());
+        this.leftMotor.setValue(in.readDouble());
+        this.rightMotor.setValue(in.readDouble());
+        
+    } // End of readState()
+    
+    
 } // End of Robot class
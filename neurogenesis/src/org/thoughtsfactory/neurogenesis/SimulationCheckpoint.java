@@ -0,0 +1,279 @@
+package org.thoughtsfactory.neurogenesis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.thoughtsfactory.neurogenesis.brain.BrainCheckpoint;
+import org.thoughtsfactory.neurogenesis.brain.CellProductType;
+import org.thoughtsfactory.neurogenesis.brain.ExtracellularMatrix;
+import org.thoughtsfactory.neurogenesis.brain.ExtracellularMatrixSample;
+
+import cern.jet.random.engine.RandomEngine;
+
+import repast.simphony.context.Context;
+import repast.simphony.random.RandomHelper;
+
+
+/**
+ * A simulation checkpoint is a binary snapshot of the whole state of a
+ * running model, written and read as a single stream:
+ * <ul>
+ * <li>a header: the format version, the size of the brain grid and the tick
+ *     at which the checkpoint was written;</li>
+ * <li>the concentrations of the extracellular matrix, grid cell by grid
+ *     cell; a stencil matrix updated with implicit steps starts a new step
+ *     when restored, the ticks run since its last step are not saved;</li>
+ * <li>the state of the arena: the robot, its sensors and motors, and the
+ *     light source;</li>
+ * <li>the state of the brain (see {@link BrainCheckpoint}): the genomes, the
+ *     cells with their random streams, the neurites and the synapses;</li>
+ * <li>the random generator shared by the model, in its Java serialized
+ *     form.</li>
+ * </ul>
+ *
+ * A checkpoint is restored into a model newly built with the same
+ * parameters, e.g. to run many experiments from the brain grown by a single
+ * long developmental run. The random generator is restored last, as adding
+ * cells to the context draws their initial position in the continuous space.
+ *
+ * @author Robert Langlois
+ */
+public final class SimulationCheckpoint {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The first four bytes of a checkpoint: "NGCP".
+    private static final int MAGIC_NUMBER = 0x4E474350;
+    
+    
+    // The version of the checkpoint format.
+    private static final int VERSION = 2;
+    
+    
+    // The size of the buffers of the checkpoint streams.
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Prevents instantiation.
+     */
+    private SimulationCheckpoint() {
+    }
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Writes the state of the model to a checkpoint file.
+     *
+     * @param context The Repast simulation context.
+     * @param tick The tick the model has completed.
+     * @param file The checkpoint file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void save(final Context<Object> context, final double tick,
+            final File file) throws IOException {
+        
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), BUFFER_SIZE));
+        
+        try {
+            write(context, tick, out);
+        } finally {
+            out.close();
+        }
+        
+    } // End of save()
+    
+    
+    /**
+     * Reads the state of the model from a checkpoint file into a newly built
+     * model.
+     *
+     * @param context The Repast simulation context.
+     * @param file The checkpoint file.
+     * @return The tick the model had completed when the checkpoint was
+     *         written.
+     * @throws IOException If the file cannot be read, or does not match the
+     *                     model.
+     */
+    public static double restore(final Context<Object> context,
+            final File file) throws IOException {
+        
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_SIZE));
+        
+        try {
+            return read(context, in);
+        } finally {
+            in.close();
+        }
+        
+    } // End of restore()
+    
+    
+    /**
+     * Writes the state of the model to a checkpoint stream.
+     *
+     * @param context The Repast simulation context.
+     * @param tick The tick the model has completed.
+     * @param out The checkpoint output.
+     * @throws IOException If the state cannot be written.
+     */
+    public static void write(final Context<Object> context, final double tick,
+            final DataOutput out) throws IOException {
+        
+        final int gridQuadrantSize =
+                Configuration.getInstance().getBrainGridQuadrantSize();
+        
+        out.writeInt(MAGIC_NUMBER);
+        out.writeInt(VERSION);
+        out.writeInt(gridQuadrantSize);
+        out.writeDouble(tick);
+        
+        ExtracellularMatrix matrix =
+                SimulationContextHolder.getInstance().getExtracellularMatrix();
+        
+        for (int x = -gridQuadrantSize; x <= gridQuadrantSize; x++) {
+            for (int y = -gridQuadrantSize; y <= gridQuadrantSize; y++) {
+                for (int z = -gridQuadrantSize; z <= gridQuadrantSize; z++) {
+                    
+                    ExtracellularMatrixSample sample =
+                            matrix.getSample(x, y, z);
+                    
+                    for (CellProductType productType :
+                            CellProductType.values()) {
+                        out.writeDouble(sample.getConcentration(productType));
+                    }
+                    
+                } // End for(z)
+            } // End for(y)
+        } // End for(x)
+        
+        getArenaSupervisor(context).writeState(out);
+        
+        BrainCheckpoint.write(context, out);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream objects = new ObjectOutputStream(bytes);
+        objects.writeObject(RandomHelper.getGenerator());
+        objects.close();
+        
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+        
+    } // End of write()
+    
+    
+    /**
+     * Reads the state of the model from a checkpoint stream into a newly
+     * built model.
+     *
+     * @param context The Repast simulation context.
+     * @param in The checkpoint input.
+     * @return The tick the model had completed when the checkpoint was
+     *         written.
+     * @throws IOException If the state cannot be read, or does not match the
+     *                     model.
+     */
+    public static double read(final Context<Object> context,
+            final DataInput in) throws IOException {
+        
+        if (in.readInt() != MAGIC_NUMBER) {
+            throw new IOException("Not a checkpoint!");
+        }
+        
+        final int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version: " + version);
+        }
+        
+        final int gridQuadrantSize =
+                Configuration.getInstance().getBrainGridQuadrantSize();
+        final int checkpointQuadrantSize = in.readInt();
+        
+        if (checkpointQuadrantSize != gridQuadrantSize) {
+            throw new IOException("Checkpoint of a grid quadrant size of "
+                    + checkpointQuadrantSize + ", model of "
+                    + gridQuadrantSize + "!");
+        }
+        
+        final double tick = in.readDouble();
+        
+        ExtracellularMatrix matrix =
+                SimulationContextHolder.getInstance().getExtracellularMatrix();
+        
+        for (int x = -gridQuadrantSize; x <= gridQuadrantSize; x++) {
+            for (int y = -gridQuadrantSize; y <= gridQuadrantSize; y++) {
+                for (int z = -gridQuadrantSize; z <= gridQuadrantSize; z++) {
+                    
+                    ExtracellularMatrixSample sample =
+                            matrix.getSample(x, y, z);
+                    
+                    for (CellProductType productType :
+                            CellProductType.values()) {
+                        sample.setConcentration(productType, in.readDouble());
+                    }
+                    
+                } // End for(z)
+            } // End for(y)
+        } // End for(x)
+        
+        getArenaSupervisor(context).readState(in);
+        
+        BrainCheckpoint.read(context, in);
+        
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        
+        ObjectInputStream objects =
+                new ObjectInputStream(new ByteArrayInputStream(bytes));
+        
+        try {
+            RandomHelper.setGenerator((RandomEngine) objects.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown random generator!", e);
+        } finally {
+            objects.close();
+        }
+        
+        // The default distribution must draw from the restored generator.
+        RandomHelper.createUniform();
+        
+        return tick;
+        
+    } // End of read()
+    
+    
+    /**
+     * Returns the arena supervisor of the model.
+     *
+     * @param context The Repast simulation context.
+     * @return The arena supervisor.
+     */
+    private static ArenaSupervisor getArenaSupervisor(
+            final Context<Object> context) {
+        return (ArenaSupervisor)
+                context.getObjects(ArenaSupervisor.class).get(0);
+    }
+    
+    
+} // End of SimulationCheckpoint class
@@ -1,6 +1,11 @@
 package org.thoughtsfactory.neurogenesis;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.thoughtsfactory.neurogenesis.brain.ExtracellularMatrix;
+import org.thoughtsfactory.neurogenesis.brain.NeuriteStore;
+import org.thoughtsfactory.neurogenesis.brain.OccupancyIndex;
+import org.thoughtsfactory.neurogenesis.brain.SynapseStore;
 
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.graph.Network;
@@ -56,4 +61,45 @@ public interface SimulationContext {
     public ExtracellularMatrix getExtracellularMatrix();    
     
 
+    /**
+     * Returns the index of the occupants of each grid cell of the brain.
+     *
+     * @return An occupancy index.
+     */
+    public OccupancyIndex getOccupancyIndex();
+    
+    
+    /**
+     * Returns the store of the synapses of the neural network.
+     *
+     * @return A synapse store.
+     */
+    public SynapseStore getSynapseStore();
+    
+    
+    /**
+     * Returns the store of the neurite junctions of the brain.
+     *
+     * @return A neurite store.
+     */
+    public NeuriteStore getNeuriteStore();
+    
+    
+    /**
+     * Returns the pool of worker threads shared by parallel computations.
+     *
+     * @return A fork-join pool.
+     */
+    public ForkJoinPool getWorkerPool();
+
+
+    /**
+     * Returns the random seed of the run, from which the random stream of
+     * each agent is derived.
+     *
+     * @return The random seed.
+     */
+    public long getRandomSeed();
+    
+    
 } // End of SimulationContext interface
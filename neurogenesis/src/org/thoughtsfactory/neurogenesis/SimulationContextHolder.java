@@ -1,6 +1,11 @@
 package org.thoughtsfactory.neurogenesis;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.thoughtsfactory.neurogenesis.brain.ExtracellularMatrix;
+import org.thoughtsfactory.neurogenesis.brain.NeuriteStore;
+import org.thoughtsfactory.neurogenesis.brain.OccupancyIndex;
+import org.thoughtsfactory.neurogenesis.brain.SynapseStore;
 
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.graph.Network;
@@ -47,6 +52,26 @@ public final class SimulationContextHolder implements SimulationContext {
     private ExtracellularMatrix extracellularMatrix;
     
     
+    // The index of the occupants of each grid cell of the brain.
+    private OccupancyIndex occupancyIndex;
+    
+    
+    // The store of the synapses of the neural network.
+    private SynapseStore synapseStore;
+    
+    
+    // The store of the neurite junctions of the brain.
+    private NeuriteStore neuriteStore;
+    
+    
+    // The pool of worker threads shared by parallel computations.
+    private ForkJoinPool workerPool;
+    
+    
+    // The random seed of the run.
+    private long randomSeed;
+    
+    
     // CONSTRUCTORS ============================================================
     
     
@@ -126,6 +151,62 @@ public final class SimulationContextHolder implements SimulationContext {
     }
     
     
+    /**
+     * Returns the index of the occupants of each grid cell of the brain.
+     *
+     * @return An occupancy index.
+     */
+    @Override
+    public OccupancyIndex getOccupancyIndex() {
+        return this.occupancyIndex;
+    }
+    
+    
+    /**
+     * Returns the store of the synapses of the neural network.
+     *
+     * @return A synapse store.
+     */
+    @Override
+    public SynapseStore getSynapseStore() {
+        return this.synapseStore;
+    }
+    
+    
+    /**
+     * Returns the store of the neurite junctions of the brain.
+     *
+     * @return A neurite store.
+     */
+    @Override
+    public NeuriteStore getNeuriteStore() {
+        return this.neuriteStore;
+    }
+    
+    
+    /**
+     * Returns the pool of worker threads shared by parallel computations.
+     *
+     * @return A fork-join pool.
+     */
+    @Override
+    public ForkJoinPool getWorkerPool() {
+        return this.workerPool;
+    }
+    
+    
+    /**
+     * Returns the random seed of the run, from which the random stream of
+     * each agent is derived.
+     *
+     * @return The random seed.
+     */
+    @Override
+    public long getRandomSeed() {
+        return this.randomSeed;
+    }
+    
+    
     /**
      * Sets the continuous space from which all visual brain objects are
      * displayed.
@@ -178,4 +259,62 @@ public final class SimulationContextHolder implements SimulationContext {
     }
     
     
+    /**
+     * Sets the index of the occupants of each grid cell of the brain.
+     *
+     * @param newOccupancyIndex An occupancy index.
+     */
+    public void setOccupancyIndex(final OccupancyIndex newOccupancyIndex) {
+        this.occupancyIndex = newOccupancyIndex;
+    }
+    
+    
+    /**
+     * Sets the store of the synapses of the neural network.
+     *
+     * @param newSynapseStore A synapse store.
+     */
+    public void setSynapseStore(final SynapseStore newSynapseStore) {
+        this.synapseStore = newSynapseStore;
+    }
+    
+    
+    /**
+     * Sets the store of the neurite junctions of the brain.
+     *
+     * @param newNeuriteStore A neurite store.
+     */
+    public void setNeuriteStore(final NeuriteStore newNeuriteStore) {
+        this.neuriteStore = newNeuriteStore;
+    }
+    
+    
+    /**
+     * Sets the pool of worker threads shared by parallel computations. The
+     * previous pool, if any, is shut down.
+     *
+     * @param newWorkerPool A fork-join pool.
+     */
+    public void setWorkerPool(final ForkJoinPool newWorkerPool) {
+        
+        if ((this.workerPool != null) && (this.workerPool != newWorkerPool)) {
+            this.workerPool.shutdown();
+        }
+        
+        this.workerPool = newWorkerPool;
+    
+    } // End of setWorkerPool()
+
+
+    /**
+     * Sets the random seed of the run, from which the random stream of each
+     * agent is derived.
+     *
+     * @param newRandomSeed The random seed.
+     */
+    public void setRandomSeed(final long newRandomSeed) {
+        this.randomSeed = newRandomSeed;
+    }
+    
+    
 } // End of SimulationContextHolder class
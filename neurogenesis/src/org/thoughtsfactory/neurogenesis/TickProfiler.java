@@ -0,0 +1,410 @@
+package org.thoughtsfactory.neurogenesis;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+import repast.simphony.engine.schedule.ScheduleParameters;
+import repast.simphony.engine.schedule.ScheduledMethod;
+
+
+/**
+ * A tick profiler holds a singleton that accumulates the time spent and the
+ * number of calls in each phase of the cell life cycle and in the scheduled
+ * update of each type of agent. The code is instrumented by probes, each a
+ * pair of calls around the profiled code:
+ * <pre>
+ * final long startTime = TickProfiler.start();
+ * ...
+ * TickProfiler.stop(TickProfiler.Probe.GRN, startTime);
+ * </pre>
+ * When profiling is disabled, a probe costs no more than the read of a flag.
+ *
+ * At the end of every tick, the values recorded during the tick become the
+ * record of the last tick and are added to the totals. Both are exposed
+ * through JMX and can be written by a headless run.
+ *
+ * Probes nest: bump cascades are part of cell division, and the life cycle
+ * phases are part of the update of their agent type. The time of the phases
+ * run concurrently by the phased cell update adds up the time of all
+ * threads. Output neurons are updated with the same priority as the end of
+ * the tick, so their time may be recorded in the next tick.
+ *
+ * @author Robert Langlois
+ */
+public final class TickProfiler implements TickProfilerMBean {
+    
+    
+    /**
+     * An enumeration of the probes: life cycle phases first, then agent
+     * types.
+     */
+    public enum Probe {
+        
+        ABSORB,
+        GRN,
+        CONCENTRATIONS,
+        DEATH,
+        DIVISION,
+        BUMP,
+        DIFFERENTIATION,
+        ADHESION,
+        MOVEMENT,
+        EXPEL,
+        AXON_GROWTH,
+        DENDRITE_GROWTH,
+        ACTIVATION,
+        UNDIFFERENTIATED_CELLS,
+        NEURONS,
+        INPUT_NEURONS,
+        OUTPUT_NEURONS,
+        PHASED_CELLS,
+        EXTRACELLULAR_MATRIX,
+        ARENA,
+        
+    } // End of Probe enum
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The name under which the profiler is registered with the platform MBean
+     * server.
+     */
+    public static final String OBJECT_NAME =
+            "org.thoughtsfactory.neurogenesis:type=TickProfiler";
+    
+    
+    // The number of probes.
+    private static final int PROBE_COUNT = Probe.values().length;
+    
+    
+    // CLASS VARIABLES =========================================================
+    
+    
+    // Class logger for messages.
+    private final static Logger logger = Logger.getLogger(TickProfiler.class);
+    
+    
+    // The singleton instance.
+    private static final TickProfiler profiler = new TickProfiler();
+    
+    
+    // Indicates if the probes are recording.
+    private static volatile boolean enabled = false;
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The time spent in each probe during the current tick.
+    private final AtomicLongArray tickTimes =
+            new AtomicLongArray(PROBE_COUNT);
+    
+    
+    // The number of calls of each probe during the current tick.
+    private final AtomicLongArray tickCalls =
+            new AtomicLongArray(PROBE_COUNT);
+    
+    
+    // The time spent in each probe during the last tick.
+    private final long[] lastTickTimes = new long[PROBE_COUNT];
+    
+    
+    // The number of calls of each probe during the last tick.
+    private final long[] lastTickCalls = new long[PROBE_COUNT];
+    
+    
+    // The time spent in each probe since the last reset.
+    private final long[] totalTimes = new long[PROBE_COUNT];
+    
+    
+    // The number of calls of each probe since the last reset.
+    private final long[] totalCalls = new long[PROBE_COUNT];
+    
+    
+    // The number of ticks profiled since the last reset.
+    private long tickCount;
+    
+    
+    // The time at which the last tick ended, 0 if none did.
+    private long lastTickEndTime;
+    
+    
+    // The wall time of the last tick.
+    private long lastTickWallTime;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Private constructor: prevents instantiation.
+     */
+    private TickProfiler() {
+    }
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the tick profiler singleton.
+     *
+     * @return The tick profiler instance.
+     */
+    public static TickProfiler getInstance() {
+        return profiler;
+    }
+    
+    
+    /**
+     * Starts a probe.
+     *
+     * @return The start time to give to {@link #stop}, 0 if profiling is
+     *         disabled.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+    
+    
+    /**
+     * Stops a probe, recording the time elapsed since it started.
+     *
+     * @param probe The probe.
+     * @param startTime The time returned by {@link #start}.
+     */
+    public static void stop(final Probe probe, final long startTime) {
+        
+        // Profiling may have been enabled since the probe started.
+        if (enabled && startTime != 0) {
+            profiler.tickTimes.addAndGet(probe.ordinal(),
+                    System.nanoTime() - startTime);
+            profiler.tickCalls.incrementAndGet(probe.ordinal());
+        }
+        
+    } // End of stop()
+    
+    
+    /**
+     * Registers the profiler with the platform MBean server, unless it is
+     * already registered.
+     */
+    public void register() {
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        
+        try {
+            
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+            
+        } catch (JMException e) {
+            logger.warn("Tick profiler not registered with JMX.", e);
+        }
+        
+    } // End of register()
+    
+    
+    /**
+     * Ends the current tick: its record becomes the record of the last tick
+     * and is added to the totals.
+     *
+     * This method is scheduled for execution at every tick of the simulation
+     * with a LAST priority, i.e. after most cellular agents.
+     */
+    @ScheduledMethod(start = 1, interval = 1,
+            priority = ScheduleParameters.LAST_PRIORITY)
+    public synchronized void endTick() {
+        
+        if (!enabled) {
+            this.lastTickEndTime = 0;
+            return;
+        }
+        
+        for (int i = 0; i < PROBE_COUNT; i++) {
+            
+            this.lastTickTimes[i] = this.tickTimes.getAndSet(i, 0);
+            this.lastTickCalls[i] = this.tickCalls.getAndSet(i, 0);
+            this.totalTimes[i] += this.lastTickTimes[i];
+            this.totalCalls[i] += this.lastTickCalls[i];
+            
+        } // End for(i)
+        
+        final long now = System.nanoTime();
+        this.lastTickWallTime = (this.lastTickEndTime == 0)
+                ? 0 : now - this.lastTickEndTime;
+        this.lastTickEndTime = now;
+        this.tickCount++;
+        
+    } // End of endTick()
+    
+    
+    /**
+     * Returns the time spent in a probe during the last tick profiled.
+     *
+     * @param probe The probe.
+     * @return The time in nanoseconds.
+     */
+    public synchronized long getLastTickTime(final Probe probe) {
+        return this.lastTickTimes[probe.ordinal()];
+    }
+    
+    
+    /**
+     * Returns the number of calls of a probe during the last tick profiled.
+     *
+     * @param probe The probe.
+     * @return The number of calls.
+     */
+    public synchronized long getLastTickCalls(final Probe probe) {
+        return this.lastTickCalls[probe.ordinal()];
+    }
+    
+    
+    // INTERFACES IMPLEMENTATION -----------------------------------------------
+    
+    
+    /**
+     * Indicates if the probes are recording.
+     *
+     * @return {@code true} if profiling is enabled, {@code false} otherwise.
+     */
+    @Override // TickProfilerMBean
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    
+    /**
+     * Starts or stops the recording of the probes.
+     *
+     * @param newValue {@code true} to enable profiling, {@code false} to
+     *                 disable it.
+     */
+    @Override // TickProfilerMBean
+    public void setEnabled(final boolean newValue) {
+        enabled = newValue;
+    }
+    
+    
+    /**
+     * Returns the number of ticks profiled since the last reset.
+     *
+     * @return The number of ticks.
+     */
+    @Override // TickProfilerMBean
+    public synchronized long getTickCount() {
+        return this.tickCount;
+    }
+    
+    
+    /**
+     * Returns the wall time of the last tick profiled.
+     *
+     * @return The time in nanoseconds, 0 for the first tick profiled.
+     */
+    @Override // TickProfilerMBean
+    public synchronized long getLastTickWallTime() {
+        return this.lastTickWallTime;
+    }
+    
+    
+    /**
+     * Returns the names of the probes.
+     *
+     * @return The names, in probe order.
+     */
+    @Override // TickProfilerMBean
+    public String[] getProbeNames() {
+        
+        String[] names = new String[PROBE_COUNT];
+        
+        for (Probe probe : Probe.values()) {
+            names[probe.ordinal()] = probe.name();
+        }
+        
+        return names;
+        
+    } // End of getProbeNames()
+    
+    
+    /**
+     * Returns the time spent in each probe during the last tick profiled.
+     *
+     * @return The times in nanoseconds, in probe order.
+     */
+    @Override // TickProfilerMBean
+    public synchronized long[] getLastTickTimes() {
+        return this.lastTickTimes.clone();
+    }
+    
+    
+    /**
+     * Returns the number of calls of each probe during the last tick
+     * profiled.
+     *
+     * @return The numbers of calls, in probe order.
+     */
+    @Override // TickProfilerMBean
+    public synchronized long[] getLastTickCalls() {
+        return this.lastTickCalls.clone();
+    }
+    
+    
+    /**
+     * Returns the time spent in each probe since the last reset.
+     *
+     * @return The times in nanoseconds, in probe order.
+     */
+    @Override // TickProfilerMBean
+    public synchronized long[] getTotalTimes() {
+        return this.totalTimes.clone();
+    }
+    
+    
+    /**
+     * Returns the number of calls of each probe since the last reset.
+     *
+     * @return The numbers of calls, in probe order.
+     */
+    @Override // TickProfilerMBean
+    public synchronized long[] getTotalCalls() {
+        return this.totalCalls.clone();
+    }
+    
+    
+    /**
+     * Clears all the recorded values.
+     */
+    @Override // TickProfilerMBean
+    public synchronized void reset() {
+        
+        for (int i = 0; i < PROBE_COUNT; i++) {
+            
+            this.tickTimes.set(i, 0);
+            this.tickCalls.set(i, 0);
+            this.lastTickTimes[i] = 0;
+            this.lastTickCalls[i] = 0;
+            this.totalTimes[i] = 0;
+            this.totalCalls[i] = 0;
+            
+        } // End for(i)
+        
+        this.tickCount = 0;
+        this.lastTickEndTime = 0;
+        this.lastTickWallTime = 0;
+        
+    } // End of reset()
+    
+    
+} // End of TickProfiler class
@@ -0,0 +1,93 @@
+package org.thoughtsfactory.neurogenesis;
+
+
+/**
+ * The management interface of the {@link TickProfiler}, as shown by JMX
+ * consoles. Arrays of values are indexed like the array of probe names.
+ *
+ * @author Robert Langlois
+ */
+public interface TickProfilerMBean {
+    
+    
+    /**
+     * Indicates if the probes are recording.
+     *
+     * @return {@code true} if profiling is enabled, {@code false} otherwise.
+     */
+    public boolean isEnabled();
+    
+    
+    /**
+     * Starts or stops the recording of the probes.
+     *
+     * @param newValue {@code true} to enable profiling, {@code false} to
+     *                 disable it.
+     */
+    public void setEnabled(boolean newValue);
+    
+    
+    /**
+     * Returns the number of ticks profiled since the last reset.
+     *
+     * @return The number of ticks.
+     */
+    public long getTickCount();
+    
+    
+    /**
+     * Returns the wall time of the last tick profiled.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getLastTickWallTime();
+    
+    
+    /**
+     * Returns the names of the probes.
+     *
+     * @return The names, in probe order.
+     */
+    public String[] getProbeNames();
+    
+    
+    /**
+     * Returns the time spent in each probe during the last tick profiled.
+     *
+     * @return The times in nanoseconds, in probe order.
+     */
+    public long[] getLastTickTimes();
+    
+    
+    /**
+     * Returns the number of calls of each probe during the last tick
+     * profiled.
+     *
+     * @return The numbers of calls, in probe order.
+     */
+    public long[] getLastTickCalls();
+    
+    
+    /**
+     * Returns the time spent in each probe since the last reset.
+     *
+     * @return The times in nanoseconds, in probe order.
+     */
+    public long[] getTotalTimes();
+    
+    
+    /**
+     * Returns the number of calls of each probe since the last reset.
+     *
+     * @return The numbers of calls, in probe order.
+     */
+    public long[] getTotalCalls();
+    
+    
+    /**
+     * Clears all the recorded values.
+     */
+    public void reset();
+    
+    
+} // End of TickProfilerMBean interface
@@ -5,6 +5,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.TickProfiler;
+import org.thoughtsfactory.neurogenesis.TickProfiler.Probe;
 
 import repast.simphony.engine.schedule.ScheduleParameters;
 import repast.simphony.engine.schedule.ScheduledMethod;
@@ -143,6 +145,8 @@ public class ArrayExtracellularMatrix implements ExtracellularMatrix {
             priority = ScheduleParameters.FIRST_PRIORITY)
     public void update() {
 
+        final long startTime = TickProfiler.start();
+        
         /*
          * Skip a row between updates; this decreases the number of matrix cells
          * to process at each tick while still providing coverage of the
@@ -163,6 +167,8 @@ public class ArrayExtracellularMatrix implements ExtracellularMatrix {
             } // End for(y)
             
         } // End for(z)
+        
+        TickProfiler.stop(Probe.EXTRACELLULAR_MATRIX, startTime);
                     
     } // End of update()
     
@@ -187,7 +193,9 @@ public class ArrayExtracellularMatrix implements ExtracellularMatrix {
             double localConcentration = previousLocalConcentration 
                     - (previousLocalConcentration * DECAY_RATE);
             
-            logger.debug("Local concentration: " + localConcentration);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Local concentration: " + localConcentration);
+            }
             
             // Iterate over the Moore's neighbourhood
             // of the specified grid cell.
@@ -222,7 +230,9 @@ public class ArrayExtracellularMatrix implements ExtracellularMatrix {
             } // End for(xi)
                 
             // Update local concentration.
-            logger.debug("New local concentration: " + localConcentration);
+            if (logger.isDebugEnabled()) {
+                logger.debug("New local concentration: " + localConcentration);
+            }
             this.concentrations[z][y][x][substanceType.ordinal()] = 
                     localConcentration;
 
@@ -306,11 +316,13 @@ public class ArrayExtracellularMatrix implements ExtracellularMatrix {
             final int extentX, final int extentY, final int extentZ, 
             final boolean includeCentre) {
         
-        logger.debug("Coordinates: x = " + pt.getX() 
-                + ", y = " + pt.getY() + ", z = " + pt.getZ());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Coordinates: x = " + pt.getX()
+                    + ", y = " + pt.getY() + ", z = " + pt.getZ());
         
-        logger.debug("Extents: x = " + extentX 
-                + ", y = " + extentY + ", z = " + extentZ);
+            logger.debug("Extents: x = " + extentX
+                    + ", y = " + extentY + ", z = " + extentZ);
+        }
         
         // Translate the brain grid coordinates into appropriate indexes for
         // the concentrations storage array.
@@ -318,8 +330,10 @@ public class ArrayExtracellularMatrix implements ExtracellularMatrix {
         final int yIndex = pt.getY() + this.gridQuadrantSize;
         final int zIndex = pt.getZ() + this.gridQuadrantSize;
         
-        logger.debug("Indexes: x = " + xIndex 
-                + ", y = " + yIndex + ", z = " + zIndex);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Indexes: x = " + xIndex
+                    + ", y = " + yIndex + ", z = " + zIndex);
+        }
         
         final int xLowerLimit = Math.max(0, xIndex - extentX);
         final int xUpperLimit = Math.min(this.gridSize - 1, xIndex + extentX);
@@ -330,11 +344,13 @@ public class ArrayExtracellularMatrix implements ExtracellularMatrix {
         final int zLowerLimit = Math.max(0, zIndex - extentZ);
         final int zUpperLimit = Math.min(this.gridSize - 1, zIndex + extentZ);
         
-        logger.debug("Lower limits: x = " + xLowerLimit 
-                + ", y = " + yLowerLimit + ", z = " + zLowerLimit);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Lower limits: x = " + xLowerLimit
+                    + ", y = " + yLowerLimit + ", z = " + zLowerLimit);
         
-        logger.debug("Upper limits: x = " + xUpperLimit 
-                + ", y = " + yUpperLimit + ", z = " + zUpperLimit);
+            logger.debug("Upper limits: x = " + xUpperLimit
+                    + ", y = " + yUpperLimit + ", z = " + zUpperLimit);
+        }
         
         List<ExtracellularMatrixSample> areaSample = 
                 new ArrayList<ExtracellularMatrixSample>();
@@ -369,10 +385,81 @@ public class ArrayExtracellularMatrix implements ExtracellularMatrix {
             
         } // End for(xi)
         
-        logger.debug("Returning " + areaSample.size() + " sample.");
+        if (logger.isDebugEnabled()) {
+            logger.debug("Returning " + areaSample.size() + " sample.");
+        }
         return areaSample;
         
     } // End of getAreaSample()
 
     
+    /**
+     * Get the concentration of a cell product at the specified grid location.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @param productType The cell product.
+     * @return The current concentration of the product at the location.
+     */
+    @Override // ExtracellularMatrix
+    public double getConcentration(final int x, final int y, final int z,
+            final CellProductType productType) {
+        return this.concentrations[z + this.gridQuadrantSize]
+                [y + this.gridQuadrantSize][x + this.gridQuadrantSize]
+                        [productType.ordinal()];
+    }
+    
+    
+    /**
+     * Visits all grid cells in the neighbourhood of the specified grid
+     * coordinates, without creating any sample or list.
+     *
+     * @param pt The grid point object specifying the coordinates.
+     * @param extentX The extent of the neighbourhood on the x-axis.
+     * @param extendY The extent of the neighbourhood on the y-axis.
+     * @param extentZ The extent of the neighbourhood on the z-axis.
+     * @param includeCentre Specify if the specified location itself should be
+     *                      visited.
+     * @param visitor The visitor called for each grid cell.
+     */
+    @Override // ExtracellularMatrix
+    public void visitArea(final GridPoint pt, final int extentX,
+            final int extentY, final int extentZ, final boolean includeCentre,
+            final ExtracellularMatrixVisitor visitor) {
+        
+        // The grid spans coordinates -limit to +limit on each axis.
+        final int limit = this.gridQuadrantSize;
+        
+        final int xLowerLimit = Math.max(-limit, pt.getX() - extentX);
+        final int xUpperLimit = Math.min(limit, pt.getX() + extentX);
+        
+        final int yLowerLimit = Math.max(-limit, pt.getY() - extentY);
+        final int yUpperLimit = Math.min(limit, pt.getY() + extentY);
+        
+        final int zLowerLimit = Math.max(-limit, pt.getZ() - extentZ);
+        final int zUpperLimit = Math.min(limit, pt.getZ() + extentZ);
+        
+        for (int xi = xLowerLimit; xi <= xUpperLimit; xi++) {
+            
+            for (int yi = yLowerLimit; yi <= yUpperLimit; yi++) {
+                
+                for (int zi = zLowerLimit; zi <= zUpperLimit; zi++) {
+                    
+                    if ((xi == pt.getX()) && (yi == pt.getY())
+                            && (zi == pt.getZ()) && !includeCentre) {
+                        continue;
+                    }
+                    
+                    visitor.visit(xi, yi, zi);
+                    
+                } // End for(zi)
+                
+            } // End for(yi)
+            
+        } // End for(xi)
+        
+    } // End of visitArea()
+    
+    
 } // End of ArrayExtracellularMatrix class
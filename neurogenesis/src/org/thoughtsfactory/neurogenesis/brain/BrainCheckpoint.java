@@ -0,0 +1,273 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.thoughtsfactory.neurogenesis.SimulationContextHolder;
+import org.thoughtsfactory.neurogenesis.genetics.Genome;
+import org.thoughtsfactory.neurogenesis.genetics.RegulatoryNetwork;
+
+import repast.simphony.context.Context;
+import repast.simphony.space.grid.GridPoint;
+
+
+/**
+ * Writes the state of the brain to a checkpoint and reads it back: the
+ * genomes, every cell with its location and state, the neurite store and the
+ * synapse store.
+ *
+ * Genomes are shared by many cells, so each one is written once, and cells
+ * refer to it by its rank. The neurons are referred to by their rank among
+ * the cells, from the neurites and synapses.
+ *
+ * The cells without regulatory network, i.e. the input and output neurons
+ * wired to the robot, are created by the model builder rather than restored
+ * from the checkpoint: their state is read into the cell of the same class
+ * and ID found in the context. All the other cells of the context are
+ * replaced by the cells of the checkpoint.
+ *
+ * @author Robert Langlois
+ */
+public final class BrainCheckpoint {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The kind of a cell created by the model builder.
+    private static final byte BUILT_CELL = 0;
+    
+    
+    // The kind of an undifferentiated cell.
+    private static final byte UNDIFFERENTIATED_CELL = 1;
+    
+    
+    // The kind of a neuron grown from an undifferentiated cell.
+    private static final byte NEURON = 2;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Prevents instantiation.
+     */
+    private BrainCheckpoint() {
+    }
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Writes the state of the brain to a checkpoint.
+     *
+     * @param context The Repast simulation context.
+     * @param out The checkpoint output.
+     * @throws IOException If the state cannot be written.
+     */
+    public static void write(final Context<Object> context,
+            final DataOutput out) throws IOException {
+        
+        SimulationContextHolder simulationContext =
+                SimulationContextHolder.getInstance();
+        
+        List<GeneRegulatedCell> cells = getCells(context);
+        
+        Map<Neuron, Integer> ordinals = new IdentityHashMap<Neuron, Integer>();
+        Map<Genome, Integer> genomeRanks =
+                new IdentityHashMap<Genome, Integer>();
+        List<Genome> genomes = new ArrayList<Genome>();
+        
+        for (int c = 0; c < cells.size(); c++) {
+            
+            GeneRegulatedCell cell = cells.get(c);
+            
+            if (cell instanceof Neuron) {
+                ordinals.put((Neuron) cell, c);
+            }
+            
+            if (cell.regulatoryNetwork != null) {
+                Genome genome = cell.regulatoryNetwork.getGenome();
+                if (!genomeRanks.containsKey(genome)) {
+                    genomeRanks.put(genome, genomes.size());
+                    genomes.add(genome);
+                }
+            }
+            
+        } // End for(c)
+        
+        out.writeInt(genomes.size());
+        for (Genome genome : genomes) {
+            genome.write(out);
+        }
+        
+        out.writeInt(cells.size());
+        
+        for (GeneRegulatedCell cell : cells) {
+            
+            if (cell.regulatoryNetwork == null) {
+                out.writeByte(BUILT_CELL);
+                out.writeUTF(cell.getClass().getName());
+            } else if (cell instanceof Neuron) {
+                out.writeByte(NEURON);
+            } else if (cell instanceof UndifferentiatedCell) {
+                out.writeByte(UNDIFFERENTIATED_CELL);
+                out.writeBoolean(cell.cellAdhesionEnabled);
+            } else {
+                throw new IllegalStateException(
+                        "Unknown kind of cell: " + cell.getClass());
+            }
+            
+            out.writeUTF(cell.getId());
+            
+            if (cell.regulatoryNetwork != null) {
+                out.writeInt(genomeRanks.get(
+                        cell.regulatoryNetwork.getGenome()));
+            }
+            
+            GridPoint pt = cell.grid.getLocation(cell);
+            out.writeInt(pt.getX());
+            out.writeInt(pt.getY());
+            out.writeInt(pt.getZ());
+            
+            cell.writeState(out);
+            
+        } // End for(cell)
+        
+        simulationContext.getNeuriteStore().writeState(out, ordinals);
+        simulationContext.getSynapseStore().writeState(out, ordinals);
+        
+    } // End of write()
+    
+    
+    /**
+     * Reads the state of the brain written by {@link #write} into a newly
+     * built model, whose neurons have no neurites yet.
+     *
+     * @param context The Repast simulation context.
+     * @param in The checkpoint input.
+     * @throws IOException If the state cannot be read, or does not match the
+     *                     model.
+     */
+    public static void read(final Context<Object> context,
+            final DataInput in) throws IOException {
+        
+        SimulationContextHolder simulationContext =
+                SimulationContextHolder.getInstance();
+        
+        if (simulationContext.getNeuriteStore().getJunctionCount() > 0) {
+            throw new IllegalStateException(
+                    "Checkpoints can only be read into a new model!");
+        }
+        
+        // Keep the cells of the builder, drop the initial population.
+        
+        Map<String, GeneRegulatedCell> builtCells =
+                new HashMap<String, GeneRegulatedCell>();
+        
+        for (GeneRegulatedCell cell : getCells(context)) {
+            if (cell.regulatoryNetwork == null) {
+                builtCells.put(cell.getClass().getName() + ":" + cell.getId(),
+                        cell);
+            } else {
+                cell.die();
+            }
+        }
+        
+        final Genome[] genomes = new Genome[in.readInt()];
+        for (int g = 0; g < genomes.length; g++) {
+            genomes[g] = Genome.read(in);
+        }
+        
+        final Neuron[] owners = new Neuron[in.readInt()];
+        
+        for (int c = 0; c < owners.length; c++) {
+            
+            final byte kind = in.readByte();
+            final String className =
+                    (kind == BUILT_CELL) ? in.readUTF() : null;
+            final boolean cellAdhesionEnabled =
+                    (kind == UNDIFFERENTIATED_CELL) && in.readBoolean();
+            final String id = in.readUTF();
+            
+            GeneRegulatedCell cell;
+            
+            if (kind == BUILT_CELL) {
+                
+                cell = builtCells.remove(className + ":" + id);
+                if (cell == null) {
+                    throw new IOException("Cell not built by the model: "
+                            + className + " " + id);
+                }
+                
+            } else {
+                
+                RegulatoryNetwork regulatoryNetwork =
+                        new RegulatoryNetwork(genomes[in.readInt()]);
+                
+                if (kind == NEURON) {
+                    cell = new Neuron(id, simulationContext.getBrainSpace(),
+                            simulationContext.getBrainGrid(),
+                            regulatoryNetwork,
+                            simulationContext.getNeuralNetwork(),
+                            simulationContext.getNeuritesNetwork());
+                } else {
+                    cell = new UndifferentiatedCell(id,
+                            simulationContext.getBrainSpace(),
+                            simulationContext.getBrainGrid(),
+                            regulatoryNetwork, cellAdhesionEnabled);
+                }
+                
+            } // End if()
+            
+            final int x = in.readInt();
+            final int y = in.readInt();
+            final int z = in.readInt();
+            
+            if (kind != BUILT_CELL) {
+                context.add(cell);
+                cell.moveTo(x, y, z);
+            }
+            
+            cell.readState(in);
+            
+            if (cell instanceof Neuron) {
+                owners[c] = (Neuron) cell;
+            }
+            
+        } // End for(c)
+        
+        simulationContext.getNeuriteStore().readState(in, owners);
+        simulationContext.getSynapseStore().readState(in, owners);
+        
+    } // End of read()
+    
+    
+    /**
+     * Returns the cells of the context, in the order of the context.
+     *
+     * @param context The Repast simulation context.
+     * @return A new list of the cells.
+     */
+    private static List<GeneRegulatedCell> getCells(
+            final Context<Object> context) {
+        
+        List<GeneRegulatedCell> cells = new ArrayList<GeneRegulatedCell>();
+        
+        for (Object obj : context.getObjects(GeneRegulatedCell.class)) {
+            cells.add((GeneRegulatedCell) obj);
+        }
+        
+        return cells;
+        
+    } // End of getCells()
+    
+    
+} // End of BrainCheckpoint class
@@ -1,16 +1,12 @@
 package org.thoughtsfactory.neurogenesis.brain;
 
-import java.util.List;
-
 import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.RandomStream;
+import org.thoughtsfactory.neurogenesis.SimulationContextHolder;
 
-import repast.simphony.query.space.grid.GridCell;
-import repast.simphony.query.space.grid.GridCellNgh;
-import repast.simphony.random.RandomHelper;
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.grid.Grid;
 import repast.simphony.space.grid.GridPoint;
-import repast.simphony.util.SimUtilities;
 
 
 /**
@@ -44,6 +40,27 @@ public abstract class Cell {
     protected final Grid<Object> grid;
     
 
+    /**
+     * The index of the occupants of each grid cell, kept in sync with the
+     * grid by this cell.
+     */
+    protected final OccupancyIndex occupancy;
+    
+    
+    /**
+     * The random stream of this cell, derived from the random seed of the run
+     * and the ID of the cell: every random decision of the cell draws from it.
+     */
+    protected final RandomStream random;
+    
+    
+    /**
+     * The iterator over the neighbourhood of a location, reused by all the
+     * scans of this cell.
+     */
+    protected final MooreNeighbourhood neighbourhood;
+    
+    
     // CONSTRUCTORS ============================================================
     
     
@@ -62,6 +79,12 @@ public abstract class Cell {
         this.id = newId;
         this.space = newSpace;
         this.grid = newGrid;
+        this.occupancy =
+                SimulationContextHolder.getInstance().getOccupancyIndex();
+        this.random = new RandomStream(
+                SimulationContextHolder.getInstance().getRandomSeed(), newId);
+        this.neighbourhood = new MooreNeighbourhood(
+                this.occupancy.getGridQuadrantSize(), this.random);
         
     } // End of Cell(String, ContinuousSpace, Grid)
 
@@ -77,6 +100,11 @@ public abstract class Cell {
         this.id = newId;
         this.space = motherCell.space;
         this.grid = motherCell.grid;
+        this.occupancy = motherCell.occupancy;
+        this.random = new RandomStream(
+                SimulationContextHolder.getInstance().getRandomSeed(), newId);
+        this.neighbourhood = new MooreNeighbourhood(
+                this.occupancy.getGridQuadrantSize(), this.random);
         
     } // End of Cell(String, Cell)
     
@@ -104,19 +132,8 @@ public abstract class Cell {
      */
     protected boolean isFreeGridCell(final GridPoint gridPoint) {
         
-        boolean free = true;
-        
-        for (Object obj : this.grid.getObjectsAt(
-                gridPoint.getX(), gridPoint.getY(), gridPoint.getZ())) {
-            
-            if (obj instanceof Cell) {
-                free = false;
-                break;
-            }
-            
-        } // End for(obj)
-        
-        return free;
+        return this.occupancy.isFree(
+                gridPoint.getX(), gridPoint.getY(), gridPoint.getZ());
         
     } // End of isFreeGridCell()
 
@@ -131,19 +148,8 @@ public abstract class Cell {
      */
     protected Cell getCellAt(final GridPoint gridPoint) {
         
-        Cell cell = null;
-        
-        for (Object obj : this.grid.getObjectsAt(
-                gridPoint.getX(), gridPoint.getY(), gridPoint.getZ())) {
-            
-            if (obj instanceof Cell) {
-                cell = (Cell) obj;
-                break;
-            }
-            
-        } // End for(obj)
-        
-        return cell;
+        return this.occupancy.getCellAt(
+                gridPoint.getX(), gridPoint.getY(), gridPoint.getZ());
         
     } // End of getCellAt()
 
@@ -159,17 +165,14 @@ public abstract class Cell {
      */
     protected GridPoint findFreeGridCell(final GridPoint pt) {
         
-        // Use the GridCellNgh class to create GridCells for
-        // the surrounding neighbourhood.
-        GridCellNgh<Cell> nghCreator = 
-                new GridCellNgh<Cell>(this.grid, pt, Cell.class, 1, 1, 1);
-        List<GridCell<Cell>> gridCells = nghCreator.getNeighborhood(false);
-        SimUtilities.shuffle(gridCells, RandomHelper.getUniform());
+        // Visit the surrounding neighbourhood in random order.
+        this.neighbourhood.reset(pt, 1, 1, 1);
         
         GridPoint pointWithNoCell = null;
-        for (GridCell<Cell> gridCell : gridCells) {
-            if (gridCell.size() == 0) {
-                pointWithNoCell = gridCell.getPoint();
+        while (this.neighbourhood.next()) {
+            if (this.occupancy.isFree(this.neighbourhood.getX(),
+                    this.neighbourhood.getY(), this.neighbourhood.getZ())) {
+                pointWithNoCell = this.neighbourhood.getLocation();
                 break;
             }
         }
@@ -202,10 +205,22 @@ public abstract class Cell {
      */
     public void moveTo(final int x, final int y, final int z) {
         
+        this.occupancy.moveCell(this, this.grid.getLocation(this), x, y, z);
         this.space.moveTo(this, x + 0.5, y + 0.5, z + 0.5);
         this.grid.moveTo(this, x, y, z);
 
     } // End of moveTo(int, int, int)
+    
+    
+    /**
+     * Release the grid cell occupied by the current cell, which must be done
+     * before the cell is removed from the context.
+     */
+    protected final void releaseGridCell() {
+        
+        this.occupancy.removeCell(this, this.grid.getLocation(this));
+        
+    } // End of releaseGridCell()
 
     
     /**
@@ -232,18 +247,15 @@ public abstract class Cell {
         // Get the grid location of this cell.
         GridPoint pt = this.grid.getLocation(this);
                 
-        // Use the GridCellNgh class to create GridCells for
-        // the surrounding neighbourhood.
-        GridCellNgh<Cell> nghCreator = new GridCellNgh<Cell>(this.grid, pt, 
-                Cell.class, extentX, extentY, extentZ);
-        List<GridCell<Cell>> gridCells = nghCreator.getNeighborhood(false);
-        SimUtilities.shuffle(gridCells, RandomHelper.getUniform());
+        // Visit the surrounding neighbourhood in random order.
+        this.neighbourhood.reset(pt, extentX, extentY, extentZ);
         
-        GridCell<Cell> freeGridCell = null;
+        GridPoint freeGridCell = null;
         
-        for (GridCell<Cell> gridCell : gridCells) {
-            if (gridCell.size() == 0) {
-                freeGridCell = gridCell;
+        while (this.neighbourhood.next()) {
+            if (this.occupancy.isFree(this.neighbourhood.getX(),
+                    this.neighbourhood.getY(), this.neighbourhood.getZ())) {
+                freeGridCell = this.neighbourhood.getLocation();
                 break;
             }
         }
@@ -290,14 +302,8 @@ public abstract class Cell {
                 
                 // Forward the request.
                 
-                Cell neighbour = null;
-                
-                for (Object obj : this.grid.getObjectsAt(neighbourCoords)) {
-                    if (obj instanceof Cell) {
-                        neighbour = (Cell) obj;
-                        break;
-                    }
-                }
+                Cell neighbour = this.occupancy.getCellAt(neighbourCoords[0],
+                        neighbourCoords[1], neighbourCoords[2]);
                 
                 assert neighbour != null : 
                         "No cell in a neighbourhood with no free grid cells??";
@@ -307,14 +313,16 @@ public abstract class Cell {
                     
                     // Neighbour has agreed: move to its now free location.
                     
-                    logger.debug("Cell " + this.id 
-                            + " shifting to (" + neighbourCoords[0] 
-                            + "," + neighbourCoords[1] + "," 
-                            + neighbourCoords[2] + ") as requested by " 
-                            + requester.id + " from ("
-                            + requesterLocation.getX() + "," 
-                            + requesterLocation.getY() + "," 
-                            + requesterLocation.getZ() + ").");
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Cell " + this.id
+                                + " shifting to (" + neighbourCoords[0]
+                                + "," + neighbourCoords[1] + ","
+                                + neighbourCoords[2] + ") as requested by "
+                                + requester.id + " from ("
+                                + requesterLocation.getX() + ","
+                                + requesterLocation.getY() + ","
+                                + requesterLocation.getZ() + ").");
+                    }
                     
                     moveTo(neighbourCoords[0], neighbourCoords[1], 
                             neighbourCoords[2]);
@@ -334,14 +342,17 @@ public abstract class Cell {
             
             // Agree to the request: move to free grid cell.
             
-            GridPoint newLocation = freeGridCell.getPoint();
+            GridPoint newLocation = freeGridCell;
             
-            logger.info("Cell " + this.id + "being bumped to (" 
-                    + newLocation.getX() + "," + newLocation.getY() + "," 
-                    + newLocation.getZ() + ") as requested by " + requester.id 
-                    + " from (" + requesterLocation.getX() + "," 
-                    + requesterLocation.getY() + "," + requesterLocation.getZ() 
-                    + ").");
+            if (logger.isInfoEnabled()) {
+                logger.info("Cell " + this.id + "being bumped to ("
+                        + newLocation.getX() + "," + newLocation.getY() + ","
+                        + newLocation.getZ() + ") as requested by "
+                        + requester.id + " from ("
+                        + requesterLocation.getX() + ","
+                        + requesterLocation.getY() + ","
+                        + requesterLocation.getZ() + ").");
+            }
             
             moveTo(newLocation); 
                 
@@ -1,6 +1,7 @@
 package org.thoughtsfactory.neurogenesis.brain;
 
 import org.thoughtsfactory.neurogenesis.Configuration;
+import org.thoughtsfactory.neurogenesis.RandomStream;
 import org.thoughtsfactory.neurogenesis.SimulationContext;
 import org.thoughtsfactory.neurogenesis.SimulationContextHolder;
 import org.thoughtsfactory.neurogenesis.genetics.GenomeFactory;
@@ -28,9 +29,10 @@ public class CellFactory {
                 SimulationContextHolder.getInstance();
         Configuration config = Configuration.getInstance();
         
-        GenomeFactory genomeFactory = new GenomeFactory();
+        GenomeFactory genomeFactory =
+                new GenomeFactory(getGenomeRandom(simulationContext, newId));
         
-        UndifferentiatedCell newCell = new UndifferentiatedCell(newId, 
+        UndifferentiatedCell newCell= new UndifferentiatedCell(newId,
                 simulationContext.getBrainSpace(),
                 simulationContext.getBrainGrid(),
                 genomeFactory.getNewGenome(config.getGenomeSize()), 
@@ -53,9 +55,10 @@ public class CellFactory {
                 SimulationContextHolder.getInstance();
         Configuration config = Configuration.getInstance();
         
-        GenomeFactory genomeFactory = new GenomeFactory();
+        GenomeFactory genomeFactory =
+                new GenomeFactory(getGenomeRandom(simulationContext, newId));
         
-        Neuron newCell = new Neuron(newId,
+        Neuron newCell= new Neuron(newId,
                 simulationContext.getBrainSpace(), 
                 simulationContext.getBrainGrid(),
                 genomeFactory.getNewGenome(config.getGenomeSize()), 
@@ -89,4 +92,21 @@ public class CellFactory {
     } // End of getNeuronFrom()
     
 
+    /**
+     * Returns the random stream from which the genome of a new cell is drawn,
+     * split from the stream of the cell so that both are independent.
+     *
+     * @param simulationContext The simulation context.
+     * @param newId The ID of the new cell.
+     * @return A new random stream.
+     */
+    private static RandomStream getGenomeRandom(
+            final SimulationContext simulationContext, final String newId) {
+        
+        return new RandomStream(simulationContext.getRandomSeed(), newId)
+                .split();
+        
+    } // End of getGenomeRandom()
+    
+    
 } // End of CellFactory class
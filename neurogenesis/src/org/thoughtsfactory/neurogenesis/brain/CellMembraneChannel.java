@@ -65,6 +65,21 @@ public class CellMembraneChannel {
     } // End of CellMembraneChannel()
     
     
+    /**
+     * Creates a new cell membrane channel instance with the same state as
+     * another channel.
+     *
+     * @param otherChannel The channel to copy.
+     */
+    public CellMembraneChannel(final CellMembraneChannel otherChannel) {
+        
+        this(otherChannel.substanceType, otherChannel.concentration,
+                otherChannel.inputRate, otherChannel.openForInput,
+                otherChannel.outputRate, otherChannel.openForOutput);
+        
+    } // End of CellMembraneChannel(CellMembraneChannel)
+    
+    
     // METHODS =================================================================
     
     
@@ -42,6 +42,19 @@ public class DistributedExtracellularMatrix implements ExtracellularMatrix {
     private final Grid<Object> grid;
 
         
+    // The brain grid quadrant size.
+    private final int gridQuadrantSize;
+    
+    
+    // The brain grid size.
+    private final int gridSize;
+    
+    
+    // The sample of each grid cell, indexed with
+    // ((z * gridSize) + y) * gridSize + x once coordinates are translated.
+    private final ExtracellularMatrixSample[] samples;
+    
+    
     // CONSTRUCTORS ============================================================
     
     
@@ -65,6 +78,11 @@ public class DistributedExtracellularMatrix implements ExtracellularMatrix {
         this.space = newSpace;
         this.grid = newGrid;
         
+        this.gridQuadrantSize = gridQuadrantSize;
+        this.gridSize = gridQuadrantSize * 2 + 1;
+        this.samples = new ExtracellularMatrixSample[
+                this.gridSize * this.gridSize * this.gridSize];
+        
         // For each grid cell...
         
         for (int x = -gridQuadrantSize; x <= gridQuadrantSize; x++) {
@@ -109,6 +127,7 @@ public class DistributedExtracellularMatrix implements ExtracellularMatrix {
                     } // End for(substanceType)
                     
                     context.add(matrixSample);
+                    this.samples[indexOf(x, y, z)] = matrixSample;
                     
                     this.space.moveTo(matrixSample, x + 0.5, y + 0.5, z + 0.5);
                     this.grid.moveTo(matrixSample, x, y, z);
@@ -125,6 +144,21 @@ public class DistributedExtracellularMatrix implements ExtracellularMatrix {
     // METHODS =================================================================
     
     
+    /**
+     * Returns the index of a grid cell in the array of samples.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @return The index of the grid cell's sample.
+     */
+    private int indexOf(final int x, final int y, final int z) {
+        return ((z + this.gridQuadrantSize) * this.gridSize
+                + y + this.gridQuadrantSize) * this.gridSize
+                        + x + this.gridQuadrantSize;
+    }
+    
+    
     // INTERFACES IMPLEMENTATION -----------------------------------------------
     
     
@@ -142,18 +176,7 @@ public class DistributedExtracellularMatrix implements ExtracellularMatrix {
     public ExtracellularMatrixSample getSample(
             final int x, final int y, final int z) {
     
-        ExtracellularMatrixSample sample = null; 
-        
-        // Get the external concentration from the extracellular matrix
-        // at current position.
-        
-        // Find extracellular matrix (there should be only one instance).
-        for (Object obj : this.grid.getObjectsAt(x, y, z)) {            
-            if (obj instanceof ExtracellularMatrixSample) {
-                 sample = (ExtracellularMatrixSample) obj;
-                 break;
-            }
-        }
+        ExtracellularMatrixSample sample = this.samples[indexOf(x, y, z)];
 
         assert sample != null : "Distributed extracellular matrix not found!";
         
@@ -206,4 +229,71 @@ public class DistributedExtracellularMatrix implements ExtracellularMatrix {
     } // End getAreaSample();
 
 
+    /**
+     * Get the concentration of a cell product at the specified grid location.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @param productType The cell product.
+     * @return The current concentration of the product at the location.
+     */
+    @Override // ExtracellularMatrix
+    public double getConcentration(final int x, final int y, final int z,
+            final CellProductType productType) {
+        return getSample(x, y, z).getConcentration(productType);
+    }
+    
+    
+    /**
+     * Visits all grid cells in the neighbourhood of the specified grid
+     * coordinates, without creating any sample or list.
+     *
+     * @param pt The grid point object specifying the coordinates.
+     * @param extentX The extent of the neighbourhood on the x-axis.
+     * @param extendY The extent of the neighbourhood on the y-axis.
+     * @param extentZ The extent of the neighbourhood on the z-axis.
+     * @param includeCentre Specify if the specified location itself should be
+     *                      visited.
+     * @param visitor The visitor called for each grid cell.
+     */
+    @Override // ExtracellularMatrix
+    public void visitArea(final GridPoint pt, final int extentX,
+            final int extentY, final int extentZ, final boolean includeCentre,
+            final ExtracellularMatrixVisitor visitor) {
+        
+        // The grid spans coordinates -limit to +limit on each axis.
+        final int limit = this.gridQuadrantSize;
+        
+        final int xLowerLimit = Math.max(-limit, pt.getX() - extentX);
+        final int xUpperLimit = Math.min(limit, pt.getX() + extentX);
+        
+        final int yLowerLimit = Math.max(-limit, pt.getY() - extentY);
+        final int yUpperLimit = Math.min(limit, pt.getY() + extentY);
+        
+        final int zLowerLimit = Math.max(-limit, pt.getZ() - extentZ);
+        final int zUpperLimit = Math.min(limit, pt.getZ() + extentZ);
+        
+        for (int xi = xLowerLimit; xi <= xUpperLimit; xi++) {
+            
+            for (int yi = yLowerLimit; yi <= yUpperLimit; yi++) {
+                
+                for (int zi = zLowerLimit; zi <= zUpperLimit; zi++) {
+                    
+                    if ((xi == pt.getX()) && (yi == pt.getY())
+                            && (zi == pt.getZ()) && !includeCentre) {
+                        continue;
+                    }
+                    
+                    visitor.visit(xi, yi, zi);
+                    
+                } // End for(zi)
+                
+            } // End for(yi)
+            
+        } // End for(xi)
+        
+    } // End of visitArea()
+    
+    
 } // End of DistributedExtracellularMatrix class
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.TickProfiler;
+import org.thoughtsfactory.neurogenesis.TickProfiler.Probe;
 
 import repast.simphony.engine.schedule.ScheduleParameters;
 import repast.simphony.engine.schedule.ScheduledMethod;
@@ -139,12 +141,17 @@ public class DistributedExtracellularMatrixSample
             priority = ScheduleParameters.RANDOM_PRIORITY)
     public void update() {
         
+        final long startTime = TickProfiler.start();
+        
         // Apply diffusion and decay to each product in this grid cell.
         for (CellProductType substanceType : CellProductType.values()) {
             
             double previousLocalConcentration =    
                     this.concentrations[substanceType.ordinal()];
-            logger.debug("Local concentration: " + previousLocalConcentration);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Local concentration: "
+                        + previousLocalConcentration);
+            }
             
             // Applies decay rate.
             double localConcentration = previousLocalConcentration 
@@ -165,12 +172,16 @@ public class DistributedExtracellularMatrixSample
                 
             } // End for() grid cells
                         
-            logger.debug("New local concentration: " + localConcentration);
+            if (logger.isDebugEnabled()) {
+                logger.debug("New local concentration: " + localConcentration);
+            }
             
             this.concentrations[substanceType.ordinal()] = localConcentration;
             
         } // End for() products
         
+        TickProfiler.stop(Probe.EXTRACELLULAR_MATRIX, startTime);
+        
     } // End of update()
 
 
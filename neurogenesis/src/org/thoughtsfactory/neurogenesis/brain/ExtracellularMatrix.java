@@ -48,4 +48,34 @@ public interface ExtracellularMatrix {
             int extentX, int extentY, int extentZ, boolean includeCentre);
     
 
+    /**
+     * Get the concentration of a cell product at the specified grid location.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @param productType The cell product.
+     * @return The current concentration of the product at the location.
+     */
+    public double getConcentration(int x, int y, int z,
+            CellProductType productType);
+    
+    
+    /**
+     * Visits all grid cells in the neighbourhood of the specified grid
+     * coordinates, without creating any sample or list.
+     *
+     * @param pt The grid point object specifying the coordinates.
+     * @param extentX The extent of the neighbourhood on the x-axis.
+     * @param extendY The extent of the neighbourhood on the y-axis.
+     * @param extentZ The extent of the neighbourhood on the z-axis.
+     * @param includeCentre Specify if the specified location itself should be
+     *                      visited.
+     * @param visitor The visitor called for each grid cell.
+     */
+    public void visitArea(GridPoint pt, int extentX, int extentY,
+            int extentZ, boolean includeCentre,
+            ExtracellularMatrixVisitor visitor);
+    
+    
 } // End of ExtracellularMatrix interface
@@ -0,0 +1,25 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+
+/**
+ * A visitor of the grid cells of an extracellular matrix. Visitors are passed
+ * to {@link ExtracellularMatrix#visitArea} and read the concentrations they
+ * need straight from the matrix, so that scanning an area does not create any
+ * sample object.
+ *
+ * @author Robert Langlois
+ */
+public interface ExtracellularMatrixVisitor {
+    
+    
+    /**
+     * Visits a grid cell.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     */
+    public void visit(int x, int y, int z);
+    
+    
+} // End of ExtracellularMatrixVisitor interface
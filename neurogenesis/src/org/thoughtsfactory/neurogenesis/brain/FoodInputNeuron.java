@@ -88,7 +88,9 @@ public class FoodInputNeuron extends InputNeuron {
         
         double newFoodConcentration = Math.tanh(this.sensor.getValue()
                 * CONVERTION_TO_ENERGY_EFFICIENCY);
-        logger.debug("Food synthetesis: " + newFoodConcentration);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Food synthetesis: " + newFoodConcentration);
+        }
         
         CellMembraneChannel foodChannel = 
                 this.membraneChannels.get(CellProductType.FOOD);
@@ -1,5 +1,8 @@
 package org.thoughtsfactory.neurogenesis.brain;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -8,18 +11,15 @@ import java.util.Map;
 import org.apache.log4j.Logger;
 import org.thoughtsfactory.neurogenesis.SimulationContext;
 import org.thoughtsfactory.neurogenesis.SimulationContextHolder;
-import org.thoughtsfactory.neurogenesis.genetics.GeneticElement;
+import org.thoughtsfactory.neurogenesis.TickProfiler;
+import org.thoughtsfactory.neurogenesis.TickProfiler.Probe;
 import org.thoughtsfactory.neurogenesis.genetics.RegulatoryNetwork;
 
 import repast.simphony.context.Context;
-import repast.simphony.query.space.grid.GridCell;
-import repast.simphony.query.space.grid.GridCellNgh;
-import repast.simphony.random.RandomHelper;
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.grid.Grid;
 import repast.simphony.space.grid.GridPoint;
 import repast.simphony.util.ContextUtils;
-import repast.simphony.util.SimUtilities;
 
 
 /**
@@ -154,6 +154,13 @@ public abstract class GeneRegulatedCell extends Cell {
     protected int cellDivisionCount = 0;
     
     
+    /**
+     * The finder of the grid cell with the highest concentration, reused by
+     * all the scans of this cell.
+     */
+    protected final HighestConcentrationFinder finder;
+    
+    
     // CONSTRUCTORS ============================================================
     
     
@@ -180,6 +187,8 @@ public abstract class GeneRegulatedCell extends Cell {
         
         this.regulatoryNetwork = newRegulatoryNetwork;
         this.cellAdhesionEnabled = newCellAdhesionEnabled;
+        this.finder = new HighestConcentrationFinder(
+                this.occupancy, this, this.random);
         
         // Food is by default only taken in, not out.
         this.membraneChannels.put(CellProductType.FOOD,
@@ -228,7 +237,16 @@ public abstract class GeneRegulatedCell extends Cell {
         super(newId, motherCell);
         
         this.regulatoryNetwork = motherCell.regulatoryNetwork.clone();
-        this.membraneChannels.putAll(motherCell.membraneChannels);
+        this.finder = new HighestConcentrationFinder(
+                this.occupancy, this, this.random);
+        
+        // Each cell owns its channels: the concentrations of the mother and
+        // daughter cells evolve separately from now on.
+        for (CellMembraneChannel channel :
+                motherCell.membraneChannels.values()) {
+            this.membraneChannels.put(channel.getSubstanceType(),
+                    new CellMembraneChannel(channel));
+        }
 
         this.cellGrowthRegulator = motherCell.cellGrowthRegulator;
         this.cellAdhesionRegulator = motherCell.cellAdhesionRegulator;
@@ -273,7 +291,13 @@ public abstract class GeneRegulatedCell extends Cell {
     
     /**
      * Find a location in the grid around a given set of coordinates which has
-     * the highest concentration of a given product.
+     * the highest concentration of a given product. When a vacant location is
+     * required, the free location with the highest concentration is returned
+     * if there is any, otherwise the best location and its occupant; the
+     * location of the current cell counts as free. Ties are broken at random.
+     * 
+     * The finder returned is the one of this cell: it is only valid until
+     * the next scan of this cell.
      * 
      * @param productType The substance to look for.
      * @param pt The location around which to scan.
@@ -282,10 +306,9 @@ public abstract class GeneRegulatedCell extends Cell {
      * @param extentZ How far should the scan extend on the z-axis.
      * @param includeCentre Should the scan include the central location or not.
      * @param vacant Should the location be free of cells or not.
-     * @return The status of the location found as a {@link GridLocationStatus}
-     *         object.
+     * @return The finder, holding the location found and its occupant.
      */
-    protected GridLocationStatus findHighestConcentrationGridCell(
+    protected HighestConcentrationFinder findHighestConcentrationGridCell(
             final CellProductType productType, final GridPoint pt, 
             final int extentX, final int extentY, final int extentZ, 
             final boolean includeCentre, final boolean vacant) {
@@ -295,54 +318,12 @@ public abstract class GeneRegulatedCell extends Cell {
         
         ExtracellularMatrix matrix = simulationContext.getExtracellularMatrix();
         
-        List<ExtracellularMatrixSample> samples = matrix.getAreaSample(
-                pt, extentX, extentY, extentZ, includeCentre);        
-        SimUtilities.shuffle(samples, RandomHelper.getUniform());
-        
-        GridPoint bestLocation = null;
-        GridPoint freeLocation = null;
-
-        ExtracellularMatrixSample bestLocationSample = null;
-        ExtracellularMatrixSample freeLocationSample = null;
-        
-        double maxConcentration = -1;
-        
-        for (ExtracellularMatrixSample sample : samples) {
-            
-            double concentration = sample.getConcentration(productType);
-            
-            if (concentration > maxConcentration) {
-                
-                bestLocation = sample.getPoint();
-                bestLocationSample = sample;
-                maxConcentration = concentration;
-
-                if (vacant && isFreeGridCell(bestLocation)) {
-                    freeLocation = bestLocation;
-                    freeLocationSample = sample;
-                }
-                
-            } // End if()
-            
-        } // End for(sample)
+        // Scan the matrix in place: no sample is created for the area.
+        this.finder.reset(matrix, productType, vacant);
+        matrix.visitArea(pt, extentX, extentY, extentZ, includeCentre,
+                this.finder);
         
-        GridLocationStatus gridLocationStatus;
-        
-        if (vacant && (freeLocation != null)) {
-
-            // Return the free location.
-            gridLocationStatus = new GridLocationStatus(freeLocation, 
-                    null, freeLocationSample);
-            
-        } else {
-            
-            // Return the best location.
-            gridLocationStatus = new GridLocationStatus(bestLocation, 
-                    getCellAt(bestLocation), bestLocationSample);
-            
-        } // End if()
-        
-        return gridLocationStatus;
+        return this.finder;
         
     } // End of findHighestConcentrationGridCell()
 
@@ -363,24 +344,17 @@ public abstract class GeneRegulatedCell extends Cell {
         List<GeneRegulatedCell> partnerCells = 
                 new ArrayList<GeneRegulatedCell>();
         
-        // Use the GridCellNgh class to create GridCells for
-        // the surrounding neighbourhood.
-        GridCellNgh<GeneRegulatedCell> nghCreator = 
-                new GridCellNgh<GeneRegulatedCell>(this.grid, pt, 
-                        GeneRegulatedCell.class, 1, 1, 1);
-        List<GridCell<GeneRegulatedCell>> gridCells = 
-                nghCreator.getNeighborhood(false);
-        SimUtilities.shuffle(gridCells, RandomHelper.getUniform());
+        // Visit the surrounding neighbourhood in random order.
+        this.neighbourhood.reset(pt, 1, 1, 1);
         
-        for (GridCell<GeneRegulatedCell> gridCell : gridCells) {
+        while (this.neighbourhood.next()) {
             
-            if (gridCell.size() > 0) {
+            Cell neighbour = this.occupancy.getCellAt(this.neighbourhood.getX(),
+                    this.neighbourhood.getY(), this.neighbourhood.getZ());
                 
-                assert gridCell.size() == 1 : 
-                        "Only one cell per grid unit! (current = " 
-                        + gridCell.size() + ")";
+            if (neighbour instanceof GeneRegulatedCell) {
             
-                GeneRegulatedCell cell = gridCell.items().iterator().next();
+                GeneRegulatedCell cell = (GeneRegulatedCell) neighbour;
                 
                 // Check if the neighbour has the right concentration of CAM.
                 if (cell.cellAdhesionEnabled && 
@@ -390,7 +364,7 @@ public abstract class GeneRegulatedCell extends Cell {
                 
             } // End if()
             
-        } // End for() gridCells
+        } // End while()
         
         return partnerCells;
         
@@ -599,6 +573,109 @@ public abstract class GeneRegulatedCell extends Cell {
     
     // CELL LIFECYCLE METHODS --------------------------------------------------
     
+    
+    /**
+     * Execute the whole life cycle of the cell for the current tick: the
+     * preparation, the update of the internal state and the handling of the
+     * life cycle events.
+     */
+    protected void updateLifeCycle() {
+        
+        if (prepareUpdate()) {
+            updateInternalState();
+            handleLifeCycleEvents();
+        }
+        
+    } // End of updateLifeCycle()
+    
+    
+    /**
+     * Indicates if the life cycle of this cell is the one implemented by
+     * {@link #updateLifeCycle()}, and can thus be run in phases across all
+     * cells by a {@link PhasedCellUpdater}. Cells that schedule a life cycle
+     * of their own must return {@code false}.
+     *
+     * @return {@code true} if the life cycle can be run in phases,
+     *         {@code false} otherwise.
+     */
+    protected boolean hasPhasedLifeCycle() {
+        return true;
+    }
+    
+    
+    /**
+     * First phase of the life cycle: prepares the update of the cell. May
+     * interact with other cells.
+     *
+     * @return {@code true} if the cell is ready for update, {@code false} if
+     *         it died in the process.
+     */
+    protected boolean prepareUpdate() {
+        return true;
+    }
+    
+    
+    /**
+     * Second phase of the life cycle: updates the internal state of the cell
+     * from the extracellular matrix at its location. Only the cell and the
+     * matrix at its location are involved, so this phase can run
+     * concurrently for cells at different locations.
+     */
+    protected void updateInternalState() {
+        
+        long startTime = TickProfiler.start();
+        absorbProductsFromMatrix();
+        TickProfiler.stop(Probe.ABSORB, startTime);
+        
+        startTime = TickProfiler.start();
+        updateRegulatoryNetwork();
+        TickProfiler.stop(Probe.GRN, startTime);
+        
+        startTime = TickProfiler.start();
+        updateCellConcentrations();
+        TickProfiler.stop(Probe.CONCENTRATIONS, startTime);
+        
+    } // End of updateInternalState()
+    
+    
+    /**
+     * Second phase of the life cycle, when the regulatory networks of all
+     * cells are updated together: absorbs products from the extracellular
+     * matrix and sets the inputs of the regulatory network.
+     */
+    void updateNetworkInputs() { // package access.
+        
+        long startTime = TickProfiler.start();
+        absorbProductsFromMatrix();
+        TickProfiler.stop(Probe.ABSORB, startTime);
+        
+        setRegulatoryNetworkInputs();
+        
+    } // End of updateNetworkInputs()
+    
+    
+    /**
+     * Second phase of the life cycle, once the regulatory networks of all
+     * cells were updated together: updates the byproducts of the regulatory
+     * network.
+     */
+    void updateNetworkOutputs() { // package access.
+        
+        long startTime = TickProfiler.start();
+        updateCellConcentrations();
+        TickProfiler.stop(Probe.CONCENTRATIONS, startTime);
+        
+    } // End of updateNetworkOutputs()
+    
+    
+    /**
+     * Third phase of the life cycle: handles the cellular events (death,
+     * division, movement, etc.) and expels products to the extracellular
+     * matrix. Cells interact with their neighbourhood and draw random
+     * numbers, so this phase must run one cell at a time.
+     */
+    protected abstract void handleLifeCycleEvents();
+    
 
     /**
      * Transfer cell products from the extracellular matrix into the cell.
@@ -625,8 +702,10 @@ public abstract class GeneRegulatedCell extends Cell {
                     this.membraneChannels.get(substanceType);
             double internalConcentration = substanceChannel.getConcentration(); 
             
-            logger.debug("External = " + externalConcentration 
-                    + " ==> Internal = " + internalConcentration);
+            if (logger.isDebugEnabled()) {
+                logger.debug("External = " + externalConcentration
+                        + " ==> Internal = " + internalConcentration);
+            }
             
             if (substanceChannel.isOpenForInput()
                     && (externalConcentration > internalConcentration)) {
@@ -647,8 +726,10 @@ public abstract class GeneRegulatedCell extends Cell {
                 matrixSample.setConcentration(substanceType, 
                         newExternalConcentration);
                 substanceChannel.setConcentration(newInternalConcentration);
-                logger.debug("New internal concentration: " 
-                        + newInternalConcentration);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("New internal concentration: "
+                            + newInternalConcentration);
+                }
                 
             } // End if()
             
@@ -662,37 +743,47 @@ public abstract class GeneRegulatedCell extends Cell {
      */
     protected void updateRegulatoryNetwork() {
         
-    	// Concentrations provided as input to the regulatory network.
-        Map<GeneticElement, Double> inputConcentrations = 
-                new HashMap<GeneticElement, Double>();
+        setRegulatoryNetworkInputs();
         
-        for (GeneticElement inputElement : 
-                this.regulatoryNetwork.getInputElements()) {
+        // Update the regulatory network.
+        this.regulatoryNetwork.updateNetwork();
+        
+    } // End of updateRegulatoryNetwork()
+    
+    
+    /**
+     * Sets the concentrations provided as input to the regulatory network.
+     */
+    protected void setRegulatoryNetworkInputs() {
+        
+        // Concentrations provided as input to the regulatory network.
+        int inputCount = this.regulatoryNetwork.getInputCount();
+        
+        for (int i = 0; i < inputCount; i++) {
             
-            switch (inputElement.getType()) {
+            double inputConcentration;
+            
+            switch (this.regulatoryNetwork.getInputType(i)) {
             case SPECIAL_IN_FOOD:
-                inputConcentrations.put(inputElement, 
-                        this.membraneChannels.get(CellProductType.FOOD)
-                        .getConcentration());
+                inputConcentration = this.membraneChannels
+                        .get(CellProductType.FOOD).getConcentration();
                 break;
             case SPECIAL_IN_CAM:
-                inputConcentrations.put(inputElement, 
-                        this.cellAdhesionRegulator);
+                inputConcentration = this.cellAdhesionRegulator;
                 break;
             case SPECIAL_IN_MUTAGEN:
-                inputConcentrations.put(inputElement, 
-                        this.membraneChannels
-                        .get(CellProductType.MUTAGEN).getConcentration());
+                inputConcentration = this.membraneChannels
+                        .get(CellProductType.MUTAGEN).getConcentration();
                 break;
             default:
+                inputConcentration = 0;
             }
             
-        } // End for(inputElement)
+            this.regulatoryNetwork.setInputConcentration(i, inputConcentration);
+            
+        } // End for(i)
 
-        // Update the regulatory network.
-        this.regulatoryNetwork.updateNetwork(inputConcentrations);
-                
-    } // End of updateRegulatoryNetwork()
+    } // End of setRegulatoryNetworkInputs()
     
     
     /**
@@ -701,10 +792,12 @@ public abstract class GeneRegulatedCell extends Cell {
      */
     protected void updateCellConcentrations() {
         
-        for (GeneticElement outputElement : 
-                this.regulatoryNetwork.getOutputElements()) {
+        int outputCount = this.regulatoryNetwork.getOutputCount();
+        
+        for (int outputElement = 0; outputElement < outputCount; 
+                outputElement++) {
             
-            switch (outputElement.getType()) {
+            switch (this.regulatoryNetwork.getOutputType(outputElement)) {
             
             case SPECIAL_OUT_WASTE:
                 
@@ -758,7 +851,9 @@ public abstract class GeneRegulatedCell extends Cell {
                         foodChannel.getConcentration();
                 double deltaFoodConcentration = 
                         currentFoodConcentration * this.cellEnergyRegulator;
-                logger.debug("Energy delta: " + deltaFoodConcentration);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Energy delta: " + deltaFoodConcentration);
+                }
                 double newFoodConcentration = 
                         currentFoodConcentration - deltaFoodConcentration;
                                 
@@ -834,13 +929,13 @@ public abstract class GeneRegulatedCell extends Cell {
      * Calculates the new concentration of a regulator given an output genetic
      * element.
      * 
-     * @param outputElement The genetic element that determines the 
-     *                      concentration of the regulator.
+     * @param outputElement The index of the output genetic element that 
+     *                      determines the concentration of the regulator.
      * @param currentConcentration The current concentration of the regulator.
      * @return The new regulator concentration.
      */
     protected double updateRegulatorConcentration(
-            final GeneticElement outputElement, 
+            final int outputElement, 
             final double currentConcentration) {
         
         double deltaConcentration = this.regulatoryNetwork
@@ -849,7 +944,8 @@ public abstract class GeneRegulatedCell extends Cell {
         double newConcentration = currentConcentration + deltaConcentration;
         
         assert newConcentration > 0 : 
-            "Negative regulator concentration for " + outputElement.getType();
+            "Negative regulator concentration for " + this.regulatoryNetwork
+                    .getOutputType(outputElement);
         
         return newConcentration;
 
@@ -860,13 +956,13 @@ public abstract class GeneRegulatedCell extends Cell {
      * Updates the internal concentration of a cell product given an output 
      * genetic element.
      * 
-     * @param outputElement The genetic element that determines the 
-     *                      concentration of the substance.
+     * @param outputElement The index of the output genetic element that 
+     *                      determines the concentration of the substance.
      * @param productType The substance for which the concentration should be
      *                    updated.
      */
     protected void updateMembraneChannelConcentration(
-            final GeneticElement outputElement, 
+            final int outputElement, 
             final CellProductType productType) {
         
         CellMembraneChannel channel = this.membraneChannels.get(productType);
@@ -877,7 +973,8 @@ public abstract class GeneRegulatedCell extends Cell {
         double newConcentration = currentConcentration + deltaConcentration;
         
         assert newConcentration > 0 : 
-            "Negative concentration for " + outputElement.getType();
+            "Negative concentration for " + this.regulatoryNetwork
+                    .getOutputType(outputElement);
                         
         channel.setConcentration(newConcentration);
 
@@ -888,13 +985,13 @@ public abstract class GeneRegulatedCell extends Cell {
      * Updates the channel input rate for a product given an output genetic 
      * element.
      * 
-     * @param outputElement The genetic element that determines the input rate
-     *                      for the substance.
+     * @param outputElement The index of the output genetic element that 
+     *                      determines the input rate for the substance.
      * @param productType The substance for which the input rate should be
      *                    updated.
      */
     protected void updateMembraneChannelInputRate(
-            final GeneticElement outputElement, 
+            final int outputElement, 
             final CellProductType productType) {
         
         CellMembraneChannel channel = this.membraneChannels.get(productType);
@@ -905,7 +1002,8 @@ public abstract class GeneRegulatedCell extends Cell {
         double newInputRate = currentInputRate + deltaInputRate;
         
         assert newInputRate > 0 : 
-                "Negative input rate for " + outputElement.getType();
+                "Negative input rate for " + this.regulatoryNetwork
+                    .getOutputType(outputElement);
                         
         channel.setInputRate(newInputRate);
 
@@ -916,13 +1014,13 @@ public abstract class GeneRegulatedCell extends Cell {
      * Updates the channel output rate for a product given an output genetic 
      * element.
      * 
-     * @param outputElement The genetic element that determines the output rate
-     *                      for the substance.
+     * @param outputElement The index of the output genetic element that 
+     *                      determines the output rate for the substance.
      * @param productType The substance for which the output rate should be
      *                    updated.
      */
     protected void updateMembraneChannelOutputRate(
-            final GeneticElement outputElement, 
+            final int outputElement, 
             final CellProductType productType) {
         
         CellMembraneChannel channel = this.membraneChannels.get(productType);
@@ -933,7 +1031,8 @@ public abstract class GeneRegulatedCell extends Cell {
         double newOutputRate = currentOutputRate + deltaOutputRate;
         
         assert newOutputRate > 0 : 
-                "Negative output rate for " + outputElement.getType();
+                "Negative output rate for " + this.regulatoryNetwork
+                    .getOutputType(outputElement);
                         
         channel.setOutputRate(newOutputRate);
 
@@ -965,8 +1064,10 @@ public abstract class GeneRegulatedCell extends Cell {
                     extracellularMatrix.getConcentration(
                             substanceChannel.getSubstanceType());
             
-            logger.debug("Internal = " + internalConcentration 
-                    + " ==> External = " + externalConcentration);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Internal = " + internalConcentration
+                        + " ==> External = " + externalConcentration);
+            }
             
             if (substanceChannel.isOpenForOutput()
                     && (internalConcentration > externalConcentration)) {
@@ -987,8 +1088,10 @@ public abstract class GeneRegulatedCell extends Cell {
                 extracellularMatrix.setConcentration(
                         substanceChannel.getSubstanceType(), 
                         newExternalConcentration);
-                logger.debug("New internal concentration: " 
-                        + newInternalConcentration);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("New internal concentration: "
+                            + newInternalConcentration);
+                }
                 
             } // End if()
             
@@ -1008,8 +1111,10 @@ public abstract class GeneRegulatedCell extends Cell {
         double wasteConcentration = this.membraneChannels
                 .get(CellProductType.WASTE).getConcentration();
         
-        logger.debug("Cell death waste concentration: " 
-                + wasteConcentration);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Cell death waste concentration: "
+                    + wasteConcentration);
+        }
 
         double foodConcentration = this.membraneChannels
                 .get(CellProductType.FOOD).getConcentration();
@@ -1017,8 +1122,10 @@ public abstract class GeneRegulatedCell extends Cell {
         if ((wasteConcentration > REGULATOR_UNIVERSAL_THRESHOLD)
                 || (foodConcentration < MORTAL_LOWEST_FOOD_CONCENTRATION)) {
 
-            logger.info("Cell death event: food = " + foodConcentration 
-                    + ", waste = " + wasteConcentration);
+            if (logger.isInfoEnabled()) {
+                logger.info("Cell death event: food = " + foodConcentration
+                        + ", waste = " + wasteConcentration);
+            }
 
             die();
             
@@ -1044,6 +1151,7 @@ public abstract class GeneRegulatedCell extends Cell {
         @SuppressWarnings("unchecked")
         Context<Object> context = ContextUtils.getContext(this);
         
+        releaseGridCell();
         context.remove(this);
 
     } // End of die()
@@ -1056,15 +1164,17 @@ public abstract class GeneRegulatedCell extends Cell {
      */
     protected boolean cellDivisionHandler() {
         
-        logger.debug("Cell growth regulator concentration: " 
-                + this.cellGrowthRegulator);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Cell growth regulator concentration: "
+                    + this.cellGrowthRegulator);
+        }
         
         if (checkConcentrationTrigger(this.cellGrowthRegulator, true)) {
             
             // get the grid location of this Cell
             GridPoint pt = this.grid.getLocation(this);
             
-            GridPoint targetLocation;
+            HighestConcentrationFinder locationFinder;
             
             if (this.attached) {
                 
@@ -1072,19 +1182,27 @@ public abstract class GeneRegulatedCell extends Cell {
                 int extentY = (this.polarity[1] == 0) ? 1 : 0;
                 int extentZ = (this.polarity[2] == 0) ? 1 : 0;
                 
-                GridLocationStatus locationStatus = 
+                locationFinder = 
                         findHighestConcentrationGridCell(CellProductType.SAM, 
                                 pt, extentX, extentY, extentZ, false, true);
                 
-                if (locationStatus.getOccupant() != null) {
+                final Cell occupant = locationFinder.getOccupant();
+                
+                if (occupant != null) {
                     
                     logger.debug("No free space: bumping neighbour.");
                         
-                    if (!locationStatus.getOccupant()
-                            .bumpRequest(this, pt, extentX, extentY, extentZ)) {
+                    final long startTime = TickProfiler.start();
+                    final boolean bumped = occupant
+                            .bumpRequest(this, pt, extentX, extentY, extentZ);
+                    TickProfiler.stop(Probe.BUMP, startTime);
+                    
+                    if (!bumped) {
                             
-                        logger.debug("Neighbour can't or won't move: "
-                                + "choking to death.");
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Neighbour can't or won't move: "
+                                    + "choking to death.");
+                        }
                             
                         die();
                         return true;
@@ -1093,23 +1211,29 @@ public abstract class GeneRegulatedCell extends Cell {
                         
                 } // End if()
                 
-                targetLocation = locationStatus.getLocation();
-                
             } else {
                 
-                GridLocationStatus locationStatus = 
+                locationFinder = 
                         findHighestConcentrationGridCell(CellProductType.FOOD, 
                                 pt, 1, 1, 1, false, true);
                 
-                if (locationStatus.getOccupant() != null) {
+                final Cell occupant = locationFinder.getOccupant();
+                
+                if (occupant != null) {
                     
                     logger.debug("No free space: bumping neighbour.");
                         
-                    if (!locationStatus.getOccupant()
-                            .bumpRequest(this, pt, 1, 1, 1)) {
+                    final long startTime = TickProfiler.start();
+                    final boolean bumped = occupant
+                            .bumpRequest(this, pt, 1, 1, 1);
+                    TickProfiler.stop(Probe.BUMP, startTime);
+                    
+                    if (!bumped) {
                             
-                        logger.debug("Neighbour can't or won't move: "
-                                + "choking to death.");
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Neighbour can't or won't move: "
+                                    + "choking to death.");
+                        }
                             
                         die();
                         return true;
@@ -1118,12 +1242,12 @@ public abstract class GeneRegulatedCell extends Cell {
                         
                 } // End if()
                 
-                targetLocation = locationStatus.getLocation();
-                
             } // End if()
                 
-            logger.info("Cell division event: growth regulator = " 
-                    + this.cellGrowthRegulator);
+            if (logger.isInfoEnabled()) {
+                logger.info("Cell division event: growth regulator = "
+                        + this.cellGrowthRegulator);
+            }
 
             this.cellGrowthRegulator = this.cellGrowthRegulator / 2;
             
@@ -1134,7 +1258,8 @@ public abstract class GeneRegulatedCell extends Cell {
             Context<Object> context = ContextUtils.getContext(this);
             context.add(daughterCell);
             
-            daughterCell.moveTo(targetLocation);
+            daughterCell.moveTo(locationFinder.getX(),
+                    locationFinder.getY(), locationFinder.getZ());
 
             return true;
                 
@@ -1156,8 +1281,10 @@ public abstract class GeneRegulatedCell extends Cell {
         
         boolean changedAdhesionState = false;
         
-        logger.debug("Cell adhesion regulator concentration: " 
-                + this.cellAdhesionRegulator);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Cell adhesion regulator concentration: "
+                    + this.cellAdhesionRegulator);
+        }
         
         // Get the grid location of this cell.
         GridPoint pt = this.grid.getLocation(this);
@@ -1248,8 +1375,8 @@ public abstract class GeneRegulatedCell extends Cell {
             
                 polarity = new int[] { 0, 0, 0 };
             
-                int plane = RandomHelper.nextIntFromTo(0, 2);
-                int value = (RandomHelper.nextIntFromTo(0, 1) == 0) ? -1 : 1;
+                int plane = this.random.nextIntFromTo(0, 2);
+                int value = (this.random.nextIntFromTo(0, 1) == 0) ? -1 : 1;
                 polarity[plane] = value;
             
             } else {
@@ -1364,15 +1491,19 @@ public abstract class GeneRegulatedCell extends Cell {
         CellMembraneChannel cellMutagen = this.membraneChannels
                 .get(CellProductType.MUTAGEN);
         double mutagenConcentration = cellMutagen.getConcentration();
-        System.out.println("Cell mutagen concentration: " 
-                + mutagenConcentration);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Cell mutagen concentration: "
+                    + mutagenConcentration);
+        }
         
         if (checkConcentrationTrigger(mutagenConcentration, false)) {
             
-            this.regulatoryNetwork.mutate();
+            this.regulatoryNetwork.mutate(this.random);
             
-            logger.info("Cell mutation event: mutagen = " 
-                    + mutagenConcentration);
+            if (logger.isInfoEnabled()) {
+                logger.info("Cell mutation event: mutagen = "
+                        + mutagenConcentration);
+            }
             //cellMutagen.setConcentration(INITIAL_CONCENTRATION);
             return true;
 
@@ -1396,13 +1527,19 @@ public abstract class GeneRegulatedCell extends Cell {
             // get the grid location of this Cell
             GridPoint pt = this.grid.getLocation(this);
                     
-            GridLocationStatus locationStatus =    
+            HighestConcentrationFinder locationFinder =    
                     findHighestConcentrationGridCell(CellProductType.FOOD, 
                             pt, 1, 1, 1, true, true);
 
-            if (locationStatus.getOccupant() == null) {
+            // The cell's own location counts as free: it stays there when it
+            // is the best one.
+            if (locationFinder.isVacantFound()
+                    && ((locationFinder.getX() != pt.getX())
+                            || (locationFinder.getY() != pt.getY())
+                            || (locationFinder.getZ() != pt.getZ()))) {
                 
-                moveTo(locationStatus.getLocation());
+                moveTo(locationFinder.getX(), locationFinder.getY(),
+                        locationFinder.getZ());
                 logger.debug("Cell movement event.");
 
                 return true;
@@ -1433,7 +1570,7 @@ public abstract class GeneRegulatedCell extends Cell {
         if (useThreshold) {
             return (concentration > REGULATOR_UNIVERSAL_THRESHOLD);
         } else {
-            return (RandomHelper.nextDoubleFromTo(0, 1) <= concentration);
+            return (this.random.nextDouble() <= concentration);
         }
         
     } // End of checkConcentrationTrigger()
@@ -1478,6 +1615,110 @@ public abstract class GeneRegulatedCell extends Cell {
     } // End of bumpRequest()
     
     
+    // CHECKPOINT METHODS ------------------------------------------------------
+    
+    
+    /**
+     * Writes the state of this cell to a checkpoint: its membrane channels,
+     * the expression state of its regulatory network if it has one, its
+     * regulators, adhesion, polarity and random stream.
+     *
+     * @param out The checkpoint output.
+     * @throws IOException If the state cannot be written.
+     */
+    void writeState(final DataOutput out)
+            throws IOException { // package access.
+        
+        for (CellProductType productType : CellProductType.values()) {
+            
+            CellMembraneChannel channel =
+                    this.membraneChannels.get(productType);
+            
+            out.writeDouble(channel.getConcentration());
+            out.writeDouble(channel.getInputRate());
+            out.writeBoolean(channel.isOpenForInput());
+            out.writeDouble(channel.getOutputRate());
+            out.writeBoolean(channel.isOpenForOutput());
+            
+        } // End for(productType)
+        
+        if (this.regulatoryNetwork != null) {
+            this.regulatoryNetwork.writeState(out);
+        }
+        
+        out.writeDouble(this.cellGrowthRegulator);
+        out.writeDouble(this.cellAdhesionRegulator);
+        out.writeDouble(this.cellEnergyRegulator);
+        out.writeDouble(this.cellNeurotransmitterRegulator);
+        out.writeBoolean(this.attached);
+        out.writeBoolean(this.alive);
+        
+        if (this.polarity == null) {
+            out.writeByte(-1);
+        } else {
+            out.writeByte(this.polarity.length);
+            for (int axis : this.polarity) {
+                out.writeInt(axis);
+            }
+        }
+        
+        out.writeInt(this.cellDivisionCount);
+        out.writeLong(this.random.getState());
+        
+    } // End of writeState()
+    
+    
+    /**
+     * Reads the state written by {@link #writeState} into this cell, whose
+     * regulatory network must have the same genome as the written one.
+     *
+     * @param in The checkpoint input.
+     * @throws IOException If the state cannot be read.
+     */
+    void readState(final DataInput in)
+            throws IOException { // package access.
+        
+        for (CellProductType productType : CellProductType.values()) {
+            
+            CellMembraneChannel channel =
+                    this.membraneChannels.get(productType);
+            
+            channel.setConcentration(in.readDouble());
+            channel.setInputRate(in.readDouble());
+            channel.setOpenForInput(in.readBoolean());
+            channel.setOutputRate(in.readDouble());
+            channel.setOpenForOutput(in.readBoolean());
+            
+        } // End for(productType)
+        
+        if (this.regulatoryNetwork != null) {
+            this.regulatoryNetwork.readState(in);
+        }
+        
+        this.cellGrowthRegulator = in.readDouble();
+        this.cellAdhesionRegulator = in.readDouble();
+        this.cellEnergyRegulator = in.readDouble();
+        this.cellNeurotransmitterRegulator = in.readDouble();
+        this.attached = in.readBoolean();
+        this.alive = in.readBoolean();
+        
+        final int polarityLength = in.readByte();
+        
+        if (polarityLength < 0) {
+            this.polarity = null;
+        } else {
+            this.polarity = new int[polarityLength];
+            for (int a = 0; a < polarityLength; a++) {
+                this.polarity[a] = in.readInt();
+            }
+        }
+        
+        this.cellDivisionCount = in.readInt();
+        this.random.setState(in.readLong());
+        
+    } // End of readState()
+    
+    
     // RUNTIME QUERY METHODS ---------------------------------------------------
     
     
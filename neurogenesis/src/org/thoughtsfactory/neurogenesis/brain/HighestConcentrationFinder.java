@@ -0,0 +1,294 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import org.thoughtsfactory.neurogenesis.RandomStream;
+
+
+/**
+ * An extracellular matrix visitor that finds the grid cell with the highest
+ * concentration of a given product, and optionally the grid cell with the
+ * highest concentration among those free of cells. Ties are broken at
+ * random, each of the tied grid cells being equally likely to be picked.
+ *
+ * A finder belongs to a cell and is reset before each scan, so that scanning
+ * allocates nothing.
+ *
+ * @author Robert Langlois
+ */
+public class HighestConcentrationFinder implements ExtracellularMatrixVisitor {
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The index of the cells located in the grid.
+    private final OccupancyIndex occupancy;
+    
+    
+    // The extracellular matrix being scanned.
+    private ExtracellularMatrix matrix;
+    
+    
+    // The product to look for.
+    private CellProductType productType;
+    
+    
+    // Indicates if grid cells free of cells are looked for.
+    private boolean vacant;
+    
+    
+    // The cell looking for a location, which does not count as an occupant.
+    private final Cell requester;
+    
+    
+    // The random stream from which ties are broken.
+    private final RandomStream random;
+    
+    
+    // The coordinates of the best grid cell so far.
+    private final int[] best = new int[3];
+    
+    
+    // The concentration at the best grid cell so far.
+    private double bestConcentration;
+    
+    
+    // The number of grid cells tied with the best one so far, 0 if none.
+    private int bestTies = 0;
+    
+    
+    // The coordinates of the best free grid cell so far.
+    private final int[] bestVacant = new int[3];
+    
+    
+    // The concentration at the best free grid cell so far.
+    private double bestVacantConcentration;
+    
+    
+    // The number of free grid cells tied with the best free one so far, 0 if
+    // none.
+    private int bestVacantTies = 0;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new finder, to be reset before each scan.
+     *
+     * @param newOccupancy The index of the cells located in the grid.
+     * @param newRequester The cell looking for a location, if any; its own
+     *                     grid cell counts as free.
+     * @param newRandom The random stream from which ties are broken.
+     */
+    public HighestConcentrationFinder(final OccupancyIndex newOccupancy,
+            final Cell newRequester, final RandomStream newRandom) {
+        
+        this.occupancy = newOccupancy;
+        this.requester = newRequester;
+        this.random = newRandom;
+        
+    } // End of HighestConcentrationFinder()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Prepares a new scan, before this finder is passed to
+     * {@link ExtracellularMatrix#visitArea}.
+     *
+     * @param newMatrix The extracellular matrix that is scanned.
+     * @param newProductType The product to look for.
+     * @param newVacant Indicates if the best grid cell free of cells must be
+     *                  looked for as well.
+     */
+    public void reset(final ExtracellularMatrix newMatrix,
+            final CellProductType newProductType, final boolean newVacant) {
+        
+        this.matrix = newMatrix;
+        this.productType = newProductType;
+        this.vacant = newVacant;
+        this.bestTies = 0;
+        this.bestVacantTies = 0;
+        
+    } // End of reset()
+    
+    
+    /**
+     * Indicates if any grid cell was visited by the last scan.
+     *
+     * @return {@code true} if a location was found, {@code false} if the
+     *         area scanned was empty.
+     */
+    public boolean isFound() {
+        return this.bestTies > 0;
+    }
+    
+    
+    /**
+     * Indicates if a grid cell free of cells was found, when looked for.
+     *
+     * @return {@code true} if a free grid cell was found, {@code false}
+     *         otherwise.
+     */
+    public boolean isVacantFound() {
+        return this.bestVacantTies > 0;
+    }
+    
+    
+    /**
+     * Returns the x-axis coordinate of the location found: the free grid
+     * cell with the highest concentration when one was looked for and found,
+     * the grid cell with the highest concentration otherwise. Only valid if a
+     * location was found.
+     *
+     * @return The x-axis grid coordinate.
+     */
+    public int getX() {
+        return getLocation()[0];
+    }
+    
+    
+    /**
+     * Returns the y-axis coordinate of the location found.
+     *
+     * @return The y-axis grid coordinate.
+     * @see #getX()
+     */
+    public int getY() {
+        return getLocation()[1];
+    }
+    
+    
+    /**
+     * Returns the z-axis coordinate of the location found.
+     *
+     * @return The z-axis grid coordinate.
+     * @see #getX()
+     */
+    public int getZ() {
+        return getLocation()[2];
+    }
+    
+    
+    /**
+     * Returns the cell occupying the location found, if no free grid cell was
+     * found.
+     *
+     * @return The occupant, or {@code null} if the location found is free or
+     *         no location was found.
+     */
+    public Cell getOccupant() {
+        
+        if ((this.bestVacantTies > 0) || (this.bestTies == 0)) {
+            return null;
+        }
+        
+        return this.occupancy.getCellAt(
+                this.best[0], this.best[1], this.best[2]);
+        
+    } // End of getOccupant()
+    
+    
+    /**
+     * Returns the coordinates of the location found.
+     *
+     * @return The coordinates, as an array that must not be modified.
+     */
+    private int[] getLocation() {
+        return (this.bestVacantTies > 0) ? this.bestVacant : this.best;
+    }
+    
+    
+    /**
+     * Check that a grid cell is free of cells other than the requester.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @return {@code true} if the grid cell is free, {@code false} otherwise.
+     */
+    private boolean isFree(final int x, final int y, final int z) {
+        
+        final Cell cell = this.occupancy.getCellAt(x, y, z);
+        
+        return (cell == null) || (cell == this.requester);
+        
+    } // End of isFree()
+    
+    
+    /**
+     * Stores a set of grid coordinates.
+     *
+     * @param coordinates The array receiving the coordinates.
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     */
+    private static void setCoordinates(final int[] coordinates,
+            final int x, final int y, final int z) {
+        
+        coordinates[0] = x;
+        coordinates[1] = y;
+        coordinates[2] = z;
+        
+    } // End of setCoordinates()
+    
+    
+    // INTERFACES IMPLEMENTATION -----------------------------------------------
+    
+    
+    /**
+     * Visits a grid cell.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     */
+    @Override // ExtracellularMatrixVisitor
+    public void visit(final int x, final int y, final int z) {
+        
+        final double concentration =
+                this.matrix.getConcentration(x, y, z, this.productType);
+        
+        // Replacing the current pick with the n-th tied grid cell with a
+        // probability of 1/n picks each tied grid cell with equal probability.
+        
+        if ((this.bestTies == 0) || (concentration > this.bestConcentration)) {
+            
+            setCoordinates(this.best, x, y, z);
+            this.bestConcentration = concentration;
+            this.bestTies = 1;
+            
+        } else if ((concentration == this.bestConcentration)
+                && (this.random.nextIntFromTo(0, this.bestTies++) == 0)) {
+            
+            setCoordinates(this.best, x, y, z);
+            
+        } // End if()
+        
+        // Only probe the grid for cells when the grid cell is a candidate.
+        
+        if (!this.vacant || ((this.bestVacantTies > 0)
+                && (concentration < this.bestVacantConcentration))
+                || !isFree(x, y, z)) {
+            return;
+        }
+        
+        if ((this.bestVacantTies == 0)
+                || (concentration > this.bestVacantConcentration)) {
+            
+            setCoordinates(this.bestVacant, x, y, z);
+            this.bestVacantConcentration = concentration;
+            this.bestVacantTies = 1;
+            
+        } else if (this.random.nextIntFromTo(0, this.bestVacantTies++) == 0) {
+            
+            setCoordinates(this.bestVacant, x, y, z);
+            
+        } // End if()
+        
+    } // End of visit()
+    
+    
+} // End of HighestConcentrationFinder class
@@ -4,6 +4,8 @@
 package org.thoughtsfactory.neurogenesis.brain;
 
 import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.TickProfiler;
+import org.thoughtsfactory.neurogenesis.TickProfiler.Probe;
 import org.thoughtsfactory.neurogenesis.genetics.RegulatoryNetwork;
 
 import repast.simphony.engine.schedule.ScheduleParameters;
@@ -91,8 +93,10 @@ public class InputNeuron extends Neuron {
     @Override // Neuron
     public void update() {
 
+        final long startTime = TickProfiler.start();
+        
         // TODO: Put initialisation code in a scheduled method executed once.
-        if (this.neuritesRoot == null) {
+        if (this.neuritesRoot == NeuriteStore.NONE) {
             // Input neurons have only an axon, no dendrites.
             if (!initialiseNeurites(true, false)) {
                 throw new IllegalStateException(
@@ -100,9 +104,11 @@ public class InputNeuron extends Neuron {
             }
         }
         
-        this.activation = this.sensor.getValue();
+        setActivation(this.sensor.getValue());
 
-        logger.info("Input neuron activation: " + this.activation);
+        if (logger.isInfoEnabled()) {
+            logger.info("Input neuron activation: " + this.activation);
+        }
         
         CellMembraneChannel samChannel = 
                 this.membraneChannels.get(CellProductType.SAM);
@@ -113,7 +119,20 @@ public class InputNeuron extends Neuron {
         this.cellGrowthRegulator = 0.5;
         cellAxonGrowthHandler();
         
+        TickProfiler.stop(Probe.INPUT_NEURONS, startTime);
+        
     } // End of update()
     
 
+    /**
+     * Input neurons schedule a life cycle of their own.
+     *
+     * @return {@code false}.
+     */
+    @Override // GeneRegulatedCell
+    protected boolean hasPhasedLifeCycle() {
+        return false;
+    }
+    
+    
 } // End of InputNeuron class
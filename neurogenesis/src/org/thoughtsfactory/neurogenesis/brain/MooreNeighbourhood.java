@@ -0,0 +1,262 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import org.thoughtsfactory.neurogenesis.RandomStream;
+
+import repast.simphony.space.grid.GridPoint;
+
+
+/**
+ * A reusable iterator over the Moore neighbourhood of a grid location, that
+ * visits the neighbouring grid cells in a random order. The offsets of the
+ * neighbours are taken from tables computed once for every combination of
+ * extents: the full neighbourhood, the planes and the lines through the
+ * central location that are used by polarised cells. The random permutation
+ * is drawn one neighbour at a time in a scratch array, so that iterating
+ * creates no object and consumes no more random numbers than the neighbours
+ * actually visited. Neighbours outside the grid are skipped.
+ *
+ * Instances are not thread-safe: each cell owns its own.
+ *
+ * @author Robert Langlois
+ */
+public class MooreNeighbourhood {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The number of grid cells in the full Moore neighbourhood.
+    private static final int MAX_NEIGHBOURS = 26;
+    
+    
+    // The offsets of the neighbours as consecutive (x, y, z) triplets,
+    // indexed by extentX * 4 + extentY * 2 + extentZ.
+    private static final int[][] OFFSETS = new int[8][];
+    
+    static {
+        
+        for (int extentX = 0; extentX <= 1; extentX++) {
+            
+            for (int extentY = 0; extentY <= 1; extentY++) {
+                
+                for (int extentZ = 0; extentZ <= 1; extentZ++) {
+                    
+                    final int count = (2 * extentX + 1) * (2 * extentY + 1)
+                            * (2 * extentZ + 1) - 1;
+                    final int[] offsets = new int[count * 3];
+                    int i = 0;
+                    
+                    for (int x = -extentX; x <= extentX; x++) {
+                        for (int y = -extentY; y <= extentY; y++) {
+                            for (int z = -extentZ; z <= extentZ; z++) {
+                                if ((x != 0) || (y != 0) || (z != 0)) {
+                                    offsets[i++] = x;
+                                    offsets[i++] = y;
+                                    offsets[i++] = z;
+                                }
+                            }
+                        }
+                    }
+                    
+                    OFFSETS[extentX * 4 + extentY * 2 + extentZ] = offsets;
+                    
+                } // End for(extentZ)
+                
+            } // End for(extentY)
+            
+        } // End for(extentX)
+        
+    } // End of static initialiser
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The size of the grid from the origin to its faces.
+    private final int gridQuadrantSize;
+    
+    
+    // The random stream from which the permutations are drawn.
+    private final RandomStream random;
+    
+    
+    // Scratch array holding the permutation of the neighbours being drawn.
+    private final int[] order = new int[MAX_NEIGHBOURS];
+    
+    
+    // The offsets table of the current neighbourhood.
+    private int[] offsets = OFFSETS[0];
+    
+    
+    // The number of neighbours in the current neighbourhood.
+    private int size = 0;
+    
+    
+    // The number of neighbours drawn so far.
+    private int position = 0;
+    
+    
+    // The coordinates of the central location.
+    private int centreX;
+    private int centreY;
+    private int centreZ;
+    
+    
+    // The coordinates of the current neighbour.
+    private int x;
+    private int y;
+    private int z;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new neighbourhood iterator.
+     *
+     * @param newGridQuadrantSize The size of the grid from the origin to its
+     *                            faces.
+     * @param newRandom The random stream of the owner of the iterator.
+     */
+    public MooreNeighbourhood(final int newGridQuadrantSize,
+            final RandomStream newRandom) {
+        
+        this.gridQuadrantSize = newGridQuadrantSize;
+        this.random = newRandom;
+        
+    } // End of MooreNeighbourhood()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Starts a new iteration over the neighbourhood of a location.
+     *
+     * @param centre The central location, which is not part of the
+     *               neighbourhood.
+     * @param extentX The extent on the x-axis, {@code 0} or {@code 1}.
+     * @param extentY The extent on the y-axis, {@code 0} or {@code 1}.
+     * @param extentZ The extent on the z-axis, {@code 0} or {@code 1}.
+     */
+    public void reset(final GridPoint centre, final int extentX,
+            final int extentY, final int extentZ) {
+        
+        reset(centre.getX(), centre.getY(), centre.getZ(),
+                extentX, extentY, extentZ);
+        
+    } // End of reset(GridPoint, int, int, int)
+    
+    
+    /**
+     * Starts a new iteration over the neighbourhood of the specified
+     * coordinates.
+     *
+     * @param centreX The x-axis coordinate of the central location.
+     * @param centreY The y-axis coordinate of the central location.
+     * @param centreZ The z-axis coordinate of the central location.
+     * @param extentX The extent on the x-axis, {@code 0} or {@code 1}.
+     * @param extentY The extent on the y-axis, {@code 0} or {@code 1}.
+     * @param extentZ The extent on the z-axis, {@code 0} or {@code 1}.
+     */
+    public void reset(final int centreX, final int centreY, final int centreZ,
+            final int extentX, final int extentY, final int extentZ) {
+        
+        if ((extentX < 0) || (extentX > 1) || (extentY < 0) || (extentY > 1)
+                || (extentZ < 0) || (extentZ > 1)) {
+            throw new IllegalArgumentException("Extents must be 0 or 1!");
+        }
+        
+        this.centreX = centreX;
+        this.centreY = centreY;
+        this.centreZ = centreZ;
+        
+        this.offsets = OFFSETS[extentX * 4 + extentY * 2 + extentZ];
+        this.size = this.offsets.length / 3;
+        this.position = 0;
+        
+        for (int i = 0; i < this.size; i++) {
+            this.order[i] = i;
+        }
+        
+    } // End of reset(int, int, int, int, int, int)
+    
+    
+    /**
+     * Moves to a neighbour picked at random among those not visited yet.
+     *
+     * @return {@code true} if there was a neighbour left within the grid,
+     *         {@code false} if the iteration is over.
+     */
+    public boolean next() {
+        
+        final int limit = this.gridQuadrantSize;
+        
+        while (this.position < this.size) {
+            
+            // Swap a random neighbour among the remaining ones into the next
+            // position of the permutation (Fisher-Yates).
+            
+            final int pick =
+                    this.random.nextIntFromTo(this.position, this.size - 1);
+            final int neighbour = this.order[pick];
+            this.order[pick] = this.order[this.position];
+            this.order[this.position++] = neighbour;
+            
+            this.x = this.centreX + this.offsets[neighbour * 3];
+            this.y = this.centreY + this.offsets[neighbour * 3 + 1];
+            this.z = this.centreZ + this.offsets[neighbour * 3 + 2];
+            
+            if ((Math.abs(this.x) <= limit) && (Math.abs(this.y) <= limit)
+                    && (Math.abs(this.z) <= limit)) {
+                return true;
+            }
+            
+        } // End while()
+        
+        return false;
+        
+    } // End of next()
+    
+    
+    /**
+     * Returns the x-axis grid coordinate of the current neighbour.
+     *
+     * @return The x-axis grid coordinate.
+     */
+    public int getX() {
+        return this.x;
+    }
+    
+    
+    /**
+     * Returns the y-axis grid coordinate of the current neighbour.
+     *
+     * @return The y-axis grid coordinate.
+     */
+    public int getY() {
+        return this.y;
+    }
+    
+    
+    /**
+     * Returns the z-axis grid coordinate of the current neighbour.
+     *
+     * @return The z-axis grid coordinate.
+     */
+    public int getZ() {
+        return this.z;
+    }
+    
+    
+    /**
+     * Returns the location of the current neighbour.
+     *
+     * @return A new grid point.
+     */
+    public GridPoint getLocation() {
+        return new GridPoint(this.x, this.y, this.z);
+    }
+    
+    
+} // End of MooreNeighbourhood class
@@ -1,15 +1,14 @@
 package org.thoughtsfactory.neurogenesis.brain;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import org.apache.log4j.Logger;
-
 
 /**
  * A neurite junction is used to mark the presence of a neurite in a grid cell.
  * Neurite junctions are linked and represents either an axon's path or a 
  * particular path on a dendrites tree.
+ *
+ * The junctions themselves are held by the {@link NeuriteStore}: instances of
+ * this class are only views of them, added to the context so that neurites
+ * can be displayed, and only created when the model is displayed.
  * 
  * @author Robert Langlois
  */
@@ -27,10 +26,8 @@ public class NeuriteJunction {
     // INSTANCE VARIABLES ======================================================
     
     
-    // Class logger for messages.
-    @SuppressWarnings("unused")
-    private final static Logger logger = 
-    		Logger.getLogger(NeuriteJunction.class);    
+    // The store that holds the junction.
+    private final NeuriteStore store;
 
     
     // The junction's type.
@@ -41,45 +38,25 @@ public class NeuriteJunction {
     private final Neuron neuron;
     
     
-    // The depth of the junction relative to its neuron.
-    private int depth;
-    
-    
-    // If the junction is active or in the process
-    // of being removed or recycled.
-    private boolean active = true;
-    
-
-    // The list of neurites that point to this junction.
-    private final List<NeuriteJunction> predecessors = 
-            new ArrayList<NeuriteJunction>();
-    
-    
-    // The next neurite to which this one points.
-    private NeuriteJunction successor = null;
-    
-    
-    // Junctions from other neurons that connect from this junction.
-    private final List<NeuriteJunction> synapses = 
-    		new ArrayList<NeuriteJunction>();
+    // The index of the junction in the store, NONE once removed.
+    private int index;
     
     
     // CONSTRUCTORS ============================================================
     
     
     /**
-     * Creates a new neurite junction instance.
+     * Creates a new view of a neurite junction.
      * 
-     * @param newType The junction's type.
-     * @param newNeuron The neuron to which this junction belongs.
-     * @param newDepth The depth of this junction.
+     * @param newStore The store that holds the junction.
+     * @param newIndex The index of the junction in the store.
      */
-    public NeuriteJunction(final Type newType, 
-            final Neuron newNeuron, final int newDepth) { 
+    NeuriteJunction(final NeuriteStore newStore, final int newIndex) {
         
-        this.type = newType;
-        this.neuron = newNeuron;
-        this.depth = newDepth;
+        this.store = newStore;
+        this.index = newIndex;
+        this.type = newStore.getType(newIndex);
+        this.neuron = newStore.getNeuron(newIndex);
         
     } // End of NeuriteJunction()
     
@@ -113,86 +90,44 @@ public class NeuriteJunction {
      * @return An integer > 0 indicating the junction's depth.
      */
     public final int getDepth() {
-        return this.depth;
-    }
-    
-    
-    /**
-     * Sets the junction's depth.
-     * 
-     * @param newDepth The new depth of this junction.
-     */
-    public final void setDepth(final int newDepth) { 
-        this.depth = newDepth;
-    }
+        
+        if (this.index == NeuriteStore.NONE) {
+            return 0;
+        }
+        
+        return this.store.getDepth(this.index);
+        
+    } // End of getDepth()
     
     
     /**
-     * Returns whether this junction is active or in the process of being
-     * removed or recycled.
-     * 
+     * Returns whether this junction is active or has been removed.
+     *
      * @return {@code true} if the junction is active, {@code false} otherwise.
      */
     public final boolean isActive() {
-        return this.active;
+        return (this.index != NeuriteStore.NONE)
+                && this.store.isActive(this.index);
     }
     
     
     /**
-     * Specify whether this junction is active or in the process of being
-     * removed or recycled.
+     * Indicates if junctions from other neurons connect from this junction.
      * 
-     * @param newValue {@code true} to specify that the junction is active, 
-     *                 {@code false} to specify that its not.
-     */
-    public final void setActive(final boolean newValue) {
-        this.active = newValue;
-    }
-    
-    
-    /**
-     * Returns the list of junctions from the same neuron that points to the
-     * current junction.
-     *  
-     * @return A list of neurite junctions.
+     * @return {@code true} if the current junction is part of an axon and has
+     *         synapses, {@code false} otherwise.
      */
-    public final List<NeuriteJunction> getPredecessors() {
-        return this.predecessors;
+    public final boolean hasSynapses() {
+        return (this.index != NeuriteStore.NONE)
+                && this.store.hasSynapses(this.index);
     }
     
     
     /**
-     * Returns the single junction to which this current junction points to. 
-     * Successors in a dendrite tree are always up toward the neuron, while in 
-     * an axon they are always away toward the tip.
-     * 
-     * @return A neurite junction.
-     */
-    public final NeuriteJunction getSuccessor() {
-        return this.successor;
-    }
-    
-    
-    /**
-     * Sets the neurite junction to which this junction points to.
-     * 
-     * @param newSuccessor The next junction to which this junction should
-     *                     point.
-     */
-    public final void setSuccessor(final NeuriteJunction newSuccessor) {
-        this.successor = newSuccessor;
-    }
-
-
-    /**
-     * Returns the list of junctions from other neurons that connect from this
-     * junction.
-     * 
-     * @return If the current junction is part of an axon, zero or more 
-     *         junctions, or an empty list otherwise.
+     * Detaches this view from the junction, once removed from the store.
      */
-    public final List<NeuriteJunction> getSynapses() {
-        return this.synapses;
+    final void detach() {
+        this.index = NeuriteStore.NONE;
     }
     
 
@@ -37,7 +37,7 @@ public class NeuriteJunctionStyle3D implements Style3D<NeuriteJunction> {
         	Shape3D shape;
         	
         	// Synapses are displayed as cubes.
-        	if (agent.getSynapses().isEmpty()) {
+        	if (!agent.hasSynapses()) {
                 shape = ShapeFactory.createSphere(.03f, "DEFAULT");
             } else {
                 shape = ShapeFactory.createCube(.03f, "DEFAULT");
@@ -0,0 +1,979 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import repast.simphony.context.Context;
+import repast.simphony.space.continuous.ContinuousSpace;
+import repast.simphony.space.graph.Network;
+
+
+/**
+ * A neurite store holds all the neurite junctions of the brain in primitive
+ * arrays, a junction being nothing more than an index in these arrays. For
+ * each junction, the store keeps its type, its neuron, its depth, whether it
+ * is active, its successor and its location, as well as the lists of its
+ * predecessors and synapses, which are chained in a pool of links.
+ *
+ * The active axon junctions located in the same grid cell are chained as
+ * well, by owner, so that a growing dendrite finds the axon it can make a
+ * synapse with by a direct lookup rather than by scanning the objects of the
+ * grid cell.
+ *
+ * The indexes and links of removed junctions go to free lists shared by all
+ * neurons, from which new junctions and links are taken first.
+ *
+ * Junctions are only agents of the Repast context when the model is
+ * displayed: each junction then has a {@link NeuriteJunction} view, which is
+ * added to the context, located in the continuous space, and linked to the
+ * views of the junctions it is connected to in the neurites network.
+ *
+ * @author Robert Langlois
+ */
+public class NeuriteStore {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The index standing for no junction, or no link.
+     */
+    public static final int NONE = -1;
+    
+    
+    // The initial number of junctions and links the arrays can hold.
+    private static final int INITIAL_CAPACITY = 256;
+    
+    
+    // The junction types, by ordinal.
+    private static final NeuriteJunction.Type[] TYPES =
+            NeuriteJunction.Type.values();
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The context to which junction views are added.
+    private final Context<Object> context;
+    
+    
+    // The continuous space from which junction views are displayed.
+    private final ContinuousSpace<Object> space;
+    
+    
+    // The network linking junction views.
+    private final Network<Object> neuritesNetwork;
+    
+    
+    // The index of the occupants of each grid cell of the brain.
+    private final OccupancyIndex occupancy;
+    
+    
+    // Indicates if junctions have views.
+    private final boolean displayed;
+    
+    
+    // The ordinal of the type of each junction.
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    
+    
+    // The neuron of each junction, null if the index is not in use.
+    private Neuron[] neurons = new Neuron[INITIAL_CAPACITY];
+    
+    
+    // The depth of each junction relative to its neuron.
+    private int[] depths = new int[INITIAL_CAPACITY];
+    
+    
+    // Indicates if each junction is active.
+    private boolean[] actives = new boolean[INITIAL_CAPACITY];
+    
+    
+    // The successor of each junction.
+    private int[] successors = new int[INITIAL_CAPACITY];
+    
+    
+    // The x-axis grid coordinate of each junction.
+    private int[] xs = new int[INITIAL_CAPACITY];
+    
+    
+    // The y-axis grid coordinate of each junction.
+    private int[] ys = new int[INITIAL_CAPACITY];
+    
+    
+    // The z-axis grid coordinate of each junction.
+    private int[] zs = new int[INITIAL_CAPACITY];
+    
+    
+    // The grid cell of each junction, by occupancy index.
+    private int[] gridCells = new int[INITIAL_CAPACITY];
+    
+    
+    // The next axon junction located in the same grid cell as each axon
+    // junction.
+    private int[] nextAxons = new int[INITIAL_CAPACITY];
+    
+    
+    // The previous axon junction located in the same grid cell as each axon
+    // junction.
+    private int[] previousAxons = new int[INITIAL_CAPACITY];
+    
+    
+    // The first link of the predecessors of each junction.
+    private int[] predecessorLinks = new int[INITIAL_CAPACITY];
+    
+    
+    // The first link of the synapses of each junction.
+    private int[] synapseLinks = new int[INITIAL_CAPACITY];
+    
+    
+    // The view of each junction, null unless the model is displayed.
+    private NeuriteJunction[] views;
+    
+    
+    // The number of junction indexes ever used.
+    private int junctionCount = 0;
+    
+    
+    // The junction indexes free for reuse.
+    private int[] freeJunctions = new int[INITIAL_CAPACITY];
+    
+    
+    // The number of junction indexes free for reuse.
+    private int freeJunctionCount = 0;
+    
+    
+    // The first active axon junction located in each grid cell, by
+    // occupancy index.
+    private final int[] firstAxons;
+    
+    
+    // The junction each link leads to.
+    private int[] linkTargets = new int[INITIAL_CAPACITY];
+    
+    
+    // The next link of the list of each link.
+    private int[] linkNexts = new int[INITIAL_CAPACITY];
+    
+    
+    // The number of links ever used.
+    private int linkCount = 0;
+    
+    
+    // The first of the links free for reuse, chained by their next link.
+    private int freeLink = NONE;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new empty neurite store.
+     *
+     * @param newContext The context to which junction views are added.
+     * @param newSpace The continuous space from which junction views are
+     *                 displayed.
+     * @param newNeuritesNetwork The network linking junction views.
+     * @param newOccupancy The index of the occupants of each grid cell of the
+     *                     brain.
+     * @param newDisplayed {@code true} if junctions must have views,
+     *                     {@code false} otherwise.
+     */
+    public NeuriteStore(final Context<Object> newContext,
+            final ContinuousSpace<Object> newSpace,
+            final Network<Object> newNeuritesNetwork,
+            final OccupancyIndex newOccupancy, final boolean newDisplayed) {
+        
+        this.context = newContext;
+        this.space = newSpace;
+        this.neuritesNetwork = newNeuritesNetwork;
+        this.occupancy = newOccupancy;
+        this.displayed = newDisplayed;
+        
+        if (this.displayed) {
+            this.views = new NeuriteJunction[INITIAL_CAPACITY];
+        }
+        
+        this.firstAxons = new int[this.occupancy.getGridVolume()];
+        Arrays.fill(this.firstAxons, NONE);
+        
+    } // End of NeuriteStore()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the number of junctions in the store.
+     *
+     * @return The number of junctions.
+     */
+    public int getJunctionCount() {
+        return this.junctionCount - this.freeJunctionCount;
+    }
+    
+    
+    /**
+     * Creates a new active junction at the specified location.
+     *
+     * @param type The junction's type.
+     * @param neuron The neuron to which the junction belongs.
+     * @param depth The depth of the junction.
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @return The new junction.
+     */
+    public int addJunction(final NeuriteJunction.Type type,
+            final Neuron neuron, final int depth,
+            final int x, final int y, final int z) {
+        
+        final int junction;
+        
+        if (this.freeJunctionCount > 0) {
+            junction = this.freeJunctions[--this.freeJunctionCount];
+        } else {
+            if (this.junctionCount == this.types.length) {
+                growJunctions();
+            }
+            junction = this.junctionCount++;
+        }
+        
+        final int gridCell = this.occupancy.getGridCellIndex(x, y, z);
+        
+        this.types[junction] = (byte) type.ordinal();
+        this.neurons[junction] = neuron;
+        this.depths[junction] = depth;
+        this.actives[junction] = true;
+        this.successors[junction] = NONE;
+        this.xs[junction] = x;
+        this.ys[junction] = y;
+        this.zs[junction] = z;
+        this.gridCells[junction] = gridCell;
+        this.predecessorLinks[junction] = NONE;
+        this.synapseLinks[junction] = NONE;
+        
+        if (type == NeuriteJunction.Type.AXON) {
+            
+            // Index the axon junction in its grid cell.
+            
+            final int next = this.firstAxons[gridCell];
+            
+            this.previousAxons[junction] = NONE;
+            this.nextAxons[junction] = next;
+            if (next != NONE) {
+                this.previousAxons[next] = junction;
+            }
+            
+            this.firstAxons[gridCell] = junction;
+            
+        } // End if()
+        
+        this.occupancy.addNeurite(neuron, gridCell);
+        
+        if (this.displayed) {
+            this.views[junction] = new NeuriteJunction(this, junction);
+            this.context.add(this.views[junction]);
+        }
+        
+        return junction;
+        
+    } // End of addJunction()
+    
+    
+    /**
+     * Removes a junction from the store, along with the lists of its
+     * predecessors and synapses. The junction must already have been removed
+     * from the lists of other junctions.
+     *
+     * @param junction The junction to remove.
+     */
+    public void removeJunction(final int junction) {
+        
+        assert this.neurons[junction] != null : "Junction already removed!";
+        
+        final int gridCell = this.gridCells[junction];
+        
+        if (this.types[junction] == NeuriteJunction.Type.AXON.ordinal()) {
+            
+            // Remove the axon junction from the index of its grid cell.
+            
+            final int previous = this.previousAxons[junction];
+            final int next = this.nextAxons[junction];
+            
+            if (previous == NONE) {
+                this.firstAxons[gridCell] = next;
+            } else {
+                this.nextAxons[previous] = next;
+            }
+            
+            if (next != NONE) {
+                this.previousAxons[next] = previous;
+            }
+            
+        } // End if()
+        
+        this.occupancy.removeNeurite(this.neurons[junction], gridCell);
+        
+        releaseLinks(this.predecessorLinks[junction]);
+        releaseLinks(this.synapseLinks[junction]);
+        
+        if (this.displayed) {
+            // Also removes the edges of the view.
+            this.context.remove(this.views[junction]);
+            this.views[junction].detach();
+            this.views[junction] = null;
+        }
+        
+        this.actives[junction] = false;
+        this.neurons[junction] = null;
+        
+        if (this.freeJunctionCount == this.freeJunctions.length) {
+            this.freeJunctions = Arrays.copyOf(this.freeJunctions,
+                    2 * this.freeJunctionCount);
+        }
+        
+        this.freeJunctions[this.freeJunctionCount++] = junction;
+        
+    } // End of removeJunction()
+    
+    
+    /**
+     * Returns the junction's type.
+     *
+     * @param junction The junction.
+     * @return One of {@link NeuriteJunction.Type}.
+     */
+    public NeuriteJunction.Type getType(final int junction) {
+        return TYPES[this.types[junction]];
+    }
+    
+    
+    /**
+     * Returns the neuron that owns a junction.
+     *
+     * @param junction The junction.
+     * @return The neuron to which the junction belongs.
+     */
+    public Neuron getNeuron(final int junction) {
+        return this.neurons[junction];
+    }
+    
+    
+    /**
+     * Returns the depth of a junction along the path from its neuron.
+     *
+     * @param junction The junction.
+     * @return An integer > 0 indicating the junction's depth, 0 for the root.
+     */
+    public int getDepth(final int junction) {
+        return this.depths[junction];
+    }
+    
+    
+    /**
+     * Returns whether a junction is active, i.e. not removed.
+     *
+     * @param junction The junction.
+     * @return {@code true} if the junction is active, {@code false} otherwise.
+     */
+    public boolean isActive(final int junction) {
+        return this.actives[junction];
+    }
+    
+    
+    /**
+     * Returns the x-axis grid coordinate of a junction.
+     *
+     * @param junction The junction.
+     * @return The x-axis coordinate.
+     */
+    public int getX(final int junction) {
+        return this.xs[junction];
+    }
+    
+    
+    /**
+     * Returns the y-axis grid coordinate of a junction.
+     *
+     * @param junction The junction.
+     * @return The y-axis coordinate.
+     */
+    public int getY(final int junction) {
+        return this.ys[junction];
+    }
+    
+    
+    /**
+     * Returns the z-axis grid coordinate of a junction.
+     *
+     * @param junction The junction.
+     * @return The z-axis coordinate.
+     */
+    public int getZ(final int junction) {
+        return this.zs[junction];
+    }
+    
+    
+    /**
+     * Returns the single junction to which a junction points to. Successors
+     * in a dendrite tree are always up toward the neuron, while in an axon
+     * they are always away toward the tip.
+     *
+     * @param junction The junction.
+     * @return The successor, or {@link #NONE}.
+     */
+    public int getSuccessor(final int junction) {
+        return this.successors[junction];
+    }
+    
+    
+    /**
+     * Sets the junction to which a junction points to.
+     *
+     * @param junction The junction.
+     * @param successor The next junction to which the junction should point.
+     */
+    public void setSuccessor(final int junction, final int successor) {
+        this.successors[junction] = successor;
+    }
+    
+    
+    /**
+     * Returns the first link of the list of the junctions that point to a
+     * junction.
+     *
+     * @param junction The junction.
+     * @return The first link, or {@link #NONE} if the list is empty.
+     */
+    public int getPredecessorLinks(final int junction) {
+        return this.predecessorLinks[junction];
+    }
+    
+    
+    /**
+     * Returns the number of junctions that point to a junction.
+     *
+     * @param junction The junction.
+     * @return The number of predecessors.
+     */
+    public int getPredecessorCount(final int junction) {
+        
+        int count = 0;
+        
+        for (int link = this.predecessorLinks[junction]; link != NONE;
+                link = this.linkNexts[link]) {
+            count++;
+        }
+        
+        return count;
+        
+    } // End of getPredecessorCount()
+    
+    
+    /**
+     * Adds a junction to the predecessors of another.
+     *
+     * @param junction The junction.
+     * @param predecessor The junction that points to it.
+     */
+    public void addPredecessor(final int junction, final int predecessor) {
+        this.predecessorLinks[junction] =
+                newLink(predecessor, this.predecessorLinks[junction]);
+    }
+    
+    
+    /**
+     * Removes a junction from the predecessors of another.
+     *
+     * @param junction The junction.
+     * @param predecessor The junction that no longer points to it.
+     */
+    public void removePredecessor(final int junction, final int predecessor) {
+        this.predecessorLinks[junction] =
+                removeLink(this.predecessorLinks[junction], predecessor);
+    }
+    
+    
+    /**
+     * Returns the first link of the list of the junctions from other neurons
+     * that connect from a junction.
+     *
+     * @param junction The junction.
+     * @return The first link, or {@link #NONE} if the list is empty.
+     */
+    public int getSynapseLinks(final int junction) {
+        return this.synapseLinks[junction];
+    }
+    
+    
+    /**
+     * Indicates if junctions from other neurons connect from a junction.
+     *
+     * @param junction The junction.
+     * @return {@code true} if the junction is part of an axon and has
+     *         synapses, {@code false} otherwise.
+     */
+    public boolean hasSynapses(final int junction) {
+        return this.synapseLinks[junction] != NONE;
+    }
+    
+    
+    /**
+     * Creates a synapse between an axon junction and the dendrite junction of
+     * another neuron, of which the axon junction becomes a predecessor.
+     *
+     * @param axon The axon junction.
+     * @param dendrite The dendrite junction.
+     */
+    public void addSynapse(final int axon, final int dendrite) {
+        
+        this.synapseLinks[axon] = newLink(dendrite, this.synapseLinks[axon]);
+        addPredecessor(dendrite, axon);
+        
+    } // End of addSynapse()
+    
+    
+    /**
+     * Removes a dendrite junction from the synapses of an axon junction.
+     *
+     * @param axon The axon junction.
+     * @param dendrite The dendrite junction.
+     */
+    public void removeSynapse(final int axon, final int dendrite) {
+        this.synapseLinks[axon] =
+                removeLink(this.synapseLinks[axon], dendrite);
+    }
+    
+    
+    /**
+     * Returns the junction a link leads to.
+     *
+     * @param link The link.
+     * @return The junction.
+     */
+    public int getLinkTarget(final int link) {
+        return this.linkTargets[link];
+    }
+    
+    
+    /**
+     * Returns the link that follows another in its list.
+     *
+     * @param link The link.
+     * @return The next link, or {@link #NONE} at the end of the list.
+     */
+    public int getNextLink(final int link) {
+        return this.linkNexts[link];
+    }
+    
+    
+    /**
+     * Finds an active axon junction of another neuron than the specified one
+     * at the specified grid coordinates.
+     *
+     * @param neuron The neuron whose axon is excluded.
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @return The axon junction found, or {@link #NONE} if none.
+     */
+    public int findForeignAxon(final Neuron neuron,
+            final int x, final int y, final int z) {
+        
+        final int axon =
+                this.firstAxons[this.occupancy.getGridCellIndex(x, y, z)];
+        
+        // A neuron has at most one active junction per grid cell, so if the
+        // first axon junction is its own, the next one is foreign.
+        if ((axon != NONE) && (this.neurons[axon] == neuron)) {
+            return this.nextAxons[axon];
+        }
+        
+        return axon;
+        
+    } // End of findForeignAxon()
+    
+    
+    /**
+     * Positions the view of a junction in the continuous space, if the model
+     * is displayed.
+     *
+     * @param junction The junction.
+     * @param x The x-axis continuous space coordinate.
+     * @param y The y-axis continuous space coordinate.
+     * @param z The z-axis continuous space coordinate.
+     */
+    public void displayAt(final int junction,
+            final double x, final double y, final double z) {
+        
+        if (this.displayed) {
+            this.space.moveTo(this.views[junction], x, y, z);
+        }
+        
+    } // End of displayAt()
+    
+    
+    /**
+     * Links the views of two junctions in the neurites network, if the model
+     * is displayed.
+     *
+     * @param source The junction the edge starts from.
+     * @param target The junction the edge ends at.
+     */
+    public void displayEdge(final int source, final int target) {
+        
+        if (this.displayed) {
+            this.neuritesNetwork.addEdge(
+                    this.views[source], this.views[target]);
+        }
+        
+    } // End of displayEdge()
+    
+    
+    /**
+     * Writes all the junctions of the store to a checkpoint, at their current
+     * index, along with the free indexes, so that the neurons restored from
+     * the checkpoint refer to the same junctions.
+     *
+     * @param out The checkpoint output.
+     * @param ordinals The ordinal of each neuron in the checkpoint.
+     * @throws IOException If the junctions cannot be written.
+     */
+    void writeState(final DataOutput out,
+            final Map<Neuron, Integer> ordinals) throws IOException {
+        
+        out.writeInt(this.junctionCount);
+        
+        for (int j = 0; j < this.junctionCount; j++) {
+            
+            if (this.neurons[j] == null) {
+                out.writeInt(NONE);
+                continue;
+            }
+            
+            out.writeInt(ordinals.get(this.neurons[j]));
+            out.writeByte(this.types[j]);
+            out.writeInt(this.depths[j]);
+            out.writeBoolean(this.actives[j]);
+            out.writeInt(this.successors[j]);
+            out.writeInt(this.xs[j]);
+            out.writeInt(this.ys[j]);
+            out.writeInt(this.zs[j]);
+            
+            // The order of the axon junctions of a grid cell decides which
+            // one a dendrite makes a synapse with.
+            if (this.types[j] == NeuriteJunction.Type.AXON.ordinal()) {
+                out.writeInt(this.nextAxons[j]);
+                out.writeInt(this.previousAxons[j]);
+            }
+            
+            writeLinks(out, this.predecessorLinks[j]);
+            writeLinks(out, this.synapseLinks[j]);
+            
+        } // End for(j)
+        
+        out.writeInt(this.freeJunctionCount);
+        for (int f = 0; f < this.freeJunctionCount; f++) {
+            out.writeInt(this.freeJunctions[f]);
+        }
+        
+    } // End of writeState()
+    
+    
+    /**
+     * Reads the junctions written by {@link #writeState} into this store,
+     * which must be empty, then records them in the occupancy index and,
+     * if the model is displayed, creates their views. Views are displayed at
+     * the centre of the grid cell of their junction.
+     *
+     * @param in The checkpoint input.
+     * @param owners The neuron of each ordinal in the checkpoint.
+     * @throws IOException If the junctions cannot be read.
+     */
+    void readState(final DataInput in, final Neuron[] owners)
+            throws IOException {
+        
+        if (this.junctionCount > 0) {
+            throw new IllegalStateException("Neurite store not empty!");
+        }
+        
+        final int count = in.readInt();
+        while (this.types.length < count) {
+            growJunctions();
+        }
+        
+        this.junctionCount = count;
+        
+        for (int j = 0; j < count; j++) {
+            
+            final int ordinal = in.readInt();
+            
+            if (ordinal == NONE) {
+                this.neurons[j] = null;
+                this.actives[j] = false;
+                continue;
+            }
+            
+            this.neurons[j] = owners[ordinal];
+            this.types[j] = in.readByte();
+            this.depths[j] = in.readInt();
+            this.actives[j] = in.readBoolean();
+            this.successors[j] = in.readInt();
+            this.xs[j] = in.readInt();
+            this.ys[j] = in.readInt();
+            this.zs[j] = in.readInt();
+            
+            final int gridCell = this.occupancy.getGridCellIndex(
+                    this.xs[j], this.ys[j], this.zs[j]);
+            this.gridCells[j] = gridCell;
+            
+            if (this.types[j] == NeuriteJunction.Type.AXON.ordinal()) {
+                
+                this.nextAxons[j] = in.readInt();
+                this.previousAxons[j] = in.readInt();
+                
+                if (this.previousAxons[j] == NONE) {
+                    this.firstAxons[gridCell] = j;
+                }
+                
+            } // End if()
+            
+            this.predecessorLinks[j] = readLinks(in);
+            this.synapseLinks[j] = readLinks(in);
+            
+            this.occupancy.addNeurite(this.neurons[j], gridCell);
+            
+        } // End for(j)
+        
+        this.freeJunctionCount = in.readInt();
+        if (this.freeJunctions.length < this.freeJunctionCount) {
+            this.freeJunctions = new int[this.freeJunctionCount];
+        }
+        for (int f = 0; f < this.freeJunctionCount; f++) {
+            this.freeJunctions[f] = in.readInt();
+        }
+        
+        if (this.displayed) {
+            displayJunctions();
+        }
+        
+    } // End of readState()
+    
+    
+    /**
+     * Takes a link from the pool and puts it at the head of a list.
+     *
+     * @param target The junction the link leads to.
+     * @param next The first link of the list.
+     * @return The new first link of the list.
+     */
+    private int newLink(final int target, final int next) {
+        
+        final int link;
+        
+        if (this.freeLink != NONE) {
+            
+            link = this.freeLink;
+            this.freeLink = this.linkNexts[link];
+            
+        } else {
+            
+            if (this.linkCount == this.linkTargets.length) {
+                final int capacity = 2 * this.linkCount;
+                this.linkTargets = Arrays.copyOf(this.linkTargets, capacity);
+                this.linkNexts = Arrays.copyOf(this.linkNexts, capacity);
+            }
+            
+            link = this.linkCount++;
+            
+        } // End if()
+        
+        this.linkTargets[link] = target;
+        this.linkNexts[link] = next;
+        
+        return link;
+        
+    } // End of newLink()
+    
+    
+    /**
+     * Removes the first link to a junction from a list and returns it to the
+     * pool.
+     *
+     * @param first The first link of the list.
+     * @param target The junction the link to remove leads to.
+     * @return The new first link of the list.
+     */
+    private int removeLink(final int first, final int target) {
+        
+        int previous = NONE;
+        int link = first;
+        
+        while ((link != NONE) && (this.linkTargets[link] != target)) {
+            previous = link;
+            link = this.linkNexts[link];
+        }
+        
+        if (link == NONE) {
+            return first;
+        }
+        
+        final int next = this.linkNexts[link];
+        this.linkNexts[link] = this.freeLink;
+        this.freeLink = link;
+        
+        if (previous == NONE) {
+            return next;
+        }
+        
+        this.linkNexts[previous] = next;
+        
+        return first;
+        
+    } // End of removeLink()
+    
+    
+    /**
+     * Returns all the links of a list to the pool.
+     *
+     * @param first The first link of the list.
+     */
+    private void releaseLinks(final int first) {
+        
+        if (first == NONE) {
+            return;
+        }
+        
+        int last = first;
+        while (this.linkNexts[last] != NONE) {
+            last = this.linkNexts[last];
+        }
+        
+        this.linkNexts[last] = this.freeLink;
+        this.freeLink = first;
+        
+    } // End of releaseLinks()
+    
+    
+    /**
+     * Writes the junctions of a list of links to a checkpoint.
+     *
+     * @param out The checkpoint output.
+     * @param first The first link of the list.
+     * @throws IOException If the list cannot be written.
+     */
+    private void writeLinks(final DataOutput out, final int first)
+            throws IOException {
+        
+        int count = 0;
+        for (int link = first; link != NONE; link = this.linkNexts[link]) {
+            count++;
+        }
+        
+        out.writeInt(count);
+        
+        for (int link = first; link != NONE; link = this.linkNexts[link]) {
+            out.writeInt(this.linkTargets[link]);
+        }
+        
+    } // End of writeLinks()
+    
+    
+    /**
+     * Reads a list of links written by {@link #writeLinks}, in the same
+     * order.
+     *
+     * @param in The checkpoint input.
+     * @return The first link of the list, or {@link #NONE} if it is empty.
+     * @throws IOException If the list cannot be read.
+     */
+    private int readLinks(final DataInput in) throws IOException {
+        
+        final int[] targets = new int[in.readInt()];
+        for (int t = 0; t < targets.length; t++) {
+            targets[t] = in.readInt();
+        }
+        
+        // Links are put at the head of the list: add the last one first.
+        int first = NONE;
+        for (int t = targets.length - 1; t >= 0; t--) {
+            first = newLink(targets[t], first);
+        }
+        
+        return first;
+        
+    } // End of readLinks()
+    
+    
+    /**
+     * Creates the views of all the junctions and links them as they were
+     * when the junctions were grown.
+     */
+    private void displayJunctions() {
+        
+        for (int j = 0; j < this.junctionCount; j++) {
+            
+            if (this.neurons[j] != null) {
+                this.views[j] = new NeuriteJunction(this, j);
+                this.context.add(this.views[j]);
+                displayAt(j, this.xs[j] + 0.5,
+                        this.ys[j] + 0.5, this.zs[j] + 0.5);
+            }
+            
+        } // End for(j)
+        
+        for (int j = 0; j < this.junctionCount; j++) {
+            
+            if (this.neurons[j] == null) {
+                continue;
+            }
+            
+            if (this.successors[j] != NONE) {
+                displayEdge(j, this.successors[j]);
+            }
+            
+            for (int link = this.synapseLinks[j]; link != NONE;
+                    link = this.linkNexts[link]) {
+                displayEdge(j, this.linkTargets[link]);
+            }
+            
+        } // End for(j)
+        
+    } // End of displayJunctions()
+    
+    
+    /**
+     * Doubles the number of junctions the arrays can hold.
+     */
+    private void growJunctions() {
+        
+        final int capacity = 2 * this.types.length;
+        
+        this.types = Arrays.copyOf(this.types, capacity);
+        this.neurons = Arrays.copyOf(this.neurons, capacity);
+        this.depths = Arrays.copyOf(this.depths, capacity);
+        this.actives = Arrays.copyOf(this.actives, capacity);
+        this.successors = Arrays.copyOf(this.successors, capacity);
+        this.xs = Arrays.copyOf(this.xs, capacity);
+        this.ys = Arrays.copyOf(this.ys, capacity);
+        this.zs = Arrays.copyOf(this.zs, capacity);
+        this.gridCells = Arrays.copyOf(this.gridCells, capacity);
+        this.nextAxons = Arrays.copyOf(this.nextAxons, capacity);
+        this.previousAxons = Arrays.copyOf(this.previousAxons, capacity);
+        this.predecessorLinks =
+                Arrays.copyOf(this.predecessorLinks, capacity);
+        this.synapseLinks = Arrays.copyOf(this.synapseLinks, capacity);
+        
+        if (this.displayed) {
+            this.views = Arrays.copyOf(this.views, capacity);
+        }
+        
+    } // End of growJunctions()
+    
+    
+} // End of NeuriteStore class
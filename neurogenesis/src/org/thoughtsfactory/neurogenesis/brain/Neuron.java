@@ -1,27 +1,26 @@
 package org.thoughtsfactory.neurogenesis.brain;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
-import java.util.Stack;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
 
 import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.Configuration;
+import org.thoughtsfactory.neurogenesis.SimulationContextHolder;
+import org.thoughtsfactory.neurogenesis.TickProfiler;
+import org.thoughtsfactory.neurogenesis.TickProfiler.Probe;
 import org.thoughtsfactory.neurogenesis.genetics.RegulatoryNetwork;
 
 import repast.simphony.context.Context;
 import repast.simphony.engine.schedule.ScheduleParameters;
 import repast.simphony.engine.schedule.ScheduledMethod;
-import repast.simphony.query.space.grid.GridCell;
-import repast.simphony.query.space.grid.GridCellNgh;
-import repast.simphony.random.RandomHelper;
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.graph.Network;
-import repast.simphony.space.graph.RepastEdge;
 import repast.simphony.space.grid.Grid;
 import repast.simphony.space.grid.GridPoint;
 import repast.simphony.util.ContextUtils;
-import repast.simphony.util.SimUtilities;
 
 
 /**
@@ -71,22 +70,41 @@ public class Neuron extends GeneRegulatedCell {
     protected final Network<Object> neuralNetwork;
     
     
+    /**
+     * The store of the synapses of the neural network.
+     */
+    protected final SynapseStore synapses;
+    
+    
+    /**
+     * The index of this neuron in the synapse store, -1 while it is not in
+     * the context.
+     */
+    protected int synapseIndex = -1;
+    
+    
     /**
      * The network of all neurite instances.
      */
     protected final Network<Object> neuritesNetwork;
     
     
+    /**
+     * The store of the neurite junctions of the brain.
+     */
+    protected final NeuriteStore neurites;
+    
+    
     /**
      * The neurite junction that is currently the axon's tip.
      */
-    protected NeuriteJunction axonTip = null;
+    protected int axonTip = NeuriteStore.NONE;
     
     
     /**
      * The root junction from which all dendrites and the axon departs.
      */
-    protected NeuriteJunction neuritesRoot = null;
+    protected int neuritesRoot = NeuriteStore.NONE;
     
     
     /**
@@ -98,15 +116,13 @@ public class Neuron extends GeneRegulatedCell {
     /**
      * A (partial) list of dendrite leaves used to grow new dendrite offshoots.
      */
-    protected List<NeuriteJunction> dendriteLeaves = 
-            new ArrayList<NeuriteJunction>();
+    protected int[] dendriteLeaves = new int[MAX_DENDRITE_LEAVES + 1];
     
     
     /**
-     * The pool of dendrites available for recycling.
+     * The number of dendrite leaves in the list.
      */
-    protected Queue<NeuriteJunction> freeDendriteLeavesPool = 
-            new LinkedList<NeuriteJunction>();
+    protected int dendriteLeafCount = 0;
     
     
     /**
@@ -115,6 +131,13 @@ public class Neuron extends GeneRegulatedCell {
     protected int totalDendrites = 0;
     
     
+    /**
+     * The grid cells where an active junction of this neuron is located, by
+     * occupancy index.
+     */
+    protected final BitSet neuriteGridCells = new BitSet();
+    
+    
     // CONSTRUCTORS ============================================================
     
     
@@ -141,7 +164,9 @@ public class Neuron extends GeneRegulatedCell {
         super(newId, newSpace, newGrid, newRegulatoryNetwork, false);
         
         this.neuralNetwork = newNeuralNetwork;
+        this.synapses = SimulationContextHolder.getInstance().getSynapseStore();
         this.neuritesNetwork = newNeuritesNetwork;
+        this.neurites = SimulationContextHolder.getInstance().getNeuriteStore();
         
     } /* End of Neuron(ContinuousSpace, Grid, 
        			RegulatoryNetwork, Network, Network) */
@@ -166,7 +191,9 @@ public class Neuron extends GeneRegulatedCell {
         this.attached = false;
         
         this.neuralNetwork = newNeuralNetwork;
+        this.synapses = SimulationContextHolder.getInstance().getSynapseStore();
         this.neuritesNetwork = newNeuritesNetwork;
+        this.neurites = SimulationContextHolder.getInstance().getNeuriteStore();
         
         CellMembraneChannel samChannel = 
                 this.membraneChannels.get(CellProductType.SAM);
@@ -195,12 +222,44 @@ public class Neuron extends GeneRegulatedCell {
         return this.activation;
     };
     
+    
+    /**
+     * Sets the activation level of the neuron.
+     *
+     * @param newActivation The new activation level.
+     */
+    protected final void setActivation(final double newActivation) {
+        this.activation = newActivation;
+        this.synapses.setActivation(this, newActivation);
+    }
+    
+    
+    /**
+     * Returns the factor applied to every input of the neuron, which depends
+     * on its neurotransmitter regulator and on its food concentration.
+     *
+     * @return The synaptic gain.
+     */
+    protected double getSynapticGain() {
+        
+        double foodConcentration = this.membraneChannels
+                .get(CellProductType.FOOD).getConcentration();
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Neuron food concentration: " + foodConcentration);
+        }
+        
+        return this.cellNeurotransmitterRegulator * foodConcentration;
+        
+    } // End of getSynapticGain()
+    
 
     // CELL LIFE CYCLE METHDOS -------------------------------------------------
     
     
     /**
-     * Execute the life cycle of a neuron.
+     * Execute the life cycle of a neuron, unless it is run in phases across
+     * all cells.
      * 
      * This method is scheduled for execution at every tick of the simulation
      * with the same priority given to most cellular agents.
@@ -209,35 +268,78 @@ public class Neuron extends GeneRegulatedCell {
             priority = ScheduleParameters.RANDOM_PRIORITY)
     public void update() {
 
+        if (!Configuration.getInstance().isPhasedCellUpdate()) {
+            
+            final long startTime = TickProfiler.start();
+            updateLifeCycle();
+            TickProfiler.stop(Probe.NEURONS, startTime);
+            
+        } // End if()
+        
+    } // End of update()
+    
+    
+    /**
+     * Grows the neurites of a new neuron and calculates its activation.
+     *
+     * @return {@code true} if the neuron is ready for update, {@code false}
+     *         if it died in the process.
+     */
+    @Override // GeneRegulatedCell
+    protected boolean prepareUpdate() {
+        
         // TODO: Put initialisation code in a scheduled method executed once.
-        if (this.neuritesRoot == null) {
+        if (this.neuritesRoot == NeuriteStore.NONE) {
             if (!initialiseNeurites(true, true)) {
                 die();
-                return;
+                return false;
             }
         }
         
-        calculateActivation();
+        // The phased update calculates all activations in a single sweep.
+        if (!Configuration.getInstance().isPhasedCellUpdate()) {
+            final long startTime = TickProfiler.start();
+            calculateActivation();
+            TickProfiler.stop(Probe.ACTIVATION, startTime);
+        }
+        
+        return true;
         
-        absorbProductsFromMatrix();
-        updateRegulatoryNetwork();
-        updateCellConcentrations();
+    } // End of prepareUpdate()
+    
+    
+    /**
+     * Handles the cellular events of a neuron.
+     */
+    @Override // GeneRegulatedCell
+    protected void handleLifeCycleEvents() {
                 
         // Handles cell death.
-        if (!cellDeathHandler()) {
-            
-            // Handles neurites growth.            
-            cellAxonGrowthHandler();
-            cellDendritesGrowthHandler();
-            
-            // Handles mutations.
-            //cellMutationHandler();
-            
-            expelProductsToMatrix();
-
-        } // End if()
+        long startTime = TickProfiler.start();
+        final boolean died = cellDeathHandler();
+        TickProfiler.stop(Probe.DEATH, startTime);
         
-    } // End of update()
+        if (died) {
+            return;
+        }
+        
+        // Handles neurites growth.
+        startTime = TickProfiler.start();
+        cellAxonGrowthHandler();
+        TickProfiler.stop(Probe.AXON_GROWTH, startTime);
+        
+        startTime = TickProfiler.start();
+        cellDendritesGrowthHandler();
+        TickProfiler.stop(Probe.DENDRITE_GROWTH, startTime);
+        
+        // Handles mutations.
+        //cellMutationHandler();
+        
+        startTime = TickProfiler.start();
+        expelProductsToMatrix();
+        TickProfiler.stop(Probe.EXPEL, startTime);
+        
+    } // End of handleLifeCycleEvents()
 
 
     /**
@@ -255,73 +357,70 @@ public class Neuron extends GeneRegulatedCell {
         // Remove the axon first so as to not 
         // attempt to remove the root twice.
 
-        if (this.axonTip != null) {
+        if (this.axonTip != NeuriteStore.NONE) {
             destroyAxon();
         }
             
-        if (this.neuritesRoot != null) {
+        if (this.neuritesRoot != NeuriteStore.NONE) {
             destroyDendrites();
         }
             
         @SuppressWarnings("unchecked")
         Context<Object> context = ContextUtils.getContext(this);
 
-        // Destroy dendrites still in the pool.
-        for (NeuriteJunction junction : this.freeDendriteLeavesPool) {
-            context.remove(junction);
-        }
-
+        releaseGridCell();
         context.remove(this);
 
     } // End of die()
     
 
     /**
-     * Destroy (i.e. remove from the context) all neurite junctions that make 
-     * the axon and adjust relevant dependencies.
+     * Destroy (i.e. remove from the neurite store) all neurite junctions that
+     * make the axon and adjust relevant dependencies.
      */
     protected void destroyAxon() {
     
         logger.debug("Destroying axon...");
         
-        assert this.axonTip != null : "No axon tip!";
-        assert this.neuritesRoot != null : "No dendrite root!";
+        assert this.axonTip != NeuriteStore.NONE : "No axon tip!";
+        assert this.neuritesRoot != NeuriteStore.NONE : "No dendrite root!";
         
-        NeuriteJunction currentJunction = this.axonTip;
-
-        @SuppressWarnings("unchecked")
-        Context<Object> context = ContextUtils.getContext(this);
+        int currentJunction = this.axonTip;
 
         while (currentJunction != this.neuritesRoot) {
             
-            assert currentJunction.getType() == NeuriteJunction.Type.AXON :
-                    "Not an AXON junction!?";
-            
-            currentJunction.setActive(false);
+            assert this.neurites.getType(currentJunction)
+                    == NeuriteJunction.Type.AXON : "Not an AXON junction!?";
             
-            for (NeuriteJunction synapse : currentJunction.getSynapses()) {
+            for (int link = this.neurites.getSynapseLinks(currentJunction);
+                    link != NeuriteStore.NONE;
+                    link = this.neurites.getNextLink(link)) {
                 
                 // Remove the synaptic link.
-                synapse.getPredecessors().remove(currentJunction);
+                this.neurites.removePredecessor(
+                        this.neurites.getLinkTarget(link), currentJunction);
                 
-            } // End for(synapse)
+            } // End for(link)
             
-            context.remove(currentJunction);
-
-            assert currentJunction.getPredecessors().size() == 1 :
+            assert this.neurites.getPredecessorCount(currentJunction) == 1 :
                 "Axon junctions must have one and one only predecessor!";
             
-            currentJunction = currentJunction.getPredecessors().get(0);
+            final int predecessor = this.neurites.getLinkTarget(
+                    this.neurites.getPredecessorLinks(currentJunction));
+            
+            this.neurites.removeJunction(currentJunction);
+            
+            currentJunction = predecessor;
             
         } // End while()
         
-        this.axonTip = null;
+        this.axonTip = NeuriteStore.NONE;
         
     } // End of destroyAxon()
     
 
     /**
-     * Destroy (i.e. remove from the context) all neurite junctions that
+     * Destroy (i.e. remove from the neurite store) all neurite junctions that
      * form the dendrites network of the current neuron and adjust relevant 
      * dependencies.
      */
@@ -329,47 +428,54 @@ public class Neuron extends GeneRegulatedCell {
 
         logger.debug("Destroying dendrites...");
         
-        this.neuritesRoot.setActive(false);
+        int[] junctionsToDestroy = new int[this.totalDendrites + 1];
+        int junctionsToDestroyCount = 0;
+        junctionsToDestroy[junctionsToDestroyCount++] = this.neuritesRoot;
         
-        Stack<NeuriteJunction> junctionsToDestroy = 
-                new Stack<NeuriteJunction>();
-        junctionsToDestroy.push(this.neuritesRoot);
+        while (junctionsToDestroyCount > 0) {
             
-        @SuppressWarnings("unchecked")
-        Context<Object> context = ContextUtils.getContext(this);
-
-        while (!junctionsToDestroy.isEmpty()) {
-        
-            NeuriteJunction currentJunction = junctionsToDestroy.pop();
+            final int currentJunction =
+                    junctionsToDestroy[--junctionsToDestroyCount];
             
             // Has to be a NEURON (root) or DENDRITE. 
-            assert (currentJunction.getType() != NeuriteJunction.Type.AXON) :
+            assert this.neurites.getType(currentJunction)
+                    != NeuriteJunction.Type.AXON :
                     "Current junction belong to an AXON!";
             
-            for (NeuriteJunction predecessor : 
-                    currentJunction.getPredecessors()) {
+            for (int link = this.neurites.getPredecessorLinks(currentJunction);
+                    link != NeuriteStore.NONE;
+                    link = this.neurites.getNextLink(link)) {
 
-                if (predecessor.getNeuron() == this) {
+                final int predecessor = this.neurites.getLinkTarget(link);
                     
-                    assert predecessor.getType() 
+                if (this.neurites.getNeuron(predecessor) == this) {
+                    
+                    assert this.neurites.getType(predecessor)
                             == NeuriteJunction.Type.DENDRITE :
                             "Predecessor is of the wrong junction type!";
                     
-                    predecessor.setActive(false);                        
-                    junctionsToDestroy.push(predecessor);
+                    if (junctionsToDestroyCount
+                            == junctionsToDestroy.length) {
+                        junctionsToDestroy = Arrays.copyOf(junctionsToDestroy,
+                                2 * junctionsToDestroyCount);
+                    }
+                    
+                    junctionsToDestroy[junctionsToDestroyCount++] =
+                            predecessor;
                     
                 } else {
                     
-                    assert predecessor.getType() == NeuriteJunction.Type.AXON :
+                    assert this.neurites.getType(predecessor)
+                            == NeuriteJunction.Type.AXON :
                             "This should be an AXON from another neuron!";
                     
-                    predecessor.getSynapses().remove(currentJunction);
+                    this.neurites.removeSynapse(predecessor, currentJunction);
 
                 } // End if()
             
-            } // End for(predeccessor)
+            } // End for(link)
 
-            context.remove(currentJunction);
+            this.neurites.removeJunction(currentJunction);
             
         } // End while()
     
@@ -390,34 +496,30 @@ public class Neuron extends GeneRegulatedCell {
     protected boolean initialiseNeurites(final boolean createAxon, 
             final boolean createDendrites) {
         
-        assert this.neuritesRoot == null : "Neurite root already initialised!";
+        assert this.neuritesRoot == NeuriteStore.NONE :
+                "Neurite root already initialised!";
 
         boolean success = true;
         
         // Creates the root to all neurites.
             
-        this.neuritesRoot =    
-                new NeuriteJunction(NeuriteJunction.Type.NEURON, this, 0);
-            
-        @SuppressWarnings("unchecked")
-        Context<Object> context = ContextUtils.getContext(this);
-        context.add(this.neuritesRoot);
-
         GridPoint pt = this.grid.getLocation(this);
-        this.space.moveTo(this.neuritesRoot, pt.getX() + 0.5, 
-                pt.getY() + 0.5, pt.getZ() + 0.5); 
-        this.grid.moveTo(this.neuritesRoot, 
+        this.neuritesRoot = this.neurites.addJunction(
+                NeuriteJunction.Type.NEURON, this, 0,
                 pt.getX(), pt.getY(), pt.getZ());
+        this.neurites.displayAt(this.neuritesRoot, pt.getX() + 0.5,
+                pt.getY() + 0.5, pt.getZ() + 0.5); 
             
         // Creates the axon.
             
         if (createAxon) {
             
-            assert this.axonTip == null : "Axon tip already initialised!";
+            assert this.axonTip == NeuriteStore.NONE :
+                    "Axon tip already initialised!";
             
             this.axonTip = extendNeurite(NeuriteJunction.Type.AXON,    
                     this.neuritesRoot, false);
-            if (this.axonTip == null) {
+            if (this.axonTip == NeuriteStore.NONE) {
                 logger.warn("Could not initialise axon!");
                 success = false;
             }
@@ -432,15 +534,15 @@ public class Neuron extends GeneRegulatedCell {
                     n <= Math.min(MAX_DENDRITE_ROOTS, MAX_DENDRITE_LEAVES); 
                     n++) {
                 
-                if ((n == 1) || (RandomHelper.nextDoubleFromTo(0, 1) 
+                if ((n == 1) || (this.random.nextDouble()
                         <= this.cellGrowthRegulator)) {
                     
-                    NeuriteJunction newDendrite = 
+                    int newDendrite =
                             extendNeurite(NeuriteJunction.Type.DENDRITE, 
                                     this.neuritesRoot, false);
                     
-                    if (newDendrite != null) {
-                        this.dendriteLeaves.add(newDendrite);
+                    if (newDendrite != NeuriteStore.NONE) {
+                        addDendriteLeaf(newDendrite);
                         this.totalDendrites++;
                     }
                                                             
@@ -448,7 +550,7 @@ public class Neuron extends GeneRegulatedCell {
                 
             } // End for()
             
-            if (this.dendriteLeaves.isEmpty()) {
+            if (this.dendriteLeafCount == 0) {
                 logger.warn("Dendrites not initialised!");
                 success = false;
             }
@@ -467,22 +569,24 @@ public class Neuron extends GeneRegulatedCell {
      */
     protected boolean cellAxonGrowthHandler() {
         
-        assert this.axonTip != null : "Uninitialised axon!?";
+        assert this.axonTip != NeuriteStore.NONE : "Uninitialised axon!?";
         
-        logger.debug("Cell axon growth regulator concentration: " 
-                + this.cellGrowthRegulator);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Cell axon growth regulator concentration: "
+                    + this.cellGrowthRegulator);
+        }
         
         /* Probability of having the axon grow decreases exponentially
          * with the depth of the axon's tip.
          */
         if (checkConcentrationTrigger(this.cellGrowthRegulator
-                 / Math.pow(this.axonTip.getDepth(), 2), false)) {
+                 / Math.pow(this.neurites.getDepth(this.axonTip), 2), false)) {
 
-            NeuriteJunction newJunction = 
+            int newJunction =
                     extendNeurite(NeuriteJunction.Type.AXON, 
                             this.axonTip, false);
 
-            if (newJunction != null) {
+            if (newJunction != NeuriteStore.NONE) {
                 this.axonTip = newJunction;
                 return true;                
             } else {
@@ -504,11 +608,14 @@ public class Neuron extends GeneRegulatedCell {
      */
     protected boolean cellDendritesGrowthHandler() {
 
-        assert this.neuritesRoot != null : "Uninitialised neurites root!?";
-        assert !this.dendriteLeaves.isEmpty() : "No dendrite leaves!";
+        assert this.neuritesRoot != NeuriteStore.NONE :
+                "Uninitialised neurites root!?";
+        assert this.dendriteLeafCount > 0 : "No dendrite leaves!";
         
-        logger.debug("Cell dendrites growth regulator concentration: " 
-                + this.cellGrowthRegulator);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Cell dendrites growth regulator concentration: "
+                    + this.cellGrowthRegulator);
+        }
         
         /*
          *  Find the best neurite junction to bud the next dendrite(s). The
@@ -517,100 +624,113 @@ public class Neuron extends GeneRegulatedCell {
          *  the lowest dendrite depth (i.e. cost less to expand and maintain).
          */
         
-        NeuriteJunction nextBud = null;
+        ExtracellularMatrix matrix =
+                SimulationContextHolder.getInstance().getExtracellularMatrix();
+        
+        int nextBud = NeuriteStore.NONE;
         double minValue = Double.MAX_VALUE;
     
-        for (NeuriteJunction dendriteLeaf : this.dendriteLeaves) {
+        for (int i = 0; i < this.dendriteLeafCount; i++) {
+            
+            final int dendriteLeaf = this.dendriteLeaves[i];
+            final int depth = this.neurites.getDepth(dendriteLeaf);
                             
-            logger.debug("Searching: dendrite depth = " 
-                    + dendriteLeaf.getDepth());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Searching: dendrite depth = " + depth);
+            }
                 
-            GridPoint dendriteLocation = this.grid.getLocation(dendriteLeaf);
-            assert dendriteLocation != null : 
-                "Dendrite location is null! (Neuron is " 
-                    + ((dendriteLeaf.getNeuron().alive)    
-                            ? "alive" : "dead") + ")";
+            assert this.neurites.isActive(dendriteLeaf) :
+                "Dendrite leaf is not active! (Neuron is "
+                    + (this.alive ? "alive" : "dead") + ")";
                 
-            ExtracellularMatrixSample extracellularMatrix = 
-                    getExtracellularMatrixSample(dendriteLocation);
+            double externalConcentration = matrix.getConcentration(
+                    this.neurites.getX(dendriteLeaf),
+                    this.neurites.getY(dendriteLeaf),
+                    this.neurites.getZ(dendriteLeaf), CellProductType.SAM);
             
-            double externalConcentration = 
-                    extracellularMatrix.getConcentration(CellProductType.SAM);
-                
-            double currentValue = externalConcentration 
-                    * Math.pow(dendriteLeaf.getDepth(), 2);
+            double currentValue = externalConcentration * Math.pow(depth, 2);
             if (currentValue < minValue) {
                 nextBud = dendriteLeaf;
                 minValue = currentValue;
             }
                 
-        } // End for(dendriteLeaf)
+        } // End for(i)
 
         /* Probability of having the axon grow decreases exponentially
          * with the depth of the selected dendrite leaf.
          */
             
         if (checkConcentrationTrigger(this.cellGrowthRegulator
-                / Math.pow(nextBud.getDepth(), 2), false)) {
+                / Math.pow(this.neurites.getDepth(nextBud), 2), false)) {
 
             // First branch from bud.
 
-            NeuriteJunction newJunction1 = 
+            int newJunction1 =
                     extendNeurite(NeuriteJunction.Type.DENDRITE, nextBud, 
-                            this.dendriteLeaves.size() > 1);
+                            this.dendriteLeafCount > 1);
 
-            if (newJunction1 == null) {
+            if (newJunction1 == NeuriteStore.NONE) {
                 logger.warn("Could not grow first branch of dendrite!.");
-                if (this.dendriteLeaves.size() > 1) {
+                if (this.dendriteLeafCount > 1) {
                     logger.warn("Discarding leaf bud.");
                     discardDendriteLeaf(nextBud);
                 }
                 return false;
             }
             
-            logger.debug("Number of leaves: " + this.dendriteLeaves.size());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Number of leaves: " + this.dendriteLeafCount);
+            }
 
             // In any cases, selected dendrite is a leaf no longer.
-            this.dendriteLeaves.remove(nextBud);
+            removeDendriteLeaf(nextBud);
             
-            logger.debug("Number of leaves (removed bud): " 
-                    + this.dendriteLeaves.size());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Number of leaves (removed bud): "
+                        + this.dendriteLeafCount);
+            }
 
             // Add the new leaf to the list if not a synapse.
-            if (newJunction1.getType() != NeuriteJunction.Type.AXON) {
-                this.dendriteLeaves.add(newJunction1);
+            if (this.neurites.getType(newJunction1)
+                    != NeuriteJunction.Type.AXON) {
+                addDendriteLeaf(newJunction1);
                 this.totalDendrites++;
-                logger.debug("Number of leaves (added J1): " 
-                        + this.dendriteLeaves.size());
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Number of leaves (added J1): "
+                            + this.dendriteLeafCount);
+                }
             }
             
             // Second (optional) branch from bud.
             
             if (checkConcentrationTrigger(this.cellGrowthRegulator 
-                    / Math.pow(nextBud.getDepth(), 2), false)) {
+                    / Math.pow(this.neurites.getDepth(nextBud), 2), false)) {
                 
-                NeuriteJunction newJunction2 = 
+                int newJunction2 =
                         extendNeurite(NeuriteJunction.Type.DENDRITE, nextBud, 
-                                this.dendriteLeaves.size() > 1);
+                                this.dendriteLeafCount > 1);
                 
-                if (newJunction2 == null) {
+                if (newJunction2 == NeuriteStore.NONE) {
                     // At this point the first branch at least 
                     // was added successfully.
                     logger.warn("Could not grow second branch of dendrite!");
                     return true;
                 }
 
-                if (newJunction2.getType() != NeuriteJunction.Type.AXON) {
+                if (this.neurites.getType(newJunction2)
+                        != NeuriteJunction.Type.AXON) {
                     
                     // Need to add the second dendrite and possibly expel one
                     // dendrite from the table if it is full.
                         
-                    this.dendriteLeaves.add(newJunction2);
+                    addDendriteLeaf(newJunction2);
                     this.totalDendrites++;
-                    logger.debug("Number of leaves (added J2): " 
-                            + this.dendriteLeaves.size());
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Number of leaves (added J2): "
+                                + this.dendriteLeafCount);
+                    }
                     
-                    if (this.dendriteLeaves.size() > MAX_DENDRITE_LEAVES) {
+                    if (this.dendriteLeafCount > MAX_DENDRITE_LEAVES) {
                         
                         /* Leaves that are expelled from the list won't ever be
                          * candidate again as the root of new buds, hence they
@@ -618,13 +738,12 @@ public class Neuron extends GeneRegulatedCell {
                          * opportunity to connect to axons.
                          */
 
-                        NeuriteJunction dendriteToRemove = 
-                                this.dendriteLeaves.get(0);
-                        for (NeuriteJunction dendriteLeaf : 
-                                this.dendriteLeaves) {
-                            if (dendriteLeaf.getDepth() 
-                                    < dendriteToRemove.getDepth()) {
-                                dendriteToRemove = dendriteLeaf;
+                        int dendriteToRemove = this.dendriteLeaves[0];
+                        for (int i = 1; i < this.dendriteLeafCount; i++) {
+                            if (this.neurites.getDepth(this.dendriteLeaves[i])
+                                    < this.neurites.getDepth(
+                                            dendriteToRemove)) {
+                                dendriteToRemove = this.dendriteLeaves[i];
                             }
                         }
 
@@ -646,49 +765,44 @@ public class Neuron extends GeneRegulatedCell {
 
 
     /**
-     * Removes the specified dendrite leaf from the dendrites tree and add it
-     * to the recycling pool.
+     * Removes the specified dendrite leaf from the dendrites tree, along with
+     * the branch that only leads to it, and returns the junctions to the
+     * neurite store. The neurites root is never removed.
      * 
      * @param The dendrite to remove.
      */
-    protected void discardDendriteLeaf(NeuriteJunction dendriteToRemove) {
+    protected void discardDendriteLeaf(int dendriteToRemove) {
         
         logger.info("Discarding dendrite leaves...");
 
-        this.dendriteLeaves.remove(dendriteToRemove);
-        logger.debug("Number of leaves (removed deepest): " 
-                + this.dendriteLeaves.size());
+        removeDendriteLeaf(dendriteToRemove);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Number of leaves (removed deepest): "
+                    + this.dendriteLeafCount);
+        }
 
         boolean done = false;
         
         while (!done) {
             
             // Moving up the tree...
-            NeuriteJunction successor = dendriteToRemove.getSuccessor();
-    
-            dendriteToRemove.setActive(false);
+            final int successor = this.neurites.getSuccessor(dendriteToRemove);
             
-            RepastEdge<Object> edgeToRemove = 
-                    this.neuritesNetwork.getEdge(dendriteToRemove, 
-                            dendriteToRemove.getSuccessor());
-            if (edgeToRemove == null) {
-                throw new IllegalStateException(
-                        "No edge between junctions!");
+            if (logger.isDebugEnabled()) {
+                logger.debug("Dendrite depth "
+                        + this.neurites.getDepth(dendriteToRemove)
+                        + " returned to store.");
             }
-
-            this.neuritesNetwork.removeEdge(edgeToRemove);
-
-            dendriteToRemove.getPredecessors().clear();
-            this.freeDendriteLeavesPool.add(dendriteToRemove);
+    
+            // Also removes the edge to the successor from the display.
+            this.neurites.removePredecessor(successor, dendriteToRemove);
+            this.neurites.removeJunction(dendriteToRemove);
             this.totalDendrites--;
             
-            logger.debug("Dendrite depth " 
-                    + dendriteToRemove.getDepth() + " added to pool.");
-    
             // The successor is not a leaf?
-            List<NeuriteJunction> predecessors = successor.getPredecessors();
-            if (predecessors.size() > 1) {
-                predecessors.remove(dendriteToRemove);
+            if ((successor == this.neuritesRoot)
+                    || (this.neurites.getPredecessorLinks(successor)
+                            != NeuriteStore.NONE)) {
                 done = true;
             } else {
                 dendriteToRemove = successor;
@@ -699,6 +813,44 @@ public class Neuron extends GeneRegulatedCell {
     } // End of discardDendriteLeaf()
 
     
+    /**
+     * Appends a junction to the list of dendrite leaves.
+     *
+     * @param dendriteLeaf The new dendrite leaf.
+     */
+    private void addDendriteLeaf(final int dendriteLeaf) {
+        
+        if (this.dendriteLeafCount == this.dendriteLeaves.length) {
+            this.dendriteLeaves = Arrays.copyOf(this.dendriteLeaves,
+                    2 * this.dendriteLeafCount);
+        }
+        
+        this.dendriteLeaves[this.dendriteLeafCount++] = dendriteLeaf;
+        
+    } // End of addDendriteLeaf()
+    
+    
+    /**
+     * Removes a junction from the list of dendrite leaves, keeping the order
+     * of the others.
+     *
+     * @param dendriteLeaf The dendrite leaf to remove.
+     */
+    private void removeDendriteLeaf(final int dendriteLeaf) {
+        
+        for (int i = 0; i < this.dendriteLeafCount; i++) {
+            
+            if (this.dendriteLeaves[i] == dendriteLeaf) {
+                System.arraycopy(this.dendriteLeaves, i + 1,
+                        this.dendriteLeaves, i, --this.dendriteLeafCount - i);
+                return;
+            }
+            
+        } // End for(i)
+        
+    } // End of removeDendriteLeaf()
+    
+    
     /**
      * Extend a new neurite into the grid.
      * 
@@ -706,108 +858,84 @@ public class Neuron extends GeneRegulatedCell {
      * @param currentJunction The junction from which the new neurite will be an 
      *                        offshoot.
      * @param findSynapes Create a synapse if possible.
+     * @return The new junction, the axon junction of the synapse created, or
+     *         {@link NeuriteStore#NONE} if the neurite could not be extended.
      */
-    protected NeuriteJunction extendNeurite(
+    protected int extendNeurite(
             final NeuriteJunction.Type newJunctionType,
-            final NeuriteJunction currentJunction,
+            final int currentJunction,
             final boolean findSynapses) {
         
         if (newJunctionType == NeuriteJunction.Type.NEURON) {
             throw new IllegalArgumentException("AXON or DENDRITE only!");
         }
         
-        GridPoint currentLocation = this.grid.getLocation(currentJunction);
-        assert currentLocation != null : "Current location is null!!!";
-        
-        // Use the GridCellNgh class to create GridCells for
-        // the surrounding neighbourhood.
-        GridCellNgh<Object> nghCreator = 
-                new GridCellNgh<Object>(this.grid, currentLocation, 
-                        Object.class, 1, 1, 1);
-        List<GridCell<Object>> gridCells =    
-                nghCreator.getNeighborhood(false);
-        SimUtilities.shuffle(gridCells, RandomHelper.getUniform());
+        assert this.neurites.isActive(currentJunction) :
+                "Current junction is not active!!!";
+        
+        final int currentX = this.neurites.getX(currentJunction);
+        final int currentY = this.neurites.getY(currentJunction);
+        final int currentZ = this.neurites.getZ(currentJunction);
+        
+        // Visit the surrounding neighbourhood in random order.
+        this.neighbourhood.reset(currentX, currentY, currentZ, 1, 1, 1);
 
-        // Pick the first free grid cell among the shuffled list.
+        ExtracellularMatrix matrix =
+                SimulationContextHolder.getInstance().getExtracellularMatrix();
         
-        GridCell<Object> selectedGridCell = null;
+        // Pick the first free grid cell with the lowest concentration of SAM
+        // in the random order.
+        
+        boolean gridCellSelected = false;
+        int selectedX = 0;
+        int selectedY = 0;
+        int selectedZ = 0;
         double minConcentration = Double.MAX_VALUE;
-        NeuriteJunction newJunction = null;
+        int newJunction = NeuriteStore.NONE;
         
         // Synapses are not created from a root NEURON type.
         final boolean lookForSynapse = findSynapses 
                 && (newJunctionType == NeuriteJunction.Type.DENDRITE)
-                && (currentJunction.getType() == NeuriteJunction.Type.DENDRITE);
+                && (this.neurites.getType(currentJunction)
+                        == NeuriteJunction.Type.DENDRITE);
         
         // Scan the neighbourhood.
-        for (GridCell<Object> gridCell : gridCells) {
+        while (this.neighbourhood.next()) {
             
-            boolean freeCell = true;
-            NeuriteJunction synapse = null;
+            final int x = this.neighbourhood.getX();
+            final int y = this.neighbourhood.getY();
+            final int z = this.neighbourhood.getZ();
             
-            if (gridCell.size() > 0) {
-                
-            	// Examine objects in the current grid cell.
-                for (Object obj : gridCell.items()) {
-
-                    if (obj instanceof NeuriteJunction) {
-                        
-                        NeuriteJunction junction = (NeuriteJunction) obj;
-                        
-                        if (!junction.isActive()) {
-                        	// Skip.
-                            continue;
-                        }
-                    
-                        if (junction.getNeuron() == this) {
-                        	
-                        	// Neurite belongs to this neuron.
-                            freeCell = false;
-                            if (!lookForSynapse) {
-                                break;
-                            }
-                            
-                            /* Grid cell is not free but keep looking just in
-                             * case we find a synapse instead.
-                             */
-                            
-                        } else if (lookForSynapse 
-                                && (junction.getType() 
-                                        == NeuriteJunction.Type.AXON)) {
-                        	
-                        	// Found a site for a synapse.
-                            synapse = junction;
-                            break;
-                            
-                        } // End if()
-                        
-                    } else if (obj instanceof GeneRegulatedCell) {
-                        
-                        GeneRegulatedCell cell = (GeneRegulatedCell) obj;
-                        if (cell.attached) {
-                        	// Dendrites can't grow in a grid cell where there
-                        	// is a sedentary attached cell.
-                            freeCell = false;
-                            break;
-                        }
-                        
-                    } // End if()
-                    
-                } // End for(junction)
-                        
-            } // End if()
+            int synapse = NeuriteStore.NONE;
             
-            if (synapse == null) {
+            // A direct lookup in the axon index of the neurite store.
+            if (lookForSynapse) {
+                synapse = findSynapseAt(x, y, z);
+            }
+            
+            if (synapse == NeuriteStore.NONE) {
+                
+                // Neurites of this neuron don't cross each other, and
+                // dendrites can't grow in a grid cell where there is a
+                // sedentary attached cell.
+                
+                Cell cell = this.occupancy.getCellAt(x, y, z);
+                
+                boolean freeCell =
+                        !this.occupancy.isNeuriteOwner(this, x, y, z)
+                        && !((cell instanceof GeneRegulatedCell)
+                                && ((GeneRegulatedCell) cell).attached);
                 
                 if (freeCell) {
                     
-                    ExtracellularMatrixSample extracellularMatrix = 
-                            getExtracellularMatrixSample(gridCell.getPoint());
-                    double samConcentration = extracellularMatrix
-                            .getConcentration(CellProductType.SAM);
+                    double samConcentration = matrix.getConcentration(
+                            x, y, z, CellProductType.SAM);
                     if (samConcentration < minConcentration) {
                         minConcentration = samConcentration;
-                        selectedGridCell = gridCell;
+                        gridCellSelected = true;
+                        selectedX = x;
+                        selectedY = y;
+                        selectedZ = z;
                     }
                     
                 } // End if()
@@ -815,79 +943,53 @@ public class Neuron extends GeneRegulatedCell {
             } else {
                                     
                 newJunction = synapse;
-                selectedGridCell = gridCell;
+                gridCellSelected = true;
                 break;
                     
             } // End if()
             
-        } // End for(gridCell)
+        } // End while()
         
-        if (selectedGridCell == null) {
-            return null;
+        if (!gridCellSelected) {
+            return NeuriteStore.NONE;
         }
         
-        if (newJunction == null) {
+        if (newJunction == NeuriteStore.NONE) {
             
-            if ((newJunctionType == NeuriteJunction.Type.AXON) 
-                    || this.freeDendriteLeavesPool.isEmpty()) {
+            // Create the new junction, reusing the index of a removed one if
+            // any.
                 
-                // Create the new junction.
+            newJunction = this.neurites.addJunction(newJunctionType, this,
+                    this.neurites.getDepth(currentJunction) + 1,
+                    selectedX, selectedY, selectedZ);
             
-                newJunction = new NeuriteJunction(newJunctionType, 
-                        this, currentJunction.getDepth() + 1);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Created new junction: " + newJunctionType);
+            }
             
-                @SuppressWarnings("unchecked")
-                Context<Object> context = ContextUtils.getContext(this);
+            // The position is drawn even if the model is not displayed, so
+            // that runs with the same seed have the same random sequence.
 
-                context.add(newJunction);
+            final double spaceX = getNewNeuriteSpacePos(currentX, selectedX);
+            final double spaceY = getNewNeuriteSpacePos(currentY, selectedY);
+            final double spaceZ = getNewNeuriteSpacePos(currentZ, selectedZ);
 
-                logger.debug("Created new junction: " + newJunction.getType());
-                
-            } else {
-                
-                /*
-                 *  Recycle a free dendrite leaf. Dendrites are numerous and
-                 *  consequently expensive objects to create and dispose of
-                 *  through the Java garbage collection mechanism, so we pool
-                 *  them instead.
-                 */
-                
-                newJunction = this.freeDendriteLeavesPool.remove();
-                
-                logger.debug("Recycling junction: " + newJunction.getType() 
-                        + ", old depth = " + newJunction.getDepth());
-
-                newJunction.setDepth(currentJunction.getDepth() + 1);
-                newJunction.setActive(true);
-                                
-            } // End if();
-            
-            GridPoint newJunctionLocation = selectedGridCell.getPoint();
-            
-            this.space.moveTo(newJunction, 
-                    getNewNeuriteSpacePos(currentLocation.getX(), 
-                            newJunctionLocation.getX()), 
-                    getNewNeuriteSpacePos(currentLocation.getY(), 
-                            newJunctionLocation.getY()), 
-                    getNewNeuriteSpacePos(currentLocation.getZ(), 
-                            newJunctionLocation.getZ())); 
-            this.grid.moveTo(newJunction, newJunctionLocation.getX(), 
-                    newJunctionLocation.getY(), newJunctionLocation.getZ());
+            this.neurites.displayAt(newJunction, spaceX, spaceY, spaceZ);
 
             if (newJunctionType == NeuriteJunction.Type.DENDRITE) {
                 
                 // Create a new dendrite leaf.
-                currentJunction.getPredecessors().add(newJunction);
-                newJunction.setSuccessor(currentJunction);
-                this.neuritesNetwork.addEdge(newJunction, currentJunction);
+                this.neurites.addPredecessor(currentJunction, newJunction);
+                this.neurites.setSuccessor(newJunction, currentJunction);
+                this.neurites.displayEdge(newJunction, currentJunction);
                 
             } else {
                 
                 // Create a new axon junction.
-                newJunction.getPredecessors().add(currentJunction);
-                currentJunction.setSuccessor(newJunction);
+                this.neurites.addPredecessor(newJunction, currentJunction);
+                this.neurites.setSuccessor(currentJunction, newJunction);
                 
-                this.neuritesNetwork.addEdge(currentJunction, newJunction);
+                this.neurites.displayEdge(currentJunction, newJunction);
                 
             } // End if()
                         
@@ -895,12 +997,11 @@ public class Neuron extends GeneRegulatedCell {
         
             // Create the dendrite synapse.
             
-            currentJunction.getPredecessors().add(newJunction);
-            newJunction.getSynapses().add(currentJunction);
+            this.neurites.addSynapse(newJunction, currentJunction);
             
-            this.neuritesNetwork.addEdge(newJunction, currentJunction);
-            this.neuralNetwork.addEdge(newJunction.getNeuron(), this, 
-                    RandomHelper.nextDoubleFromTo(-1, 1));
+            this.neurites.displayEdge(newJunction, currentJunction);
+            this.synapses.addSynapse(this.neurites.getNeuron(newJunction),
+                    this, this.random.nextDoubleFromTo(-1, 1));
         
             logger.info("New synapse created.");
             
@@ -909,6 +1010,20 @@ public class Neuron extends GeneRegulatedCell {
         return newJunction;
         
     } // End of extendNeurite()
+    
+    
+    /**
+     * Find an active axon junction of another neuron at the specified grid
+     * coordinates, with which a dendrite of this neuron can make a synapse.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @return The axon junction found, or {@link NeuriteStore#NONE} if none.
+     */
+    protected int findSynapseAt(final int x, final int y, final int z) {
+        return this.neurites.findForeignAxon(this, x, y, z);
+    }
 
     
     /**
@@ -933,13 +1048,13 @@ public class Neuron extends GeneRegulatedCell {
         
         if (deltaPos == 0) {
             // Same plane: length of cell.
-            return targetPos + RandomHelper.nextDoubleFromTo(0, 1);
+            return targetPos + this.random.nextDouble();
         } else if (deltaPos < 0) {
             // Behind: border 0.2 thick.
-            return targetPos + 0.8 + RandomHelper.nextDoubleFromTo(0, 0.2);
+            return targetPos + 0.8 + this.random.nextDoubleFromTo(0, 0.2);
         } else {
             // In front: border 0.2 thick.
-            return targetPos + RandomHelper.nextDoubleFromTo(0, 0.2);
+            return targetPos + this.random.nextDoubleFromTo(0, 0.2);
         }
         
     } // End of getNewNeuriteSpacePos()
@@ -965,59 +1080,17 @@ public class Neuron extends GeneRegulatedCell {
     
     
     /**
-     * Calculate the activation of the neuron. 
+     * Calculate the activation of the neuron, then adjust the weight of its
+     * synapses using Hebb's rule.
      */
     protected void calculateActivation() {
         
-        double foodConcentration = this.membraneChannels
-                .get(CellProductType.FOOD).getConcentration();
-        
-        logger.debug("Neuron food concentration: " + foodConcentration);
-        
-        List<RepastEdge<Object>> inputEdges = 
-                new ArrayList<RepastEdge<Object>>();
-        
-        double netInput = 0;
+        this.activation =
+                this.synapses.calculateActivation(this, getSynapticGain());
         
-        for (RepastEdge<Object> inputEdge :    
-                this.neuralNetwork.getInEdges(this)) {
-            
-            Neuron inputNeuron = (Neuron) inputEdge.getSource();
-            
-            logger.debug("Input neuron: activation = " 
-                    + inputNeuron.getActivation() + ", weight = " 
-                    + inputEdge.getWeight());
-
-            netInput += inputNeuron.getActivation() * inputEdge.getWeight()    
-                    * this.cellNeurotransmitterRegulator * foodConcentration;
-            
-            inputEdges.add(inputEdge);
-            
-        } // End for(inputEdge)
-        
-        logger.debug("Number of input edges: " + inputEdges.size());
-        logger.debug("Net input: " + netInput);
-        
-        this.activation = 1 / (1 + Math.pow(Math.E, -netInput));
-        logger.debug("Activation: " + this.activation);
-        
-        // Adjust the weight using Hebb's rule.
-        for (RepastEdge<Object> inputEdge : inputEdges) {
-            
-            Neuron inputNeuron = (Neuron) inputEdge.getSource();
-            double deltaWeight = LEARNING_RATE * this.activation 
-                        * (inputNeuron.activation - inputNeuron.activation 
-                                * Math.abs(inputEdge.getWeight()));
-
-            double newWeight = inputEdge.getWeight() 
-                    + Math.signum(inputEdge.getWeight()) * deltaWeight;
-            
-            logger.debug("Delta weight: " + deltaWeight);
-            logger.debug("Input neuron new weight: " + newWeight); 
-
-            inputEdge.setWeight(newWeight);
-            
-        } // End for(inputEdge)
+        if (logger.isDebugEnabled()) {
+            logger.debug("Activation: " + this.activation);
+        }
         
     } // calculateActivation()
 
@@ -1037,7 +1110,7 @@ public class Neuron extends GeneRegulatedCell {
     public void moveTo(final int x, final int y, final int z) {
         
         // Once initialised neuron can't be move.
-        if (this.neuritesRoot == null) {
+        if (this.neuritesRoot == NeuriteStore.NONE) {
             super.moveTo(x, y, z);
         } else {
             throw new IllegalStateException(
@@ -1086,6 +1159,61 @@ public class Neuron extends GeneRegulatedCell {
     }
 
     
+    /**
+     * Writes the state of this neuron to a checkpoint: the state of the cell,
+     * then its activation and the ends of its neurites in the neurite store.
+     *
+     * @param out The checkpoint output.
+     * @throws IOException If the state cannot be written.
+     */
+    @Override // GeneRegulatedCell
+    void writeState(final DataOutput out) throws IOException {
+        
+        super.writeState(out);
+        
+        out.writeDouble(this.activation);
+        out.writeInt(this.axonTip);
+        out.writeInt(this.neuritesRoot);
+        
+        out.writeInt(this.dendriteLeafCount);
+        for (int l = 0; l < this.dendriteLeafCount; l++) {
+            out.writeInt(this.dendriteLeaves[l]);
+        }
+        
+        out.writeInt(this.totalDendrites);
+        
+    } // End of writeState()
+    
+    
+    /**
+     * Reads the state written by {@link #writeState} into this neuron. The
+     * junctions it refers to are restored with the neurite store.
+     *
+     * @param in The checkpoint input.
+     * @throws IOException If the state cannot be read.
+     */
+    @Override // GeneRegulatedCell
+    void readState(final DataInput in) throws IOException {
+        
+        super.readState(in);
+        
+        this.activation = in.readDouble();
+        this.axonTip = in.readInt();
+        this.neuritesRoot = in.readInt();
+        
+        this.dendriteLeafCount = in.readInt();
+        if (this.dendriteLeafCount > this.dendriteLeaves.length) {
+            this.dendriteLeaves = new int[this.dendriteLeafCount];
+        }
+        for (int l = 0; l < this.dendriteLeafCount; l++) {
+            this.dendriteLeaves[l] = in.readInt();
+        }
+        
+        this.totalDendrites = in.readInt();
+        
+    } // End of readState()
+    
+    
     // RUNTIME QUERY METHODS ---------------------------------------------------
     
     
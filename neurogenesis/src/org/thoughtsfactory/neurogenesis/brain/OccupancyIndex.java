@@ -0,0 +1,239 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import repast.simphony.space.grid.GridPoint;
+
+
+/**
+ * A dense index of what occupies each grid cell of the brain, kept alongside
+ * the Repast grid. The grid holds every object of the brain (cells, neurite
+ * junctions and extracellular matrix samples) in hashed collections, so
+ * probing it for cells means walking those collections and testing the type
+ * of each object. This index answers the same questions with array reads:
+ * one slot per grid cell for the cell located there, and one bit per grid
+ * cell in each neuron for the grid cells holding one of its active neurite
+ * junctions. The axon junctions located in each grid cell are indexed by the
+ * {@link NeuriteStore}.
+ *
+ * The index must be told about every change of location: cells update it
+ * when they move and when they are removed from the context, the neurite
+ * store when junctions are created and removed.
+ *
+ * @author Robert Langlois
+ */
+public class OccupancyIndex {
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The size of the grid from the origin to its faces.
+    private final int gridQuadrantSize;
+    
+    
+    // The size of the grid along any axis.
+    private final int gridSize;
+    
+    
+    // The cell located in each grid cell, null if none, indexed by
+    // ((z * gridSize) + y) * gridSize + x with the coordinates shifted to
+    // start at 0.
+    private final Cell[] cells;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new empty index.
+     *
+     * @param newGridQuadrantSize The size of the grid from the origin to its
+     *                            faces.
+     */
+    public OccupancyIndex(final int newGridQuadrantSize) {
+        
+        this.gridQuadrantSize = newGridQuadrantSize;
+        this.gridSize = this.gridQuadrantSize * 2 + 1;
+        
+        final int gridVolume = this.gridSize * this.gridSize * this.gridSize;
+        this.cells = new Cell[gridVolume];
+        
+    } // End of OccupancyIndex()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the size of the grid from the origin to its faces.
+     *
+     * @return The size of a quadrant.
+     */
+    public int getGridQuadrantSize() {
+        return this.gridQuadrantSize;
+    }
+    
+    
+    /**
+     * Returns the number of grid cells of the brain.
+     *
+     * @return The volume of the grid.
+     */
+    public int getGridVolume() {
+        return this.cells.length;
+    }
+    
+    
+    /**
+     * Returns the index of the grid cell at the specified coordinates, by
+     * which other indexes of the brain can be kept alongside this one.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @return The index of the grid cell.
+     */
+    public int getGridCellIndex(final int x, final int y, final int z) {
+        return indexOf(x, y, z);
+    }
+    
+    
+    /**
+     * Returns the cell located at the specified coordinates.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @return The cell, or {@code null} if the grid cell is free.
+     */
+    public Cell getCellAt(final int x, final int y, final int z) {
+        return this.cells[indexOf(x, y, z)];
+    }
+    
+    
+    /**
+     * Check that the grid cell at the specified coordinates is free of any
+     * cells.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @return {@code true} if the grid cell is free, {@code false} otherwise.
+     */
+    public boolean isFree(final int x, final int y, final int z) {
+        return this.cells[indexOf(x, y, z)] == null;
+    }
+    
+    
+    /**
+     * Records the move of a cell to a new location.
+     *
+     * @param cell The cell that moves.
+     * @param oldLocation The previous location of the cell, {@code null} if
+     *                    the cell was not on the grid yet.
+     * @param x The x-axis coordinate of the new location.
+     * @param y The y-axis coordinate of the new location.
+     * @param z The z-axis coordinate of the new location.
+     */
+    public void moveCell(final Cell cell, final GridPoint oldLocation,
+            final int x, final int y, final int z) {
+        
+        removeCell(cell, oldLocation);
+        
+        final int index = indexOf(x, y, z);
+        
+        assert (this.cells[index] == null) || (this.cells[index] == cell) :
+                "Only one cell per grid unit!";
+        
+        this.cells[index] = cell;
+        
+    } // End of moveCell()
+    
+    
+    /**
+     * Records the removal of a cell from the grid.
+     *
+     * @param cell The cell removed.
+     * @param location The location of the cell, {@code null} if the cell was
+     *                 not on the grid.
+     */
+    public void removeCell(final Cell cell, final GridPoint location) {
+        
+        if (location == null) {
+            return;
+        }
+        
+        final int index =
+                indexOf(location.getX(), location.getY(), location.getZ());
+        
+        // Another cell may have taken the place already.
+        if (this.cells[index] == cell) {
+            this.cells[index] = null;
+        }
+        
+    } // End of removeCell()
+    
+    
+    /**
+     * Records a neurite junction that becomes active in the specified grid
+     * cell.
+     *
+     * @param neuron The neuron to which the junction belongs.
+     * @param gridCell The index of the grid cell of the junction.
+     */
+    public void addNeurite(final Neuron neuron, final int gridCell) {
+        
+        assert !neuron.neuriteGridCells.get(gridCell) :
+                "Only one active junction of a neuron per grid unit!";
+        
+        neuron.neuriteGridCells.set(gridCell);
+        
+    } // End of addNeurite()
+    
+    
+    /**
+     * Records a neurite junction that stops being active in the specified
+     * grid cell.
+     *
+     * @param neuron The neuron to which the junction belongs.
+     * @param gridCell The index of the grid cell of the junction.
+     */
+    public void removeNeurite(final Neuron neuron, final int gridCell) {
+        
+        neuron.neuriteGridCells.clear(gridCell);
+        
+    } // End of removeNeurite()
+    
+    
+    /**
+     * Check whether a neuron has an active neurite junction at the specified
+     * coordinates.
+     *
+     * @param neuron The neuron.
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @return {@code true} if one of the neurites of the neuron goes through
+     *         the grid cell, {@code false} otherwise.
+     */
+    public boolean isNeuriteOwner(final Neuron neuron,
+            final int x, final int y, final int z) {
+        return neuron.neuriteGridCells.get(indexOf(x, y, z));
+    }
+    
+    
+    /**
+     * Returns the index of the grid cell at the specified coordinates.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @return The index in the arrays of the index.
+     */
+    private int indexOf(final int x, final int y, final int z) {
+        return ((z + this.gridQuadrantSize) * this.gridSize
+                + y + this.gridQuadrantSize) * this.gridSize
+                        + x + this.gridQuadrantSize;
+    }
+    
+    
+} // End of OccupancyIndex class
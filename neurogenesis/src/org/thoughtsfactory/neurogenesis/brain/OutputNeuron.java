@@ -1,6 +1,8 @@
 package org.thoughtsfactory.neurogenesis.brain;
 
 import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.TickProfiler;
+import org.thoughtsfactory.neurogenesis.TickProfiler.Probe;
 import org.thoughtsfactory.neurogenesis.genetics.RegulatoryNetwork;
 
 import repast.simphony.engine.schedule.ScheduleParameters;
@@ -94,14 +96,18 @@ public class OutputNeuron extends Neuron {
     @Override
     public void update() {
         
+        final long startTime = TickProfiler.start();
+        
         // TODO: Put initialisation code in a scheduled method executed once.
-        if (this.neuritesRoot == null) {
+        if (this.neuritesRoot == NeuriteStore.NONE) {
             if (!initialiseNeurites(true, true)) {
                 throw new IllegalStateException(
                         "Output neuron initialisation failed!");
             }
         }
         
+        // Reads the same activations as all other neurons in synchronous
+        // mode, although output neurons are updated last.
         calculateActivation();
         this.actuator.setValue(this.activation);
         
@@ -114,7 +120,20 @@ public class OutputNeuron extends Neuron {
         this.cellGrowthRegulator = 0.9;
         cellDendritesGrowthHandler();
         
+        TickProfiler.stop(Probe.OUTPUT_NEURONS, startTime);
+        
     } // End of update()
     
 
+    /**
+     * Output neurons schedule a life cycle of their own.
+     *
+     * @return {@code false}.
+     */
+    @Override // GeneRegulatedCell
+    protected boolean hasPhasedLifeCycle() {
+        return false;
+    }
+    
+    
 } // End of OutputNeuron class
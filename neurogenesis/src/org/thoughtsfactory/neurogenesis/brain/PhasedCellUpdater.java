@@ -0,0 +1,428 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.thoughtsfactory.neurogenesis.TickProfiler;
+import org.thoughtsfactory.neurogenesis.TickProfiler.Probe;
+import org.thoughtsfactory.neurogenesis.genetics.RegulatoryNetwork;
+import org.thoughtsfactory.neurogenesis.genetics.RegulatoryNetworkBatch;
+
+import repast.simphony.context.ContextEvent;
+import repast.simphony.context.ContextListener;
+import repast.simphony.engine.schedule.ScheduleParameters;
+import repast.simphony.engine.schedule.ScheduledMethod;
+import repast.simphony.random.RandomHelper;
+import repast.simphony.util.SimUtilities;
+
+
+/**
+ * Runs the life cycle of all gene regulated cells in phases, rather than
+ * cell by cell. At every tick, the cells are shuffled then:
+ * <ol>
+ * <li>each cell in turn prepares its update, after which the activation of
+ *     all neurons is calculated in a single sweep of the synapse store, in
+ *     parallel if the activation is synchronous;</li>
+ * <li>all cells update their internal state concurrently, which is where
+ *     most of the time goes (gene regulatory networks); the regulatory
+ *     networks of all cells can be updated together, grouped by genome (see
+ *     {@link RegulatoryNetworkBatch}), between the absorption of products
+ *     and the update of the concentrations of each cell;</li>
+ * <li>each cell in turn, in the same order, handles its cellular events.</li>
+ * </ol>
+ * Only the second phase runs in parallel: it involves nothing but the cell
+ * and the extracellular matrix at its location, and no two cells share a
+ * location. The other phases run one cell at a time in an order drawn from
+ * the random generator of the simulation, which keeps runs repeatable from
+ * their seed whatever the number of threads. Each cell draws from its own
+ * random stream, so the random numbers alone would not prevent running
+ * them in parallel with claims on grid cells settled in that order. But
+ * these phases add agents to and remove them from the context, move them
+ * in the grid and the continuous space, which Repast does not allow from
+ * several threads, bump chains of neighbours out of the way, and grow
+ * neurites in the shared neurite and synapse stores.
+ *
+ * The buffers of each tick are kept from one tick to the next, so that
+ * running the phases allocates nothing once the population is stable.
+ *
+ * Cells are tracked as they are added to and removed from the context; those
+ * added during a tick take part from the next one.
+ *
+ * @author Robert Langlois
+ */
+public class PhasedCellUpdater implements ContextListener<Object> {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The number of tasks per worker thread the cells are split into, so
+    // that threads done early can take over some work from others.
+    private static final int TASKS_PER_THREAD = 4;
+    
+    
+    // The smallest number of cells worth a task of their own.
+    private static final int MIN_CELLS_PER_TASK = 16;
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The pool running the parallel phase, null to run it sequentially.
+    private final ForkJoinPool workerPool;
+    
+    
+    // The store calculating the activation of the neurons.
+    private final SynapseStore synapses;
+    
+    
+    // Indicates if the regulatory networks of all cells are updated
+    // together rather than cell by cell.
+    private final boolean batchedNetworks;
+    
+    
+    // The cells whose life cycle is run, in order of addition to the context.
+    private final Set<GeneRegulatedCell> cells =
+            new LinkedHashSet<GeneRegulatedCell>();
+    
+    
+    // The cells in the order of the current tick.
+    private final List<GeneRegulatedCell> order =
+            new ArrayList<GeneRegulatedCell>();
+    
+    
+    // The cells ready for update at the current tick.
+    private GeneRegulatedCell[] readyCells = new GeneRegulatedCell[0];
+    
+    
+    // The regulatory networks of the cells ready for update, when they are
+    // updated together.
+    private RegulatoryNetwork[] networks = new RegulatoryNetwork[0];
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new phased cell updater.
+     *
+     * @param newWorkerPool The pool running the parallel phase, or
+     *                      {@code null} to run it sequentially.
+     * @param newSynapses The store calculating the activation of the neurons.
+     * @param newBatchedNetworks {@code true} to update the regulatory
+     *                           networks of all cells together, grouped by
+     *                           genome, {@code false} to update them cell by
+     *                           cell.
+     */
+    public PhasedCellUpdater(final ForkJoinPool newWorkerPool,
+            final SynapseStore newSynapses, final boolean newBatchedNetworks) {
+        
+        this.workerPool = newWorkerPool;
+        this.synapses = newSynapses;
+        this.batchedNetworks = newBatchedNetworks;
+        
+    } // End of PhasedCellUpdater()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Execute the life cycle of all cells for the current tick.
+     *
+     * This method is scheduled for execution at every tick of the simulation
+     * with the same priority given to most cellular agents.
+     */
+    @ScheduledMethod(start = 1, interval = 1,
+            priority = ScheduleParameters.RANDOM_PRIORITY)
+    public void update() {
+        
+        final long startTime = TickProfiler.start();
+        
+        for (GeneRegulatedCell cell : this.cells) {
+            this.order.add(cell);
+        }
+        SimUtilities.shuffle(this.order, RandomHelper.getUniform());
+        
+        // First phase: one cell at a time.
+        
+        if (this.readyCells.length < this.order.size()) {
+            this.readyCells = new GeneRegulatedCell[
+                    Math.max(this.order.size(), 2 * this.readyCells.length)];
+        }
+        
+        final GeneRegulatedCell[] readyCells = this.readyCells;
+        int readyCount = 0;
+        
+        for (GeneRegulatedCell cell : this.order) {
+            if (cell.prepareUpdate()) {
+                readyCells[readyCount++] = cell;
+            }
+        }
+        
+        final long activationStartTime = TickProfiler.start();
+        this.synapses.calculateActivations(this.workerPool);
+        TickProfiler.stop(Probe.ACTIVATION, activationStartTime);
+        
+        // Second phase: all cells concurrently.
+        
+        if (this.batchedNetworks) {
+            
+            updateInternalStates(readyCells, readyCount, Step.NETWORK_INPUTS);
+            
+            if (this.networks.length < readyCount) {
+                this.networks = new RegulatoryNetwork[
+                        Math.max(readyCount, 2 * this.networks.length)];
+            }
+            
+            final RegulatoryNetwork[] networks = this.networks;
+            for (int i = 0; i < readyCount; i++) {
+                networks[i] = readyCells[i].regulatoryNetwork;
+            }
+            
+            final long networksStartTime = TickProfiler.start();
+            RegulatoryNetworkBatch.updateNetworks(
+                    networks, readyCount, this.workerPool);
+            TickProfiler.stop(Probe.GRN, networksStartTime);
+            
+            updateInternalStates(readyCells, readyCount, Step.NETWORK_OUTPUTS);
+            
+        } else {
+            
+            updateInternalStates(readyCells, readyCount, Step.WHOLE);
+            
+        } // End if()
+        
+        // Third phase: one cell at a time, skipping cells that left the
+        // context since the beginning of the tick.
+        
+        for (int i = 0; i < readyCount; i++) {
+            if (this.cells.contains(readyCells[i])) {
+                readyCells[i].handleLifeCycleEvents();
+            }
+        }
+        
+        // Let go of the cells that die before the next tick.
+        this.order.clear();
+        Arrays.fill(readyCells, 0, readyCount, null);
+        if (this.batchedNetworks) {
+            Arrays.fill(this.networks, 0, readyCount, null);
+        }
+        
+        TickProfiler.stop(Probe.PHASED_CELLS, startTime);
+        
+    } // End of update()
+    
+    
+    /**
+     * Runs a step of the update of the internal state of the cells, in
+     * parallel if there is a worker pool.
+     *
+     * @param readyCells The cells ready for update.
+     * @param readyCount The number of cells ready for update.
+     * @param step The step to run.
+     */
+    private void updateInternalStates(final GeneRegulatedCell[] readyCells,
+            final int readyCount, final Step step) {
+        
+        if (this.workerPool == null) {
+            
+            updateInternalStates(readyCells, 0, readyCount, step);
+            
+        } else {
+            
+            final int cellsPerTask = Math.max(MIN_CELLS_PER_TASK, readyCount
+                    / (this.workerPool.getParallelism() * TASKS_PER_THREAD));
+            
+            this.workerPool.invoke(new InternalStateTask(
+                    readyCells, 0, readyCount, cellsPerTask, step));
+            
+        } // End if()
+        
+    } // End of updateInternalStates(GeneRegulatedCell[], int, Step)
+    
+    
+    /**
+     * Runs a step of the update of the internal state of a range of cells.
+     *
+     * @param readyCells The cells ready for update.
+     * @param fromIndex The index of the first cell of the range.
+     * @param toIndex The index after the last cell of the range.
+     * @param step The step to run.
+     */
+    private static void updateInternalStates(
+            final GeneRegulatedCell[] readyCells,
+            final int fromIndex, final int toIndex, final Step step) {
+        
+        for (int i = fromIndex; i < toIndex; i++) {
+        
+            switch (step) {
+            
+            case NETWORK_INPUTS:
+                readyCells[i].updateNetworkInputs();
+                break;
+            
+            case NETWORK_OUTPUTS:
+                readyCells[i].updateNetworkOutputs();
+                break;
+            
+            default:
+                readyCells[i].updateInternalState();
+                break;
+                
+            } // End switch()
+            
+        } // End for(i)
+        
+    } // End of updateInternalStates(GeneRegulatedCell[], int, int, Step)
+    
+    
+    // INTERFACES IMPLEMENTATION -----------------------------------------------
+    
+    
+    /**
+     * Tracks the cells added to or removed from the context.
+     *
+     * @param event The context event.
+     */
+    @Override // ContextListener
+    public void eventOccured(final ContextEvent<Object> event) {
+        
+        if (!(event.getTarget() instanceof GeneRegulatedCell)) {
+            return;
+        }
+        
+        final GeneRegulatedCell cell = (GeneRegulatedCell) event.getTarget();
+        
+        if (!cell.hasPhasedLifeCycle()) {
+            return;
+        }
+        
+        switch (event.getType()) {
+        
+        case AGENT_ADDED:
+            this.cells.add(cell);
+            break;
+        
+        case AGENT_REMOVED:
+            this.cells.remove(cell);
+            break;
+        
+        default:
+            break;
+            
+        } // End switch()
+        
+    } // End of eventOccured()
+    
+    
+    // NESTED CLASSES ----------------------------------------------------------
+    
+    
+    /**
+     * The steps of the update of the internal state of the cells.
+     */
+    private enum Step {
+        
+        // The whole update, regulatory network included.
+        WHOLE,
+        
+        // Up to the inputs of the regulatory network.
+        NETWORK_INPUTS,
+        
+        // From the outputs of the regulatory network.
+        NETWORK_OUTPUTS
+        
+    } // End of Step enum
+    
+    
+    /**
+     * A task updating the internal state of a range of cells, splitting it
+     * in halves until ranges are small enough.
+     */
+    private static final class InternalStateTask extends RecursiveAction {
+        
+        
+        // Required by the serializable task.
+        private static final long serialVersionUID = 1L;
+        
+        
+        // The cells ready for update.
+        private final GeneRegulatedCell[] readyCells;
+        
+        
+        // The index of the first cell of the range.
+        private final int fromIndex;
+        
+        
+        // The index after the last cell of the range.
+        private final int toIndex;
+        
+        
+        // The largest range updated without splitting.
+        private final int cellsPerTask;
+        
+        
+        // The step of the update run.
+        private final Step step;
+        
+        
+        /**
+         * Creates a new internal state task.
+         *
+         * @param newReadyCells The cells ready for update.
+         * @param newFromIndex The index of the first cell of the range.
+         * @param newToIndex The index after the last cell of the range.
+         * @param newCellsPerTask The largest range updated without
+         *                        splitting.
+         * @param newStep The step of the update run.
+         */
+        InternalStateTask(final GeneRegulatedCell[] newReadyCells,
+                final int newFromIndex, final int newToIndex,
+                final int newCellsPerTask, final Step newStep) {
+            
+            this.readyCells = newReadyCells;
+            this.fromIndex = newFromIndex;
+            this.toIndex = newToIndex;
+            this.cellsPerTask = newCellsPerTask;
+            this.step = newStep;
+            
+        } // End of InternalStateTask()
+        
+        
+        /**
+         * Updates the range, or each half of it in parallel.
+         */
+        @Override // RecursiveAction
+        protected void compute() {
+            
+            if (this.toIndex - this.fromIndex <= this.cellsPerTask) {
+                
+                updateInternalStates(this.readyCells,
+                        this.fromIndex, this.toIndex, this.step);
+                
+            } else {
+                
+                final int middleIndex = (this.fromIndex + this.toIndex) >>> 1;
+                
+                invokeAll(new InternalStateTask(this.readyCells,
+                                this.fromIndex, middleIndex,
+                                this.cellsPerTask, this.step),
+                        new InternalStateTask(this.readyCells,
+                                middleIndex, this.toIndex,
+                                this.cellsPerTask, this.step));
+                
+            } // End if()
+            
+        } // End of compute()
+        
+        
+    } // End of InternalStateTask class
+    
+    
+} // End of PhasedCellUpdater class
@@ -0,0 +1,1404 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.TickProfiler;
+import org.thoughtsfactory.neurogenesis.TickProfiler.Probe;
+
+import repast.simphony.context.Context;
+import repast.simphony.engine.schedule.ScheduleParameters;
+import repast.simphony.engine.schedule.ScheduledMethod;
+import repast.simphony.space.continuous.ContinuousSpace;
+import repast.simphony.space.grid.Grid;
+import repast.simphony.space.grid.GridPoint;
+
+
+/**
+ * Implementation of a centralised extracellular matrix that keeps the
+ * concentration of each cell product on the whole brain grid in its own
+ * contiguous array, i.e. a structure of arrays rather than an array of
+ * samples.
+ *
+ * The matrix is deployed as a single agent. Every tick of the simulation, a
+ * stencil kernel computes the new concentrations of all grid cells from the
+ * current ones into a second set of arrays, and the two sets are swapped once
+ * the whole grid is done. Each grid cell thus only ever sees the
+ * concentrations of the previous tick, and the result does not depend on the
+ * order in which grid cells are visited.
+ *
+ * Most of the grid is usually at rest: products are only secreted around
+ * cells, and far from them concentrations are uniform or nil. The matrix can
+ * track the lowest and highest concentration of each product along every
+ * grid row, and only run the stencil kernel over the rows whose neighbourhood
+ * has concentrations further apart than a threshold, plus the rows their
+ * window sums are read from. The concentrations of the other rows, whose
+ * exchanges with their neighbours are negligible, only decay. When most rows
+ * are active, all rows go through the kernel.
+ *
+ * The explicit kernel needs thousands of ticks to carry a product across a
+ * large grid. The matrix can instead be advanced by many ticks at once with
+ * an implicit step, which is stable whatever its length: the concentrations
+ * after the step are the solution of a linear system, found with the
+ * conjugate gradient method. This is meant for warm-up runs and coarse time
+ * steps, where the exact transient of the explicit kernel does not matter.
+ *
+ * @author Robert Langlois
+ */
+public class StencilExtracellularMatrix implements ExtracellularMatrix {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The fraction of its concentration that a grid cell exchanges with its
+     * neighbourhood at each tick.
+     */
+    public static final double DIFFUSION_RATE = 0.2;
+    
+    
+    /**
+     * The rate at which chemicals naturally decay.
+     */
+    public static final double DECAY_RATE = 0.001;
+    
+    
+    // The number of neighbours of a grid cell in a Moore neighbourhood.
+    private static final int NEIGHBOURHOOD_SIZE = 26;
+    
+    
+    // The fraction of the concentration difference between two neighbouring
+    // grid cells that is exchanged at each tick. Keeping it at or below
+    // 1 / NEIGHBOURHOOD_SIZE ensures concentrations never become negative.
+    private static final double EXCHANGE_RATE =
+            DIFFUSION_RATE / NEIGHBOURHOOD_SIZE;
+    
+    
+    // The number of tasks per worker thread in each kernel pass.
+    private static final int TASKS_PER_THREAD = 4;
+    
+    
+    // The fraction of active rows above which all rows of a product go
+    // through the stencil kernel.
+    private static final double DENSE_FRACTION = 0.5;
+    
+    
+    // The residual of the solver of implicit steps, relative to the
+    // concentrations before the step, below which a solution is accepted.
+    private static final double SOLVER_TOLERANCE = 1e-6;
+    
+    
+    // The largest number of iterations of the solver for a product.
+    private static final int MAX_SOLVER_ITERATIONS = 1000;
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // Class logger for messages.
+    private final static Logger logger =
+            Logger.getLogger(StencilExtracellularMatrix.class);
+    
+    
+    // The brain grid quadrant size.
+    private final int gridQuadrantSize;
+    
+    
+    // The brain grid size.
+    private final int gridSize;
+    
+    
+    // The number of grid cells in a plane of the grid.
+    private final int gridArea;
+    
+    
+    // The current concentrations, one array per cell product indexed with
+    // ((z * gridSize) + y) * gridSize + x.
+    private double[][] concentrations;
+    
+    
+    // Receives the new concentrations on each update.
+    private double[][] newConcentrations;
+    
+    
+    // The number of rows in the grid, i.e. gridSize * gridSize.
+    private final int rowCount;
+    
+    
+    // Scratch arrays for the sums of each grid cell's row window, one array
+    // per cell product.
+    private final double[][] rowSums;
+    
+    
+    // Scratch arrays for the sums of each grid cell's plane window, one array
+    // per cell product.
+    private final double[][] planeSums;
+    
+    
+    // The number of grid cells in the window of each coordinate along one
+    // axis, i.e. 2 on the borders of the grid and 3 everywhere else.
+    private final int[] windowSizes;
+    
+    
+    // The samples giving access to each grid cell.
+    private final StencilExtracellularMatrixSample[] samples;
+    
+    
+    // The pool running the kernel passes, if any.
+    private final ForkJoinPool workerPool;
+    
+    
+    // The number of grid rows below which a kernel task is not split.
+    private final int rowsPerTask;
+    
+    
+    // The largest difference between the concentrations around a row for
+    // which the row only decays, or a negative value if all rows always go
+    // through the stencil kernel.
+    private final double activityThreshold;
+    
+    
+    // The lowest and highest current concentration of each row, one array
+    // per cell product; they may be lower and higher than the actual ones.
+    private double[][] rowMinimums;
+    private double[][] rowMaximums;
+    
+    
+    // The bounds of the new concentrations of each row, those of the
+    // concentrations before the last update until they are replaced.
+    private double[][] newRowMinimums;
+    private double[][] newRowMaximums;
+    
+    
+    // Flags the rows whose concentrations were set since the last update,
+    // one array per cell product.
+    private final boolean[][] changedRows;
+    
+    
+    // The number of kernel passes each row goes through on an update, one
+    // array per cell product. A row only decays if it does not go through
+    // the last pass.
+    private final byte[][] rowPasses;
+    
+    
+    // Scratch arrays for the bounds of the concentrations of the window of
+    // each row, shared by all cell products.
+    private final double[] windowMinimums;
+    private final double[] windowMaximums;
+    
+    
+    // The number of ticks advanced by each implicit update, or 1 to update
+    // the matrix with the explicit kernel at every tick.
+    private int implicitStep = 1;
+    
+    
+    // The number of ticks since the last implicit update. It is not saved
+    // by checkpoints: a restored matrix starts a new implicit step.
+    private int pendingTicks;
+    
+    
+    // Scratch arrays of the implicit step solver, allocated on the first
+    // implicit step and shared by all cell products: the diagonal of the
+    // system, the residuals, the search directions and the products of the
+    // system by the directions.
+    private double[] solverDiagonal;
+    private double[] solverResiduals;
+    private double[] solverDirections;
+    private double[] solverProducts;
+    
+    
+    // The number of ticks of the step the diagonal was computed for.
+    private int diagonalTickCount;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates and initialises a new stencil-based extracellular matrix updated
+     * by the calling thread.
+     *
+     * @param newGridQuadrantSize An integer specifying the current brain grid
+     *                            quadrant size.
+     * @param initialConcentrations A map which associates a cellular product
+     *                              with a given initial concentration.
+     */
+    public StencilExtracellularMatrix(final int newGridQuadrantSize,
+            final Map<CellProductType, Double> initialConcentrations) {
+        
+        this(newGridQuadrantSize, initialConcentrations, null);
+        
+    } // End of StencilExtracellularMatrix(int, Map)
+    
+    
+    /**
+     * Creates and initialises a new stencil-based extracellular matrix updated
+     * in parallel. The grid is split into bands of rows processed as separate
+     * tasks; the concentrations do not depend on the number of threads.
+     *
+     * @param newGridQuadrantSize An integer specifying the current brain grid
+     *                            quadrant size.
+     * @param initialConcentrations A map which associates a cellular product
+     *                              with a given initial concentration.
+     * @param newWorkerPool The pool running the updates, or {@code null} to
+     *                      update the matrix from the calling thread.
+     */
+    public StencilExtracellularMatrix(final int newGridQuadrantSize,
+            final Map<CellProductType, Double> initialConcentrations,
+            final ForkJoinPool newWorkerPool) {
+        
+        this(newGridQuadrantSize, initialConcentrations, newWorkerPool, -1);
+        
+    } // End of StencilExtracellularMatrix(int, Map, ForkJoinPool)
+    
+    
+    /**
+     * Creates and initialises a new stencil-based extracellular matrix updated
+     * in parallel, which only runs the stencil kernel over the active rows of
+     * the grid.
+     *
+     * @param newGridQuadrantSize An integer specifying the current brain grid
+     *                            quadrant size.
+     * @param initialConcentrations A map which associates a cellular product
+     *                              with a given initial concentration.
+     * @param newWorkerPool The pool running the updates, or {@code null} to
+     *                      update the matrix from the calling thread.
+     * @param newActivityThreshold The largest difference between the
+     *                             concentrations around a row for which the
+     *                             row only decays: 0 to skip uniform areas
+     *                             alone, or a negative value to run the
+     *                             kernel over all rows.
+     */
+    public StencilExtracellularMatrix(final int newGridQuadrantSize,
+            final Map<CellProductType, Double> initialConcentrations,
+            final ForkJoinPool newWorkerPool,
+            final double newActivityThreshold) {
+        
+        this.gridQuadrantSize = newGridQuadrantSize;
+        this.gridSize = this.gridQuadrantSize * 2 + 1;
+        this.gridArea = this.gridSize * this.gridSize;
+        this.rowCount = this.gridArea;
+        
+        this.workerPool = newWorkerPool;
+        this.activityThreshold = newActivityThreshold;
+        
+        // A few tasks per thread balance the load between threads.
+        this.rowsPerTask = (newWorkerPool == null) ? this.rowCount
+                : Math.max(1, this.rowCount
+                        / (newWorkerPool.getParallelism() * TASKS_PER_THREAD));
+        
+        final int gridVolume = this.gridArea * this.gridSize;
+        final int productCount = CellProductType.values().length;
+        
+        this.rowMinimums = new double[productCount][this.rowCount];
+        this.rowMaximums = new double[productCount][this.rowCount];
+        this.newRowMinimums = new double[productCount][this.rowCount];
+        this.newRowMaximums = new double[productCount][this.rowCount];
+        this.changedRows = new boolean[productCount][this.rowCount];
+        this.rowPasses = new byte[productCount][this.rowCount];
+        this.windowMinimums = new double[this.rowCount];
+        this.windowMaximums = new double[this.rowCount];
+        
+        this.concentrations =
+                new double[CellProductType.values().length][gridVolume];
+        this.newConcentrations =
+                new double[CellProductType.values().length][gridVolume];
+        
+        for (CellProductType substanceType : CellProductType.values()) {
+            
+            double concentration =
+                    initialConcentrations.containsKey(substanceType)
+                    ? initialConcentrations.get(substanceType) : 0;
+            
+            double[] productConcentrations =
+                    this.concentrations[substanceType.ordinal()];
+            
+            for (int i = 0; i < gridVolume; i++) {
+                productConcentrations[i] = concentration;
+            }
+            
+            Arrays.fill(this.rowMinimums[substanceType.ordinal()],
+                    concentration);
+            Arrays.fill(this.rowMaximums[substanceType.ordinal()],
+                    concentration);
+            Arrays.fill(this.rowPasses[substanceType.ordinal()],
+                    (byte) KernelPass.values().length);
+            
+        } // End for(substanceType)
+        
+        this.rowSums =
+                new double[CellProductType.values().length][gridVolume];
+        this.planeSums =
+                new double[CellProductType.values().length][gridVolume];
+        
+        this.windowSizes = new int[this.gridSize];
+        for (int i = 0; i < this.gridSize; i++) {
+            this.windowSizes[i] = 1 + ((i > 0) ? 1 : 0)
+                    + ((i < this.gridSize - 1) ? 1 : 0);
+        }
+        
+        this.samples = new StencilExtracellularMatrixSample[gridVolume];
+        
+        for (int z = 0; z < this.gridSize; z++) {
+            
+            for (int y = 0; y < this.gridSize; y++) {
+                
+                for (int x = 0; x < this.gridSize; x++) {
+                    
+                    final int index = (z * this.gridSize + y)
+                            * this.gridSize + x;
+                    
+                    this.samples[index] = new StencilExtracellularMatrixSample(
+                            x - this.gridQuadrantSize,
+                            y - this.gridQuadrantSize,
+                            z - this.gridQuadrantSize, index, this);
+                    
+                } // End for(x)
+                
+            } // End for(y)
+            
+        } // End for(z)
+        
+    } // End of StencilExtracellularMatrix(int, Map, ForkJoinPool, double)
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the brain grid quadrant size used to create the current matrix.
+     *
+     * @return The brain grid quadrant size as an integer.
+     */
+    public final int getGridQuadrantSize() {
+        return this.gridQuadrantSize;
+    }
+    
+    
+    /**
+     * Returns the size of the brain grid size used to create the current
+     * matrix.
+     *
+     * @return The brain grid size as an integer.
+     */
+    public final int getGridSize() {
+        return this.gridSize;
+    }
+    
+    
+    /**
+     * Returns the number of ticks advanced by each implicit update.
+     *
+     * @return The number of ticks, 1 if the matrix is updated with the
+     *         explicit kernel.
+     */
+    public final int getImplicitStep() {
+        return this.implicitStep;
+    }
+    
+    
+    /**
+     * Sets the number of ticks advanced by each implicit update. The matrix
+     * then only changes once every this many ticks, by an implicit step of
+     * as many ticks; in between, only the concentrations set by cells
+     * change.
+     *
+     * @param newImplicitStep The number of ticks, or 1 to update the matrix
+     *                        with the explicit kernel at every tick.
+     */
+    public final void setImplicitStep(final int newImplicitStep) {
+        
+        if (newImplicitStep < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid implicit step: " + newImplicitStep);
+        }
+        
+        this.implicitStep = newImplicitStep;
+        this.pendingTicks = 0;
+        
+    } // End of setImplicitStep()
+    
+    
+    /**
+     * Deploys the sample of every grid cell into the simulation, so that
+     * they can be queried like the samples of a distributed matrix, e.g. by
+     * data sets. The samples are passive: they are never scheduled.
+     *
+     * @param context The Repast context.
+     * @param space The brain continuous space where the samples are deployed
+     *              as potential visible agents.
+     * @param grid The brain grid where the samples are deployed.
+     */
+    public void deploySamples(final Context<Object> context,
+            final ContinuousSpace<Object> space, final Grid<Object> grid) {
+        
+        for (StencilExtracellularMatrixSample sample : this.samples) {
+            
+            context.add(sample);
+            
+            space.moveTo(sample, sample.getX() + 0.5,
+                    sample.getY() + 0.5, sample.getZ() + 0.5);
+            grid.moveTo(sample, sample.getX(), sample.getY(), sample.getZ());
+            
+        } // End for(sample)
+        
+    } // End of deploySamples()
+    
+    
+    /**
+     * Update the concentration of each product in every grid cell of the
+     * extracellular matrix.
+     *
+     * This method is scheduled for execution at every tick of the simulation
+     * but with FIRST priority; concentrations in the matrix are updated
+     * BEFORE most cellular agent are allowed action.
+     */
+    @ScheduledMethod(start = 1, interval = 1,
+            priority = ScheduleParameters.FIRST_PRIORITY)
+    public void update() {
+        
+        final long startTime = TickProfiler.start();
+        
+        if (this.implicitStep > 1) {
+            
+            if (++this.pendingTicks == this.implicitStep) {
+                advance(this.implicitStep);
+                this.pendingTicks = 0;
+            }
+            
+            TickProfiler.stop(Probe.EXTRACELLULAR_MATRIX, startTime);
+            return;
+            
+        } // End if()
+        
+        /*
+         * Each pass of the kernel only writes the rows it is given and only
+         * reads what the previous passes wrote, so the rows of a pass can be
+         * processed in any order, or concurrently, with the exact same
+         * results.
+         */
+        
+        if (this.activityThreshold >= 0) {
+            for (int p = 0; p < this.concentrations.length; p++) {
+                selectRows(p);
+            }
+        }
+        
+        for (KernelPass pass : KernelPass.values()) {
+            
+            if (this.workerPool == null) {
+                runPass(pass, 0, this.rowCount);
+            } else {
+                this.workerPool.invoke(
+                        new KernelTask(pass, 0, this.rowCount));
+            }
+            
+        } // End for(pass)
+        
+        double[][] swap = this.concentrations;
+        this.concentrations = this.newConcentrations;
+        this.newConcentrations = swap;
+        
+        swap = this.rowMinimums;
+        this.rowMinimums = this.newRowMinimums;
+        this.newRowMinimums = swap;
+        
+        swap = this.rowMaximums;
+        this.rowMaximums = this.newRowMaximums;
+        this.newRowMaximums = swap;
+        
+        TickProfiler.stop(Probe.EXTRACELLULAR_MATRIX, startTime);
+        
+    } // End of update()
+    
+    
+    /**
+     * Advances the diffusion and decay of every product by a number of ticks
+     * at once, with an implicit step.
+     *
+     * Over a tick, the explicit kernel changes the concentration c of a grid
+     * cell by (1 - DECAY_RATE) * EXCHANGE_RATE * L(c) - DECAY_RATE * c, where
+     * L(c) is the sum of its concentration differences with its neighbours.
+     * The implicit step takes this change from the concentrations at the end
+     * of the step rather than at its start: for a step of n ticks, the new
+     * concentrations c' are the solution of c' - n * change(c') = c. The
+     * system is symmetric and positive definite, and is solved with the
+     * conjugate gradient method preconditioned by its diagonal, starting
+     * from the current concentrations. Whatever its length, the step keeps
+     * concentrations positive, and long steps reach the equilibrium of the
+     * explicit kernel.
+     *
+     * The amounts of products that cells expelled into or absorbed from the
+     * matrix since the last step are a source spread over the step. With the
+     * implicit step, a source spread over the step adds up to its total on
+     * the right-hand side, so the current concentrations, as cells left
+     * them, are the right-hand side. No grid cell is held at its
+     * concentration: cells only ever exchange amounts with the matrix.
+     *
+     * The step is run from the calling thread.
+     *
+     * @param tickCount The number of ticks to advance by.
+     */
+    public void advance(final int tickCount) {
+        
+        if (tickCount < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid tick count: " + tickCount);
+        }
+        
+        final int gridVolume = this.gridArea * this.gridSize;
+        final double decay = tickCount * DECAY_RATE;
+        final double exchange =
+                tickCount * (1 - DECAY_RATE) * EXCHANGE_RATE;
+        
+        if (this.solverDiagonal == null) {
+            this.solverDiagonal = new double[gridVolume];
+            this.solverResiduals = new double[gridVolume];
+            this.solverDirections = new double[gridVolume];
+            this.solverProducts = new double[gridVolume];
+        }
+        
+        if (this.diagonalTickCount != tickCount) {
+            
+            for (int r = 0; r < this.rowCount; r++) {
+                
+                final int windowSizeYZ = this.windowSizes[r % this.gridSize]
+                        * this.windowSizes[r / this.gridSize];
+                
+                for (int x = 0; x < this.gridSize; x++) {
+                    this.solverDiagonal[r * this.gridSize + x] =
+                            1 + decay + exchange
+                            * (this.windowSizes[x] * windowSizeYZ - 1);
+                }
+                
+            } // End for(r)
+            
+            this.diagonalTickCount = tickCount;
+            
+        } // End if()
+        
+        for (int p = 0; p < this.concentrations.length; p++) {
+            
+            final double[] current = this.concentrations[p];
+            
+            // Every row is needed to multiply by the system.
+            Arrays.fill(this.rowPasses[p], (byte) KernelPass.values().length);
+            
+            solve(p, decay, exchange);
+            
+            // The solver may leave tiny negative concentrations.
+            for (int i = 0; i < gridVolume; i++) {
+                current[i] = Math.max(0, current[i]);
+            }
+            
+            Arrays.fill(this.changedRows[p], true);
+            
+        } // End for(p)
+        
+    } // End of advance()
+    
+    
+    /**
+     * Solves the system of an implicit step for a product, in place.
+     *
+     * @param product The ordinal of the product.
+     * @param decay The fraction of the concentrations lost over the step.
+     * @param exchange The fraction of the concentration differences
+     *                 exchanged over the step.
+     */
+    private void solve(final int product, final double decay,
+            final double exchange) {
+        
+        final double[] solution = this.concentrations[product];
+        final double[] diagonal = this.solverDiagonal;
+        final double[] residuals = this.solverResiduals;
+        final double[] directions = this.solverDirections;
+        final double[] products = this.solverProducts;
+        final int gridVolume = solution.length;
+        
+        // The current concentrations are both the right-hand side and the
+        // initial guess.
+        
+        multiply(product, decay, exchange, solution, products);
+        
+        double targetNorm = 0;
+        double residualNorm = 0;
+        double preconditionedNorm = 0;
+        
+        for (int i = 0; i < gridVolume; i++) {
+            targetNorm += solution[i] * solution[i];
+            residuals[i] = solution[i] - products[i];
+            directions[i] = residuals[i] / diagonal[i];
+            residualNorm += residuals[i] * residuals[i];
+            preconditionedNorm += residuals[i] * directions[i];
+        }
+        
+        targetNorm *= SOLVER_TOLERANCE * SOLVER_TOLERANCE;
+        
+        int iteration = 0;
+        
+        while (residualNorm > targetNorm) {
+            
+            if (iteration++ == MAX_SOLVER_ITERATIONS) {
+                logger.warn("Implicit step not converged for "
+                        + CellProductType.values()[product] + "!");
+                break;
+            }
+            
+            multiply(product, decay, exchange, directions, products);
+            
+            double curvature = 0;
+            
+            for (int i = 0; i < gridVolume; i++) {
+                curvature += directions[i] * products[i];
+            }
+            
+            final double stepLength = preconditionedNorm / curvature;
+            final double previousNorm = preconditionedNorm;
+            
+            residualNorm = 0;
+            preconditionedNorm = 0;
+            
+            for (int i = 0; i < gridVolume; i++) {
+                solution[i] += stepLength * directions[i];
+                residuals[i] -= stepLength * products[i];
+                residualNorm += residuals[i] * residuals[i];
+                preconditionedNorm +=
+                        residuals[i] * residuals[i] / diagonal[i];
+            }
+            
+            final double correction = preconditionedNorm / previousNorm;
+            
+            for (int i = 0; i < gridVolume; i++) {
+                directions[i] = residuals[i] / diagonal[i]
+                        + correction * directions[i];
+            }
+            
+        } // End while()
+        
+    } // End of solve()
+    
+    
+    /**
+     * Multiplies values of a product by the system of an implicit step,
+     * using the passes of the stencil kernel for the sums of the values
+     * around each grid cell.
+     *
+     * @param product The ordinal of the product, whose window sum arrays are
+     *                used as scratch arrays.
+     * @param decay The fraction of the concentrations lost over the step.
+     * @param exchange The fraction of the concentration differences
+     *                 exchanged over the step.
+     * @param values The values to multiply.
+     * @param result Receives the product.
+     */
+    private void multiply(final int product, final double decay,
+            final double exchange, final double[] values,
+            final double[] result) {
+        
+        final byte[] passes = this.rowPasses[product];
+        final double[] planeSums = this.planeSums[product];
+        final int last = this.gridSize - 1;
+        
+        sumRows(values, this.rowSums[product], passes, 0, this.rowCount);
+        sumColumns(this.rowSums[product], planeSums, passes,
+                0, this.rowCount);
+        
+        for (int r = 0; r < this.rowCount; r++) {
+            
+            final int z = r / this.gridSize;
+            final int y = r % this.gridSize;
+            final int row = r * this.gridSize;
+            final int windowSizeYZ =
+                    this.windowSizes[y] * this.windowSizes[z];
+            
+            sumWindows(planeSums, this.gridArea, z > 0, z < last,
+                    result, row, this.gridSize);
+            
+            // The window sum includes the grid cell itself.
+            for (int x = 0; x < this.gridSize; x++) {
+                final int i = row + x;
+                result[i] = (1 + decay) * values[i] + exchange * (values[i]
+                        * (this.windowSizes[x] * windowSizeYZ) - result[i]);
+            }
+            
+        } // End for(r)
+        
+    } // End of multiply()
+    
+    
+    /**
+     * Selects the rows of a product that go through each pass of the stencil
+     * kernel on this update. A row is active if the concentrations of its
+     * window of rows are further apart than the activity threshold; it then
+     * goes through all passes, the rows its plane window sums are read from
+     * go through the first two, and the rows their row window sums are read
+     * from through the first one.
+     *
+     * @param product The ordinal of the product.
+     */
+    private void selectRows(final int product) {
+        
+        final double[] current = this.concentrations[product];
+        final double[] minimums = this.rowMinimums[product];
+        final double[] maximums = this.rowMaximums[product];
+        final boolean[] changed = this.changedRows[product];
+        final byte[] passes = this.rowPasses[product];
+        
+        final int allPasses = KernelPass.values().length;
+        final int last = this.gridSize - 1;
+        
+        // The bounds of the rows set since the last update.
+        
+        for (int r = 0; r < this.rowCount; r++) {
+            
+            if (changed[r]) {
+                boundRow(current, r, minimums, maximums);
+                changed[r] = false;
+            }
+            
+        } // End for(r)
+        
+        // The bounds of the window of each row along the y-axis, then along
+        // both axes.
+        
+        for (int z = 0; z <= last; z++) {
+            
+            for (int y = 0; y <= last; y++) {
+                
+                final int r = z * this.gridSize + y;
+                double minimum = minimums[r];
+                double maximum = maximums[r];
+                
+                if (y > 0) {
+                    minimum = Math.min(minimum, minimums[r - 1]);
+                    maximum = Math.max(maximum, maximums[r - 1]);
+                }
+                
+                if (y < last) {
+                    minimum = Math.min(minimum, minimums[r + 1]);
+                    maximum = Math.max(maximum, maximums[r + 1]);
+                }
+                
+                this.windowMinimums[r] = minimum;
+                this.windowMaximums[r] = maximum;
+                
+            } // End for(y)
+            
+        } // End for(z)
+        
+        int activeCount = 0;
+        
+        for (int z = 0; z <= last; z++) {
+            
+            for (int y = 0; y <= last; y++) {
+                
+                final int r = z * this.gridSize + y;
+                double minimum = this.windowMinimums[r];
+                double maximum = this.windowMaximums[r];
+                
+                if (z > 0) {
+                    minimum = Math.min(minimum,
+                            this.windowMinimums[r - this.gridSize]);
+                    maximum = Math.max(maximum,
+                            this.windowMaximums[r - this.gridSize]);
+                }
+                
+                if (z < last) {
+                    minimum = Math.min(minimum,
+                            this.windowMinimums[r + this.gridSize]);
+                    maximum = Math.max(maximum,
+                            this.windowMaximums[r + this.gridSize]);
+                }
+                
+                if (maximum - minimum > this.activityThreshold) {
+                    passes[r] = (byte) allPasses;
+                    activeCount++;
+                } else {
+                    passes[r] = 0;
+                }
+                
+            } // End for(y)
+            
+        } // End for(z)
+        
+        if (activeCount > this.rowCount * DENSE_FRACTION) {
+            Arrays.fill(passes, (byte) allPasses);
+            return;
+        }
+        
+        // The rows whose window sums are read by the active rows.
+        
+        for (int z = 0; z <= last; z++) {
+            
+            for (int y = 0; y <= last; y++) {
+                
+                if (passes[z * this.gridSize + y] != allPasses) {
+                    continue;
+                }
+                
+                for (int wz = Math.max(0, z - 1);
+                        wz <= Math.min(last, z + 1); wz++) {
+                    
+                    for (int wy = Math.max(0, y - 1);
+                            wy <= Math.min(last, y + 1); wy++) {
+                        
+                        final int r = wz * this.gridSize + wy;
+                        final int windowPasses =
+                                (wy == y) ? allPasses - 1 : allPasses - 2;
+                        
+                        if (passes[r] < windowPasses) {
+                            passes[r] = (byte) windowPasses;
+                        }
+                        
+                    } // End for(wy)
+                    
+                } // End for(wz)
+                
+            } // End for(y)
+            
+        } // End for(z)
+        
+    } // End of selectRows()
+    
+    
+    /**
+     * Runs a pass of the stencil kernel over a range of grid rows, for every
+     * product. A grid row is identified by z * gridSize + y.
+     *
+     * @param pass The pass to run.
+     * @param fromRow The first row to process.
+     * @param toRow The row after the last one to process.
+     */
+    private void runPass(final KernelPass pass,
+            final int fromRow, final int toRow) {
+        
+        for (int p = 0; p < this.concentrations.length; p++) {
+            
+            switch (pass) {
+            case ROWS:
+                sumRows(this.concentrations[p], this.rowSums[p],
+                        this.rowPasses[p], fromRow, toRow);
+                break;
+            case COLUMNS:
+                sumColumns(this.rowSums[p], this.planeSums[p],
+                        this.rowPasses[p], fromRow, toRow);
+                break;
+            default:
+                diffuse(p, this.planeSums[p], fromRow, toRow);
+            }
+            
+        } // End for(p)
+        
+    } // End of runPass()
+    
+    
+    /**
+     * First pass of the stencil kernel: sums the concentrations of each grid
+     * cell and of its neighbours on the x-axis.
+     *
+     * The grid cells at both ends of a row are summed apart, so that the loop
+     * over the others has no branch and can be vectorised by the JIT
+     * compiler.
+     *
+     * @param current The current concentrations of a product.
+     * @param sums Receives the row window sums.
+     * @param passes The number of passes each row goes through.
+     * @param fromRow The first row to process.
+     * @param toRow The row after the last one to process.
+     */
+    private void sumRows(final double[] current, final double[] sums,
+            final byte[] passes, final int fromRow, final int toRow) {
+        
+        final int last = this.gridSize - 1;
+        
+        for (int r = fromRow; r < toRow; r++) {
+            
+            if (passes[r] <= KernelPass.ROWS.ordinal()) {
+                continue;
+            }
+            
+            final int row = r * this.gridSize;
+            
+            // A row of a single grid cell has no neighbours.
+            if (last == 0) {
+                sums[row] = current[row];
+                continue;
+            }
+                
+            sums[row] = current[row] + current[row + 1];
+                
+            for (int i = row + 1; i < row + last; i++) {
+                sums[i] = current[i] + current[i - 1] + current[i + 1];
+            }
+                
+            sums[row + last] = current[row + last] + current[row + last - 1];
+            
+        } // End for(r)
+        
+    } // End of sumRows()
+    
+    
+    /**
+     * Second pass of the stencil kernel: sums the row sums of each grid cell
+     * and of its neighbours on the y-axis.
+     *
+     * @param rowSums The row window sums.
+     * @param sums Receives the plane window sums.
+     * @param passes The number of passes each row goes through.
+     * @param fromRow The first row to process.
+     * @param toRow The row after the last one to process.
+     */
+    private void sumColumns(final double[] rowSums, final double[] sums,
+            final byte[] passes, final int fromRow, final int toRow) {
+        
+        final int last = this.gridSize - 1;
+        
+        for (int r = fromRow; r < toRow; r++) {
+            
+            if (passes[r] <= KernelPass.COLUMNS.ordinal()) {
+                continue;
+            }
+            
+            final int y = r % this.gridSize;
+            
+            sumWindows(rowSums, this.gridSize, y > 0, y < last,
+                    sums, r * this.gridSize, this.gridSize);
+            
+        } // End for(r)
+        
+    } // End of sumColumns()
+    
+    
+    /**
+     * Last pass of the stencil kernel: sums the plane sums of each grid cell
+     * and of its neighbours on the z-axis, which yields the total
+     * concentration of its Moore neighbourhood, then applies diffusion and
+     * decay.
+     *
+     * Each grid cell exchanges {@link #EXCHANGE_RATE} of its concentration
+     * difference with every neighbour; nothing is exchanged past the borders
+     * of the grid.
+     *
+     * The window sums of a row are first stored in the row of the new
+     * concentrations, then replaced by the new concentrations, so that
+     * neither loop has a branch.
+     *
+     * The rows that do not go through this pass only decay. The bounds of
+     * the concentrations of the rows are updated if they are tracked.
+     *
+     * @param product The ordinal of the product.
+     * @param planeSums The plane window sums.
+     * @param fromRow The first row to process.
+     * @param toRow The row after the last one to process.
+     */
+    private void diffuse(final int product, final double[] planeSums,
+            final int fromRow, final int toRow) {
+        
+        final double[] current = this.concentrations[product];
+        final double[] next = this.newConcentrations[product];
+        final byte[] passes = this.rowPasses[product];
+        final double[] minimums = this.rowMinimums[product];
+        final double[] maximums = this.rowMaximums[product];
+        final double[] newMinimums = this.newRowMinimums[product];
+        final double[] newMaximums = this.newRowMaximums[product];
+        final boolean tracked = (this.activityThreshold >= 0);
+        
+        final int last = this.gridSize - 1;
+        
+        for (int r = fromRow; r < toRow; r++) {
+            
+            final int row = r * this.gridSize;
+            
+            if (passes[r] <= KernelPass.PLANES.ordinal()) {
+                
+                // Nil concentrations stay nil, and need not be written again
+                // if the new ones already are.
+                if ((minimums[r] != 0) || (maximums[r] != 0)
+                        || (newMinimums[r] != 0) || (newMaximums[r] != 0)) {
+                    
+                    for (int i = row; i < row + this.gridSize; i++) {
+                        next[i] = current[i] * (1 - DECAY_RATE);
+                    }
+                    
+                    newMinimums[r] = minimums[r] * (1 - DECAY_RATE);
+                    newMaximums[r] = maximums[r] * (1 - DECAY_RATE);
+                    
+                } // End if()
+                
+                continue;
+                
+            } // End if()
+            
+            final int z = r / this.gridSize;
+            final int y = r % this.gridSize;
+            final int windowSizeYZ =
+                    this.windowSizes[y] * this.windowSizes[z];
+            
+            sumWindows(planeSums, this.gridArea, z > 0, z < last,
+                    next, row, this.gridSize);
+            
+            for (int x = 0; x < this.gridSize; x++) {
+                
+                final int i = row + x;
+                
+                // The window includes the grid cell itself.
+                final double localConcentration = current[i];
+                final double exchanged = next[i] - localConcentration
+                        * (this.windowSizes[x] * windowSizeYZ);
+                
+                next[i] = (localConcentration + exchanged * EXCHANGE_RATE)
+                        * (1 - DECAY_RATE);
+                
+            } // End for(x)
+            
+            if (tracked) {
+                boundRow(next, r, newMinimums, newMaximums);
+            }
+            
+        } // End for(r)
+        
+    } // End of diffuse()
+    
+    
+    /**
+     * Stores the lowest and highest concentration of a row.
+     *
+     * @param values The concentrations of a product.
+     * @param r The row.
+     * @param minimums Receives the lowest concentration of each row.
+     * @param maximums Receives the highest concentration of each row.
+     */
+    private void boundRow(final double[] values, final int r,
+            final double[] minimums, final double[] maximums) {
+        
+        final int row = r * this.gridSize;
+        double minimum = values[row];
+        double maximum = values[row];
+        
+        for (int i = row + 1; i < row + this.gridSize; i++) {
+            minimum = Math.min(minimum, values[i]);
+            maximum = Math.max(maximum, values[i]);
+        }
+        
+        minimums[r] = minimum;
+        maximums[r] = maximum;
+        
+    } // End of boundRow()
+    
+    
+    /**
+     * Sums each value of a range with the values a given step before and
+     * after it, when they are within the grid. Whether they are is the same
+     * for the whole range, so that the loop has no branch.
+     *
+     * @param values The values to sum.
+     * @param step The distance between a value and its neighbours.
+     * @param hasPrevious Whether the values a step before are summed.
+     * @param hasNext Whether the values a step after are summed.
+     * @param sums Receives the sums.
+     * @param from The index of the first value of the range.
+     * @param length The number of values of the range.
+     */
+    private static void sumWindows(final double[] values, final int step,
+            final boolean hasPrevious, final boolean hasNext,
+            final double[] sums, final int from, final int length) {
+        
+        final int to = from + length;
+        
+        if (hasPrevious && hasNext) {
+            for (int i = from; i < to; i++) {
+                sums[i] = values[i] + values[i - step] + values[i + step];
+            }
+        } else if (hasPrevious) {
+            for (int i = from; i < to; i++) {
+                sums[i] = values[i] + values[i - step];
+            }
+        } else if (hasNext) {
+            for (int i = from; i < to; i++) {
+                sums[i] = values[i] + values[i + step];
+            }
+        } else {
+            System.arraycopy(values, from, sums, from, length);
+        }
+        
+    } // End of sumWindows()
+    
+    
+    /**
+     * Returns the current concentration of a product in a grid cell.
+     *
+     * @param index The index of the grid cell.
+     * @param productType The product.
+     * @return The concentration.
+     */
+    double getConcentration(final int index,
+            final CellProductType productType) { // package access.
+        return this.concentrations[productType.ordinal()][index];
+    }
+    
+    
+    /**
+     * Sets the current concentration of a product in a grid cell.
+     *
+     * @param index The index of the grid cell.
+     * @param productType The product.
+     * @param newConcentration The new concentration.
+     */
+    void setConcentration(final int index, final CellProductType productType,
+            final double newConcentration) { // package access.
+        
+        this.concentrations[productType.ordinal()][index] = newConcentration;
+        
+        // Cells set the concentration at their location concurrently, but
+        // they all flag rows the same way.
+        this.changedRows[productType.ordinal()][index / this.gridSize] = true;
+        
+    } // End of setConcentration()
+    
+    
+    // INTERFACES IMPLEMENTATION -----------------------------------------------
+    
+    
+    /**
+     * Get the concentration of all cell products at the specified grid
+     * location.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @return An {@link ExtracellularMatrixSample} object containing all
+     *         the current concentrations at the requested location.
+     */
+    @Override // ExtracellularMatrix
+    public ExtracellularMatrixSample getSample(
+            final int x, final int y, final int z) {
+        
+        return this.samples[((z + this.gridQuadrantSize) * this.gridSize
+                + y + this.gridQuadrantSize) * this.gridSize
+                        + x + this.gridQuadrantSize];
+        
+    } // End of getSample()
+    
+    
+    /**
+     * Returns the matrix concentrations in all grid cells in the neighbourhood
+     * of the specified grid coordinates.
+     *
+     * @param pt The grid point object specifying the coordinates.
+     * @param extentX The extent of the neighbourhood on the x-axis.
+     * @param extendY The extent of the neighbourhood on the y-axis.
+     * @param extentZ The extent of the neighbourhood on the z-axis.
+     * @param includeCentre Specify if the concentrations at the specified
+     *                      location itself should be returned.
+     * @return A list of {@link ExtracellularMatrixSample} objects containing
+     *         all the current concentrations around, and possibly including,
+     *         the requested location.
+     */
+    @Override // ExtracellularMatrix
+    public List<ExtracellularMatrixSample> getAreaSample(final GridPoint pt,
+            final int extentX, final int extentY, final int extentZ,
+            final boolean includeCentre) {
+        
+        // Translate the brain grid coordinates into appropriate indexes for
+        // the concentrations storage arrays.
+        final int xIndex = pt.getX() + this.gridQuadrantSize;
+        final int yIndex = pt.getY() + this.gridQuadrantSize;
+        final int zIndex = pt.getZ() + this.gridQuadrantSize;
+        
+        final int xLowerLimit = Math.max(0, xIndex - extentX);
+        final int xUpperLimit = Math.min(this.gridSize - 1, xIndex + extentX);
+        
+        final int yLowerLimit = Math.max(0, yIndex - extentY);
+        final int yUpperLimit = Math.min(this.gridSize - 1, yIndex + extentY);
+        
+        final int zLowerLimit = Math.max(0, zIndex - extentZ);
+        final int zUpperLimit = Math.min(this.gridSize - 1, zIndex + extentZ);
+        
+        List<ExtracellularMatrixSample> areaSample =
+                new ArrayList<ExtracellularMatrixSample>(
+                        (xUpperLimit - xLowerLimit + 1)
+                        * (yUpperLimit - yLowerLimit + 1)
+                        * (zUpperLimit - zLowerLimit + 1));
+        
+        for (int xi = xLowerLimit; xi <= xUpperLimit; xi++) {
+            
+            for (int yi = yLowerLimit; yi <= yUpperLimit; yi++) {
+                
+                for (int zi = zLowerLimit; zi <= zUpperLimit; zi++) {
+                    
+                    if ((xi == xIndex) && (yi == yIndex)
+                            && (zi == zIndex) && !includeCentre) {
+                        continue;
+                    }
+                    
+                    areaSample.add(this.samples[
+                            (zi * this.gridSize + yi) * this.gridSize + xi]);
+                    
+                } // End for(zi)
+                
+            } // End for(yi)
+            
+        } // End for(xi)
+        
+        return areaSample;
+        
+    } // End of getAreaSample()
+    
+    
+    /**
+     * Get the concentration of a cell product at the specified grid location.
+     *
+     * @param x The x-axis grid coordinate.
+     * @param y The y-axis grid coordinate.
+     * @param z The z-axis grid coordinate.
+     * @param productType The cell product.
+     * @return The current concentration of the product at the location.
+     */
+    @Override // ExtracellularMatrix
+    public double getConcentration(final int x, final int y, final int z,
+            final CellProductType productType) {
+        return this.concentrations[productType.ordinal()][
+                ((z + this.gridQuadrantSize) * this.gridSize
+                + y + this.gridQuadrantSize) * this.gridSize
+                        + x + this.gridQuadrantSize];
+    }
+    
+    
+    /**
+     * Visits all grid cells in the neighbourhood of the specified grid
+     * coordinates, without creating any sample or list.
+     *
+     * @param pt The grid point object specifying the coordinates.
+     * @param extentX The extent of the neighbourhood on the x-axis.
+     * @param extendY The extent of the neighbourhood on the y-axis.
+     * @param extentZ The extent of the neighbourhood on the z-axis.
+     * @param includeCentre Specify if the specified location itself should be
+     *                      visited.
+     * @param visitor The visitor called for each grid cell.
+     */
+    @Override // ExtracellularMatrix
+    public void visitArea(final GridPoint pt, final int extentX,
+            final int extentY, final int extentZ, final boolean includeCentre,
+            final ExtracellularMatrixVisitor visitor) {
+        
+        // The grid spans coordinates -limit to +limit on each axis.
+        final int limit = this.gridQuadrantSize;
+        
+        final int xLowerLimit = Math.max(-limit, pt.getX() - extentX);
+        final int xUpperLimit = Math.min(limit, pt.getX() + extentX);
+        
+        final int yLowerLimit = Math.max(-limit, pt.getY() - extentY);
+        final int yUpperLimit = Math.min(limit, pt.getY() + extentY);
+        
+        final int zLowerLimit = Math.max(-limit, pt.getZ() - extentZ);
+        final int zUpperLimit = Math.min(limit, pt.getZ() + extentZ);
+        
+        for (int xi = xLowerLimit; xi <= xUpperLimit; xi++) {
+            
+            for (int yi = yLowerLimit; yi <= yUpperLimit; yi++) {
+                
+                for (int zi = zLowerLimit; zi <= zUpperLimit; zi++) {
+                    
+                    if ((xi == pt.getX()) && (yi == pt.getY())
+                            && (zi == pt.getZ()) && !includeCentre) {
+                        continue;
+                    }
+                    
+                    visitor.visit(xi, yi, zi);
+                    
+                } // End for(zi)
+                
+            } // End for(yi)
+            
+        } // End for(xi)
+        
+    } // End of visitArea()
+    
+    
+    // NESTED CLASSES ----------------------------------------------------------
+    
+    
+    /**
+     * The passes of the stencil kernel, in the order they are run.
+     */
+    private enum KernelPass {
+        
+        ROWS, COLUMNS, PLANES
+        
+    } // End of KernelPass enum
+    
+    
+    /**
+     * A task running a pass of the stencil kernel over a band of grid rows,
+     * splitting it in halves until bands are small enough.
+     */
+    private final class KernelTask extends RecursiveAction {
+        
+        
+        // Required by the serializable task.
+        private static final long serialVersionUID = 1L;
+        
+        
+        // The pass to run.
+        private final KernelPass pass;
+        
+        
+        // The first row of the band.
+        private final int fromRow;
+        
+        
+        // The row after the last one of the band.
+        private final int toRow;
+        
+        
+        /**
+         * Creates a new kernel task.
+         *
+         * @param newPass The pass to run.
+         * @param newFromRow The first row of the band.
+         * @param newToRow The row after the last one of the band.
+         */
+        KernelTask(final KernelPass newPass,
+                final int newFromRow, final int newToRow) {
+            
+            this.pass = newPass;
+            this.fromRow = newFromRow;
+            this.toRow = newToRow;
+            
+        } // End of KernelTask()
+        
+        
+        /**
+         * Runs the pass over the band, or over each half of it in parallel.
+         */
+        @Override // RecursiveAction
+        protected void compute() {
+            
+            // The band size threshold is that of the enclosing matrix.
+            if (this.toRow - this.fromRow <= rowsPerTask) {
+                
+                runPass(this.pass, this.fromRow, this.toRow);
+                
+            } else {
+                
+                final int middleRow = (this.fromRow + this.toRow) >>> 1;
+                
+                invokeAll(new KernelTask(this.pass, this.fromRow, middleRow),
+                        new KernelTask(this.pass, middleRow, this.toRow));
+                
+            } // End if()
+            
+        } // End of compute()
+        
+        
+    } // End of KernelTask class
+    
+    
+} // End of StencilExtracellularMatrix class
@@ -0,0 +1,88 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ *  Class giving access to the concentrations of all cell products at a given
+ *  grid location of a {@link StencilExtracellularMatrix}. The sample holds no
+ *  concentration of its own: it reads and writes those of the matrix.
+ *
+ * @author Robert Langlois
+ */
+public class StencilExtracellularMatrixSample
+        extends ExtracellularMatrixSample {
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // Class logger for messages.
+    @SuppressWarnings("unused")
+    private final static Logger logger =
+            Logger.getLogger(StencilExtracellularMatrixSample.class);
+    
+    
+    // The extracellular matrix from which this sample was taken.
+    private final StencilExtracellularMatrix extracellularMatrix;
+    
+    
+    // The index of this sample's grid cell in the matrix.
+    private final int index;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new extracellular matrix sample.
+     *
+     * @param newX The x-axis coordinate of this sample.
+     * @param newY The y-axis coordinate of this sample.
+     * @param newZ The z-axis coordinate of this sample.
+     * @param newIndex The index of the sample's grid cell in the matrix.
+     * @param newExtracellularMatrix The extracellular matrix from which this
+     *                               sample originates.
+     */
+    StencilExtracellularMatrixSample(final int newX, final int newY,
+            final int newZ, final int newIndex,
+            final StencilExtracellularMatrix newExtracellularMatrix) {
+        
+        super(newX, newY, newZ);
+        
+        this.index = newIndex;
+        this.extracellularMatrix = newExtracellularMatrix;
+        
+    } // End of StencilExtracellularMatrixSample()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the current concentration of a given substance.
+     *
+     * @return The substance type.
+     */
+    @Override // ExtracellularMatrixSample
+    public double getConcentration(final CellProductType productType) {
+        return this.extracellularMatrix.getConcentration(
+                this.index, productType);
+    }
+    
+    
+    /**
+     * Sets the concentration of the specified cell product to the given value.
+     *
+     * @param productType The substance type.
+     * @param newConcentration The new concentration.
+     */
+    @Override // ExtracellularMatrixSample
+    public void setConcentration(final CellProductType productType,
+            final double newConcentration) {
+        this.extracellularMatrix.setConcentration(
+                this.index, productType, newConcentration);
+    }
+    
+    
+} // End of StencilExtracellularMatrixSample class
@@ -0,0 +1,859 @@
+package org.thoughtsfactory.neurogenesis.brain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.log4j.Logger;
+
+import repast.simphony.context.ContextEvent;
+import repast.simphony.context.ContextListener;
+import repast.simphony.engine.schedule.ScheduleParameters;
+import repast.simphony.engine.schedule.ScheduledMethod;
+import repast.simphony.space.graph.Network;
+import repast.simphony.space.graph.RepastEdge;
+
+
+/**
+ * A synapse store holds the synapses of the neural network in compressed
+ * sparse rows: the synapses ending on a neuron are stored next to each other,
+ * each as the index of its source neuron and its weight, and the activations
+ * of all neurons are kept in an array with the same indexes. The activation of
+ * a neuron and the Hebbian adjustment of its synapses are thus a linear scan
+ * of its row, rather than a traversal of the Repast neural network, which is
+ * only kept up to date for display.
+ *
+ * Neurons get an index when they are added to the context. Synapses created
+ * during a tick are kept in a pending list, which the activation of their
+ * target also scans, until the rows are rebuilt at the beginning of the next
+ * tick. The synapses of the neurons removed from the context are dropped by
+ * the same rebuild, after which the indexes of these neurons can be reused;
+ * until then, the activation of these neurons is 0, so their synapses have
+ * no effect.
+ *
+ * In synchronous mode, the activations are double-buffered: neurons read the
+ * activations of the previous tick, copied at the beginning of the tick, and
+ * write the new ones to the current buffer. The activation of a neuron then
+ * depends neither on the order of update of the neurons, nor on the number of
+ * threads sweeping the rows, which the batch calculation does in parallel.
+ *
+ * @author Robert Langlois
+ */
+public class SynapseStore implements ContextListener<Object> {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The initial number of neurons and synapses the arrays can hold.
+    private static final int INITIAL_CAPACITY = 64;
+    
+    
+    // The number of tasks per worker thread the neurons are split into, so
+    // that threads done early can take over some work from others.
+    private static final int TASKS_PER_THREAD = 4;
+    
+    
+    // The smallest number of neurons worth a task of their own.
+    private static final int MIN_NEURONS_PER_TASK = 64;
+    
+    
+    // CLASS VARIABLES =========================================================
+    
+    
+    // Class logger for messages.
+    private final static Logger logger = Logger.getLogger(SynapseStore.class);
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The network in which synapses are displayed.
+    private final Network<Object> neuralNetwork;
+    
+    
+    // Indicates if neurons read the activations of the previous tick.
+    private final boolean synchronous;
+    
+    
+    // The neuron at each index, null if the index is not in use.
+    private Neuron[] neurons = new Neuron[INITIAL_CAPACITY];
+    
+    
+    // The activation of the neuron at each index.
+    private double[] activations = new double[INITIAL_CAPACITY];
+    
+    
+    // The activation of the neuron at each index at the end of the previous
+    // tick, only kept in synchronous mode.
+    private double[] previousActivations = new double[INITIAL_CAPACITY];
+    
+    
+    // The number of pending synapses of the neuron at each index.
+    private int[] pendingCounts = new int[INITIAL_CAPACITY];
+    
+    
+    // The number of indexes ever used.
+    private int neuronCount = 0;
+    
+    
+    // The indexes free for reuse.
+    private int[] freeIndexes = new int[INITIAL_CAPACITY];
+    
+    
+    // The number of indexes free for reuse.
+    private int freeCount = 0;
+    
+    
+    // The indexes of the neurons removed since the rows were built.
+    private int[] removedIndexes = new int[INITIAL_CAPACITY];
+    
+    
+    // The number of neurons removed since the rows were built.
+    private int removedCount = 0;
+    
+    
+    // The number of rows, i.e. of indexes in use when the rows were built.
+    private int rowCount = 0;
+    
+    
+    // The position of the first synapse of each row, followed by the number
+    // of synapses.
+    private int[] rowStarts = new int[1];
+    
+    
+    // The index of the source neuron of each synapse, by row.
+    private int[] sources = new int[0];
+    
+    
+    // The weight of each synapse, by row.
+    private double[] weights = new double[0];
+    
+    
+    // The edge displaying each synapse, by row.
+    private RepastEdge<?>[] edges = new RepastEdge<?>[0];
+    
+    
+    // The index of the source neuron of each pending synapse.
+    private int[] pendingSources = new int[INITIAL_CAPACITY];
+    
+    
+    // The index of the target neuron of each pending synapse.
+    private int[] pendingTargets = new int[INITIAL_CAPACITY];
+    
+    
+    // The weight of each pending synapse.
+    private double[] pendingWeights = new double[INITIAL_CAPACITY];
+    
+    
+    // The edge displaying each pending synapse.
+    private RepastEdge<?>[] pendingEdges = new RepastEdge<?>[INITIAL_CAPACITY];
+    
+    
+    // The number of pending synapses.
+    private int pendingCount = 0;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new synapse store.
+     *
+     * @param newNeuralNetwork The network in which synapses are displayed.
+     * @param newSynchronous {@code true} if neurons read the activations of
+     *                       the previous tick, {@code false} if they read the
+     *                       latest ones.
+     */
+    public SynapseStore(final Network<Object> newNeuralNetwork,
+            final boolean newSynchronous) {
+        
+        this.neuralNetwork = newNeuralNetwork;
+        this.synchronous = newSynchronous;
+        
+    } // End of SynapseStore()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Buffers the activations of the previous tick in synchronous mode, then
+     * rebuilds the rows if synapses were created or neurons removed during
+     * the previous tick.
+     *
+     * This method is scheduled for execution at every tick of the simulation,
+     * with a FIRST priority, i.e. BEFORE any neuron calculates its
+     * activation.
+     */
+    @ScheduledMethod(start = 1, interval = 1,
+            priority = ScheduleParameters.FIRST_PRIORITY)
+    public void update() {
+        
+        if (this.synchronous) {
+            System.arraycopy(this.activations, 0,
+                    this.previousActivations, 0, this.neuronCount);
+        }
+        
+        if ((this.pendingCount > 0) || (this.removedCount > 0)) {
+            rebuildRows();
+        }
+        
+    } // End of update()
+    
+    
+    /**
+     * Creates a synapse between two neurons of the context. The synapse is
+     * displayed at once but only takes part in the activation of its target
+     * from the next tick.
+     *
+     * @param source The neuron whose axon makes the synapse.
+     * @param target The neuron whose dendrite makes the synapse.
+     * @param weight The initial weight of the synapse.
+     */
+    public void addSynapse(final Neuron source, final Neuron target,
+            final double weight) {
+        
+        assert (source.synapseIndex >= 0) && (target.synapseIndex >= 0) :
+                "Neuron not in the context!";
+        
+        if (this.pendingCount == this.pendingSources.length) {
+            
+            final int capacity = 2 * this.pendingCount;
+            this.pendingSources = Arrays.copyOf(this.pendingSources, capacity);
+            this.pendingTargets = Arrays.copyOf(this.pendingTargets, capacity);
+            this.pendingWeights = Arrays.copyOf(this.pendingWeights, capacity);
+            this.pendingEdges = Arrays.copyOf(this.pendingEdges, capacity);
+            
+        } // End if()
+        
+        this.pendingCounts[target.synapseIndex]++;
+        this.pendingSources[this.pendingCount] = source.synapseIndex;
+        this.pendingTargets[this.pendingCount] = target.synapseIndex;
+        this.pendingWeights[this.pendingCount] = weight;
+        this.pendingEdges[this.pendingCount] =
+                this.neuralNetwork.addEdge(source, target, weight);
+        this.pendingCount++;
+        
+    } // End of addSynapse()
+    
+    
+    /**
+     * Records the activation of a neuron whose activation is not calculated
+     * from its synapses, e.g. an input neuron.
+     *
+     * @param neuron The neuron.
+     * @param activation Its new activation.
+     */
+    public void setActivation(final Neuron neuron, final double activation) {
+        
+        if (neuron.synapseIndex >= 0) {
+            this.activations[neuron.synapseIndex] = activation;
+        }
+        
+    } // End of setActivation()
+    
+    
+    /**
+     * Returns the activation of a neuron as read by the neurons it makes
+     * synapses with, i.e. its activation at the end of the previous tick in
+     * synchronous mode.
+     *
+     * @param neuron The neuron.
+     * @return Its activation, as an input of other neurons.
+     */
+    public double getInputActivation(final Neuron neuron) {
+        
+        if (neuron.synapseIndex < 0) {
+            return 0;
+        }
+        
+        return this.synchronous
+                ? this.previousActivations[neuron.synapseIndex]
+                : this.activations[neuron.synapseIndex];
+        
+    } // End of getInputActivation()
+    
+    
+    /**
+     * Calculates the activation of a neuron from its synapses, then adjusts
+     * their weight using Hebb's rule.
+     *
+     * @param neuron The neuron.
+     * @param gain The factor applied to every input of the neuron.
+     * @return The new activation of the neuron.
+     */
+    public double calculateActivation(final Neuron neuron, final double gain) {
+        
+        assert neuron.synapseIndex >= 0 : "Neuron not in the context!";
+        
+        return calculateActivation(neuron.synapseIndex, gain);
+        
+    } // End of calculateActivation(Neuron, double)
+    
+    
+    /**
+     * Calculates the activation of all the neurons that run their life cycle
+     * in phases, in one sweep of the rows, and sets it on each neuron. In
+     * synchronous mode, the rows are swept in parallel.
+     *
+     * @param workerPool The pool sweeping the rows in synchronous mode, or
+     *                   {@code null} to sweep them sequentially.
+     */
+    public void calculateActivations(final ForkJoinPool workerPool) {
+        
+        if (!this.synchronous || (workerPool == null)) {
+            
+            calculateActivations(0, this.neuronCount);
+            
+        } else {
+            
+            final int neuronsPerTask = Math.max(MIN_NEURONS_PER_TASK,
+                    this.neuronCount
+                    / (workerPool.getParallelism() * TASKS_PER_THREAD));
+            
+            workerPool.invoke(
+                    new ActivationTask(0, this.neuronCount, neuronsPerTask));
+            
+        } // End if()
+        
+    } // End of calculateActivations(ForkJoinPool)
+    
+    
+    /**
+     * Writes the activations of the neurons and all the synapses, current and
+     * pending, to a checkpoint.
+     *
+     * @param out The checkpoint output.
+     * @param ordinals The ordinal of each neuron in the checkpoint.
+     * @throws IOException If the synapses cannot be written.
+     */
+    void writeState(final DataOutput out,
+            final Map<Neuron, Integer> ordinals) throws IOException {
+        
+        int liveCount = 0;
+        for (int i = 0; i < this.neuronCount; i++) {
+            if (this.neurons[i] != null) {
+                liveCount++;
+            }
+        }
+        
+        out.writeInt(liveCount);
+        
+        for (int i = 0; i < this.neuronCount; i++) {
+            
+            if (this.neurons[i] != null) {
+                out.writeInt(ordinals.get(this.neurons[i]));
+                out.writeDouble(this.activations[i]);
+                out.writeDouble(this.previousActivations[i]);
+            }
+            
+        } // End for(i)
+        
+        int synapseCount = 0;
+        
+        for (int i = 0; i < this.rowCount; i++) {
+            for (int k = this.rowStarts[i]; k < this.rowStarts[i + 1]; k++) {
+                if (isLive(this.sources[k], i)) {
+                    synapseCount++;
+                }
+            }
+        }
+        
+        for (int p = 0; p < this.pendingCount; p++) {
+            if (isLive(this.pendingSources[p], this.pendingTargets[p])) {
+                synapseCount++;
+            }
+        }
+        
+        out.writeInt(synapseCount);
+        
+        for (int i = 0; i < this.rowCount; i++) {
+            
+            for (int k = this.rowStarts[i]; k < this.rowStarts[i + 1]; k++) {
+                
+                if (isLive(this.sources[k], i)) {
+                    out.writeInt(ordinals.get(this.neurons[this.sources[k]]));
+                    out.writeInt(ordinals.get(this.neurons[i]));
+                    out.writeDouble(this.weights[k]);
+                }
+                
+            } // End for(k)
+            
+        } // End for(i)
+        
+        for (int p = 0; p < this.pendingCount; p++) {
+            
+            if (isLive(this.pendingSources[p], this.pendingTargets[p])) {
+                out.writeInt(ordinals.get(
+                        this.neurons[this.pendingSources[p]]));
+                out.writeInt(ordinals.get(
+                        this.neurons[this.pendingTargets[p]]));
+                out.writeDouble(this.pendingWeights[p]);
+            }
+            
+        } // End for(p)
+        
+    } // End of writeState()
+    
+    
+    /**
+     * Reads the activations and synapses written by {@link #writeState} for
+     * the neurons restored from a checkpoint, which must already be in the
+     * context. The synapses are all put in the rows at once.
+     *
+     * @param in The checkpoint input.
+     * @param owners The neuron of each ordinal in the checkpoint.
+     * @throws IOException If the synapses cannot be read.
+     */
+    void readState(final DataInput in, final Neuron[] owners)
+            throws IOException {
+        
+        final int liveCount = in.readInt();
+        
+        for (int n = 0; n < liveCount; n++) {
+            final int index = owners[in.readInt()].synapseIndex;
+            this.activations[index] = in.readDouble();
+            this.previousActivations[index] = in.readDouble();
+        }
+        
+        final int synapseCount = in.readInt();
+        
+        for (int s = 0; s < synapseCount; s++) {
+            final Neuron source = owners[in.readInt()];
+            final Neuron target = owners[in.readInt()];
+            addSynapse(source, target, in.readDouble());
+        }
+        
+        rebuildRows();
+        
+    } // End of readState()
+    
+    
+    /**
+     * Calculates the activation of the phased neurons in a range of indexes.
+     *
+     * @param fromIndex The first index of the range.
+     * @param toIndex The index after the last index of the range.
+     */
+    private void calculateActivations(final int fromIndex, final int toIndex) {
+        
+        for (int i = fromIndex; i < toIndex; i++) {
+            
+            final Neuron neuron = this.neurons[i];
+            
+            if ((neuron != null) && neuron.hasPhasedLifeCycle()) {
+                neuron.activation =
+                        calculateActivation(i, neuron.getSynapticGain());
+            }
+            
+        } // End for(i)
+        
+    } // End of calculateActivations(int, int)
+    
+    
+    /**
+     * Calculates the activation of the neuron at an index from its synapses,
+     * then adjusts their weight using Hebb's rule.
+     *
+     * @param index The index of the neuron.
+     * @param gain The factor applied to every input of the neuron.
+     * @return The new activation of the neuron.
+     */
+    private double calculateActivation(final int index, final double gain) {
+        
+        // Neurons indexed since the rows were built have no synapse yet.
+        final int rowStart = (index < this.rowCount)
+                ? this.rowStarts[index] : 0;
+        final int rowEnd = (index < this.rowCount)
+                ? this.rowStarts[index + 1] : 0;
+        
+        final double[] inputs = this.synchronous
+                ? this.previousActivations : this.activations;
+        
+        double netInput = 0;
+        
+        for (int k = rowStart; k < rowEnd; k++) {
+            netInput += inputs[this.sources[k]] * this.weights[k] * gain;
+        }
+        
+        final boolean hasPending = this.pendingCounts[index] > 0;
+        
+        if (hasPending) {
+            for (int p = 0; p < this.pendingCount; p++) {
+                if (this.pendingTargets[p] == index) {
+                    netInput += inputs[this.pendingSources[p]]
+                            * this.pendingWeights[p] * gain;
+                }
+            }
+        }
+        
+        final double activation = 1 / (1 + Math.exp(-netInput));
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Number of synapses: "
+                    + (rowEnd - rowStart + this.pendingCounts[index])
+                    + ", net input: " + netInput
+                    + ", activation: " + activation);
+        }
+        
+        // A synapse of the neuron onto itself adjusts to the new activation.
+        this.activations[index] = activation;
+        
+        // Adjust the weights using Hebb's rule.
+        for (int k = rowStart; k < rowEnd; k++) {
+            
+            final double newWeight = adjustWeight(this.weights[k],
+                    inputs[this.sources[k]], activation);
+            
+            this.weights[k] = newWeight;
+            this.edges[k].setWeight(newWeight);
+            
+        } // End for(k)
+        
+        if (hasPending) {
+            
+            for (int p = 0; p < this.pendingCount; p++) {
+                
+                if (this.pendingTargets[p] == index) {
+                    
+                    final double newWeight = adjustWeight(
+                            this.pendingWeights[p],
+                            inputs[this.pendingSources[p]],
+                            activation);
+                    
+                    this.pendingWeights[p] = newWeight;
+                    this.pendingEdges[p].setWeight(newWeight);
+                    
+                } // End if()
+                
+            } // End for(p)
+            
+        } // End if()
+        
+        return activation;
+        
+    } // End of calculateActivation(int, double)
+    
+    
+    /**
+     * Adjusts the weight of a synapse using Hebb's rule.
+     *
+     * @param weight The weight of the synapse.
+     * @param inputActivation The activation of its source neuron.
+     * @param activation The activation of its target neuron.
+     * @return The new weight of the synapse.
+     */
+    private static double adjustWeight(final double weight,
+            final double inputActivation, final double activation) {
+        
+        final double deltaWeight = Neuron.LEARNING_RATE * activation
+                * (inputActivation - inputActivation * Math.abs(weight));
+        
+        return weight + Math.signum(weight) * deltaWeight;
+        
+    } // End of adjustWeight()
+    
+    
+    /**
+     * Rebuilds the rows from the current rows and the pending synapses,
+     * dropping the synapses of the neurons removed from the context, then
+     * frees the indexes of these neurons.
+     */
+    private void rebuildRows() {
+        
+        final int newRowCount = this.neuronCount;
+        
+        // Count the synapses of each row.
+        
+        final int[] newRowStarts = new int[newRowCount + 1];
+        
+        for (int i = 0; i < this.rowCount; i++) {
+            
+            if (this.neurons[i] == null) {
+                continue;
+            }
+            
+            for (int k = this.rowStarts[i]; k < this.rowStarts[i + 1]; k++) {
+                if (this.neurons[this.sources[k]] != null) {
+                    newRowStarts[i + 1]++;
+                }
+            }
+            
+        } // End for(i)
+        
+        for (int p = 0; p < this.pendingCount; p++) {
+            if (isLive(this.pendingSources[p], this.pendingTargets[p])) {
+                newRowStarts[this.pendingTargets[p] + 1]++;
+            }
+        }
+        
+        for (int i = 0; i < newRowCount; i++) {
+            newRowStarts[i + 1] += newRowStarts[i];
+        }
+        
+        // Fill the rows, current synapses first.
+        
+        final int synapseCount = newRowStarts[newRowCount];
+        final int[] newSources = new int[synapseCount];
+        final double[] newWeights = new double[synapseCount];
+        final RepastEdge<?>[] newEdges = new RepastEdge<?>[synapseCount];
+        final int[] rowEnds = Arrays.copyOf(newRowStarts, newRowCount);
+        
+        for (int i = 0; i < this.rowCount; i++) {
+            
+            if (this.neurons[i] == null) {
+                continue;
+            }
+            
+            for (int k = this.rowStarts[i]; k < this.rowStarts[i + 1]; k++) {
+                
+                if (this.neurons[this.sources[k]] != null) {
+                    
+                    final int position = rowEnds[i]++;
+                    newSources[position] = this.sources[k];
+                    newWeights[position] = this.weights[k];
+                    newEdges[position] = this.edges[k];
+                    
+                } // End if()
+                
+            } // End for(k)
+            
+        } // End for(i)
+        
+        for (int p = 0; p < this.pendingCount; p++) {
+            
+            if (isLive(this.pendingSources[p], this.pendingTargets[p])) {
+                
+                final int position = rowEnds[this.pendingTargets[p]]++;
+                newSources[position] = this.pendingSources[p];
+                newWeights[position] = this.pendingWeights[p];
+                newEdges[position] = this.pendingEdges[p];
+                
+            } // End if()
+            
+            this.pendingEdges[p] = null;
+            
+        } // End for(p)
+        
+        this.rowCount = newRowCount;
+        this.rowStarts = newRowStarts;
+        this.sources = newSources;
+        this.weights = newWeights;
+        this.edges = newEdges;
+        this.pendingCount = 0;
+        Arrays.fill(this.pendingCounts, 0, newRowCount, 0);
+        
+        // No synapse refers to the removed neurons any more.
+        
+        if (this.freeIndexes.length < this.freeCount + this.removedCount) {
+            this.freeIndexes = Arrays.copyOf(this.freeIndexes,
+                    this.freeCount + this.removedCount);
+        }
+        
+        System.arraycopy(this.removedIndexes, 0,
+                this.freeIndexes, this.freeCount, this.removedCount);
+        this.freeCount += this.removedCount;
+        this.removedCount = 0;
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Synapse rows rebuilt: " + newRowCount
+                    + " neurons, " + synapseCount + " synapses.");
+        }
+        
+    } // End of rebuildRows()
+    
+    
+    /**
+     * Indicates if both ends of a synapse are still in the context.
+     *
+     * @param source The index of the source neuron.
+     * @param target The index of the target neuron.
+     * @return {@code true} if both neurons are in the context, {@code false}
+     *         otherwise.
+     */
+    private boolean isLive(final int source, final int target) {
+        return (this.neurons[source] != null)
+                && (this.neurons[target] != null);
+    }
+    
+    
+    /**
+     * Gives an index to a neuron added to the context.
+     *
+     * @param neuron The neuron.
+     */
+    private void addNeuron(final Neuron neuron) {
+        
+        final int index;
+        
+        if (this.freeCount > 0) {
+            
+            index = this.freeIndexes[--this.freeCount];
+            
+        } else {
+            
+            if (this.neuronCount == this.neurons.length) {
+                final int capacity = 2 * this.neuronCount;
+                this.neurons = Arrays.copyOf(this.neurons, capacity);
+                this.activations = Arrays.copyOf(this.activations, capacity);
+                this.previousActivations =
+                        Arrays.copyOf(this.previousActivations, capacity);
+                this.pendingCounts =
+                        Arrays.copyOf(this.pendingCounts, capacity);
+            }
+            
+            index = this.neuronCount++;
+            
+        } // End if()
+        
+        this.neurons[index] = neuron;
+        this.activations[index] = neuron.activation;
+        this.previousActivations[index] = neuron.activation;
+        neuron.synapseIndex = index;
+        
+    } // End of addNeuron()
+    
+    
+    /**
+     * Takes the index of a neuron removed from the context. The index is
+     * only freed once the rows are rebuilt without its synapses.
+     *
+     * @param neuron The neuron.
+     */
+    private void removeNeuron(final Neuron neuron) {
+        
+        final int index = neuron.synapseIndex;
+        
+        if (index < 0) {
+            return;
+        }
+        
+        this.neurons[index] = null;
+        this.activations[index] = 0;
+        this.previousActivations[index] = 0;
+        neuron.synapseIndex = -1;
+        
+        if (this.removedCount == this.removedIndexes.length) {
+            this.removedIndexes = Arrays.copyOf(this.removedIndexes,
+                    2 * this.removedCount);
+        }
+        
+        this.removedIndexes[this.removedCount++] = index;
+        
+    } // End of removeNeuron()
+    
+    
+    // INTERFACES IMPLEMENTATION -----------------------------------------------
+    
+    
+    /**
+     * Tracks the neurons added to or removed from the context.
+     *
+     * @param event The context event.
+     */
+    @Override // ContextListener
+    public void eventOccured(final ContextEvent<Object> event) {
+        
+        if (!(event.getTarget() instanceof Neuron)) {
+            return;
+        }
+        
+        final Neuron neuron = (Neuron) event.getTarget();
+        
+        switch (event.getType()) {
+        
+        case AGENT_ADDED:
+            addNeuron(neuron);
+            break;
+        
+        case AGENT_REMOVED:
+            removeNeuron(neuron);
+            break;
+        
+        default:
+            break;
+            
+        } // End switch()
+        
+    } // End of eventOccured()
+    
+    
+    // NESTED CLASSES ----------------------------------------------------------
+    
+    
+    /**
+     * A task calculating the activation of the neurons in a range of
+     * indexes, splitting it in halves until ranges are small enough.
+     */
+    private final class ActivationTask extends RecursiveAction {
+        
+        
+        // Required by the serializable task.
+        private static final long serialVersionUID = 1L;
+        
+        
+        // The first index of the range.
+        private final int fromIndex;
+        
+        
+        // The index after the last index of the range.
+        private final int toIndex;
+        
+        
+        // The largest range calculated without splitting.
+        private final int neuronsPerTask;
+        
+        
+        /**
+         * Creates a new activation task.
+         *
+         * @param newFromIndex The first index of the range.
+         * @param newToIndex The index after the last index of the range.
+         * @param newNeuronsPerTask The largest range calculated without
+         *                          splitting.
+         */
+        ActivationTask(final int newFromIndex, final int newToIndex,
+                final int newNeuronsPerTask) {
+            
+            this.fromIndex = newFromIndex;
+            this.toIndex = newToIndex;
+            this.neuronsPerTask = newNeuronsPerTask;
+            
+        } // End of ActivationTask()
+        
+        
+        /**
+         * Calculates the range, or each half of it in parallel.
+         */
+        @Override // RecursiveAction
+        protected void compute() {
+            
+            if (this.toIndex - this.fromIndex <= this.neuronsPerTask) {
+                
+                calculateActivations(this.fromIndex, this.toIndex);
+                
+            } else {
+                
+                final int middleIndex = (this.fromIndex + this.toIndex) >>> 1;
+                
+                invokeAll(new ActivationTask(
+                                this.fromIndex, middleIndex,
+                                this.neuronsPerTask),
+                        new ActivationTask(
+                                middleIndex, this.toIndex,
+                                this.neuronsPerTask));
+                
+            } // End if()
+            
+        } // End of compute()
+        
+        
+    } // End of ActivationTask class
+    
+    
+} // End of SynapseStore class
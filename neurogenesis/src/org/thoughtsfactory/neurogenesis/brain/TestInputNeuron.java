@@ -72,10 +72,12 @@ public class TestInputNeuron extends InputNeuron {
     @Override // InputNeuron
     public void update() {
 
-        this.activation = this.sensor.getValue();
+        setActivation(this.sensor.getValue());
 
-        logger.info("Test input neuron activation (" 
-                + getSensor().getLabel() + ") : " + this.activation);
+        if (logger.isInfoEnabled()) {
+            logger.info("Test input neuron activation ("
+                    + getSensor().getLabel() + ") : " + this.activation);
+        }
         
     } // End of update()
     
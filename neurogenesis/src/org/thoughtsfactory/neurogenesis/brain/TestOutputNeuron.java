@@ -93,19 +93,28 @@ public class TestOutputNeuron extends OutputNeuron {
             
             Neuron inputNeuron = (Neuron) inputEdge.getSource();
             
-            logger.debug("Input neuron: activation = " 
-                    + inputNeuron.getActivation() + ", weight = " 
-                    + inputEdge.getWeight());
+            double inputActivation =
+                    this.synapses.getInputActivation(inputNeuron);
+            
+            if (logger.isDebugEnabled()) {
+                logger.debug("Input neuron: activation = "
+                        + inputActivation + ", weight = "
+                        + inputEdge.getWeight());
+            }
 
-            netInput += inputNeuron.getActivation() * inputEdge.getWeight();
+            netInput += inputActivation * inputEdge.getWeight();
             
         } // End for(inputEdge)
         
-        logger.debug("Net input: " + netInput);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Net input: " + netInput);
+        }
         
         // Bipolar sigmoid function.
-        this.activation = (2 / (1 + Math.pow(Math.E, -netInput))) - 1;
-        logger.debug("Activation: " + this.activation);
+        setActivation((2 / (1 + Math.pow(Math.E, -netInput))) - 1);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Activation: " + this.activation);
+        }
         
     } // calculateActivation()
 
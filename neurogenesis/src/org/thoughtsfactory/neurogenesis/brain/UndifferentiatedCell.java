@@ -1,6 +1,9 @@
 package org.thoughtsfactory.neurogenesis.brain;
 
 import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.Configuration;
+import org.thoughtsfactory.neurogenesis.TickProfiler;
+import org.thoughtsfactory.neurogenesis.TickProfiler.Probe;
 import org.thoughtsfactory.neurogenesis.genetics.RegulatoryNetwork;
 
 import repast.simphony.context.Context;
@@ -79,7 +82,8 @@ public class UndifferentiatedCell extends GeneRegulatedCell {
 
     
     /**
-     * Execute the life cycle of an undifferentiated cell.
+     * Execute the life cycle of an undifferentiated cell, unless it is run in
+     * phases across all cells.
      * 
      * This method is scheduled for execution at every tick of the simulation
      * with the same priority given to most cellular agents.
@@ -88,39 +92,70 @@ public class UndifferentiatedCell extends GeneRegulatedCell {
             priority = ScheduleParameters.RANDOM_PRIORITY)
     public void update() {
 
-        absorbProductsFromMatrix();
-        updateRegulatoryNetwork();
-        updateCellConcentrations();
+        if (!Configuration.getInstance().isPhasedCellUpdate()) {
+            
+            final long startTime = TickProfiler.start();
+            updateLifeCycle();
+            TickProfiler.stop(Probe.UNDIFFERENTIATED_CELLS, startTime);
+            
+        } // End if()
+        
+    } // End of update()
+    
+    
+    /**
+     * Handles the cellular events of an undifferentiated cell.
+     */
+    @Override // GeneRegulatedCell
+    protected void handleLifeCycleEvents() {
                 
         // Handles cell death.
-        if (!cellDeathHandler()) {
+        long startTime = TickProfiler.start();
+        final boolean died = cellDeathHandler();
+        TickProfiler.stop(Probe.DEATH, startTime);
             
-            // Handles cellular division.
-            if (!cellDivisionHandler()) {
+        if (died) {
+            return;
+        }
                 
-                // Handles cellular differentiation.
-                if (!cellDifferentiationHandler()) {
+        // Handles cellular division.
+        startTime = TickProfiler.start();
+        final boolean divided = cellDivisionHandler();
+        TickProfiler.stop(Probe.DIVISION, startTime);
                 
-                    // Handles cell adhesion.
-                    if (this.cellAdhesionEnabled) {
-                        cellAdhesionHandler();
-                    }
-
-                    // Handles mutations.
-                    //cellMutationHandler();
+        if (divided) {
+            return;
+        }
+
+        // Handles cellular differentiation.
+        startTime = TickProfiler.start();
+        final boolean differentiated = cellDifferentiationHandler();
+        TickProfiler.stop(Probe.DIFFERENTIATION, startTime);
                     
-                    // Handles movement.
-                    cellMovementHandler();
+        if (differentiated) {
+            return;
+        }
                     
-                    expelProductsToMatrix();
+        // Handles cell adhesion.
+        if (this.cellAdhesionEnabled) {
+            startTime = TickProfiler.start();
+            cellAdhesionHandler();
+            TickProfiler.stop(Probe.ADHESION, startTime);
+        }
                     
-                } // End if()
+        // Handles mutations.
+        //cellMutationHandler();
                 
-            } // End if()
-
-        } // End if()
+        // Handles movement.
+        startTime = TickProfiler.start();
+        cellMovementHandler();
+        TickProfiler.stop(Probe.MOVEMENT, startTime);
+
+        startTime = TickProfiler.start();
+        expelProductsToMatrix();
+        TickProfiler.stop(Probe.EXPEL, startTime);
         
-    } // End of update()
+    } // End of handleLifeCycleEvents()
 
     
     /**
@@ -134,8 +169,10 @@ public class UndifferentiatedCell extends GeneRegulatedCell {
         double neurogenConcentration = this.membraneChannels
                 .get(CellProductType.NEUROGEN).getConcentration();
         
-        logger.debug("Cell differentiation regulator concentration: " 
-                + neurogenConcentration);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Cell differentiation regulator concentration: "
+                    + neurogenConcentration);
+        }
         
         if (checkConcentrationTrigger(neurogenConcentration, true)) {
             
@@ -144,6 +181,7 @@ public class UndifferentiatedCell extends GeneRegulatedCell {
                     
             @SuppressWarnings("unchecked")
             Context<Object> context = ContextUtils.getContext(this);
+            releaseGridCell();
             context.remove(this);
 
             Neuron neuron = CellFactory.getNeuronFrom(this);
@@ -151,8 +189,10 @@ public class UndifferentiatedCell extends GeneRegulatedCell {
             
             neuron.moveTo(pt);
 
-            logger.info("Cell differentiation event: regulator = " 
-                    + neurogenConcentration);
+            if (logger.isInfoEnabled()) {
+                logger.info("Cell differentiation event: regulator = "
+                        + neurogenConcentration);
+            }
 
             return true;
                 
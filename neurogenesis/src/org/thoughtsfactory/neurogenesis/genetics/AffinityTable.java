@@ -0,0 +1,161 @@
+package org.thoughtsfactory.neurogenesis.genetics;
+
+
+/**
+ * An affinity table caches the affinity of every trans-acting genetic element
+ * of a genome for every cis-acting one. Trans-acting elements (the sources)
+ * are the trans-elements of the regulatory units and the input elements;
+ * cis-acting elements (the targets) are the cis-elements of the regulatory
+ * units and the output elements.
+ *
+ * An affinity table never changes once built. Replacing a genetic element
+ * returns a new table in which only the row or the column of that element
+ * is computed again, the rest being copied over.
+ *
+ * @author Robert Langlois
+ */
+class AffinityTable {
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The trans-acting genetic elements, one per row.
+    private final GeneticElement[] sourceElements;
+    
+    
+    // The cis-acting genetic elements, one per column.
+    private final GeneticElement[] targetElements;
+    
+    
+    // The affinities, one row of targetElements.length values per source.
+    private final double[] affinities;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new affinity table instance.
+     *
+     * @param newSourceElements The trans-acting genetic elements.
+     * @param newTargetElements The cis-acting genetic elements.
+     */
+    AffinityTable(final GeneticElement[] newSourceElements,
+            final GeneticElement[] newTargetElements) { // package access.
+        
+        this.sourceElements = newSourceElements.clone();
+        this.targetElements = newTargetElements.clone();
+        this.affinities = new double[this.sourceElements.length
+                                     * this.targetElements.length];
+        
+        for (int source = 0; source < this.sourceElements.length; source++) {
+            computeRow(source);
+        }
+    
+    } // End of AffinityTable(GeneticElement[], GeneticElement[])
+    
+    
+    /**
+     * Creates a copy of an existing affinity table.
+     *
+     * @param otherTable The affinity table to copy.
+     */
+    private AffinityTable(final AffinityTable otherTable) {
+        
+        this.sourceElements = otherTable.sourceElements.clone();
+        this.targetElements = otherTable.targetElements.clone();
+        this.affinities = otherTable.affinities.clone();
+    
+    } // End of AffinityTable(AffinityTable)
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the affinity of a trans-acting element for a cis-acting element.
+     *
+     * @param source The index of the trans-acting element.
+     * @param target The index of the cis-acting element.
+     * @return The affinity between the two genetic elements.
+     */
+    double getAffinity(final int source, final int target) {
+        return this.affinities[source * this.targetElements.length + target];
+    }
+    
+    
+    /**
+     * Returns a copy of this table where a trans-acting element is replaced.
+     *
+     * @param source The index of the trans-acting element to replace.
+     * @param newElement The replacement genetic element.
+     * @return The new affinity table.
+     */
+    AffinityTable replaceSourceElement(final int source,
+            final GeneticElement newElement) {
+        
+        AffinityTable newTable = new AffinityTable(this);
+        newTable.sourceElements[source] = newElement;
+        newTable.computeRow(source);
+        
+        return newTable;
+    
+    } // End of replaceSourceElement()
+    
+    
+    /**
+     * Returns a copy of this table where a cis-acting element is replaced.
+     *
+     * @param target The index of the cis-acting element to replace.
+     * @param newElement The replacement genetic element.
+     * @return The new affinity table.
+     */
+    AffinityTable replaceTargetElement(final int target,
+            final GeneticElement newElement) {
+        
+        AffinityTable newTable = new AffinityTable(this);
+        newTable.targetElements[target] = newElement;
+        newTable.computeColumn(target);
+        
+        return newTable;
+    
+    } // End of replaceTargetElement()
+    
+    
+    /**
+     * Computes the affinities of a trans-acting element for all cis-acting
+     * elements.
+     *
+     * @param source The index of the trans-acting element.
+     */
+    private void computeRow(final int source) {
+        
+        int row = source * this.targetElements.length;
+        
+        for (int target = 0; target < this.targetElements.length; target++) {
+            this.affinities[row + target] = this.sourceElements[source]
+                    .getAffinityForCisElement(this.targetElements[target]);
+        }
+    
+    } // End of computeRow()
+    
+    
+    /**
+     * Computes the affinities of all trans-acting elements for a cis-acting
+     * element.
+     *
+     * @param target The index of the cis-acting element.
+     */
+    private void computeColumn(final int target) {
+        
+        for (int source = 0; source < this.sourceElements.length; source++) {
+            this.affinities[source * this.targetElements.length + target] =
+                    this.sourceElements[source].getAffinityForCisElement(
+                            this.targetElements[target]);
+        }
+    
+    } // End of computeColumn()
+
+
+} // End of AffinityTable class
@@ -0,0 +1,539 @@
+package org.thoughtsfactory.neurogenesis.genetics;
+
+
+/**
+ * The compiled form of a regulatory network. The genome is lowered once into
+ * flat affinity matrices so that updating the network becomes a tight loop
+ * over primitive arrays:
+ * <ul>
+ * <li>unit affinities: for each pair of regulatory units (u, v), the sum of
+ *     the affinities between the trans-elements of v and the cis-elements of
+ *     u;</li>
+ * <li>input affinities: for each regulatory unit u and input element i, the
+ *     sum of the affinities between i and the cis-elements of u;</li>
+ * <li>output affinities: for each output element o and regulatory unit v, the
+ *     sum of the affinities between the trans-elements of v and o.</li>
+ * </ul>
+ * All trans-elements of a unit share the concentration of the unit, so these
+ * sums yield the same activations as evaluating each pair of genetic elements
+ * in turn. A compiled network holds no concentration at all and can thus be
+ * shared by all regulatory networks built from the same genome.
+ *
+ * The matrices are reduced from an {@link AffinityTable}. When a genetic
+ * element is replaced by a mutation, only the affected row or column of the
+ * table and of the matrices is computed again.
+ *
+ * @author Robert Langlois
+ */
+class CompiledRegulatoryNetwork {
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The number of regulatory units.
+    private final int unitCount;
+    
+    
+    // The number of input genetic elements.
+    private final int inputCount;
+    
+    
+    // The number of output genetic elements.
+    private final int outputCount;
+    
+    
+    // The unit to unit affinities, one row of unitCount values per unit.
+    private final double[] unitAffinities;
+    
+    
+    // The input to unit affinities, one row of inputCount values per unit.
+    private final double[] inputAffinities;
+    
+    
+    // The unit to output affinities, one row of unitCount values per output.
+    private final double[] outputAffinities;
+    
+    
+    // The affinities of all individual genetic elements.
+    private final AffinityTable affinityTable;
+    
+    
+    // The first row of the trans-elements of each unit in the affinity table.
+    private final int[] transOffsets;
+    
+    
+    // The first column of the cis-elements of each unit in the affinity table.
+    private final int[] cisOffsets;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Compiles a regulatory network.
+     *
+     * @param regulatoryUnits The set of regulatory units.
+     * @param inputElements The set of input genetic elements.
+     * @param outputElements The set of output genetic elements.
+     */
+    CompiledRegulatoryNetwork(final RegulatoryUnit[] regulatoryUnits,
+            final GeneticElement[] inputElements,
+            final GeneticElement[] outputElements) { // package access.
+        
+        this.unitCount = regulatoryUnits.length;
+        this.inputCount = inputElements.length;
+        this.outputCount = outputElements.length;
+        
+        this.transOffsets = new int[this.unitCount + 1];
+        this.cisOffsets = new int[this.unitCount + 1];
+        
+        for (int u = 0; u < this.unitCount; u++) {
+            this.transOffsets[u + 1] = this.transOffsets[u]
+                    + regulatoryUnits[u].getTransElements().length;
+            this.cisOffsets[u + 1] = this.cisOffsets[u]
+                    + regulatoryUnits[u].getCisElements().length;
+        }
+        
+        // Rows: trans-elements then inputs; columns: cis-elements then outputs.
+        GeneticElement[] sourceElements = new GeneticElement[
+                this.transOffsets[this.unitCount] + this.inputCount];
+        GeneticElement[] targetElements = new GeneticElement[
+                this.cisOffsets[this.unitCount] + this.outputCount];
+        
+        for (int u = 0; u < this.unitCount; u++) {
+            
+            GeneticElement[] transElements =
+                    regulatoryUnits[u].getTransElements();
+            System.arraycopy(transElements, 0, sourceElements,
+                    this.transOffsets[u], transElements.length);
+            
+            GeneticElement[] cisElements = regulatoryUnits[u].getCisElements();
+            System.arraycopy(cisElements, 0, targetElements,
+                    this.cisOffsets[u], cisElements.length);
+        
+        } // End for(u)
+        
+        System.arraycopy(inputElements, 0, sourceElements,
+                this.transOffsets[this.unitCount], this.inputCount);
+        System.arraycopy(outputElements, 0, targetElements,
+                this.cisOffsets[this.unitCount], this.outputCount);
+        
+        this.affinityTable = new AffinityTable(sourceElements, targetElements);
+        
+        this.unitAffinities = new double[this.unitCount * this.unitCount];
+        this.inputAffinities = new double[this.unitCount * this.inputCount];
+        this.outputAffinities = new double[this.outputCount * this.unitCount];
+        
+        for (int u = 0; u < this.unitCount; u++) {
+            reduceUnitRow(u);
+        }
+        
+        for (int o = 0; o < this.outputCount; o++) {
+            reduceOutputRow(o);
+        }
+    
+    } /* End of CompiledRegulatoryNetwork(
+            RegulatoryUnit[], GeneticElement[], GeneticElement[]) */
+    
+    
+    /**
+     * Creates a copy of a compiled network with a new affinity table.
+     *
+     * @param otherNetwork The compiled network to copy.
+     * @param newAffinityTable The affinity table of the new compiled network.
+     */
+    private CompiledRegulatoryNetwork(
+            final CompiledRegulatoryNetwork otherNetwork,
+            final AffinityTable newAffinityTable) {
+        
+        this.unitCount = otherNetwork.unitCount;
+        this.inputCount = otherNetwork.inputCount;
+        this.outputCount = otherNetwork.outputCount;
+        
+        this.unitAffinities = otherNetwork.unitAffinities.clone();
+        this.inputAffinities = otherNetwork.inputAffinities.clone();
+        this.outputAffinities = otherNetwork.outputAffinities.clone();
+        
+        // The structure of the genome does not change with mutations.
+        this.transOffsets = otherNetwork.transOffsets;
+        this.cisOffsets = otherNetwork.cisOffsets;
+        
+        this.affinityTable = newAffinityTable;
+    
+    } // End of CompiledRegulatoryNetwork(CompiledRegulatoryNetwork, ...)
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the number of regulatory units.
+     *
+     * @return The number of regulatory units.
+     */
+    int getUnitCount() {
+        return this.unitCount;
+    }
+    
+    
+    /**
+     * Returns the number of input genetic elements.
+     *
+     * @return The number of input genetic elements.
+     */
+    int getInputCount() {
+        return this.inputCount;
+    }
+    
+    
+    /**
+     * Returns the number of output genetic elements.
+     *
+     * @return The number of output genetic elements.
+     */
+    int getOutputCount() {
+        return this.outputCount;
+    }
+    
+    
+    /**
+     * Calculates the new concentration of every regulatory unit. Every unit
+     * receives the concentrations from the previous update, so
+     * {@code newConcentrations} must not be the same array as
+     * {@code currentConcentrations}.
+     *
+     * @param inputConcentrations The concentration of each input element.
+     * @param currentConcentrations The current concentration of each unit.
+     * @param expressed Indicates if the trans products of the units are
+     *                  present yet, i.e. if the network was updated before.
+     * @param newConcentrations Receives the new concentration of each unit.
+     */
+    void updateConcentrations(final double[] inputConcentrations,
+            final double[] currentConcentrations, final boolean expressed,
+            final double[] newConcentrations) {
+        
+        for (int u = 0; u < this.unitCount; u++) {
+            
+            double activation = 0;
+            
+            if (expressed) {
+                int row = u * this.unitCount;
+                for (int v = 0; v < this.unitCount; v++) {
+                    activation += this.unitAffinities[row + v]
+                            * currentConcentrations[v];
+                }
+            }
+            
+            int row = u * this.inputCount;
+            for (int i = 0; i < this.inputCount; i++) {
+                activation += this.inputAffinities[row + i]
+                        * inputConcentrations[i];
+            }
+            
+            newConcentrations[u] =
+                    integrate(currentConcentrations[u], activation);
+        
+        } // End for(u)
+    
+    } // End of updateConcentrations()
+    
+    
+    /**
+     * Calculates the activation of every regulatory unit for a block of
+     * networks sharing this compiled network, as two matrix products: the
+     * unit affinities by the unit concentrations and the input affinities by
+     * the input concentrations. Blocks hold one row per unit or input and
+     * one column per network, so the innermost loop runs over the networks
+     * through contiguous values. The terms of each activation are summed in
+     * the same order as by {@link #updateConcentrations}.
+     *
+     * @param unitBlock The concentration of each unit in each network, or
+     *                  {@code 0} if the trans products of the network are
+     *                  not present yet.
+     * @param inputBlock The concentration of each input in each network.
+     * @param networkCount The number of networks, i.e. of columns.
+     * @param activationBlock Receives the activation of each unit in each
+     *                        network.
+     */
+    void calculateActivations(final double[] unitBlock,
+            final double[] inputBlock, final int networkCount,
+            final double[] activationBlock) { // package access.
+        
+        for (int u = 0; u < this.unitCount; u++) {
+            
+            final int row = u * networkCount;
+            final int unitRow = u * this.unitCount;
+            final int inputRow = u * this.inputCount;
+            
+            for (int n = 0; n < networkCount; n++) {
+                activationBlock[row + n] = 0;
+            }
+            
+            for (int v = 0; v < this.unitCount; v++) {
+                final double affinity = this.unitAffinities[unitRow + v];
+                final int sourceRow = v * networkCount;
+                for (int n = 0; n < networkCount; n++) {
+                    activationBlock[row + n] +=
+                            affinity * unitBlock[sourceRow + n];
+                }
+            }
+            
+            for (int i = 0; i < this.inputCount; i++) {
+                final double affinity = this.inputAffinities[inputRow + i];
+                final int sourceRow = i * networkCount;
+                for (int n = 0; n < networkCount; n++) {
+                    activationBlock[row + n] +=
+                            affinity * inputBlock[sourceRow + n];
+                }
+            }
+            
+        } // End for(u)
+        
+    } // End of calculateActivations()
+    
+    
+    /**
+     * Integrates the concentration of a regulatory unit over one update.
+     *
+     * @param concentration The current concentration of the unit.
+     * @param activation The activation of the unit.
+     * @return The new concentration of the unit.
+     */
+    static double integrate(final double concentration,
+            final double activation) { // package access.
+        
+        final double deltaConcentration = Math.tanh(activation / 2)
+                * ((activation >= 0) ? 1 - concentration : concentration)
+                * RegulatoryNetwork.DELTA_INTEGRATION_RATE;
+        
+        final double newConcentration = concentration + deltaConcentration;
+        
+        if (newConcentration < 0) {
+            throw new IllegalStateException(
+                    "Regulatory unit concentration is negative! ("
+                            + newConcentration + ")");
+        }
+        
+        return newConcentration;
+        
+    } // End of integrate()
+    
+    
+    /**
+     * Calculates the activation of an output genetic element.
+     *
+     * @param outputIndex The index of the output element.
+     * @param concentrations The current concentration of each unit.
+     * @param expressed Indicates if the trans products of the units are
+     *                  present yet.
+     * @return The activation of the output element.
+     */
+    double calculateOutputActivation(final int outputIndex,
+            final double[] concentrations, final boolean expressed) {
+        
+        double activation = 0;
+        
+        if (expressed) {
+            int row = outputIndex * this.unitCount;
+            for (int v = 0; v < this.unitCount; v++) {
+                activation += this.outputAffinities[row + v]
+                        * concentrations[v];
+            }
+        }
+        
+        return activation;
+    
+    } // End of calculateOutputActivation()
+    
+    
+    /**
+     * Returns a compiled network where a cis-element of a unit is replaced.
+     *
+     * @param unit The index of the regulatory unit.
+     * @param cisElement The index of the cis-element within the unit.
+     * @param newElement The replacement genetic element.
+     * @return The new compiled network.
+     */
+    CompiledRegulatoryNetwork replaceCisElement(final int unit,
+            final int cisElement, final GeneticElement newElement) {
+        
+        CompiledRegulatoryNetwork newNetwork = new CompiledRegulatoryNetwork(
+                this, this.affinityTable.replaceTargetElement(
+                        this.cisOffsets[unit] + cisElement, newElement));
+        newNetwork.reduceUnitRow(unit);
+        
+        return newNetwork;
+    
+    } // End of replaceCisElement()
+    
+    
+    /**
+     * Returns a compiled network where a trans-element of a unit is replaced.
+     *
+     * @param unit The index of the regulatory unit.
+     * @param transElement The index of the trans-element within the unit.
+     * @param newElement The replacement genetic element.
+     * @return The new compiled network.
+     */
+    CompiledRegulatoryNetwork replaceTransElement(final int unit,
+            final int transElement, final GeneticElement newElement) {
+        
+        CompiledRegulatoryNetwork newNetwork = new CompiledRegulatoryNetwork(
+                this, this.affinityTable.replaceSourceElement(
+                        this.transOffsets[unit] + transElement, newElement));
+        newNetwork.reduceUnitColumn(unit);
+        
+        return newNetwork;
+    
+    } // End of replaceTransElement()
+    
+    
+    /**
+     * Returns a compiled network where an input element is replaced.
+     *
+     * @param inputIndex The index of the input element.
+     * @param newElement The replacement genetic element.
+     * @return The new compiled network.
+     */
+    CompiledRegulatoryNetwork replaceInputElement(final int inputIndex,
+            final GeneticElement newElement) {
+        
+        CompiledRegulatoryNetwork newNetwork = new CompiledRegulatoryNetwork(
+                this, this.affinityTable.replaceSourceElement(
+                        this.transOffsets[this.unitCount] + inputIndex,
+                        newElement));
+        
+        for (int u = 0; u < this.unitCount; u++) {
+            newNetwork.inputAffinities[u * this.inputCount + inputIndex] =
+                    newNetwork.sumAffinities(
+                            this.transOffsets[this.unitCount] + inputIndex,
+                            this.transOffsets[this.unitCount] + inputIndex + 1,
+                            this.cisOffsets[u], this.cisOffsets[u + 1]);
+        }
+        
+        return newNetwork;
+    
+    } // End of replaceInputElement()
+    
+    
+    /**
+     * Returns a compiled network where an output element is replaced.
+     *
+     * @param outputIndex The index of the output element.
+     * @param newElement The replacement genetic element.
+     * @return The new compiled network.
+     */
+    CompiledRegulatoryNetwork replaceOutputElement(final int outputIndex,
+            final GeneticElement newElement) {
+        
+        CompiledRegulatoryNetwork newNetwork = new CompiledRegulatoryNetwork(
+                this, this.affinityTable.replaceTargetElement(
+                        this.cisOffsets[this.unitCount] + outputIndex,
+                        newElement));
+        newNetwork.reduceOutputRow(outputIndex);
+        
+        return newNetwork;
+    
+    } // End of replaceOutputElement()
+    
+    
+    /**
+     * Reduces the affinities of all trans-acting elements for the cis-elements
+     * of a unit, i.e. the row of the unit in the unit and input matrices.
+     *
+     * @param unit The index of the regulatory unit.
+     */
+    private void reduceUnitRow(final int unit) {
+        
+        int inputOffset = this.transOffsets[this.unitCount];
+        
+        for (int v = 0; v < this.unitCount; v++) {
+            this.unitAffinities[unit * this.unitCount + v] = sumAffinities(
+                    this.transOffsets[v], this.transOffsets[v + 1],
+                    this.cisOffsets[unit], this.cisOffsets[unit + 1]);
+        }
+        
+        for (int i = 0; i < this.inputCount; i++) {
+            this.inputAffinities[unit * this.inputCount + i] = sumAffinities(
+                    inputOffset + i, inputOffset + i + 1,
+                    this.cisOffsets[unit], this.cisOffsets[unit + 1]);
+        }
+    
+    } // End of reduceUnitRow()
+    
+    
+    /**
+     * Reduces the affinities of the trans-elements of a unit for all
+     * cis-acting elements, i.e. the column of the unit in the unit and output
+     * matrices.
+     *
+     * @param unit The index of the regulatory unit.
+     */
+    private void reduceUnitColumn(final int unit) {
+        
+        int outputOffset = this.cisOffsets[this.unitCount];
+        
+        for (int u = 0; u < this.unitCount; u++) {
+            this.unitAffinities[u * this.unitCount + unit] = sumAffinities(
+                    this.transOffsets[unit], this.transOffsets[unit + 1],
+                    this.cisOffsets[u], this.cisOffsets[u + 1]);
+        }
+        
+        for (int o = 0; o < this.outputCount; o++) {
+            this.outputAffinities[o * this.unitCount + unit] = sumAffinities(
+                    this.transOffsets[unit], this.transOffsets[unit + 1],
+                    outputOffset + o, outputOffset + o + 1);
+        }
+    
+    } // End of reduceUnitColumn()
+    
+    
+    /**
+     * Reduces the affinities of the trans-elements of all units for an output
+     * element, i.e. the row of the output in the output matrix.
+     *
+     * @param outputIndex The index of the output element.
+     */
+    private void reduceOutputRow(final int outputIndex) {
+        
+        int outputOffset = this.cisOffsets[this.unitCount];
+        
+        for (int v = 0; v < this.unitCount; v++) {
+            this.outputAffinities[outputIndex * this.unitCount + v] =
+                    sumAffinities(
+                            this.transOffsets[v], this.transOffsets[v + 1],
+                            outputOffset + outputIndex,
+                            outputOffset + outputIndex + 1);
+        }
+    
+    } // End of reduceOutputRow()
+    
+    
+    /**
+     * Sums the affinities of a range of trans-acting elements for a range of
+     * cis-acting elements.
+     *
+     * @param sourceFrom The first trans-acting element (inclusive).
+     * @param sourceTo The last trans-acting element (exclusive).
+     * @param targetFrom The first cis-acting element (inclusive).
+     * @param targetTo The last cis-acting element (exclusive).
+     * @return The sum of all affinities.
+     */
+    private double sumAffinities(final int sourceFrom, final int sourceTo,
+            final int targetFrom, final int targetTo) {
+        
+        double affinity = 0;
+        
+        for (int target = targetFrom; target < targetTo; target++) {
+            for (int source = sourceFrom; source < sourceTo; source++) {
+                affinity += this.affinityTable.getAffinity(source, target);
+            }
+        }
+        
+        return affinity;
+    
+    } // End of sumAffinities()
+
+
+} // End of CompiledRegulatoryNetwork class
@@ -146,9 +146,11 @@ public class GeneticElement {
         double affinityDeltaX = this.affinityX - cisElement.affinityX;
         double affinityDeltaY = this.affinityY - cisElement.affinityY;
         
-        double affinity = Math.sqrt(Math.pow(affinityDeltaX, 2) 
-                + Math.pow(affinityDeltaY, 2)) * this.sign * cisElement.sign;
-        logger.debug("Affinity: " + affinity);
+        double affinity = Math.sqrt(affinityDeltaX * affinityDeltaX 
+                + affinityDeltaY * affinityDeltaY) * this.sign * cisElement.sign;
+        if (logger.isDebugEnabled()) {
+            logger.debug("Affinity: " + affinity);
+        }
     
         return affinity;
         
@@ -0,0 +1,471 @@
+package org.thoughtsfactory.neurogenesis.genetics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.thoughtsfactory.neurogenesis.RandomStream;
+
+
+/**
+ * A genome is the immutable structure of a regulatory network: its regulatory
+ * units with their cis- and trans-elements, its input elements and its output
+ * elements. It holds no concentration at all, so a single genome instance is
+ * shared by all the cells that descend from a common ancestor; a mutation
+ * produces a new genome that copies only the parts it changes.
+ *
+ * @author Robert Langlois
+ */
+public final class Genome {
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The set of regulatory units (or 'genes') of this genome.
+    private final RegulatoryUnit[] regulatoryUnits;
+    
+    
+    // The set of input genetic elements.
+    private final GeneticElement[] inputElements;
+    
+    
+    // The set of output genetic elements.
+    private final GeneticElement[] outputElements;
+    
+    
+    // The compiled form of this genome, built on first use.
+    private CompiledRegulatoryNetwork compiledNetwork = null;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new genome instance. The regulatory units must not be modified
+     * once they are part of a genome.
+     *
+     * @param newRegulatoryUnits The set of regulatory units.
+     * @param newInputElements The set of input genetic elements.
+     * @param newOutputElements The set of output genetic elements.
+     */
+    public Genome(final RegulatoryUnit[] newRegulatoryUnits,
+            final GeneticElement[] newInputElements,
+            final GeneticElement[] newOutputElements) {
+        
+        // Note: arrays are not cloned...
+        this.regulatoryUnits = newRegulatoryUnits;
+        this.inputElements = newInputElements;
+        this.outputElements = newOutputElements;
+    
+    } // End of Genome(RegulatoryUnit[], GeneticElement[], GeneticElement[])
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the number of regulatory units.
+     *
+     * @return The number of regulatory units.
+     */
+    public int getUnitCount() {
+        return this.regulatoryUnits.length;
+    }
+    
+    
+    /**
+     * Returns the number of input genetic elements.
+     *
+     * @return The number of input genetic elements.
+     */
+    public int getInputCount() {
+        return this.inputElements.length;
+    }
+    
+    
+    /**
+     * Returns the number of output genetic elements.
+     *
+     * @return The number of output genetic elements.
+     */
+    public int getOutputCount() {
+        return this.outputElements.length;
+    }
+    
+    
+    /**
+     * Returns the set of input genetic elements.
+     *
+     * @return An array of genetic elements.
+     */
+    public GeneticElement[] getInputElements() {
+        return this.inputElements.clone();
+    }
+    
+    
+    /**
+     * Returns the set of output genetic elements.
+     *
+     * @return An array of genetic elements.
+     */
+    public GeneticElement[] getOutputElements() {
+        return this.outputElements.clone();
+    }
+    
+    
+    /**
+     * Returns an input genetic element.
+     *
+     * @param inputIndex The index of the input element.
+     * @return The input genetic element.
+     */
+    GeneticElement getInputElement(final int inputIndex) { // package access.
+        return this.inputElements[inputIndex];
+    }
+    
+    
+    /**
+     * Returns an output genetic element.
+     *
+     * @param outputIndex The index of the output element.
+     * @return The output genetic element.
+     */
+    GeneticElement getOutputElement(final int outputIndex) { // package access.
+        return this.outputElements[outputIndex];
+    }
+    
+    
+    /**
+     * Returns a regulatory unit.
+     *
+     * @param unitIndex The index of the regulatory unit.
+     * @return The regulatory unit.
+     */
+    RegulatoryUnit getRegulatoryUnit(final int unitIndex) { // package access.
+        return this.regulatoryUnits[unitIndex];
+    }
+    
+    
+    /**
+     * Returns the compiled form of this genome, compiling it on first use.
+     * Compiled networks are immutable, so concurrent first uses at worst
+     * compile the genome twice.
+     *
+     * @return The compiled network.
+     */
+    CompiledRegulatoryNetwork getCompiledNetwork() { // package access.
+        
+        CompiledRegulatoryNetwork network = this.compiledNetwork;
+        
+        if (network == null) {
+            network = new CompiledRegulatoryNetwork(this.regulatoryUnits,
+                    this.inputElements, this.outputElements);
+            this.compiledNetwork = network;
+        }
+        
+        return network;
+    
+    } // End of getCompiledNetwork()
+    
+    
+    /**
+     * Returns the total genome length, including input and output genetic
+     * elements.
+     *
+     * @return The total length of the genome.
+     */
+    public int getGenomeLength() {
+        
+        int genomeLength = this.inputElements.length
+                + this.outputElements.length;
+        
+        for (RegulatoryUnit regulatoryUnit : this.regulatoryUnits) {
+            genomeLength += regulatoryUnit.getCisElements().length
+                    + regulatoryUnit.getTransElements().length;
+        }
+        
+        return genomeLength;
+    
+    } // End of getGenomeLength()
+    
+    
+    /**
+     * Writes this genome to a checkpoint: its regulatory units, then its
+     * input and output elements.
+     *
+     * @param out The checkpoint output.
+     * @throws IOException If the genome cannot be written.
+     */
+    public void write(final DataOutput out) throws IOException {
+        
+        out.writeInt(this.regulatoryUnits.length);
+        
+        for (RegulatoryUnit regulatoryUnit : this.regulatoryUnits) {
+            writeElements(out, regulatoryUnit.getCisElements());
+            writeElements(out, regulatoryUnit.getTransElements());
+        }
+        
+        writeElements(out, this.inputElements);
+        writeElements(out, this.outputElements);
+        
+    } // End of write()
+    
+    
+    /**
+     * Reads a genome written by {@link #write}.
+     *
+     * @param in The checkpoint input.
+     * @return A new genome, not compiled yet.
+     * @throws IOException If the genome cannot be read.
+     */
+    public static Genome read(final DataInput in) throws IOException {
+        
+        RegulatoryUnit[] newRegulatoryUnits = new RegulatoryUnit[in.readInt()];
+        
+        for (int u = 0; u < newRegulatoryUnits.length; u++) {
+            GeneticElement[] cisElements = readElements(in);
+            GeneticElement[] transElements = readElements(in);
+            newRegulatoryUnits[u] =
+                    new RegulatoryUnit(cisElements, transElements);
+        }
+        
+        GeneticElement[] newInputElements = readElements(in);
+        GeneticElement[] newOutputElements = readElements(in);
+        
+        return new Genome(newRegulatoryUnits,
+                newInputElements, newOutputElements);
+        
+    } // End of read()
+    
+    
+    /**
+     * Mutates one genetic element picked at random. This genome is left
+     * untouched: the mutation yields a new genome which shares every
+     * regulatory unit and element array the mutation did not change. When
+     * this genome is already compiled, the compiled form of the new genome
+     * is derived from it, computing again only the rows and columns of the
+     * mutated element.
+     *
+     * TODO: Experimental work. Not used.
+     *
+     * @param random The random stream of the mutated cell.
+     * @return The mutated genome.
+     */
+    public Genome mutate(final RandomStream random) {
+        
+        int genomeLength = getGenomeLength();
+        
+        int selectedGeneticElementPos =
+                random.nextIntFromTo(0, genomeLength - 1);
+        
+        CompiledRegulatoryNetwork network = this.compiledNetwork;
+        
+        if (selectedGeneticElementPos < this.inputElements.length) {
+            
+            GeneticElement[] newInputElements = this.inputElements.clone();
+            GeneticElement newGeneticElement = mutateGeneticElement(
+                    this.inputElements[selectedGeneticElementPos], random);
+            newInputElements[selectedGeneticElementPos] = newGeneticElement;
+            
+            Genome newGenome = new Genome(this.regulatoryUnits,
+                    newInputElements, this.outputElements);
+            
+            if (network != null) {
+                newGenome.compiledNetwork = network.replaceInputElement(
+                        selectedGeneticElementPos, newGeneticElement);
+            }
+            
+            return newGenome;
+        
+        } // End if()
+        
+        selectedGeneticElementPos -= this.inputElements.length;
+        
+        if (selectedGeneticElementPos < this.outputElements.length) {
+            
+            GeneticElement[] newOutputElements = this.outputElements.clone();
+            GeneticElement newGeneticElement = mutateGeneticElement(
+                    this.outputElements[selectedGeneticElementPos], random);
+            newOutputElements[selectedGeneticElementPos] = newGeneticElement;
+            
+            Genome newGenome = new Genome(this.regulatoryUnits,
+                    this.inputElements, newOutputElements);
+            
+            if (network != null) {
+                newGenome.compiledNetwork = network.replaceOutputElement(
+                        selectedGeneticElementPos, newGeneticElement);
+            }
+            
+            return newGenome;
+        
+        } // End if()
+        
+        selectedGeneticElementPos -= this.outputElements.length;
+        
+        for (int u = 0; u < this.regulatoryUnits.length; u++) {
+            
+            RegulatoryUnit regulatoryUnit = this.regulatoryUnits[u];
+            GeneticElement[] cisElements = regulatoryUnit.getCisElements();
+            GeneticElement[] transElements = regulatoryUnit.getTransElements();
+            
+            if (selectedGeneticElementPos
+                    < cisElements.length + transElements.length) {
+                
+                RegulatoryUnit newUnit = regulatoryUnit.clone();
+                RegulatoryUnit[] newUnits = this.regulatoryUnits.clone();
+                newUnits[u] = newUnit;
+                
+                Genome newGenome = new Genome(newUnits,
+                        this.inputElements, this.outputElements);
+                
+                if (selectedGeneticElementPos < cisElements.length) {
+                    
+                    GeneticElement selectedGeneticElement =
+                            cisElements[selectedGeneticElementPos];
+                    GeneticElement newGeneticElement = mutateGeneticElement(
+                            selectedGeneticElement, random);
+                    newUnit.replaceCisElement(selectedGeneticElement,
+                            newGeneticElement);
+                    
+                    if (network != null) {
+                        newGenome.compiledNetwork = network.replaceCisElement(
+                                u, selectedGeneticElementPos,
+                                newGeneticElement);
+                    }
+                
+                } else {
+                    
+                    selectedGeneticElementPos -= cisElements.length;
+                    
+                    GeneticElement selectedGeneticElement =
+                            transElements[selectedGeneticElementPos];
+                    GeneticElement newGeneticElement = mutateGeneticElement(
+                            selectedGeneticElement, random);
+                    newUnit.replaceTransElement(selectedGeneticElement,
+                            newGeneticElement);
+                    
+                    if (network != null) {
+                        newGenome.compiledNetwork = network.replaceTransElement(
+                                u, selectedGeneticElementPos,
+                                newGeneticElement);
+                    }
+                
+                } // End if()
+                
+                return newGenome;
+            
+            } // End if()
+            
+            selectedGeneticElementPos -=
+                    cisElements.length + transElements.length;
+        
+        } // End for(u)
+        
+        throw new IllegalStateException("No genetic element to mutate!");
+    
+    } // End of mutate()
+    
+    
+    /**
+     * Mutate a specific genetic element.
+     *
+     * TODO: Experimental work. Not used.
+     *
+     * @param geneticElement The genetic element to mutate.
+     * @param random The random stream of the mutated cell.
+     * @return A new genetic element that differs from the original one in
+     *         either its type, one of its affinity components or its sign.
+     */
+    private GeneticElement mutateGeneticElement(
+            final GeneticElement geneticElement, final RandomStream random) {
+        
+        GeneticElement.Type newType = geneticElement.getType();
+        double newAffinityX = geneticElement.getAffinityX();
+        double newAffinityY = geneticElement.getAffinityY();
+        int newSign = geneticElement.getSign();
+        
+        // 133 bits for a genetic element.
+        int bitPos = random.nextIntFromTo(0, 132);
+        
+        if (bitPos < 4) {
+            
+            // Genetic element type field.
+            int typePos = random
+                    .nextIntFromTo(0, GeneticElement.Type.values().length - 1);
+            newType = GeneticElement.Type.values()[typePos];
+        
+        } else if (bitPos < 68) {
+            
+            newAffinityX = random
+                    .nextDoubleFromTo(0, GenomeFactory.MAX_AFFINITY);
+        
+        } else if (bitPos < 132) {
+            
+            newAffinityY = random
+                    .nextDoubleFromTo(0, GenomeFactory.MAX_AFFINITY);
+        
+        } else {
+            
+            int randomInt = random.nextIntFromTo(0, 1);
+            newSign = (randomInt == 0) ? -1 : 1;
+        
+        } // End if()
+        
+        GeneticElement newGeneticElement = new GeneticElement(newType,
+                newAffinityX, newAffinityY, newSign);
+        
+        return newGeneticElement;
+    
+    } // End of mutateGeneticElement()
+
+
+    /**
+     * Writes a set of genetic elements to a checkpoint.
+     *
+     * @param out The checkpoint output.
+     * @param elements The genetic elements.
+     * @throws IOException If the elements cannot be written.
+     */
+    private static void writeElements(final DataOutput out,
+            final GeneticElement[] elements) throws IOException {
+        
+        out.writeInt(elements.length);
+        
+        for (GeneticElement element : elements) {
+            out.writeByte(element.getType().ordinal());
+            out.writeDouble(element.getAffinityX());
+            out.writeDouble(element.getAffinityY());
+            out.writeByte(element.getSign());
+        }
+        
+    } // End of writeElements()
+    
+    
+    /**
+     * Reads a set of genetic elements written by {@link #writeElements}.
+     *
+     * @param in The checkpoint input.
+     * @return The genetic elements.
+     * @throws IOException If the elements cannot be read.
+     */
+    private static GeneticElement[] readElements(final DataInput in)
+            throws IOException {
+        
+        final GeneticElement.Type[] types = GeneticElement.Type.values();
+        final GeneticElement[] elements = new GeneticElement[in.readInt()];
+        
+        for (int e = 0; e < elements.length; e++) {
+            final GeneticElement.Type type = types[in.readByte()];
+            final double affinityX = in.readDouble();
+            final double affinityY = in.readDouble();
+            elements[e] = new GeneticElement(
+                    type, affinityX, affinityY, in.readByte());
+        }
+        
+        return elements;
+        
+    } // End of readElements()
+    
+    
+} // End of Genome class
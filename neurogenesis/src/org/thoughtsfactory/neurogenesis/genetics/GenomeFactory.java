@@ -3,7 +3,7 @@ package org.thoughtsfactory.neurogenesis.genetics;
 import java.util.ArrayList;
 import java.util.List;
 
-import repast.simphony.random.RandomHelper;
+import org.thoughtsfactory.neurogenesis.RandomStream;
 
 
 /**
@@ -47,6 +47,23 @@ public class GenomeFactory {
     public static final double MAX_AFFINITY = 10.0;
     
     
+    // The random stream from which the genomes are drawn.
+    private final RandomStream random;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new factory.
+     *
+     * @param newRandom The random stream from which the genomes are drawn.
+     */
+    public GenomeFactory(final RandomStream newRandom) {
+        this.random = newRandom;
+    }
+    
+    
     // METHODS =================================================================
     
     
@@ -121,7 +138,7 @@ public class GenomeFactory {
         List<RegulatoryUnit> regulatoryUnits = new ArrayList<RegulatoryUnit>();
         
         for (int i = MIN_NUMBER_GENES; 
-                i <= RandomHelper.nextIntFromTo(MIN_NUMBER_GENES, 
+                i <= this.random.nextIntFromTo(MIN_NUMBER_GENES,
                         MAX_NUMBER_GENES); i++) {
             
             regulatoryUnits.add(getNewGene());
@@ -182,7 +199,7 @@ public class GenomeFactory {
         RegulatoryUnit regulatoryUnit = new RegulatoryUnit();
         
         for (int i = MIN_NUMBER_CIS_ELEMENTS; 
-                i <= RandomHelper.nextIntFromTo(MIN_NUMBER_CIS_ELEMENTS, 
+                i <= this.random.nextIntFromTo(MIN_NUMBER_CIS_ELEMENTS,
                         MAX_NUMBER_CIS_ELEMENTS); i++) {
             
             addNewGeneticElement(regulatoryUnit, GeneticElement.Type.CIS);
@@ -190,7 +207,7 @@ public class GenomeFactory {
         } // End for()
         
         for (int i = MIN_NUMBER_TRANS_ELEMENTS; 
-                i <= RandomHelper.nextIntFromTo(MIN_NUMBER_TRANS_ELEMENTS, 
+                i <= this.random.nextIntFromTo(MIN_NUMBER_TRANS_ELEMENTS,
                         MAX_NUMBER_TRANS_ELEMENTS); i++) {
             
             addNewGeneticElement(regulatoryUnit, GeneticElement.Type.TRANS);
@@ -212,10 +229,10 @@ public class GenomeFactory {
     private void addNewGeneticElement(final RegulatoryUnit regulatoryUnit, 
             final GeneticElement.Type elementType) {
         
-        double affinityX = RandomHelper.nextDoubleFromTo(0, MAX_AFFINITY);
-        double affinityY = RandomHelper.nextDoubleFromTo(0, MAX_AFFINITY);
+        double affinityX = this.random.nextDoubleFromTo(0, MAX_AFFINITY);
+        double affinityY = this.random.nextDoubleFromTo(0, MAX_AFFINITY);
         
-        int randomInt = RandomHelper.nextIntFromTo(0, 1);
+        int randomInt = this.random.nextIntFromTo(0, 1);
         int sign;
         if (randomInt == 0) {
             sign = -1;
@@ -238,11 +255,11 @@ public class GenomeFactory {
     private GeneticElement getNewGeneticElement(
     		final GeneticElement.Type type) {
         
-        double affinityX = RandomHelper.nextDoubleFromTo(0, MAX_AFFINITY);
-        double affinityY = RandomHelper.nextDoubleFromTo(0, MAX_AFFINITY);
+        double affinityX = this.random.nextDoubleFromTo(0, MAX_AFFINITY);
+        double affinityY = this.random.nextDoubleFromTo(0, MAX_AFFINITY);
         
         int sign;
-        int randomInt = RandomHelper.nextIntFromTo(0, 1);
+        int randomInt = this.random.nextIntFromTo(0, 1);
         if (randomInt == 0) {
             sign = -1;
         } else {
@@ -1,13 +1,14 @@
 package org.thoughtsfactory.neurogenesis.genetics;
 
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
-
-import repast.simphony.random.RandomHelper;
+import org.thoughtsfactory.neurogenesis.Configuration;
+import org.thoughtsfactory.neurogenesis.RandomStream;
 
 
 /**
@@ -18,11 +19,16 @@ import repast.simphony.random.RandomHelper;
  * in subunits that are analogous to 'genes'. It also defines a set of genetic
  * elements used to provide external input to the network as well as a set of
  * genetic elements for output from the network.
- * 
+ *
+ * The structure of the network is held by an immutable {@link Genome} shared
+ * by all the clones of the network; the network itself only holds the
+ * expression state of one cell, i.e. the concentration of each regulatory
+ * unit.
+ *
  * @author Robert Langlois
  */
 public class RegulatoryNetwork {
-
+    
     
     // CONSTANTS ===============================================================
     
@@ -37,119 +43,277 @@ public class RegulatoryNetwork {
     
     
     // Class logger for messages.
-    private final static Logger logger = 
-            Logger.getLogger(RegulatoryNetwork.class);    
-        
+    private final static Logger logger =
+            Logger.getLogger(RegulatoryNetwork.class);
     
-    // The set of regulatory units (or 'genes') of this network.
-    private RegulatoryUnit[] regulatoryUnits;;
     
+    // The genome of this network, shared with its clones.
+    private Genome genome;
     
-    // The set of input genetic elements.
-    private GeneticElement[] inputElements;
     
+    // The concentration of each regulatory unit.
+    private double[] unitConcentrations;
     
-    // The set of output genetic elements.
-    private GeneticElement[] outputElements;
     
+    // Receives the new unit concentrations on each update.
+    private double[] newUnitConcentrations;
     
-    // Concentrations of individual trans products.
-    private Map<GeneticElement, Double> networkConcentrations = 
-            new HashMap<GeneticElement, Double>();
     
+    // The concentration of each input element.
+    private double[] inputConcentrations;
     
-    // CONSTRUCTORS ============================================================
     
+    // Indicates if the trans products of the units are present yet.
+    private boolean expressed = false;
     
-    /**
-     * Creates a bare regulatory network instance for the private purpose of
-     * cloning. 
-     */
-    private RegulatoryNetwork() { 
-    }
+    
+    // CONSTRUCTORS ============================================================
     
     
     /**
      * Creates a new regulatory network instance.
-     * 
+     *
      * @param newRegulatoryUnits The set of regulatory units.
      * @param newInputElements The set of input genetic elements.
      * @param newOutputElements The set of output genetic elements.
      */
-    public RegulatoryNetwork(final RegulatoryUnit[] newRegulatoryUnits, 
+    public RegulatoryNetwork(final RegulatoryUnit[] newRegulatoryUnits,
             final GeneticElement[] newInputElements,
             final GeneticElement[] newOutputElements) {
         
-        // Note: arrays are not cloned...
-        this.regulatoryUnits = newRegulatoryUnits;
-        this.inputElements = newInputElements;
-        this.outputElements = newOutputElements;
-        
+        this(new Genome(newRegulatoryUnits, newInputElements,
+                newOutputElements));
+    
     } /* End of RegulatoryNetwork(
             RegulatoryUnit[], GeneticElement[], GeneticElement[]) */
     
-
+    
+    /**
+     * Creates a new regulatory network instance expressing a genome.
+     *
+     * @param newGenome The genome of the network.
+     */
+    public RegulatoryNetwork(final Genome newGenome) {
+        
+        this.genome = newGenome;
+        
+        this.unitConcentrations = new double[newGenome.getUnitCount()];
+        for (int u = 0; u < this.unitConcentrations.length; u++) {
+            this.unitConcentrations[u] = RegulatoryUnit.INITIAL_CONCENTRATION;
+        }
+        
+        this.newUnitConcentrations = new double[newGenome.getUnitCount()];
+        this.inputConcentrations = new double[newGenome.getInputCount()];
+    
+    } // End of RegulatoryNetwork(Genome)
+    
+    
+    /**
+     * Creates a clone of an existing regulatory network.
+     *
+     * @param otherNetwork The regulatory network to clone.
+     */
+    private RegulatoryNetwork(final RegulatoryNetwork otherNetwork) {
+        
+        // Same genome: it is copied only when mutated.
+        this.genome = otherNetwork.genome;
+        
+        this.unitConcentrations = otherNetwork.unitConcentrations.clone();
+        this.newUnitConcentrations =
+                new double[otherNetwork.newUnitConcentrations.length];
+        this.inputConcentrations =
+                new double[otherNetwork.inputConcentrations.length];
+        this.expressed = otherNetwork.expressed;
+    
+    } // End of RegulatoryNetwork(RegulatoryNetwork)
+    
+    
     // METHODS =================================================================
     
     
+    /**
+     * Returns the genome of this network.
+     *
+     * @return The genome, possibly shared with other networks.
+     */
+    public Genome getGenome() {
+        return this.genome;
+    }
+    
+    
     /**
      * Returns the set of input genetic elements.
-     * 
+     *
      * @return An array of genetic elements.
      */
     public GeneticElement[] getInputElements() {
-        return this.inputElements.clone();
+        return this.genome.getInputElements();
     }
     
     
     /**
      * Returns the set of output genetic elements.
-     * 
+     *
      * @return An array of genetic elements.
      */
     public GeneticElement[] getOutputElements() {
-        return this.outputElements.clone();
+        return this.genome.getOutputElements();
+    }
+    
+    
+    /**
+     * Returns the number of input genetic elements.
+     *
+     * @return The number of input genetic elements.
+     */
+    public int getInputCount() {
+        return this.genome.getInputCount();
+    }
+    
+    
+    /**
+     * Returns the type of an input genetic element.
+     *
+     * @param inputIndex The index of the input element.
+     * @return One of {@link GeneticElement.Type}.
+     */
+    public GeneticElement.Type getInputType(final int inputIndex) {
+        return this.genome.getInputElement(inputIndex).getType();
+    }
+    
+    
+    /**
+     * Returns the number of output genetic elements.
+     *
+     * @return The number of output genetic elements.
+     */
+    public int getOutputCount() {
+        return this.genome.getOutputCount();
+    }
+    
+    
+    /**
+     * Returns the type of an output genetic element.
+     *
+     * @param outputIndex The index of the output element.
+     * @return One of {@link GeneticElement.Type}.
+     */
+    public GeneticElement.Type getOutputType(final int outputIndex) {
+        return this.genome.getOutputElement(outputIndex).getType();
+    }
+    
+    
+    /**
+     * Sets the concentration of an input genetic element for the next update
+     * of the network.
+     *
+     * @param inputIndex The index of the input element.
+     * @param concentration The concentration of the input element.
+     */
+    public void setInputConcentration(final int inputIndex,
+            final double concentration) {
+        this.inputConcentrations[inputIndex] = concentration;
     }
     
     
+    /**
+     * Update the state of the network from the input concentrations set with
+     * {@link #setInputConcentration(int, double)}.
+     */
+    public void updateNetwork() {
+        
+        if (!Configuration.getInstance().isCompiledRegulatoryNetworks()) {
+            
+            Map<GeneticElement, Double> inputConcentrationsMap =
+                    new HashMap<GeneticElement, Double>();
+            
+            for (int i = 0; i < this.inputConcentrations.length; i++) {
+                inputConcentrationsMap.put(this.genome.getInputElement(i),
+                        this.inputConcentrations[i]);
+            }
+            
+            updateNetwork(inputConcentrationsMap);
+            return;
+        
+        } // End if()
+        
+        this.genome.getCompiledNetwork().updateConcentrations(
+                this.inputConcentrations, this.unitConcentrations,
+                this.expressed, this.newUnitConcentrations);
+        
+        swapUnitConcentrations();
+    
+    } // End of updateNetwork()
+    
+    
     /**
      * Update the state of the network.
-     * 
+     *
      * @param inputConcentrations A map associating a concentration to each
      *                            input element of the network.
      */
     public void updateNetwork(
             final Map<GeneticElement, Double> inputConcentrations) {
         
-        Map<GeneticElement, Double> currentConcentrations = 
-                new HashMap<GeneticElement, Double>();
-
-        // Copy all current concentrations so every regulatory unit receives
-        // concentrations from the PREVIOUS tick.
-        currentConcentrations.putAll(this.networkConcentrations);
+        // Every regulatory unit receives concentrations from the PREVIOUS
+        // tick.
+        Map<GeneticElement, Double> currentConcentrations =
+                getNetworkConcentrations();
         
         // Adds the concentrations of the input elements; input elements are
         // also for all purposes trans-elements.
         currentConcentrations.putAll(inputConcentrations);
         
-        int count = 0;
-        
         // Update each regulatory unit in turn.
-        for (RegulatoryUnit regulatoryUnit : this.regulatoryUnits) {
-            
-            regulatoryUnit.updateConcentrations(
-                    currentConcentrations, this.networkConcentrations);
-            logger.debug("Unit #" + ++count 
-                    + " concentration: " + regulatoryUnit.getConcentration());
+        for (int u = 0; u < this.unitConcentrations.length; u++) {
             
-        } // End for()
-                
-    } // End of updateNetwork()
+            this.newUnitConcentrations[u] = this.genome.getRegulatoryUnit(u)
+                    .calculateConcentration(this.unitConcentrations[u],
+                            currentConcentrations);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Unit #" + (u + 1)
+                        + " concentration: " + this.newUnitConcentrations[u]);
+            }
+        
+        } // End for(u)
+        
+        swapUnitConcentrations();
+    
+    } // End of updateNetwork(Map)
     
     
     /**
      * Calculate the difference in value to apply to the current concentration
-     * for a specified genetic element. 
+     * for a specified output genetic element.
+     *
+     * @param outputIndex The index of the output element.
+     * @param currentConcentration The current concentration for the output
+     *                             element.
+     * @return The concentration delta to apply.
+     */
+    public double calculateOutputConcentrationDelta(final int outputIndex,
+            final double currentConcentration) {
+        
+        if (!Configuration.getInstance().isCompiledRegulatoryNetworks()) {
+            return calculateOutputConcentrationDelta(
+                    this.genome.getOutputElement(outputIndex),
+                    currentConcentration);
+        }
+        
+        double activation = this.genome.getCompiledNetwork()
+                .calculateOutputActivation(outputIndex,
+                        this.unitConcentrations, this.expressed);
+        
+        return Math.tanh(activation / 2)
+                * ((activation >= 0) ? 1 - currentConcentration
+                        : currentConcentration) * DELTA_INTEGRATION_RATE;
+    
+    } // End of calculateOutputConcentrationDelta(int, double)
+    
+    
+    /**
+     * Calculate the difference in value to apply to the current concentration
+     * for a specified genetic element.
      *
      * @param outputElement The output genetic element.
      * @param currentConcentration The current concentration for the output
@@ -157,229 +321,205 @@ public class RegulatoryNetwork {
      * @return The concentration delta to apply.
      */
     public double calculateOutputConcentrationDelta(
-            final GeneticElement outputElement, 
+            final GeneticElement outputElement,
             final double currentConcentration) {
-    
+        
         double activation = 0;
+        
+        Map<GeneticElement, Double> networkConcentrations =
+                getNetworkConcentrations();
+        
+        for (GeneticElement transElement : networkConcentrations.keySet()) {
             
-        for (GeneticElement transElement : 
-                this.networkConcentrations.keySet()) {
-                
-            double affinity = 
-                    transElement.getAffinityForCisElement(outputElement); 
-                
-            activation += affinity 
-                    * this.networkConcentrations.get(transElement);
+            double affinity =
+                    transElement.getAffinityForCisElement(outputElement);
             
+            activation += affinity * networkConcentrations.get(transElement);
+        
         } // End of for() trans elements
-
-        logger.debug("Activation (output): " + activation);
-            
-        double deltaConcentration = Math.tanh(activation / 2) 
-                    * ((activation >= 0) ? 1 - currentConcentration 
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Activation (output): " + activation);
+        }
+        
+        double deltaConcentration = Math.tanh(activation / 2)
+                    * ((activation >= 0) ? 1 - currentConcentration
                             : currentConcentration) * DELTA_INTEGRATION_RATE;
-        logger.debug("Delta concentration (output): " + deltaConcentration);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Delta concentration (output): " + deltaConcentration);
+        }
         
         return deltaConcentration;
-        
-    } // End of calculateOutputConcentrationDelta()
-
+    
+    } // End of calculateOutputConcentrationDelta(GeneticElement, double)
+    
     
     /**
-     * Returns the total genome length, including input and output genetic
-     * elements.
-     *  
-     * @return The total length of the genome.
+     * Returns the concentrations of individual trans products, i.e. the
+     * concentration of the unit of each trans-element once the network was
+     * updated at least once.
+     *
+     * @return A new map associating a concentration to each trans-element.
      */
-    public int getGenomeLength() {
+    private Map<GeneticElement, Double> getNetworkConcentrations() {
         
-        int genomeLength = this.inputElements.length 
-                + this.outputElements.length;
+        Map<GeneticElement, Double> networkConcentrations =
+                new HashMap<GeneticElement, Double>();
         
-        for (RegulatoryUnit regulatoryUnit : this.regulatoryUnits) {
-            genomeLength += regulatoryUnit.getCisElements().length
-                    + regulatoryUnit.getTransElements().length;
+        if (this.expressed) {
+            for (int u = 0; u < this.unitConcentrations.length; u++) {
+                for (GeneticElement transElement :
+                        this.genome.getRegulatoryUnit(u).getTransElements()) {
+                    networkConcentrations.put(transElement,
+                            this.unitConcentrations[u]);
+                }
+            }
         }
         
-        return genomeLength;
-        
-    } // End of getGenomeLength()
+        return networkConcentrations;
+    
+    } // End of getNetworkConcentrations()
     
     
     /**
-     * Mutate a genome.
-     * 
-     * TODO: Experimental work. Not used.
+     * Copies the state of this network into a column of the concentration
+     * blocks of a {@link RegulatoryNetworkBatch}.
+     *
+     * @param unitBlock Receives the concentration of each unit, or {@code 0}
+     *                  if the trans products are not present yet.
+     * @param inputBlock Receives the concentration of each input.
+     * @param column The column of this network in the blocks.
+     * @param networkCount The number of columns of the blocks.
      */
-    public void mutate() {
-        
-        int genomeLength = getGenomeLength();
+    void copyToBlocks(final double[] unitBlock, final double[] inputBlock,
+            final int column, final int networkCount) { // package access.
         
-        int selectedGeneticElementPos = 
-                RandomHelper.nextIntFromTo(0, genomeLength - 1);
-        GeneticElement selectedGeneticElement = null;
+        for (int u = 0; u < this.unitConcentrations.length; u++) {
+            unitBlock[u * networkCount + column] =
+                    this.expressed ? this.unitConcentrations[u] : 0;
+        }
         
-        if (selectedGeneticElementPos < this.inputElements.length) {
-            
-            selectedGeneticElement = 
-                    this.inputElements[selectedGeneticElementPos];
-            this.inputElements[selectedGeneticElementPos] = 
-                    mutateGeneticElement(selectedGeneticElement);
-            
-        } else {
-            
-            selectedGeneticElementPos -= this.inputElements.length;
-            
-            if (selectedGeneticElementPos < this.outputElements.length) {
-            
-                selectedGeneticElement = 
-                        this.outputElements[selectedGeneticElementPos];
-                this.outputElements[selectedGeneticElementPos] = 
-                        mutateGeneticElement(selectedGeneticElement);
-            
-            } else {
-            
-                selectedGeneticElementPos -= this.outputElements.length;
-            
-                for (RegulatoryUnit regulatoryUnit : this.regulatoryUnits) {
-        
-                    int cisLength = regulatoryUnit.getCisElements().length;
-                    int transLength = regulatoryUnit.getTransElements().length;
-                
-                    if (selectedGeneticElementPos < cisLength) {
-                    
-                        selectedGeneticElement = regulatoryUnit
-                                .getCisElements()[selectedGeneticElementPos];
-                        regulatoryUnit.replaceCisElement(selectedGeneticElement, 
-                                mutateGeneticElement(selectedGeneticElement));
-                        break;
-                    
-                    } else {
-                        
-                        selectedGeneticElementPos -= cisLength;
-                        
-                        if (selectedGeneticElementPos < transLength) {
-                        
-                            selectedGeneticElement = regulatoryUnit
-                                    .getTransElements()
-                                    [selectedGeneticElementPos];
-                            regulatoryUnit.replaceTransElement(
-                                    selectedGeneticElement, 
-                                    mutateGeneticElement(
-                                            selectedGeneticElement));
-                            break;
-
-                        } else {
-                    
-                            selectedGeneticElementPos -= transLength;
-                    
-                        } // End if()
-                        
-                    } // End if()
-                    
-                } // End if()
-                
-            } // End for()
-
-        } // End if()
+        for (int i = 0; i < this.inputConcentrations.length; i++) {
+            inputBlock[i * networkCount + column] =
+                    this.inputConcentrations[i];
+        }
         
-    } // End of mutate()
+    } // End of copyToBlocks()
     
     
     /**
-     * Mutate a specific genetic element.
-     * 
-     * TODO: Experimental work. Not used.
-     * 
-     * @param geneticElement
-     * @return
+     * Updates the state of this network from a column of the activation
+     * block calculated by a {@link RegulatoryNetworkBatch}.
+     *
+     * @param activationBlock The activation of each unit.
+     * @param column The column of this network in the block.
+     * @param networkCount The number of columns of the block.
      */
-    private GeneticElement mutateGeneticElement(
-            final GeneticElement geneticElement) {
+    void updateFromBlock(final double[] activationBlock, final int column,
+            final int networkCount) { // package access.
         
-        GeneticElement.Type newType = geneticElement.getType();
-        double newAffinityX = geneticElement.getAffinityX();
-        double newAffinityY = geneticElement.getAffinityY();
-        int newSign = geneticElement.getSign();
+        for (int u = 0; u < this.unitConcentrations.length; u++) {
+            this.newUnitConcentrations[u] = CompiledRegulatoryNetwork.integrate(
+                    this.unitConcentrations[u],
+                    activationBlock[u * networkCount + column]);
+        }
         
-        // 133 bits for a genetic element.
-        int bitPos = RandomHelper.nextIntFromTo(0, 132);
-
-        if (bitPos < 4) {
-                
-            // Genetic element type field.
-            int typePos = RandomHelper
-                    .nextIntFromTo(0, GeneticElement.Type.values().length - 1);
-            newType = GeneticElement.Type.values()[typePos];
-                
-        } else if (bitPos < 68) {
-            
-            newAffinityX = RandomHelper
-                    .nextDoubleFromTo(0, GenomeFactory.MAX_AFFINITY);
-            
-        } else if (bitPos < 132) {
-            
-            newAffinityY = RandomHelper
-                    .nextDoubleFromTo(0, GenomeFactory.MAX_AFFINITY);
-            
-        } else {
-            
-            int randomInt = RandomHelper.nextIntFromTo(0, 1);
-            newSign = (randomInt == 0) ? -1 : 1;
-            
-        } // End if()
-                    
-        GeneticElement newGeneticElement = new GeneticElement(newType, 
-                newAffinityX, newAffinityY, newSign);
-
-        return newGeneticElement;
+        swapUnitConcentrations();
+        
+    } // End of updateFromBlock()
+    
+    
+    /**
+     * Makes the new unit concentrations the current ones.
+     */
+    private void swapUnitConcentrations() {
+        
+        double[] concentrations = this.unitConcentrations;
+        this.unitConcentrations = this.newUnitConcentrations;
+        this.newUnitConcentrations = concentrations;
         
-    } // End of mutateGeneticElement()
+        this.expressed = true;
+    
+    } // End of swapUnitConcentrations()
+    
+    
+    /**
+     * Returns the total genome length, including input and output genetic
+     * elements.
+     *
+     * @return The total length of the genome.
+     */
+    public int getGenomeLength() {
+        return this.genome.getGenomeLength();
+    }
+    
+    
+    /**
+     * Mutate a genome. The genome shared with other networks is left
+     * untouched: this network switches to a mutated copy of it.
+     *
+     * TODO: Experimental work. Not used.
+     *
+     * @param random The random stream of the mutated cell.
+     */
+    public void mutate(final RandomStream random) {
+        this.genome = this.genome.mutate(random);
+    }
     
     
     /**
      * Clone the current regulatory network.
-     * 
+     *
      * @return A new regulatory network instance but with the same genome.
      */
-    @SuppressWarnings("unchecked")
     public RegulatoryNetwork clone() {
-        
-        RegulatoryNetwork newNetwork = new RegulatoryNetwork();
+        return new RegulatoryNetwork(this);
+    }
 
-        List<RegulatoryUnit> newUnits = new ArrayList<RegulatoryUnit>();
-        for (RegulatoryUnit unit : this.regulatoryUnits) {
-            newUnits.add(unit.clone());
-        }
+
+    /**
+     * Writes the expression state of this network to a checkpoint: the
+     * concentrations of its units and inputs. The genome is written apart,
+     * once for all the networks that share it.
+     *
+     * @param out The checkpoint output.
+     * @throws IOException If the state cannot be written.
+     */
+    public void writeState(final DataOutput out) throws IOException {
         
-        List<GeneticElement> newInputElements = new ArrayList<GeneticElement>();
-        for (GeneticElement element : this.inputElements) {
-            newInputElements.add(element); //.clone());
+        for (double concentration : this.unitConcentrations) {
+            out.writeDouble(concentration);
         }
         
-        List<GeneticElement> newOutputElements = 
-                new ArrayList<GeneticElement>();
-        for (GeneticElement element : this.outputElements) {
-            newInputElements.add(element); //.clone());
+        for (double concentration : this.inputConcentrations) {
+            out.writeDouble(concentration);
         }
         
-        newNetwork.regulatoryUnits = 
-                newUnits.toArray(new RegulatoryUnit[newUnits.size()]);
-        newNetwork.networkConcentrations = 
-                (Map<GeneticElement, Double>) ((HashMap<GeneticElement, Double>) 
-                        this.networkConcentrations).clone();
+        out.writeBoolean(this.expressed);
+        
+    } // End of writeState()
+    
+    
+    /**
+     * Reads the expression state written by {@link #writeState} into this
+     * network, which must have the same genome as the written one.
+     *
+     * @param in The checkpoint input.
+     * @throws IOException If the state cannot be read.
+     */
+    public void readState(final DataInput in) throws IOException {
         
-//        newNetwork.inputElements = this.inputElements.clone();
-//        newNetwork.outputElements = this.outputElements.clone();
+        for (int u = 0; u < this.unitConcentrations.length; u++) {
+            this.unitConcentrations[u] = in.readDouble();
+        }
         
-        newNetwork.inputElements = newInputElements.toArray(
-                new GeneticElement[newInputElements.size()]);
-        newNetwork.outputElements = newOutputElements.toArray(
-                new GeneticElement[newOutputElements.size()]);
+        for (int i = 0; i < this.inputConcentrations.length; i++) {
+            this.inputConcentrations[i] = in.readDouble();
+        }
         
-        return newNetwork;
+        this.expressed = in.readBoolean();
         
-    } // End of clone()
-
+    } // End of readState()
+    
     
 } // End of RegulatoryNetwork class
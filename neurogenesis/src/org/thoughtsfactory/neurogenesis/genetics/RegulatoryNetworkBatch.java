@@ -0,0 +1,305 @@
+package org.thoughtsfactory.neurogenesis.genetics;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.thoughtsfactory.neurogenesis.Configuration;
+
+
+/**
+ * Updates many regulatory networks at once, grouping the networks that share
+ * a genome. Cells inherit the genome of their mother until they mutate, so a
+ * population is made of a few large clonal groups, whose networks only
+ * differ by their concentrations.
+ *
+ * The networks of a group are updated in blocks: the concentrations of the
+ * units and inputs of all the networks of a block are copied, one column per
+ * network, into arrays holding one row per unit or input. The activation of
+ * every unit of every network is then the product of the affinity matrices
+ * of the compiled genome by these blocks, whose innermost loop runs over
+ * contiguous columns and can be vectorised by the JIT compiler. The networks
+ * are updated exactly as by {@link RegulatoryNetwork#updateNetwork()}, in any
+ * order since they are independent.
+ *
+ * @author Robert Langlois
+ */
+public final class RegulatoryNetworkBatch {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The largest number of networks updated in one block, so that the blocks
+    // of a genome of ten units or so stay within the first level cache.
+    private static final int MAX_BLOCK_SIZE = 128;
+    
+    
+    // The number of tasks per worker thread the blocks are split into, so
+    // that threads done early can take over some work from others.
+    private static final int TASKS_PER_THREAD = 4;
+    
+    
+    // The smallest number of networks worth a task of their own.
+    private static final int MIN_NETWORKS_PER_TASK = 64;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Prevents instantiation.
+     */
+    private RegulatoryNetworkBatch() {
+    }
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Updates the state of networks from the input concentrations set with
+     * {@link RegulatoryNetwork#setInputConcentration(int, double)}, as if
+     * {@link RegulatoryNetwork#updateNetwork()} was called on each of them.
+     *
+     * @param networks The networks to update; each must appear only once.
+     * @param networkCount The number of networks, from the first one.
+     * @param workerPool The pool updating the blocks in parallel, or
+     *                   {@code null} to update them sequentially.
+     */
+    public static void updateNetworks(final RegulatoryNetwork[] networks,
+            final int networkCount, final ForkJoinPool workerPool) {
+        
+        // Sort the networks by genome, in order of first appearance.
+        
+        Map<Genome, Integer> groups = new IdentityHashMap<Genome, Integer>();
+        final int[] groupOf = new int[networkCount];
+        int[] groupSizes = new int[16];
+        
+        for (int n = 0; n < networkCount; n++) {
+            
+            final Genome genome = networks[n].getGenome();
+            Integer group = groups.get(genome);
+            
+            if (group == null) {
+                group = groups.size();
+                groups.put(genome, group);
+                if (group == groupSizes.length) {
+                    int[] newGroupSizes = new int[group * 2];
+                    System.arraycopy(groupSizes, 0, newGroupSizes, 0, group);
+                    groupSizes = newGroupSizes;
+                }
+            }
+            
+            groupOf[n] = group;
+            groupSizes[group]++;
+            
+        } // End for(n)
+        
+        final int groupCount = groups.size();
+        final int[] groupStarts = new int[groupCount + 1];
+        int blockCount = 0;
+        
+        for (int g = 0; g < groupCount; g++) {
+            groupStarts[g + 1] = groupStarts[g] + groupSizes[g];
+            blockCount += (groupSizes[g] + MAX_BLOCK_SIZE - 1) / MAX_BLOCK_SIZE;
+        }
+        
+        final RegulatoryNetwork[] sortedNetworks =
+                new RegulatoryNetwork[networkCount];
+        final int[] nextIndexes = groupStarts.clone();
+        
+        for (int n = 0; n < networkCount; n++) {
+            sortedNetworks[nextIndexes[groupOf[n]]++] = networks[n];
+        }
+        
+        // Cut each group into blocks.
+        
+        final int[] blockStarts = new int[blockCount + 1];
+        int b = 0;
+        
+        for (int g = 0; g < groupCount; g++) {
+            for (int start = groupStarts[g]; start < groupStarts[g + 1];
+                    start += MAX_BLOCK_SIZE) {
+                blockStarts[b++] = start;
+            }
+        }
+        
+        blockStarts[blockCount] = networkCount;
+        
+        if (workerPool == null) {
+            
+            updateBlocks(sortedNetworks, blockStarts, 0, blockCount);
+            
+        } else {
+            
+            final int networksPerTask = Math.max(MIN_NETWORKS_PER_TASK,
+                    networkCount
+                    / (workerPool.getParallelism() * TASKS_PER_THREAD));
+            
+            workerPool.invoke(new BlockTask(sortedNetworks, blockStarts,
+                    0, blockCount, networksPerTask));
+            
+        } // End if()
+        
+    } // End of updateNetworks()
+    
+    
+    /**
+     * Updates a range of blocks.
+     *
+     * @param networks The networks, sorted by genome.
+     * @param blockStarts The index of the first network of each block, and
+     *                    the number of networks.
+     * @param fromBlock The first block of the range.
+     * @param toBlock The block after the last block of the range.
+     */
+    private static void updateBlocks(final RegulatoryNetwork[] networks,
+            final int[] blockStarts, final int fromBlock, final int toBlock) {
+        
+        for (int b = fromBlock; b < toBlock; b++) {
+            updateBlock(networks, blockStarts[b], blockStarts[b + 1]);
+        }
+        
+    } // End of updateBlocks()
+    
+    
+    /**
+     * Updates a block of networks sharing a genome.
+     *
+     * @param networks The networks, sorted by genome.
+     * @param fromIndex The index of the first network of the block.
+     * @param toIndex The index after the last network of the block.
+     */
+    private static void updateBlock(final RegulatoryNetwork[] networks,
+            final int fromIndex, final int toIndex) {
+        
+        final int networkCount = toIndex - fromIndex;
+        
+        // A lone network, or the evaluation of genomes as they are.
+        if ((networkCount == 1) || !Configuration.getInstance()
+                .isCompiledRegulatoryNetworks()) {
+            for (int n = fromIndex; n < toIndex; n++) {
+                networks[n].updateNetwork();
+            }
+            return;
+        }
+        
+        final CompiledRegulatoryNetwork compiledNetwork =
+                networks[fromIndex].getGenome().getCompiledNetwork();
+        
+        final double[] unitBlock =
+                new double[compiledNetwork.getUnitCount() * networkCount];
+        final double[] inputBlock =
+                new double[compiledNetwork.getInputCount() * networkCount];
+        final double[] activationBlock = new double[unitBlock.length];
+        
+        for (int n = 0; n < networkCount; n++) {
+            networks[fromIndex + n].copyToBlocks(
+                    unitBlock, inputBlock, n, networkCount);
+        }
+        
+        compiledNetwork.calculateActivations(
+                unitBlock, inputBlock, networkCount, activationBlock);
+        
+        for (int n = 0; n < networkCount; n++) {
+            networks[fromIndex + n].updateFromBlock(
+                    activationBlock, n, networkCount);
+        }
+        
+    } // End of updateBlock()
+    
+    
+    // NESTED CLASSES ----------------------------------------------------------
+    
+    
+    /**
+     * A task updating a range of blocks, splitting it in halves until ranges
+     * are small enough.
+     */
+    private static final class BlockTask extends RecursiveAction {
+        
+        
+        // Required by the serializable task.
+        private static final long serialVersionUID = 1L;
+        
+        
+        // The networks, sorted by genome.
+        private final RegulatoryNetwork[] networks;
+        
+        
+        // The index of the first network of each block.
+        private final int[] blockStarts;
+        
+        
+        // The first block of the range.
+        private final int fromBlock;
+        
+        
+        // The block after the last block of the range.
+        private final int toBlock;
+        
+        
+        // The largest number of networks updated without splitting.
+        private final int networksPerTask;
+        
+        
+        /**
+         * Creates a new block task.
+         *
+         * @param newNetworks The networks, sorted by genome.
+         * @param newBlockStarts The index of the first network of each
+         *                       block.
+         * @param newFromBlock The first block of the range.
+         * @param newToBlock The block after the last block of the range.
+         * @param newNetworksPerTask The largest number of networks updated
+         *                           without splitting.
+         */
+        BlockTask(final RegulatoryNetwork[] newNetworks,
+                final int[] newBlockStarts, final int newFromBlock,
+                final int newToBlock, final int newNetworksPerTask) {
+            
+            this.networks = newNetworks;
+            this.blockStarts = newBlockStarts;
+            this.fromBlock = newFromBlock;
+            this.toBlock = newToBlock;
+            this.networksPerTask = newNetworksPerTask;
+            
+        } // End of BlockTask()
+        
+        
+        /**
+         * Updates the range, or each half of it in parallel.
+         */
+        @Override // RecursiveAction
+        protected void compute() {
+            
+            if ((this.toBlock - this.fromBlock == 1)
+                    || (this.blockStarts[this.toBlock]
+                            - this.blockStarts[this.fromBlock]
+                            <= this.networksPerTask)) {
+                
+                updateBlocks(this.networks, this.blockStarts,
+                        this.fromBlock, this.toBlock);
+                
+            } else {
+                
+                final int middleBlock = (this.fromBlock + this.toBlock) >>> 1;
+                
+                invokeAll(new BlockTask(this.networks, this.blockStarts,
+                                this.fromBlock, middleBlock,
+                                this.networksPerTask),
+                        new BlockTask(this.networks, this.blockStarts,
+                                middleBlock, this.toBlock,
+                                this.networksPerTask));
+                
+            } // End if()
+            
+        } // End of compute()
+        
+        
+    } // End of BlockTask class
+    
+    
+} // End of RegulatoryNetworkBatch class
@@ -1,6 +1,7 @@
 package org.thoughtsfactory.neurogenesis.genetics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -12,12 +13,25 @@ import org.apache.log4j.Logger;
  * trans-elements together, ensuring that all trans-elements of the unit share
  * the same dependency on the same set of cis-elements. All cis- and 
  * trans-elements of a unit thus have the same concentration.
+ * 
+ * Once part of a {@link Genome}, a regulatory unit is shared by many cells and
+ * must not be modified; concentrations are held by each cell's
+ * {@link RegulatoryNetwork}.
  *  
  * @author Robert Langlois
  */
 public class RegulatoryUnit {
 
     
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The initial concentration of a regulatory unit.
+     */
+    public static final double INITIAL_CONCENTRATION = 0.01;
+    
+    
     // INSTANCE VARIABLES ======================================================
     
     
@@ -34,10 +48,6 @@ public class RegulatoryUnit {
     		new ArrayList<GeneticElement>();
     
     
-    // The current concentration in the unit.
-    private double concentration = 0.01;
-    
-    
     // CONSTRUCTORS ============================================================
     
     
@@ -48,6 +58,23 @@ public class RegulatoryUnit {
     }
     
     
+    /**
+     * Creates a regulatory unit instance from its genetic elements, e.g. as
+     * read from a checkpoint. The elements may be of any type, as mutations
+     * do not preserve them.
+     *
+     * @param newCisElements The cis-elements of the unit.
+     * @param newTransElements The trans-elements of the unit.
+     */
+    RegulatoryUnit(final GeneticElement[] newCisElements,
+            final GeneticElement[] newTransElements) { // package access.
+        
+        this.cisElements.addAll(Arrays.asList(newCisElements));
+        this.transElements.addAll(Arrays.asList(newTransElements));
+        
+    } // End of RegulatoryUnit(GeneticElement[], GeneticElement[])
+    
+    
     /**
      * Creates a new regulatory unit instance. New regulatory units must always
      * have at least one cis-element and one trans-element.
@@ -98,16 +125,6 @@ public class RegulatoryUnit {
     }
     
     
-    /**
-     * Returns the current concentration in the unit.
-     * 
-     * @return The current unit concentration.
-     */
-    public double getConcentration() {
-        return this.concentration;
-    }
-    
-    
     /**
      * Adds a new genetic element to the current unit.
      * 
@@ -137,22 +154,24 @@ public class RegulatoryUnit {
 
     
     /**
-     * Update the concentration of this unit and of all its trans-elements.
+     * Calculates the new concentration of this unit, which is also the 
+     * concentration of all its trans-elements.
      * 
+     * @param concentration The current concentration of the unit.
      * @param inputElements The current concentrations of all trans-elements 
      *                      in the whole regulatory network to which this unit
      *                      belongs.
-     * @param outputElements The updated concentrations for trans-elements
-     *                       belonging to the current unit.
+     * @return The new concentration of the unit.
      */
-    public void updateConcentrations(
-            final Map<GeneticElement, Double> inputElements,
-            final Map<GeneticElement, Double> outputElements) {
+    public double calculateConcentration(final double concentration,
+            final Map<GeneticElement, Double> inputElements) {
         
         double activation = 0;
         
-        logger.debug("Number of cis-elements: " + this.cisElements.size());
-        logger.debug("Number of input elements: " + inputElements.size());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Number of cis-elements: " + this.cisElements.size());
+            logger.debug("Number of input elements: " + inputElements.size());
+        }
         
         // Calculate the activation provided by input elements.
         for (GeneticElement cisElement : this.cisElements) {        
@@ -163,34 +182,36 @@ public class RegulatoryUnit {
             }
         }
         
-        logger.debug("Activation: " + activation);
-        logger.debug("Current concentration: " + this.concentration);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Activation: " + activation);
+            logger.debug("Current concentration: " + concentration);
+        }
         
 //        double deltaConcentration = 
-//                Math.tanh(activation / 2) - this.concentration;
+//                Math.tanh(activation / 2) - concentration;
         double deltaConcentration = Math.tanh(activation / 2) 
-                * ((activation >= 0) ? 1 - this.concentration 
-                        : this.concentration) 
+                * ((activation >= 0) ? 1 - concentration : concentration) 
                         * RegulatoryNetwork.DELTA_INTEGRATION_RATE;
-        logger.debug("Delta concentration: " + deltaConcentration);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Delta concentration: " + deltaConcentration);
+        }
 
-        this.concentration += deltaConcentration;
+        double newConcentration = concentration + deltaConcentration;
 
-        if (this.concentration < 0) {
+        if (newConcentration < 0) {
             throw new IllegalStateException(
                     "Regulatory unit concentration is negative! (" 
-                            + this.concentration + ")");
+                            + newConcentration + ")");
         }
         
-        for (GeneticElement transElement : this.transElements) {        
-            outputElements.put(transElement, this.concentration);
-        }
+        return newConcentration;
         
-    } // End of updateConcentrations()
+    } // End of calculateConcentration()
     
     
     /**
-     * Replace a cis-element with another.
+     * Replace a cis-element with another. The new element takes the position
+     * of the element it replaces.
      * 
      * TODO: Experimental work.
      * 
@@ -200,14 +221,15 @@ public class RegulatoryUnit {
     public void replaceCisElement(final GeneticElement currentElement, 
             final GeneticElement newElement) {
         
-        this.cisElements.remove(currentElement);
-        this.cisElements.add(newElement);
+        this.cisElements.set(
+                this.cisElements.indexOf(currentElement), newElement);
         
     } // End of replaceCisElement()
     
     
     /**
-     * Replace a trans-element with another.
+     * Replace a trans-element with another. The new element takes the position
+     * of the element it replaces.
      * 
      * TODO: Experimental work.
      * 
@@ -217,8 +239,8 @@ public class RegulatoryUnit {
     public void replaceTransElement(final GeneticElement currentElement, 
             final GeneticElement newElement) {
         
-        this.transElements.remove(currentElement);
-        this.transElements.add(newElement);
+        this.transElements.set(
+                this.transElements.indexOf(currentElement), newElement);
         
     } // End of replaceCisElement()
     
@@ -244,8 +266,6 @@ public class RegulatoryUnit {
             newUnit.transElements.add(element); //.clone());
         }
         
-        newUnit.concentration = this.concentration;
-        
         return newUnit;
         
     } // End of clone()
@@ -0,0 +1,97 @@
+package org.thoughtsfactory.neurogenesis.headless;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import repast.simphony.context.ContextEvent;
+import repast.simphony.context.ContextListener;
+import repast.simphony.engine.schedule.IAction;
+import repast.simphony.engine.schedule.ISchedule;
+
+
+/**
+ * A context listener that does for a headless run what the Repast Simphony
+ * runtime does for agents: the methods annotated with {@code ScheduledMethod}
+ * are scheduled when an agent is added to the context, and unscheduled when
+ * the agent is removed.
+ *
+ * @author Robert Langlois
+ */
+public class AgentScheduler implements ContextListener<Object> {
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The schedule agents are scheduled with.
+    private final ISchedule schedule;
+    
+    
+    // The actions scheduled for each agent in the context that has any.
+    private final Map<Object, List<IAction>> scheduledActions =
+            new IdentityHashMap<Object, List<IAction>>();
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new agent scheduler.
+     *
+     * @param newSchedule The schedule agents are scheduled with.
+     */
+    public AgentScheduler(final ISchedule newSchedule) {
+        
+        this.schedule = newSchedule;
+        
+    } // End of AgentScheduler()
+    
+    
+    // INTERFACES IMPLEMENTATION -----------------------------------------------
+    
+    
+    /**
+     * Schedules or unschedules the agent added to or removed from the
+     * context.
+     *
+     * @param event The context event.
+     */
+    @Override // ContextListener
+    public void eventOccured(final ContextEvent<Object> event) {
+        
+        final Object agent = event.getTarget();
+        
+        switch (event.getType()) {
+        
+        case AGENT_ADDED:
+            
+            List<IAction> actions = this.schedule.schedule(agent);
+            if (!actions.isEmpty()) {
+                this.scheduledActions.put(agent, actions);
+            }
+            
+            break;
+        
+        case AGENT_REMOVED:
+            
+            List<IAction> removedActions = this.scheduledActions.remove(agent);
+            if (removedActions != null) {
+                for (IAction action : removedActions) {
+                    this.schedule.removeAction(action);
+                }
+            }
+            
+            break;
+        
+        default:
+            
+            // Projections are of no concern.
+            break;
+            
+        } // End switch()
+        
+    } // End of eventOccured()
+    
+    
+} // End of AgentScheduler class
@@ -0,0 +1,81 @@
+package org.thoughtsfactory.neurogenesis.headless;
+
+import org.thoughtsfactory.neurogenesis.ArenaSupervisor;
+
+import repast.simphony.context.Context;
+
+
+/**
+ * The angular positions of the light source and of the robot in the arena,
+ * as recorded by the "Angular Position" data set of the scenario.
+ *
+ * @author Robert Langlois
+ */
+public class AngularPositionOutput extends TickOutput {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The name of the output.
+     */
+    public static final String NAME = "AngularPosition";
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new angular position output.
+     */
+    public AngularPositionOutput() {
+        super(NAME);
+    }
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the names of the values, separated by commas.
+     *
+     * @return The header line without the tick.
+     */
+    @Override // TickOutput
+    protected String getHeader() {
+        return "LightSourceAngularPosition,RobotAngularPosition,"
+                + "AngleDeltaLightAndRobot,SignAngleDeltaLightAndRobot,"
+                + "AverageAngleDelta,SineLightAngularPosition,"
+                + "CosineLightAngularPosition,SineRobotAngularPosition,"
+                + "CosineRobotAngularPosition";
+    }
+    
+    
+    /**
+     * Appends the values of the current tick, each preceded by a comma.
+     *
+     * @param context The context of the model.
+     * @param line The line being written.
+     */
+    @Override // TickOutput
+    protected void appendValues(final Context<Object> context,
+            final StringBuilder line) {
+        
+        ArenaSupervisor supervisor = (ArenaSupervisor)
+                context.getObjects(ArenaSupervisor.class).get(0);
+        
+        line.append(',').append(supervisor.getLightSourceAngularPosition())
+                .append(',').append(supervisor.getRobotAngularPosition())
+                .append(',').append(supervisor.getAngleDeltaLightAndRobot())
+                .append(',').append(supervisor.getSignAngleDeltaLightAndRobot())
+                .append(',').append(supervisor.getAverageAngleDelta())
+                .append(',').append(supervisor.getSineLightAngularPosition())
+                .append(',').append(supervisor.getCosineLightAngularPosition())
+                .append(',').append(supervisor.getSineRobotAngularPosition())
+                .append(',').append(supervisor.getCosineRobotAngularPosition());
+        
+    } // End of appendValues()
+    
+    
+} // End of AngularPositionOutput class
@@ -0,0 +1,73 @@
+package org.thoughtsfactory.neurogenesis.headless;
+
+import org.thoughtsfactory.neurogenesis.brain.Neuron;
+import org.thoughtsfactory.neurogenesis.brain.UndifferentiatedCell;
+
+import repast.simphony.context.Context;
+
+
+/**
+ * The number of cells of each kind in the brain, as recorded by the "Cell
+ * Population" data set of the scenario.
+ *
+ * @author Robert Langlois
+ */
+public class CellPopulationOutput extends TickOutput {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The name of the output.
+     */
+    public static final String NAME = "CellPopulation";
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new cell population output.
+     */
+    public CellPopulationOutput() {
+        super(NAME);
+    }
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the names of the values, separated by commas.
+     *
+     * @return The header line without the tick.
+     */
+    @Override // TickOutput
+    protected String getHeader() {
+        return "UndifferentiatedCells,Neurons,Total";
+    }
+    
+    
+    /**
+     * Appends the values of the current tick, each preceded by a comma.
+     *
+     * @param context The context of the model.
+     * @param line The line being written.
+     */
+    @Override // TickOutput
+    protected void appendValues(final Context<Object> context,
+            final StringBuilder line) {
+        
+        final int undifferentiatedCells =
+                context.getObjects(UndifferentiatedCell.class).size();
+        final int neurons = context.getObjects(Neuron.class).size();
+        
+        line.append(',').append(undifferentiatedCells)
+                .append(',').append(neurons)
+                .append(',').append(undifferentiatedCells + neurons);
+        
+    } // End of appendValues()
+    
+    
+} // End of CellPopulationOutput class
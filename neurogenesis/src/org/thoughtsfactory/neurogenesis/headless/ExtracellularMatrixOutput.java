@@ -0,0 +1,110 @@
+package org.thoughtsfactory.neurogenesis.headless;
+
+import org.thoughtsfactory.neurogenesis.brain.ExtracellularMatrixSample;
+
+import repast.simphony.context.Context;
+
+
+/**
+ * The minimum, maximum and mean concentrations of food, waste and SAM in the
+ * extracellular matrix, as recorded by the "Extracellular Matrix" data set of
+ * the scenario.
+ *
+ * @author Robert Langlois
+ */
+public class ExtracellularMatrixOutput extends TickOutput {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The name of the output.
+     */
+    public static final String NAME = "ExtracellularMatrix";
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new extracellular matrix output.
+     */
+    public ExtracellularMatrixOutput() {
+        super(NAME);
+    }
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the names of the values, separated by commas.
+     *
+     * @return The header line without the tick.
+     */
+    @Override // TickOutput
+    protected String getHeader() {
+        return "MinimumFood,MaximumFood,MeanFood,"
+                + "MinimumWaste,MaximumWaste,MeanWaste,"
+                + "MinimumSAM,MaximumSAM,MeanSAM";
+    }
+    
+    
+    /**
+     * Appends the values of the current tick, each preceded by a comma.
+     *
+     * @param context The context of the model.
+     * @param line The line being written.
+     */
+    @Override // TickOutput
+    protected void appendValues(final Context<Object> context,
+            final StringBuilder line) {
+        
+        // Minimum, maximum and sum for food, waste and SAM in that order.
+        double[] statistics = new double[] {
+                Double.MAX_VALUE, -Double.MAX_VALUE, 0,
+                Double.MAX_VALUE, -Double.MAX_VALUE, 0,
+                Double.MAX_VALUE, -Double.MAX_VALUE, 0 };
+        
+        int count = 0;
+        
+        for (Object obj : context.getObjects(ExtracellularMatrixSample.class)) {
+            
+            ExtracellularMatrixSample sample = (ExtracellularMatrixSample) obj;
+            
+            accumulate(statistics, 0, sample.getFoodConcentration());
+            accumulate(statistics, 3, sample.getWasteConcentration());
+            accumulate(statistics, 6, sample.getSamConcentration());
+            count++;
+            
+        } // End for(obj)
+        
+        for (int i = 0; i < statistics.length; i += 3) {
+            line.append(',').append(statistics[i])
+                    .append(',').append(statistics[i + 1])
+                    .append(',').append(statistics[i + 2] / count);
+        }
+        
+    } // End of appendValues()
+    
+    
+    /**
+     * Accumulates a concentration into the statistics of a product.
+     *
+     * @param statistics The statistics of all products.
+     * @param offset The offset of the minimum of the product.
+     * @param concentration The concentration to accumulate.
+     */
+    private static void accumulate(final double[] statistics,
+            final int offset, final double concentration) {
+        
+        statistics[offset] = Math.min(statistics[offset], concentration);
+        statistics[offset + 1] =
+                Math.max(statistics[offset + 1], concentration);
+        statistics[offset + 2] += concentration;
+        
+    } // End of accumulate()
+    
+    
+} // End of ExtracellularMatrixOutput class
@@ -0,0 +1,533 @@
+package org.thoughtsfactory.neurogenesis.headless;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.log4j.Logger;
+import org.thoughtsfactory.neurogenesis.Configuration;
+import org.thoughtsfactory.neurogenesis.NeurogenesisBuilder;
+import org.thoughtsfactory.neurogenesis.SimulationCheckpoint;
+import org.thoughtsfactory.neurogenesis.SimulationContextHolder;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import repast.simphony.context.Context;
+import repast.simphony.context.DefaultContext;
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.engine.environment.RunState;
+import repast.simphony.engine.schedule.Schedule;
+import repast.simphony.parameter.Parameters;
+import repast.simphony.parameter.ParametersCreator;
+import repast.simphony.random.RandomHelper;
+
+
+/**
+ * Runs the model without the Repast Simphony runtime: no scenario, no
+ * display, no data set is loaded. The model is built by the same
+ * {@link NeurogenesisBuilder} as in the GUI and in batch runs, stepped by a
+ * bare Repast schedule, and only the outputs listed in the run configuration
+ * are written.
+ *
+ * A run is configured by a properties file. Model parameters take their
+ * default value from the scenario parameters file and can be overridden by a
+ * property of the same name, e.g. {@code quadrant.size=10}. The runner itself
+ * is configured by the following properties:
+ * <ul>
+ * <li>{@code headless.parameters.file}: the scenario parameters file,
+ *     {@code neurogenesis.rs/parameters.xml} by default;</li>
+ * <li>{@code headless.outputs}: comma separated names of the outputs to
+ *     write, none by default (see {@link TickOutput#create});</li>
+ * <li>{@code headless.output.interval}: the number of ticks between two
+ *     records, 1 by default;</li>
+ * <li>{@code headless.output.directory}: the directory of the output files,
+ *     {@code output} by default;</li>
+ * <li>{@code headless.run.name}: the prefix of the output files, the name of
+ *     the properties file by default;</li>
+ * <li>{@code headless.checkpoint.tick}: the tick after which the state of the
+ *     model is saved to a {@link SimulationCheckpoint} file, named after the
+ *     run and the tick, in the output directory; none by default;</li>
+ * <li>{@code headless.restore.file}: a checkpoint file to restore once the
+ *     model is built, none by default. The run then goes on from the tick
+ *     of the checkpoint up to the last tick;</li>
+ * <li>{@code headless.volume.interval}: the number of ticks between two
+ *     frames of the concentrations of the extracellular matrix, written by
+ *     a {@link MatrixVolumeWriter}; 0, i.e. no frame, by default;</li>
+ * <li>{@code headless.volume.precision}: {@code float} or {@code double},
+ *     the type of the values of the frames, {@code float} by default.</li>
+ * </ul>
+*
+ * Several properties files can be given on the command line; they are run
+ * one after the other in the same virtual machine.
+ *
+ * @author Robert Langlois
+ */
+public final class HeadlessRunner {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    // The prefix of the properties that configure the runner.
+    private static final String RUNNER_PREFIX = "headless.";
+    
+    
+    // The property giving the scenario parameters file.
+    private static final String PARAMETERS_FILE = "headless.parameters.file";
+    
+    
+    // The property giving the names of the outputs.
+    private static final String OUTPUTS = "headless.outputs";
+    
+    
+    // The property giving the number of ticks between two records.
+    private static final String OUTPUT_INTERVAL = "headless.output.interval";
+    
+    
+    // The property giving the directory of the output files.
+    private static final String OUTPUT_DIRECTORY = "headless.output.directory";
+    
+    
+    // The property giving the prefix of the output files.
+    private static final String RUN_NAME = "headless.run.name";
+    
+    
+    // The property giving the tick after which a checkpoint is saved.
+    private static final String CHECKPOINT_TICK = "headless.checkpoint.tick";
+    
+    
+    // The property giving the checkpoint to restore.
+    private static final String RESTORE_FILE = "headless.restore.file";
+    
+    
+    // The property giving the number of ticks between two matrix frames.
+    private static final String VOLUME_INTERVAL = "headless.volume.interval";
+    
+    
+    // The property giving the type of the values of the matrix frames.
+    private static final String VOLUME_PRECISION =
+            "headless.volume.precision";
+    
+    
+    // The value of a parameter without value in the parameters file.
+    private static final String NULL_VALUE = "__NULL__";
+    
+    
+    // CLASS VARIABLES =========================================================
+    
+    
+    // Class logger for messages.
+    private final static Logger logger = Logger.getLogger(HeadlessRunner.class);
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The configuration of the run.
+    private final Properties configuration;
+    
+    
+    // The prefix of the output files.
+    private final String runName;
+    
+    
+    // The parameters of the model, null until built.
+    private Parameters params;
+    
+    
+    // The schedule stepping the model, null until built.
+    private Schedule schedule;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new runner.
+     *
+     * @param newConfiguration The configuration of the run.
+     * @param defaultRunName The prefix of the output files, unless the
+     *                       configuration specifies one.
+     */
+    public HeadlessRunner(final Properties newConfiguration,
+            final String defaultRunName) {
+        
+        this.configuration = newConfiguration;
+        this.runName = newConfiguration.getProperty(RUN_NAME, defaultRunName);
+        
+    } // End of HeadlessRunner()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Runs the model once for each properties file given as argument.
+     *
+     * @param args The paths of the properties files.
+     * @throws Exception If a run cannot be configured or its outputs
+     *                   written.
+     */
+    public static void main(final String[] args) throws Exception {
+        
+        if (args.length == 0) {
+            logger.error("Usage: HeadlessRunner <run.properties>...");
+            return;
+        }
+        
+        try {
+            
+            for (String path : args) {
+                
+                File file = new File(path);
+                
+                Properties configuration = new Properties();
+                InputStream in = new FileInputStream(file);
+                try {
+                    configuration.load(in);
+                } finally {
+                    in.close();
+                }
+                
+                String name = file.getName();
+                if (name.lastIndexOf('.') > 0) {
+                    name = name.substring(0, name.lastIndexOf('.'));
+                }
+                
+                new HeadlessRunner(configuration, name).run();
+                
+            } // End for(path)
+            
+        } finally {
+            
+            // Release the worker threads.
+            SimulationContextHolder.getInstance().setWorkerPool(null);
+            
+        } // End try
+        
+    } // End of main()
+    
+    
+    /**
+     * Builds the model without running it.
+     *
+     * @return The context of the model.
+     * @throws IOException If the parameters file cannot be read.
+     */
+    public Context<Object> build() throws IOException {
+        
+        this.params = loadParameters(new File(
+                this.configuration.getProperty(PARAMETERS_FILE,
+                        "neurogenesis.rs/parameters.xml")));
+        
+        // Same seeding as the Repast runtime: a parameter without value
+        // means a seed taken from the clock.
+        if (this.params.getValue("randomSeed") == null) {
+            this.params.setValue("randomSeed",
+                    Integer.valueOf((int) System.currentTimeMillis()));
+        }
+        RandomHelper.setSeed(this.params.getInteger("randomSeed"));
+        
+        this.schedule = new Schedule();
+        RunEnvironment.init(this.schedule, null, this.params, true);
+        
+        Context<Object> context = new DefaultContext<Object>();
+        RunState.init().setMasterContext(context);
+        context.addContextListener(new AgentScheduler(this.schedule));
+        
+        new NeurogenesisBuilder().build(context);
+        
+        return context;
+        
+    } // End of build()
+    
+    
+    /**
+     * Returns the schedule stepping the model.
+     *
+     * @return The schedule, or {@code null} if the model is not built.
+     */
+    public Schedule getSchedule() {
+        return this.schedule;
+    }
+    
+    
+    /**
+     * Builds the model and runs it up to its last tick.
+     *
+     * @throws IOException If the parameters file cannot be read or an output
+     *                     file written.
+     */
+    public void run() throws IOException {
+        
+        final long startTime = System.nanoTime();
+        
+        Context<Object> context = build();
+        
+        final int ticks = this.params.getInteger("simulation.ticks");
+        final int interval = Integer.parseInt(
+                this.configuration.getProperty(OUTPUT_INTERVAL, "1"));
+        final long checkpointTick = Long.parseLong(
+                this.configuration.getProperty(CHECKPOINT_TICK, "-1"));
+        final int volumeInterval = Integer.parseInt(
+                this.configuration.getProperty(VOLUME_INTERVAL, "0"));
+        
+        // The schedule of a restored model starts over from tick 0.
+        double startTick = 0;
+        
+        String restoreFile = this.configuration.getProperty(RESTORE_FILE);
+        if (restoreFile != null) {
+            startTick = SimulationCheckpoint.restore(
+                    context, new File(restoreFile));
+            logger.info("Run " + this.runName + " restored at tick "
+                    + startTick + ".");
+        }
+        
+        List<TickOutput> outputs = openOutputs();
+        MatrixVolumeWriter volumes = null;
+        
+        logger.info("Run " + this.runName + " built in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms.");
+        
+        try {
+            
+            if (volumeInterval > 0) {
+                volumes = openVolumes();
+            }
+            
+            while (startTick + this.schedule.getTickCount() < ticks) {
+                
+                this.schedule.execute();
+                
+                final double tick = startTick + this.schedule.getTickCount();
+                if (((long) tick) % interval == 0) {
+                    for (TickOutput output : outputs) {
+                        output.record(context, tick);
+                    }
+                }
+                
+                if ((volumes != null)
+                        && (((long) tick) % volumeInterval == 0)) {
+                    volumes.record(SimulationContextHolder.getInstance()
+                            .getExtracellularMatrix(), tick);
+                }
+                
+                if ((long) tick == checkpointTick) {
+                    SimulationCheckpoint.save(context, tick, new File(
+                            getOutputDirectory(),
+                            this.runName + "_" + checkpointTick
+                                    + ".checkpoint"));
+                }
+                
+            } // End while()
+            
+            this.schedule.executeEndActions();
+            
+        } finally {
+            
+            for (TickOutput output : outputs) {
+                output.close();
+            }
+            
+            if (volumes != null) {
+                volumes.close();
+            }
+            
+        } // End try
+        
+        logger.info("Run " + this.runName + " completed " + ticks
+                + " ticks in " + (System.nanoTime() - startTime) / 1000000
+                + " ms.");
+        
+    } // End of run()
+    
+    
+    /**
+     * Creates the model parameters from the scenario parameters file and the
+     * overriding properties of the run configuration.
+     *
+     * @param file The scenario parameters file.
+     * @return The model parameters.
+     * @throws IOException If the parameters file cannot be read.
+     */
+    private Parameters loadParameters(final File file) throws IOException {
+        
+        NodeList nodes;
+        
+        try {
+            nodes = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(file).getElementsByTagName("parameter");
+        } catch (ParserConfigurationException e) {
+            throw new IOException(e);
+        } catch (SAXException e) {
+            throw new IOException("Invalid parameters file: " + file, e);
+        }
+        
+        ParametersCreator creator = new ParametersCreator();
+        Set<String> names = new HashSet<String>();
+        
+        for (int i = 0; i < nodes.getLength(); i++) {
+            
+            Element parameter = (Element) nodes.item(i);
+            String name = parameter.getAttribute("name");
+            String type = parameter.getAttribute("type");
+            String value = this.configuration.getProperty(name,
+                    parameter.getAttribute("defaultValue")).trim();
+            
+            creator.addParameter(name, parameter.getAttribute("displayName"),
+                    getParameterClass(type), parseValue(type, value), false);
+            names.add(name);
+            
+        } // End for(i)
+        
+        for (String key : this.configuration.stringPropertyNames()) {
+            if (!key.startsWith(RUNNER_PREFIX) && !names.contains(key)) {
+                throw new IllegalArgumentException(
+                        "Unknown parameter: " + key);
+            }
+        }
+        
+        return creator.createParameters();
+        
+    } // End of loadParameters()
+    
+    
+    /**
+     * Opens the output files listed in the run configuration.
+     *
+     * @return The outputs opened.
+     * @throws IOException If an output file cannot be created.
+     */
+    private List<TickOutput> openOutputs() throws IOException {
+        
+        List<TickOutput> outputs = new ArrayList<TickOutput>();
+        
+        String names = this.configuration.getProperty(OUTPUTS, "").trim();
+        if (names.isEmpty()) {
+            return outputs;
+        }
+        
+        File directory = getOutputDirectory();
+        
+        for (String name : names.split(",")) {
+            
+            TickOutput output = TickOutput.create(name.trim());
+            output.open(new File(directory,
+                    this.runName + "_" + output.getName() + ".csv"));
+            outputs.add(output);
+            
+        } // End for(name)
+        
+        return outputs;
+        
+    } // End of openOutputs()
+    
+    
+    /**
+     * Opens the file of the frames of the extracellular matrix.
+     *
+     * @return The writer of the frames.
+     * @throws IOException If the file cannot be created.
+     */
+    private MatrixVolumeWriter openVolumes() throws IOException {
+        
+        final String precision =
+                this.configuration.getProperty(VOLUME_PRECISION, "float");
+        
+        if (!"float".equals(precision) && !"double".equals(precision)) {
+            throw new IllegalArgumentException(
+                    "Unknown volume precision: " + precision);
+        }
+        
+        return new MatrixVolumeWriter(
+                new File(getOutputDirectory(),
+                        this.runName + "_ExtracellularMatrix.vol"),
+                Configuration.getInstance().getBrainGridQuadrantSize(),
+                "double".equals(precision));
+        
+    } // End of openVolumes()
+    
+    
+    /**
+     * Returns the directory of the output files, creating it if needed.
+     *
+     * @return The output directory.
+     * @throws IOException If the directory cannot be created.
+     */
+    private File getOutputDirectory() throws IOException {
+        
+        File directory = new File(
+                this.configuration.getProperty(OUTPUT_DIRECTORY, "output"));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory: " + directory);
+        }
+        
+        return directory;
+        
+    } // End of getOutputDirectory()
+    
+    
+    /**
+     * Returns the class of the values of a parameter type.
+     *
+     * @param type The type as given in the parameters file.
+     * @return The class of the values.
+     */
+    private static Class<?> getParameterClass(final String type) {
+        
+        switch (type) {
+        case "int":
+            return Integer.class;
+        case "long":
+            return Long.class;
+        case "double":
+            return Double.class;
+        case "boolean":
+            return Boolean.class;
+        default:
+            return String.class;
+        }
+        
+    } // End of getParameterClass()
+    
+    
+    /**
+     * Converts the value of a parameter from its textual form.
+     *
+     * @param type The type as given in the parameters file.
+     * @param value The value as text.
+     * @return The value, or {@code null} if it has none.
+     */
+    private static Object parseValue(final String type, final String value) {
+        
+        if (NULL_VALUE.equals(value)) {
+            return null;
+        }
+        
+        switch (type) {
+        case "int":
+            return Integer.valueOf(value);
+        case "long":
+            return Long.valueOf(value);
+        case "double":
+            return Double.valueOf(value);
+        case "boolean":
+            return Boolean.valueOf(value);
+        default:
+            return value;
+        }
+        
+    } // End of parseValue()
+    
+    
+} // End of HeadlessRunner class
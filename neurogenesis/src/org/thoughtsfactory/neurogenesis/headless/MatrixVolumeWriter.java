@@ -0,0 +1,244 @@
+package org.thoughtsfactory.neurogenesis.headless;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.thoughtsfactory.neurogenesis.brain.CellProductType;
+import org.thoughtsfactory.neurogenesis.brain.ExtracellularMatrix;
+
+
+/**
+ * Writes frames of the concentrations of the extracellular matrix to an
+ * append-only binary file. Only the header is mapped in memory; each frame
+ * is filled in a buffer reused for every frame, then written through the
+ * channel of the file, so that a long run does not accumulate mappings.
+ * All values are little-endian. The file starts with a header of
+ * {@value #HEADER_SIZE} bytes:
+ * <ul>
+ * <li>the four bytes "NGMV" in that order, then the format version, an
+ *     {@code int};</li>
+ * <li>the size of the grid from the origin to its faces, the number of
+ *     products and the number of bytes of a value, 4 for a {@code float} or
+ *     8 for a {@code double}, all {@code int};</li>
+ * <li>the number of complete frames, an {@code int} updated after each
+ *     frame is written;</li>
+ * <li>the size in bytes of a frame, a {@code long}.</li>
+ * </ul>
+ *
+ * The frames follow, all of the same size, so frame {@code i} starts at
+ * {@code HEADER_SIZE + i * frameSize}. A frame is the tick as a
+ * {@code double}, followed by the volume of each product in the order of
+ * {@link CellProductType}. A volume holds the concentration of every grid
+ * cell, x-axis first, then y-axis and z-axis, i.e. the value of grid cell
+ * {@code (x, y, z)} is at index {@code ((z + q) * n + y + q) * n + x + q},
+ * with {@code q} the size of a quadrant and {@code n = 2 * q + 1}. A reader
+ * can thus map the volume of any frame without copying it.
+ *
+ * @author Robert Langlois
+ */
+public class MatrixVolumeWriter implements Closeable {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The size in bytes of the header of the file.
+     */
+    public static final int HEADER_SIZE = 32;
+    
+    
+    // The first four bytes of the file.
+    private static final byte[] MAGIC_NUMBER = { 'N', 'G', 'M', 'V' };
+    
+    
+    // The version of the file format.
+    private static final int VERSION = 1;
+    
+    
+    // The offset of the number of frames in the header.
+    private static final int FRAME_COUNT_OFFSET = 20;
+    
+    
+    // The products, in the order of the volumes of a frame.
+    private static final CellProductType[] PRODUCT_TYPES =
+            CellProductType.values();
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The size of the grid from the origin to its faces.
+    private final int gridQuadrantSize;
+    
+    
+    // Indicates if values are written as doubles rather than floats.
+    private final boolean doublePrecision;
+    
+    
+    // The size in bytes of a frame.
+    private final long frameSize;
+    
+    
+    // The file written, null once closed.
+    private RandomAccessFile file;
+    
+    
+    // The channel of the file, null once closed.
+    private FileChannel channel;
+    
+    
+    // The header of the file, mapped in memory.
+    private MappedByteBuffer header;
+    
+    
+    // The buffer a frame is filled in before being written.
+    private final ByteBuffer frame;
+    
+    
+    // The number of frames written.
+    private int frameCount = 0;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates the file and writes its header, with no frame yet.
+     *
+     * @param newFile The file to write, replaced if it exists.
+     * @param newGridQuadrantSize The size of the grid from the origin to its
+     *                            faces.
+     * @param newDoublePrecision {@code true} to write values as doubles,
+     *                           {@code false} to write them as floats.
+     * @throws IOException If the file cannot be created.
+     * @throws IllegalArgumentException If a frame would not fit in a buffer.
+     */
+    public MatrixVolumeWriter(final File newFile,
+            final int newGridQuadrantSize, final boolean newDoublePrecision)
+            throws IOException {
+        
+        this.gridQuadrantSize = newGridQuadrantSize;
+        this.doublePrecision = newDoublePrecision;
+        
+        final long gridSize = 2 * newGridQuadrantSize + 1;
+        final int valueSize = newDoublePrecision ? 8 : 4;
+        this.frameSize = 8 + PRODUCT_TYPES.length
+                * gridSize * gridSize * gridSize * valueSize;
+        
+        if (this.frameSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Frames too large: " + this.frameSize + " bytes");
+        }
+        
+        this.frame = ByteBuffer.allocateDirect((int) this.frameSize);
+        this.frame.order(ByteOrder.LITTLE_ENDIAN);
+        
+        this.file = new RandomAccessFile(newFile, "rw");
+        this.file.setLength(0);
+        this.channel = this.file.getChannel();
+        
+        this.header = this.channel.map(
+                FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        this.header.order(ByteOrder.LITTLE_ENDIAN);
+        this.header.put(MAGIC_NUMBER);
+        this.header.putInt(VERSION);
+        this.header.putInt(newGridQuadrantSize);
+        this.header.putInt(PRODUCT_TYPES.length);
+        this.header.putInt(valueSize);
+        this.header.putInt(0);
+        this.header.putLong(this.frameSize);
+        
+    } // End of MatrixVolumeWriter()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Appends a frame of the current concentrations of the matrix.
+     *
+     * @param matrix The extracellular matrix.
+     * @param tick The current tick.
+     * @throws IOException If the frame cannot be written.
+     */
+    public void record(final ExtracellularMatrix matrix, final double tick)
+            throws IOException {
+        
+        final int q = this.gridQuadrantSize;
+        
+        this.frame.clear();
+        this.frame.putDouble(tick);
+        
+        for (CellProductType productType : PRODUCT_TYPES) {
+            for (int z = -q; z <= q; z++) {
+                for (int y = -q; y <= q; y++) {
+                    for (int x = -q; x <= q; x++) {
+                        
+                        final double concentration =
+                                matrix.getConcentration(x, y, z, productType);
+                        
+                        if (this.doublePrecision) {
+                            this.frame.putDouble(concentration);
+                        } else {
+                            this.frame.putFloat((float) concentration);
+                        }
+                        
+                    } // End for(x)
+                } // End for(y)
+            } // End for(z)
+        } // End for(productType)
+        
+        this.frame.flip();
+        
+        long position = HEADER_SIZE + this.frameCount * this.frameSize;
+        while (this.frame.hasRemaining()) {
+            position += this.channel.write(this.frame, position);
+        }
+        
+        // Count the frame only once complete, for concurrent readers.
+        this.frameCount++;
+        this.header.putInt(FRAME_COUNT_OFFSET, this.frameCount);
+        
+    } // End of record()
+    
+    
+    /**
+     * Returns the number of frames written.
+     *
+     * @return The number of frames.
+     */
+    public int getFrameCount() {
+        return this.frameCount;
+    }
+    
+    
+    // INTERFACES IMPLEMENTATION -----------------------------------------------
+    
+    
+    /**
+     * Closes the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override // Closeable
+    public void close() throws IOException {
+        
+        if (this.file != null) {
+            this.header.force();
+            this.header = null;
+            this.channel = null;
+            this.file.close();
+            this.file = null;
+        }
+        
+    } // End of close()
+    
+    
+} // End of MatrixVolumeWriter class
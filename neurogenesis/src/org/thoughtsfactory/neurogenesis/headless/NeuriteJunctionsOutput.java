@@ -0,0 +1,67 @@
+package org.thoughtsfactory.neurogenesis.headless;
+
+import org.thoughtsfactory.neurogenesis.SimulationContextHolder;
+
+import repast.simphony.context.Context;
+
+
+/**
+ * The number of neurite junctions in the brain, as recorded by the "Neurite
+ * Junctions" data set of the scenario.
+ *
+ * @author Robert Langlois
+ */
+public class NeuriteJunctionsOutput extends TickOutput {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The name of the output.
+     */
+    public static final String NAME = "NeuriteJunctions";
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new neurite junctions output.
+     */
+    public NeuriteJunctionsOutput() {
+        super(NAME);
+    }
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the names of the values, separated by commas.
+     *
+     * @return The header line without the tick.
+     */
+    @Override // TickOutput
+    protected String getHeader() {
+        return "NeuriteJunctions";
+    }
+    
+    
+    /**
+     * Appends the values of the current tick, each preceded by a comma.
+     *
+     * @param context The context of the model.
+     * @param line The line being written.
+     */
+    @Override // TickOutput
+    protected void appendValues(final Context<Object> context,
+            final StringBuilder line) {
+        
+        line.append(',').append(SimulationContextHolder.getInstance()
+                .getNeuriteStore().getJunctionCount());
+        
+    } // End of appendValues()
+    
+    
+} // End of NeuriteJunctionsOutput class
@@ -0,0 +1,84 @@
+package org.thoughtsfactory.neurogenesis.headless;
+
+import org.thoughtsfactory.neurogenesis.TickProfiler;
+import org.thoughtsfactory.neurogenesis.TickProfiler.Probe;
+
+import repast.simphony.context.Context;
+
+
+/**
+ * The time spent and the number of calls in each probe of the
+ * {@link TickProfiler} during the tick, and the wall time of the tick. The
+ * values are all 0 unless the profiler is enabled.
+ *
+ * @author Robert Langlois
+ */
+public class ProfileOutput extends TickOutput {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The name of the output.
+     */
+    public static final String NAME = "Profile";
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new profile output.
+     */
+    public ProfileOutput() {
+        super(NAME);
+    }
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the names of the values, separated by commas.
+     *
+     * @return The header line without the tick.
+     */
+    @Override // TickOutput
+    protected String getHeader() {
+        
+        StringBuilder header = new StringBuilder("WallTime");
+        
+        for (Probe probe : Probe.values()) {
+            header.append(',').append(probe.name()).append("_Time")
+                    .append(',').append(probe.name()).append("_Calls");
+        }
+        
+        return header.toString();
+        
+    } // End of getHeader()
+    
+    
+    /**
+     * Appends the values of the current tick, each preceded by a comma.
+     *
+     * @param context The context of the model.
+     * @param line The line being written.
+     */
+    @Override // TickOutput
+    protected void appendValues(final Context<Object> context,
+            final StringBuilder line) {
+        
+        TickProfiler profiler = TickProfiler.getInstance();
+        
+        line.append(',').append(profiler.getLastTickWallTime());
+        
+        for (Probe probe : Probe.values()) {
+            line.append(',').append(profiler.getLastTickTime(probe))
+                    .append(',').append(profiler.getLastTickCalls(probe));
+        }
+        
+    } // End of appendValues()
+    
+    
+} // End of ProfileOutput class
@@ -0,0 +1,73 @@
+package org.thoughtsfactory.neurogenesis.headless;
+
+import org.thoughtsfactory.neurogenesis.ArenaSupervisor;
+import org.thoughtsfactory.neurogenesis.Robot;
+
+import repast.simphony.context.Context;
+
+
+/**
+ * The light intensity measured by each light sensor of the robot, as recorded
+ * by the "Sensors Illumination" data set of the scenario, with one column
+ * per sensor.
+ *
+ * @author Robert Langlois
+ */
+public class SensorsIlluminationOutput extends TickOutput {
+    
+    
+    // CONSTANTS ===============================================================
+    
+    
+    /**
+     * The name of the output.
+     */
+    public static final String NAME = "SensorsIllumination";
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Creates a new sensors illumination output.
+     */
+    public SensorsIlluminationOutput() {
+        super(NAME);
+    }
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Returns the names of the values, separated by commas.
+     *
+     * @return The header line without the tick.
+     */
+    @Override // TickOutput
+    protected String getHeader() {
+        return "LeftLightIntensity,RightLightIntensity";
+    }
+    
+    
+    /**
+     * Appends the values of the current tick, each preceded by a comma.
+     *
+     * @param context The context of the model.
+     * @param line The line being written.
+     */
+    @Override // TickOutput
+    protected void appendValues(final Context<Object> context,
+            final StringBuilder line) {
+        
+        Robot robot = ((ArenaSupervisor)
+                context.getObjects(ArenaSupervisor.class).get(0)).getRobot();
+        
+        line.append(',').append(robot.getLeftLightSensor().getLightIntensity())
+                .append(',')
+                .append(robot.getRightLightSensor().getLightIntensity());
+        
+    } // End of appendValues()
+    
+    
+} // End of SensorsIlluminationOutput class
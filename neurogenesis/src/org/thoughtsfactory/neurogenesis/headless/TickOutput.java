@@ -0,0 +1,159 @@
+package org.thoughtsfactory.neurogenesis.headless;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import repast.simphony.context.Context;
+
+
+/**
+ * An output of a headless run: a set of values taken from the model at
+ * regular ticks and written to a file as comma separated values, one line per
+ * tick preceded by a header line. Outputs mirror the data sets and file sinks
+ * of the Repast Simphony scenario.
+ *
+ * @author Robert Langlois
+ */
+public abstract class TickOutput implements Closeable {
+    
+    
+    // INSTANCE VARIABLES ======================================================
+    
+    
+    // The name of the output, used to select it and to name its file.
+    private final String name;
+    
+    
+    // The writer to the output file, null until opened.
+    private PrintWriter writer;
+    
+    
+    // CONSTRUCTORS ============================================================
+    
+    
+    /**
+     * Initialises a new output.
+     *
+     * @param newName The name of the output.
+     */
+    protected TickOutput(final String newName) {
+        
+        this.name = newName;
+        
+    } // End of TickOutput()
+    
+    
+    // METHODS =================================================================
+    
+    
+    /**
+     * Creates the output with the specified name.
+     *
+     * @param name The name of the output.
+     * @return A new output.
+     * @throws IllegalArgumentException If no output has that name.
+     */
+    public static TickOutput create(final String name) {
+        
+        switch (name) {
+        case AngularPositionOutput.NAME:
+            return new AngularPositionOutput();
+        case SensorsIlluminationOutput.NAME:
+            return new SensorsIlluminationOutput();
+        case CellPopulationOutput.NAME:
+            return new CellPopulationOutput();
+        case NeuriteJunctionsOutput.NAME:
+            return new NeuriteJunctionsOutput();
+        case ExtracellularMatrixOutput.NAME:
+            return new ExtracellularMatrixOutput();
+        case ProfileOutput.NAME:
+            return new ProfileOutput();
+        default:
+            throw new IllegalArgumentException("Unknown output: " + name);
+        }
+        
+    } // End of create()
+    
+    
+    /**
+     * Returns the name of the output.
+     *
+     * @return The name of the output.
+     */
+    public final String getName() {
+        return this.name;
+    }
+    
+    
+    /**
+     * Opens the output file and writes the header line.
+     *
+     * @param file The output file.
+     * @throws IOException If the file cannot be created.
+     */
+    public void open(final File file) throws IOException {
+        
+        this.writer = new PrintWriter(
+                new BufferedWriter(new FileWriter(file)));
+        this.writer.println("tick," + getHeader());
+        
+    } // End of open()
+    
+    
+    /**
+     * Writes the values of the current tick.
+     *
+     * @param context The context of the model.
+     * @param tick The current tick.
+     */
+    public void record(final Context<Object> context, final double tick) {
+        
+        StringBuilder line = new StringBuilder();
+        line.append(tick);
+        appendValues(context, line);
+        
+        this.writer.println(line);
+        
+    } // End of record()
+    
+    
+    /**
+     * Returns the names of the values, separated by commas.
+     *
+     * @return The header line without the tick.
+     */
+    protected abstract String getHeader();
+    
+    
+    /**
+     * Appends the values of the current tick, each preceded by a comma.
+     *
+     * @param context The context of the model.
+     * @param line The line being written.
+     */
+    protected abstract void appendValues(final Context<Object> context,
+            final StringBuilder line);
+    
+    
+    // INTERFACES IMPLEMENTATION -----------------------------------------------
+    
+    
+    /**
+     * Closes the output file.
+     */
+    @Override // Closeable
+    public void close() {
+        
+        if (this.writer != null) {
+            this.writer.close();
+            this.writer = null;
+        }
+        
+    } // End of close()
+    
+    
+} // End of TickOutput class